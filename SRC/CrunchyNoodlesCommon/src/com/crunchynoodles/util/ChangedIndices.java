@@ -0,0 +1,119 @@
+/***  Java Commons and Niceties Library from CrunchyNoodles.com
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package com.crunchynoodles.util;
+
+import java.util.Arrays;
+
+
+/**
+ *  Reusable buffer of slot indices, filled by visiting, e.g. with
+ *  {@link TableOfBoolean#diff(TableOfBoolean, IndexVisitor)}.  Grows as needed and is
+ *  never shrunk, so calling {@link #clear() } and filling again each scan allocates nothing.
+ *  <pre>
+ *    changed.clear();
+ *    now.diff( before, changed );
+ *    for( int j = 0 ; j &lt; changed.size() ; ++j )  route( changed.get( j ) );
+ *  </pre>
+ *
+ *  <p> <strong>Object is not MT-safe.</strong>
+ *
+ * @author brian
+ */
+public class ChangedIndices
+        implements IndexVisitor
+{
+
+    public ChangedIndices()
+    {
+        this( 16 );
+    }
+
+    /***
+     *  Create with room for some indices before growing.
+     * @param capacity initial room, &gt; 0.
+     */
+    public ChangedIndices( int capacity )
+    {
+        if( capacity <= 0 )
+            throw new IllegalArgumentException( "capacity <= 0" );
+
+        m_index = new int[ capacity ];
+    }
+
+    /***
+     *  Append an index.
+     * @param index slot index.
+     */
+    @Override
+    public void  visit( int index )
+    {
+        if( m_count == m_index.length )
+            m_index = Arrays.copyOf( m_index, m_count * 2 );
+
+        m_index[ m_count++ ] = index;
+    }
+
+    /*** Forget all indices, keeping the room. */
+    public void  clear()
+    {
+        m_count = 0;
+    }
+
+    /*** @return count of indices held. */
+    public int  size()
+    {
+        return m_count;
+    }
+
+    /*** @return true if no indices held. */
+    public boolean  isEmpty()
+    {
+        return m_count == 0;
+    }
+
+    /***
+     *  Fetch an index, in order visited.
+     * @param j 0 to {@link #size() } - 1.
+     * @return slot index.
+     * @throws IndexOutOfBoundsException if {@code j} is out of range.
+     */
+    public int  get( int j )
+    {
+        if( j < 0 || j >= m_count )
+            throw new IndexOutOfBoundsException( "j=" + j + ", size=" + m_count );
+
+        return m_index[ j ];
+    }
+
+    /*** @return new array of the indices held. */
+    public int[]  toArray()
+    {
+        return Arrays.copyOf( m_index, m_count );
+    }
+
+    @Override
+    public String  toString()
+    {
+        return "ChangedIndices:" + Arrays.toString( toArray() );
+    }
+
+    //--------------------------  INSTANCE VARS  -------------------------
+
+    private int[]       m_index;
+
+    private int         m_count;
+
+}
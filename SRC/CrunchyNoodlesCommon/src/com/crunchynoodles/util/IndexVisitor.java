@@ -0,0 +1,35 @@
+/***  Java Commons and Niceties Library from CrunchyNoodles.com
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package com.crunchynoodles.util;
+
+
+/**
+ *  Told of slot indices one at a time, e.g. the slots that differ between two
+ *  {@link TableOfBoolean}s.  A primitive {@code int} is passed, so nothing is boxed.
+ *
+ * @see TableOfBoolean#diff(TableOfBoolean, IndexVisitor)
+ * @author brian
+ */
+public interface IndexVisitor
+{
+
+    /***
+     *  Visit one index.
+     * @param index slot index, non-negative.
+     */
+    public void  visit( int index );
+
+}
@@ -0,0 +1,348 @@
+/***  Java Commons and Niceties Library from CrunchyNoodles.com
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package com.crunchynoodles.util;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *  A wait-free ring of bytes for exactly ONE producer thread and exactly ONE consumer thread.
+ *  No monitors are taken and nothing is allocated after construction.
+ *
+ * <p> The producer calls the {@code offer()} methods, e.g. from a serial-port event thread.
+ *  The consumer calls {@code poll()}, {@code drainTo()}, {@link #clear() } and
+ *  {@link #awaitAvailable(long) }.
+ *  Mixing up the roles, or having two producers, corrupts the ring.
+ *
+ * <p> Head (consumer) and tail (producer) sequences live on their own cache lines so the
+ *  two threads don't fight over them.  Each side keeps a private copy of the other side's
+ *  sequence and only re-reads the shared one when it looks like the ring is full or empty.
+ *
+ * <p> A waiting consumer is parked with {@link LockSupport#parkNanos(long) } against a
+ *  {@link System#nanoTime() } deadline, and is un-parked by the producer only when it is
+ *  actually waiting.
+ *
+ * @author brian
+ */
+public class SpscByteRingBuffer
+{
+    /***
+     *  Create ring holding at least {@code minCapacity} bytes ; actual capacity is
+     *  rounded up to a power of two.
+     *
+     * @param minCapacity fewest bytes ring must hold, must be positive.
+     */
+    public SpscByteRingBuffer( int minCapacity )
+    {
+        if( minCapacity <= 0 || minCapacity > (1 << 30) )
+            throw new IllegalArgumentException( "minCapacity out of range" );
+
+        int  cap = Integer.highestOneBit( minCapacity );
+        if( cap < minCapacity )
+            cap <<= 1;
+
+        m_array = new byte[ cap ];
+        m_mask  = cap - 1;
+        m_head  = new PaddedSequence();
+        m_tail  = new PaddedSequence();
+    }
+
+    //---------------------------  Producer Side  ----------------------------
+
+    /***
+     *  Append one byte.  Producer thread only.
+     *
+     * @param ch byte to append.
+     * @return {@code true} if stored, {@code false} if the ring was full and byte dropped.
+     */
+    public boolean  offer( byte ch )
+    {
+        final long  tail = m_tail.get();
+
+        if( tail - m_tail.cache >= m_array.length )
+        {
+            m_tail.cache = m_head.get();
+            if( tail - m_tail.cache >= m_array.length )
+            {
+                m_dropped += 1;
+                return false;
+            }
+        }
+
+        m_array[ (int) tail & m_mask ] = ch;
+        _publish( tail + 1 );
+        return true;
+    }
+
+    /***
+     *  Append a run of bytes with a single publish.  Producer thread only.
+     *  If there isn't room for all of them, as many as fit are stored and the rest dropped.
+     *
+     * @param buf bytes to append.
+     * @param off index of first byte in {@code buf}.
+     * @param len count of bytes to append.
+     * @return count actually stored.
+     */
+    public int      offer( byte[] buf, int off, int len )
+    {
+        final long  tail = m_tail.get();
+        final int   cap = m_array.length;
+
+        int  room = cap - (int) (tail - m_tail.cache);
+        if( room < len )
+        {
+            m_tail.cache = m_head.get();
+            room = cap - (int) (tail - m_tail.cache);
+        }
+
+        int  n = Math.min( room, len );
+        if( n <= 0 )
+        {
+            m_dropped += len;
+            return 0;
+        }
+
+        //  Copy in at most two pieces: up to end of array, then wrapped to front.
+        int  pos = (int) tail & m_mask;
+        int  first = Math.min( n, cap - pos );
+        System.arraycopy( buf, off, m_array, pos, first );
+        if( first < n )
+            System.arraycopy( buf, off + first, m_array, 0, n - first );
+
+        _publish( tail + n );
+
+        if( n < len )
+            m_dropped += len - n;
+        return n;
+    }
+
+    /***
+     *  Make bytes up to {@code newTail} visible to consumer, and wake it if waiting.
+     *  The tail store is volatile so it cannot pass the read of the waiter.
+     */
+    private void    _publish( long newTail )
+    {
+        m_tail.set( newTail );
+
+        Thread  w = m_waiter;
+        if( w != null )
+            LockSupport.unpark( w );
+    }
+
+    //---------------------------  Consumer Side  ----------------------------
+
+    /***
+     *  Remove one byte.  Consumer thread only.
+     * @return byte as 0 to 255, or -1 if ring is empty.
+     */
+    public int      poll()
+    {
+        final long  head = m_head.get();
+
+        if( head >= m_head.cache )
+        {
+            m_head.cache = m_tail.get();
+            if( head >= m_head.cache )
+                return -1;
+        }
+
+        int  ch = m_array[ (int) head & m_mask ] & 0xff;
+        m_head.lazySet( head + 1 );
+        return ch;
+    }
+
+    /***
+     *  Move as many bytes as available, up to {@code maxLen}, into caller's array.
+     *  Consumer thread only.
+     *
+     * @param dst where to copy.
+     * @param off index in {@code dst} for first byte.
+     * @param maxLen most bytes to copy.
+     * @return count of bytes copied, zero if ring was empty.
+     */
+    public int      drainTo( byte[] dst, int off, int maxLen )
+    {
+        final long  head = m_head.get();
+
+        int  avail = (int) (m_head.cache - head);
+        if( avail < maxLen )
+        {
+            m_head.cache = m_tail.get();
+            avail = (int) (m_head.cache - head);
+        }
+
+        int  n = Math.min( avail, maxLen );
+        if( n <= 0 )
+            return 0;
+
+        int  pos = (int) head & m_mask;
+        int  first = Math.min( n, m_array.length - pos );
+        System.arraycopy( m_array, pos, dst, off, first );
+        if( first < n )
+            System.arraycopy( m_array, 0, dst, off + first, n - first );
+
+        m_head.lazySet( head + n );
+        return n;
+    }
+
+    /***
+     *  Discard everything the producer has published so far.  Consumer thread only.
+     */
+    public void     clear()
+    {
+        m_head.cache = m_tail.get();
+        m_head.lazySet( m_head.cache );
+    }
+
+    /***
+     *  Park the consumer until at least one byte is available or the deadline passes.
+     *  Consumer thread only.
+     *
+     * @param deadlineNanos {@link System#nanoTime() } value at which to give up.
+     * @return {@code true} if data is available, {@code false} if the deadline passed first.
+     * @throws InterruptedException if the consumer thread is interrupted while waiting.
+     */
+    public boolean  awaitAvailable( long deadlineNanos )
+            throws InterruptedException
+    {
+        if( ! isEmpty() )
+            return true;
+
+        m_waiter = Thread.currentThread();
+        try
+        {
+            //  Re-check after publishing ourselves as waiter, so a concurrent offer() can't be missed.
+            while( isEmpty() )
+            {
+                long  remaining = deadlineNanos - System.nanoTime();
+                if( remaining <= 0 )
+                    return false;
+
+                LockSupport.parkNanos( this, remaining );
+
+                if( Thread.interrupted() )
+                    throw new InterruptedException();
+            }
+            return true;
+        }
+        finally
+        {
+            m_waiter = null;
+        }
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /***
+     *  Count of bytes waiting.  Exact when called by the consumer, a snapshot otherwise.
+     * @return bytes available to consumer.
+     */
+    public int      size()
+    {
+        return (int) (m_tail.get() - m_head.get());
+    }
+
+    /*** @return {@code true} if no bytes are waiting. */
+    public boolean  isEmpty()
+    {
+        return m_tail.get() == m_head.get();
+    }
+
+    /*** @return most bytes the ring can hold. */
+    public int      capacity()
+    {
+        return m_array.length;
+    }
+
+    /***
+     *  Statistics: bytes the producer had to drop because the ring was full.
+     *  Only written by the producer thread.
+     * @return count of bytes dropped.
+     */
+    public long     getDroppedCount()
+    {
+        return m_dropped;
+    }
+
+    //--------------------------  Padded Sequence  ---------------------------
+
+    /***
+     *  Padding that lands ahead of {@link SequenceValue }'s fields.
+     *  Fields of a superclass are laid out before those of a subclass, so splitting the
+     *  pads across a class hierarchy keeps the JVM from packing them all on one side.
+     */
+    static class LhsPadding
+    {
+        protected long  p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    /***
+     *  The sequence itself, plus the owning thread's private {@code cache} of the
+     *  <em>other</em> sequence, kept here so it rides on the owner's cache line.
+     */
+    static class SequenceValue extends LhsPadding
+    {
+        protected volatile long value;
+
+        long                    cache;
+    }
+
+    /***
+     *  A sequence padded out past a 64-byte cache line on both sides, so head and tail
+     *  don't share a line with each other or with neighbouring objects.
+     */
+    static final class PaddedSequence extends SequenceValue
+    {
+        protected long  p9, p10, p11, p12, p13, p14, p15;
+
+        private static final AtomicLongFieldUpdater<SequenceValue>  VALUE =
+                AtomicLongFieldUpdater.newUpdater( SequenceValue.class, "value" );
+
+        long    get()
+        {
+            return value;
+        }
+
+        void    set( long v )
+        {
+            value = v;
+        }
+
+        /*** Ordered store, no StoreLoad fence ; enough for the single writer of this sequence. */
+        void    lazySet( long v )
+        {
+            VALUE.lazySet( this, v );
+        }
+    }
+
+    //-------------------------  Instance Variables  --------------------------
+
+    private final byte[]            m_array;
+
+    private final int               m_mask;
+
+    /*** Next sequence the consumer will read ; its cache is consumer's copy of tail. */
+    private final PaddedSequence    m_head;
+
+    /*** Next sequence the producer will write ; its cache is producer's copy of head. */
+    private final PaddedSequence    m_tail;
+
+    /*** Consumer thread while parked in {@link #awaitAvailable(long) }, else {@code null}. */
+    private volatile Thread         m_waiter;
+
+    private volatile long           m_dropped;
+
+}
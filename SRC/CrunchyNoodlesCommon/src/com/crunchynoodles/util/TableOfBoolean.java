@@ -38,6 +38,12 @@ import java.util.NoSuchElementException;
  *  <p> Built out of frustration at trying to use {@code HashMap<Integer, Boolean>}.
  *  It's easier with C# cuz it boxes primitive types automagically.
  *
+ *  <p> Stored as two bit planes packed 64 slots to a {@code long}: one for "has a value"
+ *  and one for the value.  Set operations, compares and {@link #nextSetBit(int) } work a
+ *  word at a time, and nothing is allocated except when the table grows.  CMRI-style
+ *  packed byte images go in and out with {@link #setFromBytes(byte[], int, int) } and
+ *  {@link #toBytes(byte[], int, int) }.
+ *
  *  <p> <strong>Object is not MT-safe.</strong>
  *
  * @see {@code interface Collection<E>}
@@ -69,8 +75,9 @@ public class TableOfBoolean
         if( init_size <= 0 )
             throw new IllegalArgumentException( "init_size <= 0" );
 
-        m_has_value = new boolean[ init_size ];     // false here means value is "unset".
-        m_value     = new boolean[ init_size ];
+        m_has_value = new long[ _words( init_size ) ];     // 0 bit here means value is "unset".
+        m_value     = new long[ _words( init_size ) ];
+        m_size      = init_size;
     }
 
     public TableOfBoolean( final boolean[] seed )
@@ -89,7 +96,7 @@ public class TableOfBoolean
      */
     public void clear()
     {
-        Arrays.fill( m_has_value, false );
+        Arrays.fill( m_has_value, 0L );
     }
 
     /***
@@ -100,9 +107,9 @@ public class TableOfBoolean
      */
     public boolean isEmpty()
     {
-        for( boolean b : m_has_value )
+        for( long w : m_has_value )
         {
-            if( b ) return false;
+            if( w != 0L ) return false;
         }
         return true;
     }
@@ -111,6 +118,7 @@ public class TableOfBoolean
      *  Resize our array-of-booleans.  If growing size, then new entries are "unset".
      *  Exception thrown is shrinking to 0 or a negative size.
      *  Normally {@link Arrays.copyOf()} would throw NegativeArraySizeException, but not here.
+     *  Storage is only reallocated when growing past what's already there.
      *
      * @param newCapacity new array size.
      * @throws IllegalArgumentException if {@link newCapacity} is non-positive.
@@ -120,8 +128,21 @@ public class TableOfBoolean
         if( newCapacity <= 0 )
             throw new IllegalArgumentException( "newCapacity <= 0" );
 
-        m_has_value = Arrays.copyOf( m_has_value, newCapacity );
-        m_value = Arrays.copyOf( m_value, newCapacity );
+        int  words = _words( newCapacity );
+        if( words > m_value.length )
+        {
+            m_has_value = Arrays.copyOf( m_has_value, words );
+            m_value = Arrays.copyOf( m_value, words );
+        }
+        else
+        if( newCapacity < m_size )
+        {
+            //  Forget slots past new end, so growing again finds them unset and false.
+            _clearFrom( m_has_value, newCapacity );
+            _clearFrom( m_value, newCapacity );
+        }
+
+        m_size = newCapacity;
     }
 
     /***
@@ -133,7 +154,7 @@ public class TableOfBoolean
      */
     public int size()
     {
-        return m_value.length;
+        return m_size;
     }
 
     //--------------------  ITERATOR AND ITERATION  -------------------
@@ -145,15 +166,15 @@ public class TableOfBoolean
      */
     Object[]  toArray()
     {
-        int  len = m_value.length;
+        int  len = m_size;
         Boolean[]  result = new Boolean[ len ];
 
         //  'result' is initially all null references.  Insert all TRUE slots.
         for( int j = len ; --j >= 0 ; )
         {
-            if( m_has_value[ j ] )
+            if( _bit( m_has_value, j ) )
             {
-                result[ j ] = m_value[j];
+                result[ j ] = _bit( m_value, j );
             }
         }
 
@@ -180,7 +201,7 @@ public class TableOfBoolean
         {
             m_index = -1;
             if( hasNext() == false )            // if there are no places with "put values",
-                m_index = m_has_value.length;   // .. then indicate nothing to do.
+                m_index = m_size;               // .. then indicate nothing to do.
 
         }
 
@@ -189,16 +210,16 @@ public class TableOfBoolean
         {
             // Returns true if the iteration has more elements.
             // (In other words, returns true if next() would return an element rather than throwing an exception.)
-            return( m_index == -1 || m_index < m_has_value.length );
+            return( m_index == -1 || m_index < m_size );
         }
 
         final Boolean nextEntry()
         {
-            while( ++m_index < m_has_value.length )
+            while( ++m_index < m_size )
             {
-                if( m_has_value[m_index] )
+                if( _bit( m_has_value, m_index ) )
                 {
-                    return( m_value[m_index] );
+                    return( _bit( m_value, m_index ) );
                 }
             }
             //  Nothing there ( slot is unset ) so return null.
@@ -209,7 +230,7 @@ public class TableOfBoolean
         @SuppressWarnings("unchecked")
         public final E next()
         {
-            if( m_index >= m_has_value.length )
+            if( m_index >= m_size )
                 throw new NoSuchElementException();
 
             return (E) nextEntry();
@@ -218,7 +239,7 @@ public class TableOfBoolean
         @Override
         public final void remove()
         {
-            if( m_index < 0 || m_index >= m_has_value.length )
+            if( m_index < 0 || m_index >= m_size )
                 throw new IllegalStateException();
             TableOfBoolean.this.remove( m_index );    // .m_has_value[ m_index ] = false;
             ++m_index;
@@ -235,8 +256,8 @@ public class TableOfBoolean
      */
     public boolean get( int index )
     {
-        if( 0 <= index && index < m_value.length )
-            return m_value[ index ];
+        if( 0 <= index && index < m_size )
+            return _bit( m_value, index );
 
         return false;
     }
@@ -249,7 +270,7 @@ public class TableOfBoolean
      */
     public boolean containsKey( int index )
     {
-        if( 0 <= index && index < m_value.length && m_has_value[index] )
+        if( 0 <= index && index < m_size && _bit( m_has_value, index ) )
             return true;
 
         return false;
@@ -263,7 +284,7 @@ public class TableOfBoolean
     public Boolean getEntry( int index )
     {
         if( containsKey( index ) )
-            return new Boolean( m_value[index] );
+            return Boolean.valueOf( _bit( m_value, index ) );
 
         return null;
     }
@@ -280,10 +301,10 @@ public class TableOfBoolean
     {
         boolean  last_value = false;
 
-        if( 0 <= index && index < m_has_value.length )
+        if( 0 <= index && index < m_size )
         {
-            last_value = m_value[ index ];
-            m_has_value[ index ] = false;
+            last_value = _bit( m_value, index );
+            m_has_value[ index >>> 6 ] &= ~(1L << index);
         }
 
         return( last_value );
@@ -306,11 +327,15 @@ public class TableOfBoolean
         if( index < 0 )
             throw new IllegalArgumentException( "index < 0" );
 
-        if( index >= m_value.length )
+        if( index >= m_size )
             resize( index + 1 );
 
-        m_value[ index ] = v;
-        m_has_value[ index ] = true;
+        long  bit = 1L << index;
+        if( v )
+            m_value[ index >>> 6 ] |= bit;
+        else
+            m_value[ index >>> 6 ] &= ~bit;
+        m_has_value[ index >>> 6 ] |= bit;
     }
 
     /***
@@ -324,16 +349,83 @@ public class TableOfBoolean
     {
         if( null != readArray )
         {
-            int  j = readArray.length ;
+            int  len = readArray.length ;
 
-            this.resize( j );
-            while( --j >= 0 )
+            this.resize( len );
+            for( int w = _words( len ) ; --w >= 0 ; )
             {
-                this.put( j, readArray[j] );
+                long  v = 0L;
+                int   end = Math.min( len, (w + 1) << 6 );
+                for( int j = end ; --j >= (w << 6) ; )
+                {
+                    v = (v << 1) | ( readArray[ j ] ? 1L : 0L );
+                }
+                m_value[ w ] = v;
+                m_has_value[ w ] = _lowMask( end - (w << 6) );
             }
         }
     }
 
+    /***
+     *  Set values from a packed byte image, as a CMRI unit sends its inputs: slot {@code n}
+     *  is bit {@code n % 8} of byte {@code offset + n / 8}.  Like {@link #setFrom(boolean[]) },
+     *  table is resized to {@code length * 8} slots, all with a value.
+     *  Compares as it goes, so caller learns of a change without a second pass.
+     *
+     * @param src packed bytes.
+     * @param offset index of first byte in {@code src}.
+     * @param length count of bytes, &gt; 0.
+     * @return {@code true} if any slot's value or having a value changed, including
+     *      by a change of size.
+     * @throws IllegalArgumentException if {@code length} is non-positive.
+     */
+    public boolean  setFromBytes( final byte[] src, int offset, int length )
+    {
+        if( length <= 0 )
+            throw new IllegalArgumentException( "length <= 0" );
+
+        int  len = length << 3;
+        boolean  changed = ( len != m_size );
+
+        this.resize( len );
+        for( int w = _words( len ) ; --w >= 0 ; )
+        {
+            int   base = w << 3;
+            int   end = Math.min( length, base + 8 );
+            long  v = 0L;
+            for( int j = end ; --j >= base ; )
+            {
+                v = (v << 8) | (src[ offset + j ] & 0xffL);
+            }
+            long  h = _lowMask( (end - base) << 3 );
+
+            if( ! changed && ( h != m_has_value[ w ] || v != (m_value[ w ] & h) ) )
+                changed = true;
+            m_value[ w ] = v;
+            m_has_value[ w ] = h;
+        }
+
+        return changed;
+    }
+
+    /***
+     *  Write values as a packed byte image, the reverse of {@link #setFromBytes(byte[], int, int) }.
+     *  Unset slots and slots past {@link #size() } are written as 0 bits.
+     *
+     * @param dst where to write.
+     * @param offset index of first byte in {@code dst}.
+     * @param length count of bytes to write.
+     */
+    public void  toBytes( byte[] dst, int offset, int length )
+    {
+        for( int j = 0 ; j < length ; ++j )
+        {
+            int  w = j >>> 3;
+            long  v = ( w < m_value.length ) ? (m_value[ w ] & m_has_value[ w ]) : 0L;
+            dst[ offset + j ] = (byte) (v >>> ((j & 7) << 3));
+        }
+    }
+
     /***
      *  Set values from a provided Table.  If new value is put, then it updates
   existing value.  If a mismatch in size, {@code this} will expand but not
@@ -345,16 +437,88 @@ public class TableOfBoolean
     {
         if( null != newValues )
         {
-            Boolean  nv;
-            for( int j = newValues.size() ; --j >= 0 ; )
+            if( newValues.m_size > m_size )
+                this.resize( newValues.m_size );
+
+            for( int w = _words( newValues.m_size ) ; --w >= 0 ; )
             {
-                nv = newValues.getEntry( j );
-                if( null != nv )
-                    this.put( j, nv );
+                long  h = newValues.m_has_value[ w ];
+                m_value[ w ] = (m_value[ w ] & ~h) | (newValues.m_value[ w ] & h);
+                m_has_value[ w ] |= h;
             }
         }
     }
 
+    /***
+     *  Would {@link #setFrom(TableOfBoolean) } with {@code newValues} change anything?
+     *  Lets a caller skip work, e.g. a new snapshot, when an update repeats what's known.
+     *
+     *  @param newValues values that would be merged in, OK if {@code null}.
+     *  @return {@code true} if some slot would get a value, or a different one, or
+     *      {@code this} would have to grow.
+     */
+    public boolean  wouldChangeFrom( final TableOfBoolean newValues )
+    {
+        if( null == newValues )
+            return false;
+        if( newValues.m_size > m_size )
+            return true;
+
+        for( int w = _words( newValues.m_size ) ; --w >= 0 ; )
+        {
+            long  h = newValues.m_has_value[ w ];
+            if( (m_has_value[ w ] & h) != h || ((m_value[ w ] ^ newValues.m_value[ w ]) & h) != 0L )
+                return true;
+        }
+        return false;
+    }
+
+    //------------------------  PACKED WORDS  -----------------------
+
+    /***
+     *  Count of {@code long} words holding {@link #size() } slots, 64 slots per word.
+     * @return word count.
+     */
+    public int  getWordCount()
+    {
+        return _words( m_size );
+    }
+
+    /***
+     *  Copy out the packed planes, slot {@code n} being bit {@code n % 64} of word {@code n / 64}.
+     *  For handing a table's contents to some other storage without boxing.
+     *
+     * @param values where to write value words, at least {@link #getWordCount() } long.
+     * @param hasValues where to write has-value words, at least {@link #getWordCount() } long.
+     * @return count of words written.
+     */
+    public int  copyWordsTo( long[] values, long[] hasValues )
+    {
+        int  n = getWordCount();
+        System.arraycopy( m_value, 0, values, 0, n );
+        System.arraycopy( m_has_value, 0, hasValues, 0, n );
+        return n;
+    }
+
+    /***
+     *  Replace all contents from packed planes, the reverse of {@link #copyWordsTo(long[], long[]) }.
+     *
+     * @param values value words.
+     * @param hasValues has-value words.
+     * @param size count of slots, &gt; 0 ; bits past it are ignored.
+     * @throws IllegalArgumentException if {@code size} is non-positive.
+     */
+    public void  setFromWords( final long[] values, final long[] hasValues, int size )
+    {
+        this.resize( size );
+
+        int  n = _words( size );
+        System.arraycopy( values, 0, m_value, 0, n );
+        System.arraycopy( hasValues, 0, m_has_value, 0, n );
+        _clearFrom( m_value, size );
+        _clearFrom( m_has_value, size );
+    }
+
     //------------------------  BOOLEAN OPERATORS  -----------------------
 
     /***
@@ -366,31 +530,18 @@ public class TableOfBoolean
     {
         if( null != rhs )
         {
-            Boolean     ll, rr;
-            int         rhs_size = rhs.size();
-            int         j;
-            final int   new_size = Math.max( this.size(), rhs_size );
+            final int   new_size = Math.max( this.size(), rhs.size() );
             this.resize( new_size );
 
-            for( j = rhs_size ; --j >= 0 ; )
+            for( int w = _words( rhs.m_size ) ; --w >= 0 ; )
             {
-                ll = this.getEntry( j );
-                rr = rhs.getEntry( j );
-                if( null != ll || null != rr )
-                {
-                    if( null == ll )
-                        ll = Boolean.FALSE;
-                    if( null == rr )
-                        rr = Boolean.FALSE;
+                long  lh = m_has_value[ w ],      lv = m_value[ w ];
+                long  rh = rhs.m_has_value[ w ],  rv = rhs.m_value[ w ];
 
-                    //  If either side has a value, then we can compute union.
-                    this.put( j, ll || rr );
-                }
-                else
-                {
-                    //  Neither side has a value, so remove.
-                    this.remove( j );
-                }
+                //  If either side has a value, then we can compute union, missing side being false.
+                //  Neither side has a value stays unset.
+                m_value[ w ] = (lh & lv) | (rh & rv) | (~(lh | rh) & lv);
+                m_has_value[ w ] = lh | rh;
             }
         }
     }
@@ -405,32 +556,20 @@ public class TableOfBoolean
     {
         if( null != rhs )
         {
-            Boolean     ll, rr;
-            int         rhs_size = rhs.size();
-            int         j;
-            final int   new_size = Math.max( this.size(), rhs_size );
+            final int   new_size = Math.max( this.size(), rhs.size() );
             this.resize( new_size );
 
-            for( j = rhs_size ; --j >= 0 ; )
-            {
-                ll = this.getEntry( j );
-                rr = rhs.getEntry( j );
-                if( null != ll && null != rr )
-                {
-                    //  When both side has a value, then we can compute intersection.
-                    this.put( j, ll && rr );
-                }
-                else
-                {
-                    //  One size or other has a value, so remove.
-                    this.remove( j );
-                }
-            }
-
-            //  If unionWith RHS has fewer places, then shrink ourselves.
-            for ( j = rhs_size ; j < this.size() ; ++j )
+            int  rhs_words = _words( rhs.m_size );
+            for( int w = m_value.length ; --w >= 0 ; )
             {
-                this.remove( j );
+                //  When both side has a value, then we can compute intersection ; otherwise remove.
+                //  If RHS has fewer places, then ours past its end are removed.
+                long  rh = ( w < rhs_words ) ? rhs.m_has_value[ w ] : 0L;
+                long  rv = ( w < rhs_words ) ? rhs.m_value[ w ] : 0L;
+                long  both = m_has_value[ w ] & rh;
+
+                m_value[ w ] &= rv | ~both;
+                m_has_value[ w ] = both;
             }
         }
     }
@@ -453,22 +592,17 @@ public class TableOfBoolean
         if( rhs == null )
             return false;
 
-        int   max_size = Math.max( this.size(), rhs.size() );
+        int   max_words = Math.max( this.m_value.length, rhs.m_value.length );
 
-        for( int j = max_size ; --j >= 0 ; )
+        for( int w = max_words ; --w >= 0 ; )
         {
-            Boolean  ll = this.getEntry( j );
-            Boolean  rr =  rhs.getEntry( j );
+            long  lh = ( w < this.m_value.length ) ? this.m_has_value[ w ] : 0L;
+            long  rh = ( w < rhs.m_value.length ) ? rhs.m_has_value[ w ] : 0L;
 
-            //  We're dealing with references here, so "if( ll != rr )" mearly compares references,
-            //  not the actual values, i.e. true or false.
-            if( (ll == null && rr != null) ||
-                (ll != null && rr == null) )
-            {
-                //  One side is null but other isn't, so not same.
+            //  One side has a value but other doesn't, so not same.
+            if( lh != rh )
                 return false;
-            }
-            if( ll != null && rr != null && ll.compareTo(rr) != 0 )
+            if( lh != 0L && (this.m_value[ w ] & lh) != (rhs.m_value[ w ] & rh) )
                 return false;
         }
 
@@ -476,12 +610,161 @@ public class TableOfBoolean
         return true;
     }
 
+    //------------------------  SEARCHING  -----------------------
+
+    /***
+     *  Find next slot, at or after {@code fromIndex}, that has a value and it is {@code true}.
+     *  Same idea as {@link java.util.BitSet#nextSetBit(int) }:
+     *  <pre>
+     *    for( int j = t.nextSetBit( 0 ) ; j >= 0 ; j = t.nextSetBit( j + 1 ) ) { ... }
+     *  </pre>
+     *
+     * @param fromIndex where to start looking (OK if negative).
+     * @return slot index, or -1 if no more.
+     */
+    public int  nextSetBit( int fromIndex )
+    {
+        return _next( fromIndex, FIND_SET );
+    }
+
+    /***
+     *  Find next slot, at or after {@code fromIndex}, that has a value and it is {@code false}.
+     *  Unlike {@link java.util.BitSet#nextClearBit(int) }, unset slots are skipped.
+     *
+     * @param fromIndex where to start looking (OK if negative).
+     * @return slot index, or -1 if no more.
+     */
+    public int  nextClearBit( int fromIndex )
+    {
+        return _next( fromIndex, FIND_CLEAR );
+    }
+
+    /***
+     *  Find next slot, at or after {@code fromIndex}, that has a value, either {@code true}
+     *  or {@code false}.  The primitive walk of what {@link #iterator() } gives.
+     *
+     * @param fromIndex where to start looking (OK if negative).
+     * @return slot index, or -1 if no more.
+     */
+    public int  nextKey( int fromIndex )
+    {
+        return _next( fromIndex, FIND_KEY );
+    }
+
+    /***
+     *  Visit each slot that differs from {@code rhs}: has a value on one side only, or
+     *  different values.  Same test as {@link #isSame(TableOfBoolean) }, but tells which.
+     *  Slots are visited in increasing order, a word at a time, so cost is in words
+     *  compared plus slots that differ, not slots compared.
+     *
+     * @param rhs table to compare to ; {@code null} is taken as empty.
+     * @param visitor told each slot that differs, e.g. a {@link ChangedIndices}.
+     * @return count of slots that differ.
+     */
+    public int  diff( final TableOfBoolean rhs, IndexVisitor visitor )
+    {
+        long[]  rh_plane = ( rhs != null ) ? rhs.m_has_value : new long[0];
+        long[]  rv_plane = ( rhs != null ) ? rhs.m_value : new long[0];
+        int     max_words = Math.max( m_value.length, rh_plane.length );
+        int     count = 0;
+
+        for( int w = 0 ; w < max_words ; ++w )
+        {
+            long  lh = ( w < m_value.length ) ? m_has_value[ w ] : 0L;
+            long  lv = ( w < m_value.length ) ? (m_value[ w ] & lh) : 0L;
+            long  rh = ( w < rh_plane.length ) ? rh_plane[ w ] : 0L;
+            long  rv = ( w < rh_plane.length ) ? (rv_plane[ w ] & rh) : 0L;
+
+            long  d = (lh ^ rh) | (lv ^ rv);
+            while( d != 0L )
+            {
+                visitor.visit( (w << 6) + Long.numberOfTrailingZeros( d ) );
+                d &= d - 1;
+                ++count;
+            }
+        }
+
+        return count;
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /***
+     *  Word of slots to search, per kind of search.
+     */
+    private long _findWord( int w, int kind )
+    {
+        switch( kind )
+        {
+            case FIND_SET:      return m_value[ w ] & m_has_value[ w ];
+            case FIND_CLEAR:    return ~m_value[ w ] & m_has_value[ w ];
+            default:            return m_has_value[ w ];
+        }
+    }
+
+    private int _next( int fromIndex, int kind )
+    {
+        if( fromIndex < 0 )
+            fromIndex = 0;
+        if( fromIndex >= m_size )
+            return -1;
+
+        int   w = fromIndex >>> 6;
+        long  word = _findWord( w, kind ) & (-1L << fromIndex);
+        while( word == 0L )
+        {
+            if( ++w >= m_value.length )
+                return -1;
+            word = _findWord( w, kind );
+        }
+
+        int  j = (w << 6) + Long.numberOfTrailingZeros( word );
+        return ( j < m_size ) ? j : -1;
+    }
+
+    /*** Count of longs to hold {@code slots} bits. */
+    private static int _words( int slots )
+    {
+        return (slots + 63) >>> 6;
+    }
+
+    private static boolean _bit( long[] plane, int index )
+    {
+        return ( plane[ index >>> 6 ] & (1L << index) ) != 0L;
+    }
+
+    /*** Mask of lowest {@code n} bits, 0 to 64. */
+    private static long _lowMask( int n )
+    {
+        return ( n >= 64 ) ? -1L : ((1L << n) - 1L);
+    }
+
+    /*** Clear bits from {@code index} to end of plane. */
+    private static void _clearFrom( long[] plane, int index )
+    {
+        int  w = index >>> 6;
+        if( w < plane.length )
+        {
+            plane[ w ] &= _lowMask( index & 63 );
+            Arrays.fill( plane, w + 1, plane.length, 0L );
+        }
+    }
+
+    //--------------------------  CONSTANTS  -------------------------
+
+    private static final int    FIND_SET   = 1;
+    private static final int    FIND_CLEAR = 2;
+    private static final int    FIND_KEY   = 3;
+
     //--------------------------  INSTANCE VARS  -------------------------
 
-    /*** TRUE means we have a value at this index, so can check {@link m_value} array. */
-    private boolean[]     m_has_value;
+    /*** 1 bit means we have a value at this index, so can check {@link m_value} plane.  64 slots per word. */
+    private long[]        m_has_value;
+
+    /*** Client's value, or 0 bit if never put.  64 slots per word. */
+    private long[]        m_value;
 
-    /*** Client's value, or false if never put. */
-    private boolean[]     m_value;
+    /*** Count of slots ; planes may hold more words than needed after shrinking. */
+    private int           m_size;
 
 }
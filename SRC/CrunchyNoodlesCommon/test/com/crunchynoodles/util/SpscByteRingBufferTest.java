@@ -0,0 +1,168 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package com.crunchynoodles.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class SpscByteRingBufferTest {
+
+    public SpscByteRingBufferTest() {
+    }
+
+    /**
+     * Test of capacity rounding, of class SpscByteRingBuffer.
+     */
+    @Test
+    public void testCapacity()
+    {
+        System.out.println( "-- capacity --" );
+        assertEquals( 64, new SpscByteRingBuffer( 55 ).capacity() );
+        assertEquals( 64, new SpscByteRingBuffer( 64 ).capacity() );
+        assertEquals( 1, new SpscByteRingBuffer( 1 ).capacity() );
+    }
+
+    /**
+     * Test of offer and poll methods, of class SpscByteRingBuffer.
+     */
+    @Test
+    public void testOfferPoll()
+    {
+        System.out.println( "-- offer/poll --" );
+        SpscByteRingBuffer instance = new SpscByteRingBuffer( 4 );
+
+        assertEquals( -1, instance.poll() );
+        assertTrue( instance.offer( (byte) 1 ) );
+        assertTrue( instance.offer( (byte) 0xff ) );
+        assertEquals( 2, instance.size() );
+
+        assertEquals( 1, instance.poll() );
+        assertEquals( 0xff, instance.poll() );
+        assertTrue( instance.isEmpty() );
+
+        //  Fill it up, then overflow.
+        for( int j = 0 ; j < 4 ; ++j )
+            assertTrue( instance.offer( (byte) j ) );
+        assertFalse( instance.offer( (byte) 9 ) );
+        assertEquals( 1, instance.getDroppedCount() );
+    }
+
+    /**
+     * Test of bulk offer and drainTo, including wrap-around.
+     */
+    @Test
+    public void testBulkWrap()
+    {
+        System.out.println( "-- offer(byte[])/drainTo --" );
+        SpscByteRingBuffer instance = new SpscByteRingBuffer( 8 );
+        byte[]  out = new byte[ 16 ];
+
+        //  Move head and tail to the middle so next bulk offer wraps.
+        assertEquals( 6, instance.offer( new byte[] { 0, 0, 0, 0, 0, 0 }, 0, 6 ) );
+        assertEquals( 6, instance.drainTo( out, 0, 16 ) );
+
+        byte[]  in = { 10, 11, 12, 13, 14, 15, 16, 17, 18, 19 };
+        assertEquals( 8, instance.offer( in, 0, in.length ) );
+        assertEquals( 2, instance.getDroppedCount() );
+
+        assertEquals( 3, instance.drainTo( out, 0, 3 ) );
+        assertEquals( 5, instance.drainTo( out, 3, 16 ) );
+        for( int j = 0 ; j < 8 ; ++j )
+            assertEquals( in[j], out[j] );
+
+        assertEquals( 0, instance.drainTo( out, 0, 16 ) );
+    }
+
+    /**
+     * Test of clear method, of class SpscByteRingBuffer.
+     */
+    @Test
+    public void testClear()
+    {
+        System.out.println( "-- clear --" );
+        SpscByteRingBuffer instance = new SpscByteRingBuffer( 8 );
+        instance.offer( new byte[] { 1, 2, 3 }, 0, 3 );
+        instance.clear();
+        assertTrue( instance.isEmpty() );
+        assertEquals( -1, instance.poll() );
+    }
+
+    /**
+     * Test of awaitAvailable method, both timeout and wake-up by producer.
+     */
+    @Test
+    public void testAwaitAvailable()
+            throws InterruptedException
+    {
+        System.out.println( "-- awaitAvailable --" );
+        final SpscByteRingBuffer instance = new SpscByteRingBuffer( 8 );
+
+        long  start = System.nanoTime();
+        assertFalse( instance.awaitAvailable( start + 20L * 1000 * 1000 ) );
+        assertTrue( "returned early", System.nanoTime() - start >= 20L * 1000 * 1000 );
+
+        Thread  producer = new Thread( new Runnable() {
+            @Override
+            public void run()
+            {
+                try { Thread.sleep( 50 ); } catch( InterruptedException ex ) { }
+                instance.offer( (byte) 42 );
+            }
+        } );
+        producer.start();
+
+        assertTrue( instance.awaitAvailable( System.nanoTime() + 5L * 1000 * 1000 * 1000 ) );
+        assertEquals( 42, instance.poll() );
+        producer.join();
+    }
+
+    /**
+     * Test one producer and one consumer thread moving many bytes in order.
+     */
+    @Test
+    public void testProducerConsumer()
+            throws InterruptedException
+    {
+        System.out.println( "-- producer/consumer --" );
+        final SpscByteRingBuffer instance = new SpscByteRingBuffer( 64 );
+        final int  TOTAL = 200 * 1000;
+
+        Thread  producer = new Thread( new Runnable() {
+            @Override
+            public void run()
+            {
+                byte[]  chunk = new byte[ 7 ];
+                int  sent = 0;
+                while( sent < TOTAL )
+                {
+                    int  n = Math.min( chunk.length, TOTAL - sent );
+                    for( int j = 0 ; j < n ; ++j )
+                        chunk[j] = (byte) (sent + j);
+
+                    int  done = 0;
+                    while( done < n )
+                        done += instance.offer( chunk, done, n - done );
+                    sent += n;
+                }
+            }
+        } );
+        producer.start();
+
+        byte[]  buf = new byte[ 13 ];
+        int  got = 0;
+        while( got < TOTAL )
+        {
+            assertTrue( instance.awaitAvailable( System.nanoTime() + 5L * 1000 * 1000 * 1000 ) );
+            int  n = instance.drainTo( buf, 0, buf.length );
+            for( int j = 0 ; j < n ; ++j )
+                assertEquals( "out of order at " + (got + j), (byte) (got + j), buf[j] );
+            got += n;
+        }
+        producer.join();
+    }
+
+}
@@ -0,0 +1,84 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package com.crunchynoodles.util;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Rough timing of {@link TableOfBoolean#diff(TableOfBoolean, IndexVisitor)} against
+ *  {@code isSame()} followed by a walk of every slot, on 2,048-slot tables with a few
+ *  slots changing each scan, as change routing sees them.  Prints nanoseconds per scan ;
+ *  only checks that both ways find the same slots.
+ *
+ * @author brian
+ */
+public class TableOfBooleanBenchmarkTest {
+
+    public TableOfBooleanBenchmarkTest() {
+    }
+
+    /**
+     * Compare diff() with isSame() plus per-slot walk.
+     */
+    @Test
+    public void testDiffVersusWalk()
+    {
+        System.out.println( "-- diff vs isSame+walk, " + SLOTS + " slots --" );
+        Random  rnd = new Random( 1234 );
+        TableOfBoolean  before = new TableOfBoolean( SLOTS );
+        TableOfBoolean  now = new TableOfBoolean( SLOTS );
+        before.setFrom( new boolean[ SLOTS ] );
+        now.setFrom( new boolean[ SLOTS ] );
+
+        ChangedIndices  changed = new ChangedIndices();
+        long  walk_nanos = 0, diff_nanos = 0;
+        long  walk_found = 0, diff_found = 0;
+
+        for( int scan = 0 ; scan < SCANS ; ++scan )
+        {
+            //  A handful of inputs move each scan.
+            before.setFrom( now );
+            for( int k = rnd.nextInt( 4 ) ; --k >= 0 ; )
+            {
+                int  slot = rnd.nextInt( SLOTS );
+                now.put( slot, ! now.get( slot ) );
+            }
+
+            long  t0 = System.nanoTime();
+            if( ! now.isSame( before ) )
+            {
+                for( int j = 0 ; j < SLOTS ; ++j )
+                {
+                    Boolean  ll = now.getEntry( j );
+                    Boolean  rr = before.getEntry( j );
+                    if( ll == null ? rr != null : ! ll.equals( rr ) )
+                        ++walk_found;
+                }
+            }
+            long  t1 = System.nanoTime();
+            changed.clear();
+            now.diff( before, changed );
+            diff_found += changed.size();
+            long  t2 = System.nanoTime();
+
+            //  Skip warm-up.
+            if( scan >= SCANS / 4 )
+            {
+                walk_nanos += t1 - t0;
+                diff_nanos += t2 - t1;
+            }
+        }
+
+        int  timed = SCANS - SCANS / 4;
+        System.out.printf( "   isSame+walk: %6d ns/scan%n", walk_nanos / timed );
+        System.out.printf( "   diff:        %6d ns/scan%n", diff_nanos / timed );
+        assertEquals( walk_found, diff_found );
+    }
+
+    private static final int    SLOTS = 2048;
+
+    private static final int    SCANS = 20000;
+
+}
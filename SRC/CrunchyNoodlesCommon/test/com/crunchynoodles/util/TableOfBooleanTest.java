@@ -425,6 +425,39 @@ public class TableOfBooleanTest {
 
     }
 
+    /**
+     * Test of wouldChangeFrom method, of class TableOfBoolean.
+     */
+    @Test
+    public void testWouldChangeFrom()
+    {
+        System.out.println( "wouldChangeFrom" );
+        TableOfBoolean instance = new TableOfBoolean( 130 );
+        instance.put( 3, true );
+        instance.put( 70, false );
+        instance.put( 129, true );
+        assertFalse( instance.wouldChangeFrom( null ) );
+
+        //  Same values, or a subset of them, change nothing.
+        TableOfBoolean newValues = new TableOfBoolean( 130 );
+        assertFalse( instance.wouldChangeFrom( newValues ) );
+        newValues.put( 70, false );
+        newValues.put( 129, true );
+        assertFalse( instance.wouldChangeFrom( newValues ) );
+
+        //  A flipped value, a new value, or growing do.
+        newValues.put( 70, true );
+        assertTrue( instance.wouldChangeFrom( newValues ) );
+        newValues.put( 70, false );
+        newValues.put( 4, false );
+        assertTrue( instance.wouldChangeFrom( newValues ) );
+        assertTrue( instance.wouldChangeFrom( new TableOfBoolean( 200 ) ) );
+
+        //  And after merging, nothing more would.
+        instance.setFrom( newValues );
+        assertFalse( instance.wouldChangeFrom( newValues ) );
+    }
+
     /**
      * Test of unionWith method, of class TableOfBoolean.
      */
@@ -483,4 +516,152 @@ public class TableOfBooleanTest {
 
    }
 
+    /**
+     * Test of unionWith and intersectWith across several words.
+     */
+    @Test
+    public void testUnionIntersectWords()
+    {
+        System.out.println( "-- union/intersect words --" );
+        TableOfBoolean  a = new TableOfBoolean( 200 );
+        TableOfBoolean  b = new TableOfBoolean( 100 );
+        a.put( 5, true );
+        a.put( 70, false );
+        a.put( 150, true );
+        b.put( 5, false );
+        b.put( 70, true );
+        b.put( 99, false );
+
+        TableOfBoolean  u = new TableOfBoolean( 1 );
+        u.setFrom( a );
+        u.unionWith( b );
+        assertEquals( 200, u.size() );
+        assertEquals( Boolean.TRUE, u.getEntry( 5 ) );
+        assertEquals( Boolean.TRUE, u.getEntry( 70 ) );
+        assertEquals( Boolean.FALSE, u.getEntry( 99 ) );
+        assertEquals( Boolean.TRUE, u.getEntry( 150 ) );
+        assertNull( u.getEntry( 6 ) );
+
+        TableOfBoolean  i = new TableOfBoolean( 1 );
+        i.setFrom( a );
+        i.intersectWith( b );
+        assertEquals( Boolean.FALSE, i.getEntry( 5 ) );
+        assertEquals( Boolean.FALSE, i.getEntry( 70 ) );
+        assertNull( "only one side", i.getEntry( 99 ) );
+        assertNull( "past rhs end", i.getEntry( 150 ) );
+
+        assertFalse( u.isSame( i ) );
+        assertTrue( u.isSame( u ) );
+    }
+
+    /**
+     * Test of setFromBytes and toBytes methods, of class TableOfBoolean.
+     */
+    @Test
+    public void testPackedBytes()
+    {
+        System.out.println( "-- setFromBytes/toBytes --" );
+        TableOfBoolean instance = new TableOfBoolean( 500 );
+        byte[]  image = new byte[ 12 ];
+        image[ 0 ] = 0x01;
+        image[ 9 ] = (byte) 0x80;
+
+        assertTrue( "size changed", instance.setFromBytes( image, 0, 12 ) );
+        assertFalse( "same image", instance.setFromBytes( image.clone(), 0, 12 ) );
+        assertEquals( 96, instance.size() );
+        assertTrue( instance.get( 0 ) );
+        assertTrue( instance.get( 79 ) );
+        assertEquals( Boolean.FALSE, instance.getEntry( 95 ) );
+        assertNull( instance.getEntry( 96 ) );
+
+        byte[]  out = new byte[ 14 ];
+        Arrays.fill( out, (byte) 0x55 );
+        instance.toBytes( out, 1, 13 );
+        assertEquals( 0x55, out[ 0 ] );
+        assertEquals( 0x01, out[ 1 ] );
+        assertEquals( (byte) 0x80, out[ 10 ] );
+        assertEquals( "past end", 0, out[ 13 ] );
+
+        //  Shrinking then growing leaves no stale values behind.
+        instance.resize( 3 );
+        instance.resize( 96 );
+        assertFalse( instance.get( 79 ) );
+        assertNull( instance.getEntry( 79 ) );
+    }
+
+    /**
+     * Test of nextSetBit method, of class TableOfBoolean.
+     */
+    @Test
+    public void testNextSetBit()
+    {
+        System.out.println( "-- nextSetBit --" );
+        TableOfBoolean instance = new TableOfBoolean( 300 );
+        instance.put( 3, true );
+        instance.put( 64, true );
+        instance.put( 65, false );
+        instance.put( 299, true );
+
+        List<Integer>  found = new ArrayList<>();
+        for( int j = instance.nextSetBit( 0 ) ; j >= 0 ; j = instance.nextSetBit( j + 1 ) )
+            found.add( j );
+        assertEquals( Arrays.asList( 3, 64, 299 ), found );
+
+        instance.remove( 64 );
+        assertEquals( 299, instance.nextSetBit( 4 ) );
+        assertEquals( -1, instance.nextSetBit( 300 ) );
+        assertEquals( 3, instance.nextSetBit( -5 ) );
+    }
+
+    /**
+     * Test of nextClearBit and nextKey methods, of class TableOfBoolean.
+     */
+    @Test
+    public void testNextClearBitKey()
+    {
+        System.out.println( "-- nextClearBit/nextKey --" );
+        TableOfBoolean instance = new TableOfBoolean( 130 );
+        instance.put( 2, true );
+        instance.put( 66, false );
+        instance.put( 129, false );
+
+        assertEquals( 66, instance.nextClearBit( 0 ) );
+        assertEquals( 129, instance.nextClearBit( 67 ) );
+        assertEquals( -1, instance.nextClearBit( 130 ) );
+
+        assertEquals( 2, instance.nextKey( 0 ) );
+        assertEquals( 66, instance.nextKey( 3 ) );
+        assertEquals( 129, instance.nextKey( 67 ) );
+        instance.remove( 129 );
+        assertEquals( -1, instance.nextKey( 67 ) );
+    }
+
+    /**
+     * Test of diff method, of class TableOfBoolean.
+     */
+    @Test
+    public void testDiff()
+    {
+        System.out.println( "-- diff --" );
+        TableOfBoolean  a = new TableOfBoolean( 2048 );
+        TableOfBoolean  b = new TableOfBoolean( 2048 );
+        a.setFrom( new boolean[ 2048 ] );
+        b.setFrom( new boolean[ 2048 ] );
+
+        ChangedIndices  changed = new ChangedIndices( 1 );
+        assertEquals( 0, a.diff( b, changed ) );
+        assertTrue( changed.isEmpty() );
+
+        b.put( 7, true );
+        b.put( 1000, true );
+        b.remove( 2047 );
+        assertEquals( 3, a.diff( b, changed ) );
+        assertArrayEquals( new int[] { 7, 1000, 2047 }, changed.toArray() );
+        assertEquals( a.isSame( b ), changed.isEmpty() );
+
+        changed.clear();
+        assertEquals( 2048, a.diff( null, changed ) );
+        assertEquals( 2047, changed.get( 2047 ) );
+    }
+
 }
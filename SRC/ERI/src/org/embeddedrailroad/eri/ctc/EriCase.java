@@ -33,14 +33,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import org.embeddedrailroad.eri.layoutio.LayoutIoProviderManager;
 import org.embeddedrailroad.eri.layoutio.LayoutIoActivator;
 import org.embeddedrailroad.eri.layoutio.LayoutIoTransport;
+import org.embeddedrailroad.eri.layoutio.LayoutSensorIndex;
 import org.embeddedrailroad.eri.layoutio.LayoutTimeoutManager;
 import org.embeddedrailroad.eri.xml.BankBean;
 import org.embeddedrailroad.eri.xml.BankListBean;
 import org.embeddedrailroad.eri.xml.LayoutConfigurationBean;
+import org.embeddedrailroad.eri.xml.UnitBean;
 
 import org.ini4j.*;
 
@@ -400,6 +403,10 @@ public class EriCase {
                 throw new Exception( "empty Layout Configuratio" );
             }
 
+            //  Resolve every named sensor now, so a bad one stops us before anything runs.
+            m_sensor_index = LayoutSensorIndex.compile( bs );
+            LOG.log( Level.INFO, "Layout has {0} named sensors.", m_sensor_index.getSensorCount() );
+
             final LayoutIoProviderManager mgr = LayoutIoProviderManager.getInstance();
             LayoutIoProviderManager.ProviderTransportStruct  tranStruct;
             LayoutIoTransport  trans;
@@ -413,6 +420,11 @@ public class EriCase {
 
                 trans.setProperties( bank.getComms().values() );
 
+                for( Iterator<UnitBean> it = bank.getUnitIterator() ; it.hasNext() ; )
+                {
+                    trans.addUnit( it.next() );
+                }
+
                 trans.attach();
             }
         }
@@ -424,6 +436,15 @@ public class EriCase {
 
     }
 
+    /***
+     *  Named sensors of the layout, compiled by {@link #createTransports(String) }.
+     * @return index, or {@code null} if no layout read yet.
+     */
+    public LayoutSensorIndex  getSensorIndex()
+    {
+        return m_sensor_index;
+    }
+
     /***
      *  At shutdown time, stop all the protocol-transports and detach/release their comms-channel.
      */
@@ -562,4 +583,7 @@ public class EriCase {
     /*** Should polling begin whenever program is started up? */
     transient protected boolean        m_auto_startup;
 
+    /*** Layout's named sensors. */
+    transient protected volatile LayoutSensorIndex  m_sensor_index;
+
 }
@@ -94,12 +94,15 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
         if( device == null )
             throw new NullPointerException("device cannot be null");
 
+        LayoutIoDataChangedEvent<Integer>  ev = null;
+
         //  'newBits' replaces prior.
         m_lock.writeLock().lock();
         try
         {
             if( newBits != null )
             {
+                boolean[]  old_bits = null;
                 TableOfBoolean  d = m_inputs.get( device );
                 if( null == d )
                 {
@@ -107,11 +110,25 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
                     d = new TableOfBoolean( newBits.length );
                     m_inputs.put( device, d );
                 }
+                else
+                {
+                    //  Same bits as before is the usual case ; then there's nothing to do.
+                    if( SensedDataSupport.isSame( d, newBits ) )
+                        return;
+
+                    if( m_support.hasListeners() )
+                        old_bits = SensedDataSupport.toArray( d );
+                }
                 d.setFrom(  newBits );
+                m_snapshots.put( device, SensedDataSnapshot.of( d, ++m_version ) );
+
+                if( m_support.hasListeners() )
+                    ev = new LayoutIoDataChangedEvent<>( device, old_bits, newBits );
             }
             else
             {
                 m_inputs.remove( device );
+                m_snapshots.remove( device );
             }
         }
         catch( Throwable ex )
@@ -122,6 +139,10 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
         {
             m_lock.writeLock().unlock();
         }
+
+        //  Tell listeners outside the lock, so they can read the model.
+        if( ev != null )
+            m_support.fireDataChanged( ev );
     }
 
     @Override
@@ -133,10 +154,13 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
         if( individual_bits == null )
             return;
 
+        LayoutIoDataChangedEvent<Integer>  ev = null;
+
         //  'individual_bits' OR in with prior.
         m_lock.writeLock().lock();
         try
         {
+            boolean[]  old_bits = null;
             TableOfBoolean  inputs = m_inputs.get( device );
             if( null == inputs )
             {
@@ -144,8 +168,24 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
                 inputs = new TableOfBoolean( individual_bits.size() );
                 m_inputs.put( device, inputs );
             }
+            else
+            {
+                //  Nothing new, so no new snapshot either.
+                if( ! inputs.wouldChangeFrom( individual_bits ) )
+                    return;
+                if( m_support.hasListeners() )
+                    old_bits = SensedDataSupport.toArray( inputs );
+            }
 
             inputs.setFrom( individual_bits );
+            m_snapshots.put( device, SensedDataSnapshot.of( inputs, ++m_version ) );
+
+            if( m_support.hasListeners() )
+            {
+                boolean[]  new_bits = SensedDataSupport.toArray( inputs );
+                if( old_bits == null || ! Arrays.equals( old_bits, new_bits ) )
+                    ev = new LayoutIoDataChangedEvent<>( device, old_bits, new_bits );
+            }
         }
         catch( Throwable ex )
         {
@@ -155,6 +195,116 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
         {
             m_lock.writeLock().unlock();
         }
+
+        if( ev != null )
+            m_support.fireDataChanged( ev );
+    }
+
+    @Override
+    public void setSensedPackedBytes( Integer device, byte[] buf, int off, int len )
+    {
+        if( device == null )
+            throw new NullPointerException("device cannot be null");
+
+        LayoutIoDataChangedEvent<Integer>  ev = null;
+
+        //  Packed image replaces prior ; compared as it's stored.
+        m_lock.writeLock().lock();
+        try
+        {
+            TableOfBoolean  d = m_inputs.get( device );
+            if( null == d )
+            {
+                d = new TableOfBoolean( len * 8 );
+                m_inputs.put( device, d );
+            }
+
+            //  Only listeners need the old bits, so only then keep a copy.
+            boolean  telling = m_support.hasListeners();
+            boolean[]  old_bits = ( telling && d.nextKey( 0 ) >= 0 ) ? SensedDataSupport.toArray( d ) : null;
+
+            if( d.setFromBytes( buf, off, len ) || ! m_snapshots.containsKey( device ) )
+            {
+                m_snapshots.put( device, SensedDataSnapshot.of( d, ++m_version ) );
+                if( telling )
+                    ev = new LayoutIoDataChangedEvent<>( device, old_bits, SensedDataSupport.toArray( d ) );
+            }
+        }
+        finally
+        {
+            m_lock.writeLock().unlock();
+        }
+
+        if( ev != null )
+            m_support.fireDataChanged( ev );
+    }
+
+    @Override
+    public LayoutIoScanBatch<Integer>  beginScan()
+    {
+        return new LayoutIoScanBatch<>( this );
+    }
+
+    /***
+     *  Whole batch is applied holding the write lock once, and changed units share one version.
+     */
+    @Override
+    public int  commitScan( LayoutIoScanBatch<Integer> batch )
+    {
+        if( batch.getModel() != this )
+            throw new IllegalArgumentException( "batch is for another model" );
+
+        final boolean  telling = m_support.hasListeners();
+        LayoutIoScanChangedEvent<Integer>  ev = telling ? new LayoutIoScanChangedEvent<Integer>( this ) : null;
+        int  changed = 0;
+
+        m_lock.writeLock().lock();
+        try
+        {
+            long     version = 0L;
+            byte[]   old = null;
+
+            for( int j = 0 ; j < batch.size() ; ++j )
+            {
+                Integer  device = batch.getUnit( j );
+                byte[]   image = batch.getImage( j );
+                int      len = batch.getImageLength( j );
+
+                int  old_len = 0;
+                TableOfBoolean  d = m_inputs.get( device );
+                if( null == d )
+                {
+                    d = new TableOfBoolean( len * 8 );
+                    m_inputs.put( device, d );
+                }
+                else
+                if( telling )
+                {
+                    old_len = (d.size() + 7) >>> 3;
+                    if( old == null || old.length < old_len )
+                        old = new byte[ old_len ];
+                    d.toBytes( old, 0, old_len );
+                }
+
+                if( d.setFromBytes( image, 0, len ) || ! m_snapshots.containsKey( device ) )
+                {
+                    if( version == 0L )
+                        version = ++m_version;
+                    m_snapshots.put( device, SensedDataSnapshot.of( d, version ) );
+                    ++changed;
+                    if( telling )
+                        ev.addUnit( device, old, old_len, image, len );
+                }
+            }
+        }
+        finally
+        {
+            m_lock.writeLock().unlock();
+        }
+
+        if( ev != null && ev.getChangedCount() > 0 )
+            m_support.fireScanChanged( ev );
+        return changed;
     }
 
     @Override
@@ -206,6 +356,20 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
         }
     }
 
+    //-----------------------  CHANGE NOTIFICATIONS  -----------------------
+
+    @Override
+    public void addIoSensedDataListener( IoSensedDataListener listener )
+    {
+        m_support.addListener( listener );
+    }
+
+    @Override
+    public void removeIoSensedDataListener( IoSensedDataListener listener )
+    {
+        m_support.removeListener( listener );
+    }
+
     //--------------------------  DATA GETTORS  --------------------------
 
     @Override
@@ -213,42 +377,87 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
             throws NullPointerException, UnknownLayoutUnitException
     {
         /***
-         *  Returned array is direct reference to what is stored, so please don't
-         *  modify it.  However, caller can modify it, just be careful, OK?
+         *  Returned table is a copy taken under the read lock, since the poll thread
+         *  rewrites the stored one in place.  Caller may keep and modify it.
          */
         if( device == null )
             throw new NullPointerException("device cannot be null");
 
+        m_lock.readLock().lock();
         try
         {
             //  If no matching device is found, then toss cookies.
-            if( ! m_inputs.containsKey( device ) )
+            TableOfBoolean  d = m_inputs.get( device );
+            if( d == null )
             {
                 throw new UnknownLayoutUnitException("device not found");
             }
 
+            TableOfBoolean  copy = new TableOfBoolean( d.size() );
+            copy.setFrom( d );
+            return copy;
         }
         catch( UnknownLayoutUnitException ex )
         {
             LOG.logp( Level.FINE, this.getClass().getSimpleName(), "getSensedDataAll", "Device=" + device.toString(), ex );
             return new TableOfBoolean();
         }
+        finally
+        {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SensedDataSnapshot getSensedDataSnapshot( Integer device )
+    {
+        if( device == null )
+            throw new NullPointerException("device cannot be null");
+
+        m_lock.readLock().lock();
+        try
+        {
+            return m_snapshots.get( device );
+        }
+        finally
+        {
+            m_lock.readLock().unlock();
+        }
+    }
 
-        return m_inputs.get( device );
+    @Override
+    public SensedDataSnapshot getSensedDataIfNewer( Integer device, long lastSeenVersion )
+    {
+        SensedDataSnapshot  snap = getSensedDataSnapshot( device );
+        return ( snap != null && snap.getVersion() > lastSeenVersion ) ? snap : null;
     }
 
     @Override
     public boolean getSensedDataOne( Integer device, int bit_number )
             throws ArrayIndexOutOfBoundsException, UnknownLayoutUnitException, NullPointerException
     {
-        TableOfBoolean   whole = getSensedDataAll( device );
+        if( device == null )
+            throw new NullPointerException("device cannot be null");
 
-        if( bit_number < 0 || bit_number >= whole.size() )
+        //  Read in place under the lock, no copy for just one bit.
+        m_lock.readLock().lock();
+        try
         {
-            throw new ArrayIndexOutOfBoundsException( "getSensedDataOne(" + device.toString() +"," + bit_number + ") out-of-range" );
-        }
+            TableOfBoolean   whole = m_inputs.get( device );
+            if( whole == null )
+                whole = new TableOfBoolean();
 
-        return whole.get( bit_number );
+            if( bit_number < 0 || bit_number >= whole.size() )
+            {
+                throw new ArrayIndexOutOfBoundsException( "getSensedDataOne(" + device.toString() +"," + bit_number + ") out-of-range" );
+            }
+
+            return whole.get( bit_number );
+        }
+        finally
+        {
+            m_lock.readLock().unlock();
+        }
     }
 
     @Override
@@ -301,12 +510,21 @@ public class AbstractLayoutIoModelIntegerAddress implements LayoutIoModel<Intege
      */
     private final transient     HashMap< Integer, TableOfBoolean >   m_inputs;
 
+    /*** Immutable copy of each device's {@link #m_inputs}, remade on every change. */
+    private final transient     HashMap< Integer, SensedDataSnapshot >   m_snapshots = new HashMap<>();
+
+    /*** Version of latest snapshot ; only touched holding write lock. */
+    private transient           long        m_version;
+
     /***
      *  Recorded data-blobs from different units: primary index = unit, secondary index = device therein.
      *  Data blobs are as big as given to use, and can vary in size.
      */
     private final transient     HashMap< Integer, HashMap< Integer, byte[] > >    m_blobs;
 
+    /*** Told of changed input bits. */
+    private final transient     SensedDataSupport   m_support = new SensedDataSupport( this );
+
     /***  Logging output spigot. */
     private final transient static  Logger LOG = Logger.getLogger( AbstractLayoutIoModelIntegerAddress.class.getName() );
 
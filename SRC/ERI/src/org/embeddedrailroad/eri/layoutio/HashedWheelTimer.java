@@ -0,0 +1,511 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ *  Hashed timing wheel: schedule and cancel in O(1), with one ticker thread firing the
+ *  expired timeouts.  See Varghese and Lauck, "Hashed and Hierarchical Timing Wheels".
+ *
+ * <p> The wheel is a ring of buckets, one per tick.  A timeout goes into the bucket of the
+ *  tick it expires on ; one further away than a full turn of the wheel just sits through
+ *  the extra turns.  The ticker visits buckets in tick order and fires what has expired,
+ *  so a timeout fires on the first tick at or after its deadline, i.e. up to one tick late.
+ *
+ * <p> The ticker doesn't wake every tick.  It parks until the tick of the next bucket that
+ *  holds anything, and while nothing is pending it parks until a timeout is scheduled ;
+ *  scheduling one sooner than the ticker means to wake un-parks it.
+ *
+ * <p> Timeout handles are slots in a pool of parallel arrays, not objects.  A handle is a
+ *  {@code long} ticket of the slot's index and its generation, which is bumped each time
+ *  the slot is freed ; so cancelling a ticket that already fired or was cancelled is
+ *  harmless, even after its slot is reused.  Nothing is allocated per timeout unless the
+ *  pool has to grow.
+ *
+ * <p> Callbacks run on the ticker thread, one after another, so they must be short.
+ *  An exception from a callback is logged and does not stop the ticker.
+ *
+ * <p> Object is MT-safe.
+ *
+ * @author brian
+ */
+public class HashedWheelTimer
+{
+    /***
+     *  Create timer, its ticker thread is started when first timeout is scheduled.
+     *
+     * @param tickMillis resolution of wheel, must be positive.
+     * @param wheelSize buckets in the wheel, rounded up to a power of two.
+     * @param initialCapacity timeouts pending before the pool has to grow.
+     */
+    public HashedWheelTimer( int tickMillis, int wheelSize, int initialCapacity )
+    {
+        if( tickMillis <= 0 )
+            throw new IllegalArgumentException( "tickMillis must be positive" );
+        if( wheelSize <= 0 || wheelSize > (1 << 20) )
+            throw new IllegalArgumentException( "wheelSize out of range" );
+        if( initialCapacity <= 0 )
+            throw new IllegalArgumentException( "initialCapacity must be positive" );
+
+        int  size = Integer.highestOneBit( wheelSize );
+        if( size < wheelSize )
+            size <<= 1;
+
+        m_tick_nanos = tickMillis * 1000L * 1000L;
+        m_mask = size - 1;
+        m_bucket_head = new int[ size ];
+        Arrays.fill( m_bucket_head, NIL );
+
+        m_action     = new Object[ initialCapacity ];
+        m_anchor     = new Object[ initialCapacity ];
+        m_deadline   = new long[ initialCapacity ];
+        m_next       = new int[ initialCapacity ];
+        m_prev       = new int[ initialCapacity ];
+        m_generation = new int[ initialCapacity ];
+        m_bucket     = new int[ initialCapacity ];
+        _chainFree( 0, initialCapacity );
+
+        m_fire_action = new Object[ 16 ];
+        m_fire_anchor = new Object[ 16 ];
+    }
+
+    //---------------------------  SCHEDULING  ----------------------------
+
+    /***
+     *  Schedule a callback.
+     *
+     * @param milliseconds how long to wait, not negative.
+     * @param notifyObject called with {@code anchor} when timeout expires.
+     * @param anchor parameter to callback.
+     * @return ticket for {@link #cancel(long) }.
+     * @throws IllegalStateException if timer has been shut down.
+     */
+    public long     schedule( int milliseconds, LayoutTimeoutManager.TimeoutAction notifyObject, Object anchor )
+    {
+        if( notifyObject == null )
+            throw new NullPointerException( "notifyObject" );
+        return _schedule( milliseconds * 1000L * 1000L, notifyObject, anchor );
+    }
+
+    /***
+     *  Schedule a {@link Runnable}.
+     *
+     * @param milliseconds how long to wait, not negative.
+     * @param task run when timeout expires.
+     * @return ticket for {@link #cancel(long) }.
+     * @throws IllegalStateException if timer has been shut down.
+     */
+    public long     schedule( int milliseconds, Runnable task )
+    {
+        if( task == null )
+            throw new NullPointerException( "task" );
+        return _schedule( milliseconds * 1000L * 1000L, task, null );
+    }
+
+    /***
+     *  Cancel a pending timeout.
+     *
+     * @param ticket from a {@code schedule()} method.
+     * @return {@code true} if cancelled, {@code false} if it already fired or was cancelled.
+     */
+    public boolean  cancel( long ticket )
+    {
+        int  slot = (int) ticket;
+        int  gen  = (int) (ticket >>> 32);
+
+        synchronized( m_lock )
+        {
+            if( slot < 0 || slot >= m_action.length || m_generation[ slot ] != gen || m_action[ slot ] == null )
+                return false;
+
+            _unlink( slot );
+            _free( slot );
+            return true;
+        }
+    }
+
+    /***
+     *  Stop the ticker and drop all pending timeouts.  Scheduling afterwards fails.
+     */
+    public void     shutdown()
+    {
+        Thread  t;
+        synchronized( m_lock )
+        {
+            m_shutdown = true;
+            t = m_ticker;
+            m_ticker = null;
+
+            for( int b = 0 ; b <= m_mask ; ++b )
+            {
+                int  slot;
+                while( (slot = m_bucket_head[ b ]) != NIL )
+                {
+                    _unlink( slot );
+                    _free( slot );
+                }
+            }
+        }
+
+        if( t != null )
+            LockSupport.unpark( t );
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return count of timeouts waiting to fire. */
+    public int      getPendingCount()
+    {
+        synchronized( m_lock )
+        {
+            return m_pending;
+        }
+    }
+
+    /*** @return wheel resolution, in milliseconds. */
+    public int      getTickMillis()
+    {
+        return (int) (m_tick_nanos / (1000L * 1000L));
+    }
+
+    /***
+     *  Statistics: times the ticker woke to visit buckets.  With nothing pending it doesn't wake.
+     * @return count of wake-ups.
+     */
+    public long     getWakeupCount()
+    {
+        synchronized( m_lock )
+        {
+            return m_wakeups;
+        }
+    }
+
+    /*** @return slots in the handle pool ; grows when more timeouts are pending at once. */
+    public int      getCapacity()
+    {
+        synchronized( m_lock )
+        {
+            return m_action.length;
+        }
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    private long    _schedule( long delayNanos, Object action, Object anchor )
+    {
+        if( delayNanos < 0 )
+            throw new IllegalArgumentException( "timeout cannot be negative" );
+
+        synchronized( m_lock )
+        {
+            if( m_shutdown )
+                throw new IllegalStateException( "timer has been shut down" );
+
+            if( m_ticker == null )
+                _startTicker();
+
+            //  Round up, so never fires early ; can't go into a tick already processed.
+            long  elapsed = System.nanoTime() - m_start_nanos;
+            long  tick = (elapsed + delayNanos + m_tick_nanos - 1) / m_tick_nanos;
+            if( tick <= m_done_tick )
+                tick = m_done_tick + 1;
+
+            if( m_free == NIL )
+                _grow();
+
+            int  slot = m_free;
+            m_free = m_next[ slot ];
+
+            m_action[ slot ] = action;
+            m_anchor[ slot ] = anchor;
+            m_deadline[ slot ] = tick;
+
+            //  Push on front of bucket's list.
+            int  b = (int) tick & m_mask;
+            int  head = m_bucket_head[ b ];
+            m_bucket[ slot ] = b;
+            m_prev[ slot ] = NIL;
+            m_next[ slot ] = head;
+            if( head != NIL )
+                m_prev[ head ] = slot;
+            m_bucket_head[ b ] = slot;
+
+            m_pending += 1;
+
+            //  Ticker sleeps until its next busy tick ; wake it if this one is sooner.
+            if( tick < m_wake_tick )
+            {
+                m_wake_tick = tick;
+                LockSupport.unpark( m_ticker );
+            }
+            return ((long) m_generation[ slot ] << 32) | slot;
+        }
+    }
+
+    /*** Take slot off its bucket's list.  Caller holds lock. */
+    private void    _unlink( int slot )
+    {
+        int  p = m_prev[ slot ];
+        int  n = m_next[ slot ];
+
+        if( p != NIL )
+            m_next[ p ] = n;
+        else
+            m_bucket_head[ m_bucket[ slot ] ] = n;
+        if( n != NIL )
+            m_prev[ n ] = p;
+    }
+
+    /*** Return slot to pool, invalidating its ticket.  Caller holds lock. */
+    private void    _free( int slot )
+    {
+        m_action[ slot ] = null;
+        m_anchor[ slot ] = null;
+        m_generation[ slot ] += 1;
+        m_next[ slot ] = m_free;
+        m_free = slot;
+        m_pending -= 1;
+    }
+
+    /*** Put slots {@code from} up to {@code to} on free list. */
+    private void    _chainFree( int from, int to )
+    {
+        for( int j = from ; j < to ; ++j )
+            m_next[ j ] = (j + 1 < to) ? j + 1 : m_free;
+        m_free = from;
+    }
+
+    /*** Double the handle pool.  Caller holds lock. */
+    private void    _grow()
+    {
+        int  old = m_action.length;
+        int  cap = old * 2;
+
+        m_action     = Arrays.copyOf( m_action, cap );
+        m_anchor     = Arrays.copyOf( m_anchor, cap );
+        m_deadline   = Arrays.copyOf( m_deadline, cap );
+        m_next       = Arrays.copyOf( m_next, cap );
+        m_prev       = Arrays.copyOf( m_prev, cap );
+        m_generation = Arrays.copyOf( m_generation, cap );
+        m_bucket     = Arrays.copyOf( m_bucket, cap );
+        _chainFree( old, cap );
+    }
+
+    /*** Caller holds lock. */
+    private void    _startTicker()
+    {
+        m_start_nanos = System.nanoTime();
+        m_done_tick = 0;
+        m_wake_tick = IDLE;
+
+        m_ticker = new Thread( new Runnable() {
+            @Override
+            public void run()
+            {
+                _tickerLoop();
+            }
+        } );
+        m_ticker.setDaemon( true );
+        m_ticker.setName( getClass().getSimpleName() + " ticker" );
+        m_ticker.start();
+    }
+
+    /***
+     *  Ticker thread: park until the next busy tick, collect what expired under the lock,
+     *  then fire callbacks outside it so a callback may schedule or cancel.
+     */
+    private void    _tickerLoop()
+    {
+        final Thread  me = Thread.currentThread();
+
+        while( true )
+        {
+            //  m_wake_tick is lowered, and we're un-parked, when a sooner timeout is scheduled.
+            while( true )
+            {
+                long  wake = m_wake_tick;
+                if( wake == IDLE )
+                    LockSupport.park( this );
+                else
+                {
+                    long  remaining = m_start_nanos + wake * m_tick_nanos - System.nanoTime();
+                    if( remaining <= 0 )
+                        break;
+                    LockSupport.parkNanos( this, remaining );
+                }
+                if( m_ticker != me )
+                    return;
+            }
+
+            int  count = 0;
+            synchronized( m_lock )
+            {
+                if( m_ticker != me )
+                    return;
+
+                m_wakeups += 1;
+                long  now = (System.nanoTime() - m_start_nanos) / m_tick_nanos;
+
+                //  Buckets since last visit ; after a turn or more, each bucket once does.
+                for( long tick = Math.max( m_done_tick + 1, now - m_mask ) ; tick <= now && m_pending > 0 ; ++tick )
+                    count = _collect( (int) tick & m_mask, now, count );
+                m_done_tick = Math.max( m_done_tick, now );
+
+                m_wake_tick = _nextBusyTick();
+            }
+
+            //  Only this thread touches the fire batch.
+            for( int j = 0 ; j < count ; ++j )
+            {
+                _fire( m_fire_action[ j ], m_fire_anchor[ j ] );
+                m_fire_action[ j ] = null;
+                m_fire_anchor[ j ] = null;
+            }
+        }
+    }
+
+    /***
+     *  Move a bucket's timeouts due by tick {@code now} onto the fire batch.  Caller holds lock.
+     * @return count in fire batch.
+     */
+    private int     _collect( int b, long now, int count )
+    {
+        int  slot = m_bucket_head[ b ];
+        while( slot != NIL )
+        {
+            int  next = m_next[ slot ];
+            if( m_deadline[ slot ] <= now )
+            {
+                if( count == m_fire_action.length )
+                {
+                    m_fire_action = Arrays.copyOf( m_fire_action, count * 2 );
+                    m_fire_anchor = Arrays.copyOf( m_fire_anchor, count * 2 );
+                }
+                m_fire_action[ count ] = m_action[ slot ];
+                m_fire_anchor[ count ] = m_anchor[ slot ];
+                count += 1;
+
+                _unlink( slot );
+                _free( slot );
+            }
+            slot = next;
+        }
+        return count;
+    }
+
+    /***
+     *  First tick after the last one done whose bucket holds anything ; at most one turn of
+     *  the wheel to look through.  Caller holds lock.
+     * @return tick, or {@link #IDLE} if nothing is pending.
+     */
+    private long    _nextBusyTick()
+    {
+        if( m_pending == 0 )
+            return IDLE;
+
+        for( long tick = m_done_tick + 1 ; ; ++tick )
+        {
+            if( m_bucket_head[ (int) tick & m_mask ] != NIL )
+                return tick;
+        }
+    }
+
+    private void    _fire( Object action, Object anchor )
+    {
+        try
+        {
+            if( action instanceof LayoutTimeoutManager.TimeoutAction )
+                ((LayoutTimeoutManager.TimeoutAction) action).onTimeout( anchor );
+            else
+                ((Runnable) action).run();
+        }
+        catch( RuntimeException ex )
+        {
+            LOG.log( Level.WARNING, "Timeout callback threw.", ex );
+        }
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** End of a list, or no slot. */
+    private static final int    NIL = -1;
+
+    /*** Wake tick when nothing is pending: park until un-parked. */
+    private static final long   IDLE = Long.MAX_VALUE;
+
+    //-------------------------------  INSTANCE VARIABLES  ------------------------------
+
+    private final Object        m_lock = new Object();
+
+    private final long          m_tick_nanos;
+
+    private final int           m_mask;
+
+    /*** First slot in each bucket's list. */
+    private final int[]         m_bucket_head;
+
+    //  Slot pool, parallel arrays indexed by slot.
+
+    /*** A {@link LayoutTimeoutManager.TimeoutAction} or {@link Runnable} ; {@code null} when free. */
+    private Object[]            m_action;
+
+    private Object[]            m_anchor;
+
+    /*** Tick on which slot expires. */
+    private long[]              m_deadline;
+
+    /*** Next slot in bucket list, or in free list. */
+    private int[]               m_next;
+
+    private int[]               m_prev;
+
+    /*** Bumped on each free, so stale tickets don't match. */
+    private int[]               m_generation;
+
+    /*** Bucket a slot is in. */
+    private int[]               m_bucket;
+
+    /*** Head of free slot list. */
+    private int                 m_free = NIL;
+
+    private int                 m_pending;
+
+    /*** Ticker's batch of callbacks to fire, reused each tick. */
+    private Object[]            m_fire_action;
+
+    private Object[]            m_fire_anchor;
+
+    private volatile Thread     m_ticker;
+
+    private long                m_start_nanos;
+
+    /*** Last tick whose bucket was processed. */
+    private long                m_done_tick;
+
+    /*** Tick the ticker is parked until, or {@link #IDLE} ; only lowered by a schedule. */
+    private volatile long       m_wake_tick = IDLE;
+
+    private long                m_wakeups;
+
+    private boolean             m_shutdown;
+
+    transient private static final Logger LOG = Logger.getLogger( HashedWheelTimer.class.getName() );
+
+}
@@ -0,0 +1,345 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.Arrays;
+
+
+/***
+ *  Debounces a unit's packed input bits, between the bytes a unit sends and the layout model.
+ *  An input must read its new value for N samples in a row before the filtered value follows ;
+ *  a glitch shorter than that, e.g. a wheel crossing a block gap, never shows.  Each input has
+ *  its own N for turning on and for turning off, so a block detector can show occupancy quickly
+ *  yet hold it through dirty track.
+ *
+ * <p> Inputs are packed 64 to a {@code long}, and each input's count of samples is kept as
+ *  a vertical counter : bit {@code n} of plane {@code k} is bit {@code k} of input {@code n}'s
+ *  count.  A sample then costs a few {@code long} operations per 64 inputs, whatever the
+ *  number of inputs that are bouncing.
+ *
+ * <p> The first sample after creation or {@link #reset() } is taken as-is, there being no
+ *  history to filter against.  Time-based delays become sample counts with
+ *  {@link #samplesFor(int, int) }.
+ *
+ * <p> Object is not MT-safe ; normally only a transport's poll thread samples it.
+ *
+ * @author brian
+ */
+public class InputDebounceFilter
+{
+    /***
+     *  Create a filter with every input passed straight through, i.e. 1 sample on and off.
+     * @param bitCount count of inputs, at least 1.
+     */
+    public InputDebounceFilter( int bitCount )
+    {
+        if( bitCount < 1 )
+            throw new IllegalArgumentException( "bitCount must be positive" );
+
+        m_bit_count = bitCount;
+        int  words = (bitCount + 63) >>> 6;
+
+        m_stable = new long[ words ];
+        m_count = new long[ PLANES ][ words ];
+        m_on_need = new long[ PLANES ][ words ];
+        m_off_need = new long[ PLANES ][ words ];
+
+        //  1 sample on and off, including padding up to a whole word.
+        Arrays.fill( m_on_need[ 0 ], -1L );
+        Arrays.fill( m_off_need[ 0 ], -1L );
+        reset();
+    }
+
+    /***
+     *  Set samples needed to turn a range of inputs on, and to turn them off.
+     *  Counts in progress are forgotten.
+     *
+     * @param firstBit first input, 0 to {@code getBitCount()-1}.
+     * @param lastBit last input, inclusive.
+     * @param onSamples samples in a row reading 1 before input shows on, 1 to {@link #MAX_SAMPLES}.
+     * @param offSamples samples in a row reading 0 before input shows off, 1 to {@link #MAX_SAMPLES}.
+     * @throws IllegalArgumentException if range or a count is out of bounds.
+     */
+    public final void  setDelays( int firstBit, int lastBit, int onSamples, int offSamples )
+    {
+        if( firstBit < 0 || lastBit < firstBit || lastBit >= m_bit_count )
+            throw new IllegalArgumentException( "bits " + firstBit + ".." + lastBit + " out of range" );
+        if( onSamples < 1 || onSamples > MAX_SAMPLES || offSamples < 1 || offSamples > MAX_SAMPLES )
+            throw new IllegalArgumentException( "samples must be 1 to " + MAX_SAMPLES );
+
+        for( int bit = firstBit ; bit <= lastBit ; ++bit )
+        {
+            int   w = bit >>> 6;
+            long  m = 1L << bit;
+            for( int k = 0 ; k < PLANES ; ++k )
+            {
+                m_on_need[ k ][ w ]  = ( (onSamples & (1 << k)) != 0 )  ? (m_on_need[ k ][ w ] | m)  : (m_on_need[ k ][ w ] & ~m);
+                m_off_need[ k ][ w ] = ( (offSamples & (1 << k)) != 0 ) ? (m_off_need[ k ][ w ] | m) : (m_off_need[ k ][ w ] & ~m);
+            }
+        }
+
+        for( long[] plane : m_count )
+            Arrays.fill( plane, 0L );
+        m_settled = true;
+    }
+
+    /***
+     *  Forget all history ; next sample is taken as-is.
+     */
+    public final void  reset()
+    {
+        Arrays.fill( m_stable, 0L );
+        for( long[] plane : m_count )
+            Arrays.fill( plane, 0L );
+        m_primed = false;
+        m_settled = true;
+    }
+
+    /***
+     *  Filter one sample of a unit's inputs.  Input {@code n} is bit {@code n % 8} of
+     *  byte {@code n / 8} ; inputs beyond {@code len} bytes read as 0.
+     *
+     * @param raw input bytes as the unit sent them.
+     * @param len count of bytes in {@code raw}, at most {@link #getByteCount() }.
+     * @return {@code true} if any filtered input changed.
+     */
+    public boolean  sample( byte[] raw, int len )
+    {
+        if( len > getByteCount() )
+            throw new IllegalArgumentException( "len " + len + " more than " + getByteCount() + " bytes" );
+
+        final int  words = m_stable.length;
+
+        if( ! m_primed )
+        {
+            for( int w = 0 ; w < words ; ++w )
+                m_stable[ w ] = _load( raw, len, w );
+            m_primed = true;
+            return true;
+        }
+
+        boolean  changed = false;
+        boolean  settled = true;
+
+        for( int w = 0 ; w < words ; ++w )
+        {
+            long  in = _load( raw, len, w );
+            long  diff = in ^ m_stable[ w ];
+
+            //  Inputs reading same as filtered value start over ; the others count one more sample.
+            long  carry = diff;
+            for( int k = 0 ; k < PLANES ; ++k )
+            {
+                long  c = m_count[ k ][ w ] & diff;
+                m_count[ k ][ w ] = c ^ carry;
+                carry &= c;
+            }
+
+            if( diff == 0L )
+                continue;
+
+            //  Which counting inputs reached their delay: on-delay if reading 1, else off-delay.
+            long  reached = diff;
+            for( int k = 0 ; k < PLANES ; ++k )
+            {
+                long  need = (in & m_on_need[ k ][ w ]) | (~in & m_off_need[ k ][ w ]);
+                reached &= ~(m_count[ k ][ w ] ^ need);
+            }
+
+            if( reached != 0L )
+            {
+                m_stable[ w ] ^= reached;
+                for( int k = 0 ; k < PLANES ; ++k )
+                    m_count[ k ][ w ] &= ~reached;
+                changed = true;
+            }
+
+            if( (diff & ~reached) != 0L )
+                settled = false;
+        }
+
+        m_settled = settled;
+        return changed;
+    }
+
+    /***
+     *  Is every filtered input equal to its last sample, i.e. nothing is counting?
+     *  When settled, a sample equal to the previous one can't change anything and need not be given.
+     * @return {@code true} if no input is part way through its delay.
+     */
+    public boolean  isSettled()
+    {
+        return m_settled;
+    }
+
+    /***
+     *  Copy filtered inputs out, packed the same as {@link #sample(byte[], int) } takes them.
+     * @param dst where to write.
+     * @param len count of bytes to write, at most {@link #getByteCount() }.
+     */
+    public void  getFilteredBytes( byte[] dst, int len )
+    {
+        for( int j = 0 ; j < len ; ++j )
+            dst[ j ] = (byte) (m_stable[ j >>> 3 ] >>> ((j & 7) << 3));
+    }
+
+    /***
+     *  Filtered value of one input.
+     * @param bit input number.
+     * @return filtered value.
+     */
+    public boolean  getFiltered( int bit )
+    {
+        return ( m_stable[ bit >>> 6 ] & (1L << bit) ) != 0L;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return count of inputs. */
+    public int      getBitCount()
+    {
+        return m_bit_count;
+    }
+
+    /*** @return count of input bytes filter takes. */
+    public int      getByteCount()
+    {
+        return (m_bit_count + 7) >>> 3;
+    }
+
+    /***
+     *  Samples in a row an input must read 1 to turn on.
+     * @param bit input number.
+     * @return sample count.
+     */
+    public int      getOnSamples( int bit )
+    {
+        return _unplane( m_on_need, bit );
+    }
+
+    /***
+     *  Samples in a row an input must read 0 to turn off.
+     * @param bit input number.
+     * @return sample count.
+     */
+    public int      getOffSamples( int bit )
+    {
+        return _unplane( m_off_need, bit );
+    }
+
+    //-----------------------------  UTILITIES  -----------------------------
+
+    /***
+     *  Turn a hold-off time into a count of samples, rounding up.
+     * @param millis hold-off, in milliseconds.
+     * @param sampleMillis time between samples, in milliseconds.
+     * @return sample count, 1 to {@link #MAX_SAMPLES}.
+     */
+    public static int  samplesFor( int millis, int sampleMillis )
+    {
+        if( millis <= 0 )
+            return 1;
+        if( sampleMillis <= 0 )
+            sampleMillis = 1;
+
+        int  n = (millis + sampleMillis - 1) / sampleMillis;
+        return Math.max( 1, Math.min( MAX_SAMPLES, n ) );
+    }
+
+    /***
+     *  Parse a delay from the layout XML: a count of samples, e.g. {@code "3"}, or a hold-off
+     *  time, e.g. {@code "40ms"}.
+     *
+     * @param text attribute value ; {@code null} or empty means 1 sample.
+     * @param sampleMillis time between samples, in milliseconds, for time-based delays ;
+     *      0 when samples aren't evenly spaced, and only sample counts make sense.
+     * @return sample count, 1 to {@link #MAX_SAMPLES}.
+     * @throws NumberFormatException if not a delay, or a time when {@code sampleMillis} is 0.
+     */
+    public static int  parseDelay( String text, int sampleMillis )
+    {
+        if( text == null || text.trim().isEmpty() )
+            return 1;
+
+        String  t = text.trim().toLowerCase();
+        if( t.endsWith( "ms" ) && sampleMillis <= 0 )
+            throw new NumberFormatException( "time delay \"" + text.trim() + "\" needs a fixed sample period" );
+        if( t.endsWith( "ms" ) )
+            return samplesFor( Integer.parseInt( t.substring( 0, t.length() - 2 ).trim() ), sampleMillis );
+
+        int  n = Integer.parseInt( t );
+        if( n < 1 || n > MAX_SAMPLES )
+            throw new NumberFormatException( "delay " + n + " must be 1 to " + MAX_SAMPLES + " samples" );
+        return n;
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /***
+     *  Pack bytes {@code 8w .. 8w+7} of {@code raw} into a long, first byte lowest.
+     */
+    private static long _load( byte[] raw, int len, int w )
+    {
+        long  v = 0L;
+        int   base = w << 3;
+        int   end = Math.min( len, base + 8 );
+        for( int j = end ; --j >= base ; )
+            v = (v << 8) | (raw[ j ] & 0xffL);
+        return v;
+    }
+
+    private static int _unplane( long[][] planes, int bit )
+    {
+        int  n = 0;
+        for( int k = 0 ; k < PLANES ; ++k )
+        {
+            if( ( planes[ k ][ bit >>> 6 ] & (1L << bit) ) != 0L )
+                n |= 1 << k;
+        }
+        return n;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Bit planes of each vertical counter. */
+    private static final int    PLANES = 4;
+
+    /*** Most samples a delay can be. */
+    public static final int     MAX_SAMPLES = (1 << PLANES) - 1;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final int           m_bit_count;
+
+    /*** Filtered inputs, 64 to a word. */
+    private final long[]        m_stable;
+
+    /*** Vertical counters of samples read differing from filtered value, [plane][word]. */
+    private final long[][]      m_count;
+
+    /*** Samples needed to turn on, as vertical counters. */
+    private final long[][]      m_on_need;
+
+    /*** Samples needed to turn off, as vertical counters. */
+    private final long[][]      m_off_need;
+
+    /*** Has first sample been taken? */
+    private boolean             m_primed;
+
+    /*** No input is counting. */
+    private boolean             m_settled;
+
+}
@@ -0,0 +1,91 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.ArrayList;
+
+
+/***
+ *  {@link LayoutIoModel} for protocols whose units are addressed by a small {@code int},
+ *  e.g. CMRI's poll address.  Adds {@code int}-keyed forms of the methods a poll thread and
+ *  fast readers call, so they don't box each address to an {@link Integer} ; the
+ *  {@link Integer}-keyed methods remain, for code that works with any {@link LayoutIoModel}.
+ *
+ *  <p> Both forms of a method act the same.  A {@code null} {@link Integer} address still
+ *  throws {@link NullPointerException}.
+ *
+ * @author brian
+ */
+public interface IntAddressLayoutIoModel extends LayoutIoModel<Integer> {
+
+    /***
+     *  Same as {@link #getUnitInitializationStrings(Comparable) }.
+     * @param unit Address of unit.
+     * @return array of messages to send, or null if nothing to send.
+     */
+    public ArrayList<byte[]>  getUnitInitializationStrings( int unit );
+
+    /***
+     *  Same as {@link #getUnitQueryMessage(Comparable) }.
+     * @param unit Address of unit.
+     * @return array of bytes
+     */
+    public byte[]   getUnitQueryMessage( int unit );
+
+    /***
+     *  Same as {@link #setSensedPackedBytes(Comparable, byte[], int, int) }.
+     *
+     * @param device address of device that gave data.
+     * @param buf packed input bytes, not kept.
+     * @param off index of first byte in {@code buf}.
+     * @param len count of bytes, &gt; 0.
+     */
+    public void     setSensedPackedBytes( int device, byte[] buf, int off, int len );
+
+    /***
+     *  Same as {@link #getSensedDataSnapshot(Comparable) }.
+     * @param device address of device
+     * @return latest snapshot, or {@code null} if nothing sensed from device.
+     */
+    public SensedDataSnapshot  getSensedDataSnapshot( int device );
+
+    /***
+     *  Same as {@link #getSensedDataIfNewer(Comparable, long) }.
+     * @param device address of device
+     * @param lastSeenVersion version of last snapshot seen, or -1 if none.
+     * @return newer snapshot, or {@code null} if none newer.
+     */
+    public SensedDataSnapshot  getSensedDataIfNewer( int device, long lastSeenVersion );
+
+    /***
+     *  Same as {@link LayoutIoModel#beginScan() }, but the batch also takes {@code int} addresses.
+     * @return empty batch for this model.
+     */
+    @Override
+    public IntAddressScanBatch  beginScan();
+
+    /***
+     *  Same as {@link #getSensedDataOne(Comparable, int) }.
+     *
+     * @param device address of device
+     * @param bitNumber the input sense to retrieve.
+     * @return {@code true} if on, else {@code false} if off.
+     * @exception ArrayIndexOutOfBoundsException if {@code bitNumber} out-of-bounds.
+     */
+    public boolean      getSensedDataOne( int device, int bitNumber )
+            throws UnknownLayoutUnitException, ArrayIndexOutOfBoundsException;
+
+}
@@ -0,0 +1,125 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.Arrays;
+
+
+/***
+ *  {@link LayoutIoScanBatch} keyed by a plain {@code int} unit address, for an
+ *  {@link IntAddressLayoutIoModel}.  A poll thread puts and the model commits each unit
+ *  without boxing its address ; finding a unit put twice is an array lookup, not a search.
+ *
+ * <p> The {@link Integer}-keyed {@link #put(Integer, byte[], int, int) } and
+ *  {@link #getUnit(int) } still work, and act the same.
+ *
+ * @author brian
+ */
+public class IntAddressScanBatch extends LayoutIoScanBatch<Integer>
+{
+    /***
+     *  Make an empty batch ; normally done by {@link IntAddressLayoutIoModel#beginScan() }.
+     * @param model model batch commits to.
+     */
+    public IntAddressScanBatch( IntAddressLayoutIoModel model )
+    {
+        super( model );
+
+        m_int_units = new int[ 8 ];
+        m_entry_of = new int[ 8 ];
+    }
+
+    /***
+     *  Same as {@link #put(Integer, byte[], int, int) }.
+     *
+     * @param unit address of device, not negative.
+     * @param buf packed input bytes.
+     * @param off index of first byte in {@code buf}.
+     * @param len count of bytes, &gt; 0.
+     */
+    public void  put( int unit, byte[] buf, int off, int len )
+    {
+        if( unit < 0 )
+            throw new IllegalArgumentException( "unit cannot be negative" );
+        if( len <= 0 )
+            throw new IllegalArgumentException( "len must be positive" );
+
+        if( unit >= m_entry_of.length )
+            m_entry_of = Arrays.copyOf( m_entry_of, Math.max( unit + 1, m_entry_of.length * 2 ) );
+
+        int  j = m_entry_of[ unit ] - 1;
+        if( j < 0 )
+        {
+            j = _newEntry();
+            if( j == m_int_units.length )
+                m_int_units = Arrays.copyOf( m_int_units, j * 2 );
+            m_int_units[ j ] = unit;
+            m_entry_of[ unit ] = j + 1;
+        }
+        _storeImage( j, buf, off, len );
+    }
+
+    @Override
+    public void  put( Integer unit, byte[] buf, int off, int len )
+    {
+        if( unit == null )
+            throw new NullPointerException( "unit cannot be null" );
+
+        put( unit.intValue(), buf, off, len );
+    }
+
+    @Override
+    public void  clear()
+    {
+        for( int j = size() ; --j >= 0 ; )
+            m_entry_of[ m_int_units[ j ] ] = 0;
+        super.clear();
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    @Override
+    public IntAddressLayoutIoModel  getModel()
+    {
+        return (IntAddressLayoutIoModel) super.getModel();
+    }
+
+    /***
+     *  Same as {@link #getUnit(int) }, without boxing.
+     * @param j 0 to {@code size()-1}.
+     * @return unit address.
+     */
+    public int  getIntUnit( int j )
+    {
+        _check( j );
+        return m_int_units[ j ];
+    }
+
+    @Override
+    public Integer  getUnit( int j )
+    {
+        return Integer.valueOf( getIntUnit( j ) );
+    }
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    /*** Units put, in order ; each at most once. */
+    private int[]       m_int_units;
+
+    /*** Entry index plus one of each unit put, by unit address ; 0 if not put. */
+    private int[]       m_entry_of;
+
+}
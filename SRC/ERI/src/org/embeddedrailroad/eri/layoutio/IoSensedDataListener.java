@@ -18,12 +18,28 @@ package org.embeddedrailroad.eri.layoutio;
 import java.util.EventListener;
 
 /**
+ *  Told when a layout model's sensed data changes.  Register with
+ *  {@link LayoutIoModel#addIoSensedDataListener(IoSensedDataListener) }.
+ *  Listeners are called on the thread that updated the model, e.g. a transport's poll
+ *  thread, so please return quickly.
  *
  * @author brian
  */
 public interface IoSensedDataListener extends EventListener {
 
-    public void     ioDataChanged( Object device_addr, boolean[] old_bits, boolean[] new_bits );
+    /***
+     *  Some input bits of a unit changed.  Only called when at least one bit differs.
+     * @param event unit, old and new bits, and mask of which bits changed.
+     */
+    public void     ioDataChanged( LayoutIoDataChangedEvent<?> event );
+
+    /***
+     *  Input bits of a whole scan cycle changed, applied by {@link LayoutIoModel#commitScan(LayoutIoScanBatch) }.
+     *  Units in the batch are told of here, instead of one at a time with {@link #ioDataChanged(LayoutIoDataChangedEvent) }.
+     *  Only called when at least one bit differs.
+     * @param event every changed (unit, bit) pair.
+     */
+    public void     ioScanChanged( LayoutIoScanChangedEvent<?> event );
 
     public void     ioBlobChanged( Object device_addr, byte[] old_bits, byte[] new_bits );
 
@@ -18,6 +18,9 @@ package org.embeddedrailroad.eri.layoutio;
 import java.util.Arrays;
 
 /**
+ *  Input bits of a unit changed: the old and new bits, and a packed mask of which changed.
+ *  Mask bit {@code n} is bit {@code n % 8} of byte {@code n / 8}, same order as the
+ *  input bytes a unit sends ; a bit missing on one side counts as {@code false}.
  *
  * @author brian
  * @param <TUnitAddr> Address-type for units of a communication protocol.
@@ -28,7 +31,7 @@ public class LayoutIoDataChangedEvent< TUnitAddr > extends java.util.EventObject
      *  Copy old and new bit-arrays, and create an event.
      *
      * @param unit Address of unit that has changed bits to report.
-     * @param old_bits what is was before, a copy is made.
+     * @param old_bits what is was before, a copy is made ; {@code null} if nothing before.
      * @param new_bits what is now, a copy is made.
      */
     public LayoutIoDataChangedEvent( TUnitAddr unit, boolean[] old_bits, boolean[] new_bits )
@@ -36,8 +39,24 @@ public class LayoutIoDataChangedEvent< TUnitAddr > extends java.util.EventObject
         super( unit );
 
         this.m_unit = unit;
-        this.m_old  = Arrays.copyOf( old_bits, old_bits.length );
+        this.m_old  = ( old_bits != null ) ? Arrays.copyOf( old_bits, old_bits.length ) : new boolean[0];
         this.m_new  = Arrays.copyOf( new_bits, new_bits.length );
+
+        //  XOR of old and new, packed 8 to a byte.
+        int  n = Math.max( m_old.length, m_new.length );
+        this.m_changed = new byte[ (n + 7) / 8 ];
+        int  count = 0;
+        for( int j = 0 ; j < n ; ++j )
+        {
+            boolean  was = j < m_old.length && m_old[ j ];
+            boolean  now = j < m_new.length && m_new[ j ];
+            if( was != now )
+            {
+                m_changed[ j >>> 3 ] |= (byte) (1 << (j & 7));
+                ++count;
+            }
+        }
+        this.m_changed_count = count;
     }
 
     public TUnitAddr    getUnitAddress()
@@ -63,10 +82,40 @@ public class LayoutIoDataChangedEvent< TUnitAddr > extends java.util.EventObject
         return m_new;
     }
 
+    /***
+     *  Which bits changed, packed ; please don't modify.
+     * @return mask, bit {@code n} is bit {@code n % 8} of byte {@code n / 8}.
+     */
+    public byte[]       getChangedMask()
+    {
+        return m_changed;
+    }
+
+    /***
+     *  Did one bit change?
+     * @param bit input bit number.
+     * @return {@code true} if it differs between old and new.
+     */
+    public boolean      isChanged( int bit )
+    {
+        return bit >= 0 && (bit >>> 3) < m_changed.length && ( m_changed[ bit >>> 3 ] & (1 << (bit & 7)) ) != 0;
+    }
+
+    /*** @return count of bits that changed. */
+    public int          getChangedCount()
+    {
+        return m_changed_count;
+    }
+
     //--------------------------  INSTANCE VARS  -------------------------
 
     TUnitAddr       m_unit;
 
     boolean[]       m_old;
     boolean[]       m_new;
+
+    /*** XOR of old and new, 8 bits to a byte. */
+    final byte[]    m_changed;
+
+    final int       m_changed_count;
 }
@@ -114,6 +114,36 @@ public interface LayoutIoModel< TUnitAddr extends Comparable<TUnitAddr> > {
      */
     public void     setSensedBinaryData( TUnitAddr device, TableOfBoolean individual_bits );
 
+    /***
+     *  Received an update of all input bits from a device, as packed bytes: input {@code n}
+     *  is bit {@code n % 8} of byte {@code off + n / 8}.  Replaces prior, same as
+     *  {@link #setSensedBinaryData(Comparable, boolean[]) } with {@code len * 8} bits, but
+     *  stored without expanding to one {@code boolean} per input.
+     *
+     * @param device address of device that gave data.
+     * @param buf packed input bytes, not kept.
+     * @param off index of first byte in {@code buf}.
+     * @param len count of bytes, &gt; 0.
+     */
+    public void     setSensedPackedBytes( TUnitAddr device, byte[] buf, int off, int len );
+
+    /***
+     *  Start gathering a whole scan cycle's input images, to apply at once.
+     * @return new empty batch that commits to this model.
+     */
+    public LayoutIoScanBatch<TUnitAddr>  beginScan();
+
+    /***
+     *  Apply every unit of a batch, as {@link #setSensedPackedBytes(Comparable, byte[], int, int) }
+     *  would one at a time, but in one go: changed units share one version, and listeners
+     *  are told once with {@link IoSensedDataListener#ioScanChanged(LayoutIoScanChangedEvent) }.
+     *  Normally called by {@link LayoutIoScanBatch#commit() }.
+     *
+     * @param batch units to apply, from this model's {@link #beginScan() }.
+     * @return count of units whose inputs changed.
+     */
+    public int      commitScan( LayoutIoScanBatch<TUnitAddr> batch );
+
     /***
      *  A complex functional-unit on the device reported back a bunch of bytes.
      *  This could be an RFID reader.
@@ -132,6 +162,21 @@ public interface LayoutIoModel< TUnitAddr extends Comparable<TUnitAddr> > {
      */
     public void     setSensedBinaryBlob( TUnitAddr device, int subfunction, byte[] blob );
 
+    //------------------  CHANGE NOTIFICATIONS  --------------------
+
+    /***
+     *  Be told whenever a unit's sensed bits change.  Nothing is sent when an update
+     *  brings the same bits as before.
+     * @param listener who to tell.
+     */
+    public void     addIoSensedDataListener( IoSensedDataListener listener );
+
+    /***
+     *  Stop telling a listener.
+     * @param listener who to stop telling.
+     */
+    public void     removeIoSensedDataListener( IoSensedDataListener listener );
+
     //------------------  READING SENSED DATA FROM DEVICE  --------------------
 
     /***
@@ -144,6 +189,31 @@ public interface LayoutIoModel< TUnitAddr extends Comparable<TUnitAddr> > {
     public TableOfBoolean    getSensedDataAll( TUnitAddr device )
             throws UnknownLayoutUnitException, NullPointerException;
 
+    /***
+     *  Return a device's sensed data as an immutable, versioned snapshot.  Cheap: no copy
+     *  is made, and it may be kept and read from any thread.
+     *
+     * @param device address of device
+     * @return latest snapshot, or {@code null} if nothing sensed from device.
+     */
+    public SensedDataSnapshot  getSensedDataSnapshot( TUnitAddr device )
+            throws NullPointerException;
+
+    /***
+     *  Return a device's sensed data only if it changed since a version already seen,
+     *  so a reader polling the model skips work when nothing changed.
+     *  <pre>
+     *    SensedDataSnapshot  s = model.getSensedDataIfNewer( unit, last_version );
+     *    if( s != null ) { last_version = s.getVersion(); redraw( s ); }
+     *  </pre>
+     *
+     * @param device address of device
+     * @param lastSeenVersion version of last snapshot seen, or -1 if none.
+     * @return newer snapshot, or {@code null} if none newer.
+     */
+    public SensedDataSnapshot  getSensedDataIfNewer( TUnitAddr device, long lastSeenVersion )
+            throws NullPointerException;
+
     /***
      *  Return the value of just one sensor.
      *
@@ -0,0 +1,224 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/***
+ *  Units' input images gathered over one scan cycle, applied to a model all at once by
+ *  {@link #commit() }.  Make one with {@link LayoutIoModel#beginScan() }:
+ *  <pre>
+ *    LayoutIoScanBatch&lt;Integer&gt;  batch = model.beginScan();
+ *    ...each unit that answered...
+ *        batch.put( addr, buf, 0, len );
+ *    batch.commit();
+ *  </pre>
+ *  Rather than each unit taking the model's lock, bumping its version and telling listeners,
+ *  a batch does each once per cycle.  Nothing of a batch reaches the model before
+ *  {@link #commit() }, but whether a reader can see part of a batch while it commits is up to the
+ *  model: {@link AbstractLayoutIoModelIntegerAddress} applies it under its write lock, while
+ *  {@link SlotArrayLayoutIoModel} publishes unit by unit.  A reader that needs a whole scan
+ *  cycle at once uses {@link SlotArrayLayoutIoModel#getScanEpoch() } or {@link LayoutSnapshotPublisher}.
+ *
+ * <p> A batch is emptied by commit and may be used again ; it keeps its buffers, so a poll
+ *  thread can keep one for its whole life.  Object is not MT-safe.
+ *  See {@link IntAddressScanBatch} for units addressed by a plain {@code int}.
+ *
+ * @author brian
+ * @param <TUnitAddr> Node address type, as the model's.
+ */
+public class LayoutIoScanBatch< TUnitAddr extends Comparable<TUnitAddr> >
+{
+    /***
+     *  Make an empty batch ; normally done by {@link LayoutIoModel#beginScan() }.
+     * @param model model batch commits to.
+     */
+    public LayoutIoScanBatch( LayoutIoModel<TUnitAddr> model )
+    {
+        if( model == null )
+            throw new NullPointerException( "model cannot be null" );
+
+        m_model = model;
+        m_units = new ArrayList<>();
+        m_images = new ArrayList<>();
+        m_lengths = new int[ 8 ];
+    }
+
+    /***
+     *  Add a unit's packed input image, as for
+     *  {@link LayoutIoModel#setSensedPackedBytes(java.lang.Comparable, byte[], int, int) }.
+     *  Bytes are copied, so caller may reuse {@code buf} straight away.  A unit put twice keeps
+     *  its place and gets its last image, so a model sees each unit once per commit.
+     *
+     * @param unit address of device.
+     * @param buf packed input bytes.
+     * @param off index of first byte in {@code buf}.
+     * @param len count of bytes, &gt; 0.
+     */
+    public void  put( TUnitAddr unit, byte[] buf, int off, int len )
+    {
+        if( unit == null )
+            throw new NullPointerException( "unit cannot be null" );
+        if( len <= 0 )
+            throw new IllegalArgumentException( "len must be positive" );
+
+        int  j = m_units.indexOf( unit );
+        if( j < 0 )
+        {
+            j = _newEntry();
+            m_units.add( unit );
+        }
+        _storeImage( j, buf, off, len );
+    }
+
+    /***
+     *  Apply every unit put to the model, then empty the batch.
+     * @return count of units whose inputs changed.
+     */
+    public int  commit()
+    {
+        try
+        {
+            return m_model.commitScan( this );
+        }
+        finally
+        {
+            clear();
+        }
+    }
+
+    /***
+     *  Forget every unit put, keeping buffers for next time.
+     */
+    public void  clear()
+    {
+        m_units.clear();
+        m_size = 0;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return model batch commits to. */
+    public LayoutIoModel<TUnitAddr>  getModel()
+    {
+        return m_model;
+    }
+
+    /*** @return count of units put since last commit. */
+    public int      size()
+    {
+        return m_size;
+    }
+
+    /*** @return {@code true} if nothing put. */
+    public boolean  isEmpty()
+    {
+        return m_size == 0;
+    }
+
+    /***
+     *  Address of the {@code j}-th unit put.
+     * @param j 0 to {@code size()-1}.
+     * @return unit address.
+     */
+    public TUnitAddr  getUnit( int j )
+    {
+        _check( j );
+        return m_units.get( j );
+    }
+
+    /***
+     *  Input image of the {@code j}-th unit put ; please don't modify.
+     * @param j 0 to {@code size()-1}.
+     * @return buffer, first {@link #getImageLength(int) } bytes are the image.
+     */
+    public byte[]   getImage( int j )
+    {
+        _check( j );
+        return m_images.get( j );
+    }
+
+    /***
+     *  Count of bytes in the {@code j}-th unit's image.
+     * @param j 0 to {@code size()-1}.
+     * @return byte count.
+     */
+    public int      getImageLength( int j )
+    {
+        _check( j );
+        return m_lengths[ j ];
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /***
+     *  Make room for one more unit.
+     * @return index of new entry, its image not yet stored.
+     */
+    protected int  _newEntry()
+    {
+        if( m_size == m_lengths.length )
+            m_lengths = Arrays.copyOf( m_lengths, m_size * 2 );
+        return m_size++;
+    }
+
+    /***
+     *  Copy an image into entry {@code j}, reusing an earlier cycle's buffer when big enough.
+     */
+    protected void _storeImage( int j, byte[] buf, int off, int len )
+    {
+        byte[]  image = ( j < m_images.size() ) ? m_images.get( j ) : null;
+        if( image == null || image.length < len )
+        {
+            image = new byte[ Math.max( len, MIN_IMAGE_SIZE ) ];
+            if( j < m_images.size() )
+                m_images.set( j, image );
+            else
+                m_images.add( image );
+        }
+        System.arraycopy( buf, off, image, 0, len );
+        m_lengths[ j ] = len;
+    }
+
+    protected void _check( int j )
+    {
+        if( j < 0 || j >= m_size )
+            throw new IndexOutOfBoundsException( "index " + j + " not 0 to " + (m_size - 1) );
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Smallest image buffer, so a unit that grows a little doesn't need a new one. */
+    private static final int    MIN_IMAGE_SIZE = 8;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final LayoutIoModel<TUnitAddr>  m_model;
+
+    /*** Units put, in order ; each at most once. */
+    private final ArrayList< TUnitAddr >    m_units;
+
+    /*** Image buffers, kept from cycle to cycle ; may be more than {@link #m_size}. */
+    private final ArrayList< byte[] >       m_images;
+
+    private int[]                           m_lengths;
+
+    /*** Count of units put. */
+    private int                             m_size;
+
+}
@@ -0,0 +1,170 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ *  Input bits changed by one committed {@link LayoutIoScanBatch}: every changed
+ *  (unit, bit) pair with its new value, in the order units were put.  A bit missing on one
+ *  side counts as {@code false}, as in {@link LayoutIoDataChangedEvent}.
+ *
+ * @author brian
+ * @param <TUnitAddr> Address-type for units of a communication protocol.
+ */
+public class LayoutIoScanChangedEvent< TUnitAddr > extends java.util.EventObject
+{
+    /***
+     *  Create an event with no changes ; model adds them.
+     * @param model model that changed.
+     */
+    public LayoutIoScanChangedEvent( Object model )
+    {
+        super( model );
+
+        m_units = new ArrayList<>();
+        m_pair_unit = new int[ 16 ];
+        m_pair_bit = new int[ 16 ];
+        m_pair_value = new boolean[ 16 ];
+    }
+
+    /***
+     *  Add a unit's changes, found by comparing its packed input images.  Nothing is added
+     *  if no bit differs.  Bit {@code n} is bit {@code n % 8} of byte {@code n / 8}.
+     *
+     * @param unit unit address.
+     * @param oldBytes image before, or {@code null} if none.
+     * @param oldLen count of bytes in {@code oldBytes}.
+     * @param newBytes image now.
+     * @param newLen count of bytes in {@code newBytes}.
+     */
+    public void  addUnit( TUnitAddr unit, byte[] oldBytes, int oldLen, byte[] newBytes, int newLen )
+    {
+        if( oldBytes == null )
+            oldLen = 0;
+
+        int  unit_index = -1;
+        int  n = Math.max( oldLen, newLen );
+        for( int j = 0 ; j < n ; ++j )
+        {
+            int  now = ( j < newLen ) ? newBytes[ j ] & 0xff : 0;
+            int  diff = ( ( j < oldLen ) ? oldBytes[ j ] & 0xff : 0 ) ^ now;
+
+            while( diff != 0 )
+            {
+                int  b = Integer.numberOfTrailingZeros( diff );
+                diff &= diff - 1;
+
+                if( unit_index < 0 )
+                {
+                    unit_index = m_units.size();
+                    m_units.add( unit );
+                }
+                _addPair( unit_index, (j << 3) + b, ( now & (1 << b) ) != 0 );
+            }
+        }
+    }
+
+    //-----------------------------  GETTORS  -----------------------------
+
+    /***
+     *  Units with at least one changed bit, each once ; please don't modify.
+     * @return list of units.
+     */
+    public List< TUnitAddr >  getChangedUnits()
+    {
+        return Collections.unmodifiableList( m_units );
+    }
+
+    /*** @return count of changed (unit, bit) pairs. */
+    public int          getChangedCount()
+    {
+        return m_count;
+    }
+
+    /***
+     *  Unit of the {@code j}-th changed pair.
+     * @param j 0 to {@code getChangedCount()-1}.
+     * @return unit address.
+     */
+    public TUnitAddr    getUnit( int j )
+    {
+        _check( j );
+        return m_units.get( m_pair_unit[ j ] );
+    }
+
+    /***
+     *  Input bit number of the {@code j}-th changed pair.
+     * @param j 0 to {@code getChangedCount()-1}.
+     * @return bit number.
+     */
+    public int          getBit( int j )
+    {
+        _check( j );
+        return m_pair_bit[ j ];
+    }
+
+    /***
+     *  New value of the {@code j}-th changed pair.
+     * @param j 0 to {@code getChangedCount()-1}.
+     * @return value now.
+     */
+    public boolean      getValue( int j )
+    {
+        _check( j );
+        return m_pair_value[ j ];
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    private void _addPair( int unitIndex, int bit, boolean value )
+    {
+        if( m_count == m_pair_bit.length )
+        {
+            m_pair_unit = Arrays.copyOf( m_pair_unit, m_count * 2 );
+            m_pair_bit = Arrays.copyOf( m_pair_bit, m_count * 2 );
+            m_pair_value = Arrays.copyOf( m_pair_value, m_count * 2 );
+        }
+
+        m_pair_unit[ m_count ] = unitIndex;
+        m_pair_bit[ m_count ] = bit;
+        m_pair_value[ m_count ] = value;
+        ++m_count;
+    }
+
+    private void _check( int j )
+    {
+        if( j < 0 || j >= m_count )
+            throw new IndexOutOfBoundsException( "index " + j + " not 0 to " + (m_count - 1) );
+    }
+
+    //--------------------------  INSTANCE VARS  -------------------------
+
+    /*** Changed units, each once. */
+    final ArrayList< TUnitAddr >    m_units;
+
+    /*** Per pair: index into {@link #m_units}. */
+    int[]           m_pair_unit;
+
+    int[]           m_pair_bit;
+
+    boolean[]       m_pair_value;
+
+    int             m_count;
+}
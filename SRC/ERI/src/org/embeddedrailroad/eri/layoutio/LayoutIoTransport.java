@@ -16,6 +16,7 @@
 package org.embeddedrailroad.eri.layoutio;
 
 import com.crunchynoodles.util.XmlPropertyBean;
+import org.embeddedrailroad.eri.xml.UnitBean;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
@@ -78,4 +79,12 @@ public interface LayoutIoTransport
      * @return  List of XML properties
      */
     public List< XmlPropertyBean >   getAllProperties();
+
+    /***
+     *  Tell transport about a unit on its channel, from the layout XML.
+     *  May be called before or after {@link #attach() }.
+     *
+     * @param unit unit bean, with its address, type and IO groups.
+     */
+    public void addUnit( UnitBean unit );
 }
@@ -0,0 +1,392 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import com.crunchynoodles.util.IndexVisitor;
+import org.embeddedrailroad.eri.xml.BankBean;
+import org.embeddedrailroad.eri.xml.LayoutConfigurationBean;
+import org.embeddedrailroad.eri.xml.LayoutSensorBean;
+import org.embeddedrailroad.eri.xml.LayoutSensorListBean;
+
+
+/***
+ *  The layout XML's named sensors, compiled once at load time.  Each sensor gets a dense id,
+ *  0 to {@code getSensorCount()-1} in XML order, and its {@link SensorAddress}.  Code that
+ *  runs often keeps ids, and uses plain array lookups both ways:
+ *  <ul>
+ *   <li> id to name and address, by array index ;
+ *   <li> input to the sensors naming it, by a unit's index (from a table indexed by bank
+ *        and unit, with {@link #unitIndexOf(int, int) }) and bit number.
+ *  </ul>
+ *  Only {@link #idOf(String) } looks at names, for wiring things up.
+ *
+ * <p> Banks here are the layout XML's bank {@code address}es.  A {@link LayoutSnapshot}'s bank
+ *  numbers are another thing ; {@link LayoutSnapshotPublisher#getLayoutBank(int) } maps one to
+ *  the other, so a changed input of a snapshot or a scan event finds its sensors with:
+ *  <pre>
+ *    int  u = index.unitIndexOf( publisher.getLayoutBank( model.getBankNumber() ), unit );
+ *    for( int k = 0 ; k &lt; index.sensorCountAt( u, bit ) ; ++k )
+ *        ...index.sensorAt( u, bit, k )...
+ *  </pre>
+ *
+ * <p> Object never changes once compiled, so it is MT-safe.
+ *
+ * @author brian
+ */
+public final class LayoutSensorIndex
+{
+    /***
+     *  Compile the sensors of a layout configuration.
+     * @param config layout, as read from XML.
+     * @return index, empty if layout has no sensors.
+     * @throws IllegalArgumentException if a name repeats, or a sensor's bank, unit or bit is bad.
+     */
+    public static LayoutSensorIndex  compile( LayoutConfigurationBean config )
+    {
+        List<BankBean>  banks = ( config.getBankList() != null ) ? config.getBankList().getBankList() : new ArrayList<BankBean>();
+        LayoutSensorListBean  sl = config.getLayoutSensorList();
+        List<LayoutSensorBean>  sensors = ( sl != null ) ? sl.getSensorList() : new ArrayList<LayoutSensorBean>();
+
+        return compile( banks, sensors );
+    }
+
+    /***
+     *  Compile sensors against a list of banks.  Protocol ids are given in order each
+     *  protocol first appears among the banks.
+     *
+     * @param banks layout's banks.
+     * @param sensors named sensors.
+     * @return index.
+     * @throws IllegalArgumentException if a name repeats, or a sensor's bank, unit or bit is bad.
+     */
+    public static LayoutSensorIndex  compile( List<BankBean> banks, List<LayoutSensorBean> sensors )
+    {
+        //  1.  Banks: address to packed protocol and bank.
+        ArrayList<String>  protocols = new ArrayList<>();
+        HashMap<Integer, Long>  bank_keys = new HashMap<>();
+        for( BankBean bank : banks )
+        {
+            String  proto = bank.getProtocol().trim().toLowerCase();
+            int  pid = protocols.indexOf( proto );
+            if( pid < 0 )
+            {
+                pid = protocols.size();
+                protocols.add( proto );
+            }
+
+            int  addr = Integer.parseInt( bank.getAddress().trim() );
+            if( bank_keys.put( addr, SensorAddress.pack( pid, addr, 0, 0 ) ) != null )
+                throw new IllegalArgumentException( "bank address " + addr + " used twice" );
+        }
+
+        //  2.  Sensors: name and address, by id.
+        final int  n = sensors.size();
+        String[]  names = new String[ n ];
+        final long[]  addresses = new long[ n ];
+        HashMap<String, Integer>  ids = new HashMap<>( n * 2 );
+
+        for( int id = 0 ; id < n ; ++id )
+        {
+            LayoutSensorBean  s = sensors.get( id );
+            Long  bank_key;
+            try
+            {
+                bank_key = bank_keys.get( Integer.parseInt( s.getBank().trim() ) );
+                if( bank_key == null )
+                    throw new IllegalArgumentException( "no bank " + s.getBank() );
+
+                addresses[ id ] = bank_key | SensorAddress.pack( 0, 0, Integer.decode( s.getUnit().trim() ),
+                                                                 Integer.decode( s.getBit().trim() ) );
+            }
+            catch( IllegalArgumentException ex )
+            {
+                throw new IllegalArgumentException( "sensor \"" + s.getName() + "\": " + ex.getMessage(), ex );
+            }
+
+            names[ id ] = s.getName();
+            if( ids.put( s.getName(), id ) != null )
+                throw new IllegalArgumentException( "sensor name \"" + s.getName() + "\" used twice" );
+        }
+
+        return new LayoutSensorIndex( protocols, names, addresses, ids );
+    }
+
+    private LayoutSensorIndex( List<String> protocols, String[] names, final long[] addresses, HashMap<String, Integer> ids )
+    {
+        m_protocols = Collections.unmodifiableList( new ArrayList<>( protocols ) );
+        m_names = names;
+        m_addresses = addresses;
+        m_ids = ids;
+
+        //  Ids in address order, so each unit's, and each bit's, sensors are together.
+        Integer[]  order = new Integer[ names.length ];
+        for( int j = 0 ; j < order.length ; ++j )
+            order[ j ] = j;
+        Arrays.sort( order, new Comparator<Integer>() {
+            @Override
+            public int compare( Integer a, Integer b ) {
+                int  c = Long.compare( addresses[ a ], addresses[ b ] );
+                return ( c != 0 ) ? c : Integer.compare( a, b );
+            }
+        } );
+
+        m_rev_ids = new int[ order.length ];
+        for( int j = 0 ; j < order.length ; ++j )
+            m_rev_ids[ j ] = order[ j ];
+
+        //  Distinct units, and room for a start index per bit of each plus one past the end.
+        int  units = 0;
+        int  starts = 0;
+        for( int j = 0 ; j < order.length ; ++j )
+        {
+            long  a = addresses[ m_rev_ids[ j ] ];
+            boolean  last_of_unit = j + 1 == order.length || SensorAddress.unitKey( addresses[ m_rev_ids[ j + 1 ] ] ) != SensorAddress.unitKey( a );
+            if( last_of_unit )
+            {
+                ++units;
+                starts += SensorAddress.bitOf( a ) + 2;
+            }
+        }
+
+        m_unit_keys = new long[ units ];
+        m_unit_base = new int[ units + 1 ];
+        m_bit_start = new int[ starts ];
+
+        int  u = 0;
+        int  base = 0;
+        for( int lo = 0 ; lo < order.length ; ++u )
+        {
+            long  key = SensorAddress.unitKey( addresses[ m_rev_ids[ lo ] ] );
+            int   hi = lo;
+            while( hi < order.length && SensorAddress.unitKey( addresses[ m_rev_ids[ hi ] ] ) == key )
+                ++hi;
+
+            int  bits = SensorAddress.bitOf( addresses[ m_rev_ids[ hi - 1 ] ] ) + 1;
+            m_unit_keys[ u ] = key;
+            m_unit_base[ u ] = base;
+
+            int  p = lo;
+            for( int b = 0 ; b <= bits ; ++b )
+            {
+                while( p < hi && SensorAddress.bitOf( addresses[ m_rev_ids[ p ] ] ) < b )
+                    ++p;
+                m_bit_start[ base + b ] = p;
+            }
+
+            base += bits + 1;
+            lo = hi;
+        }
+        m_unit_base[ units ] = base;
+
+        //  Unit index by bank and unit, as plain arrays ; sized to the highest bank and unit named.
+        int  max_bank = -1;
+        for( long key : m_unit_keys )
+            max_bank = Math.max( max_bank, SensorAddress.bankOf( key ) );
+        m_unit_index = new int[ max_bank + 1 ][];
+
+        for( u = units ; --u >= 0 ; )
+        {
+            int  b = SensorAddress.bankOf( m_unit_keys[ u ] );
+            int  unit = SensorAddress.unitOf( m_unit_keys[ u ] );
+            if( m_unit_index[ b ] == null )
+            {
+                //  Keys are sorted, so a bank's first one met going down is its highest unit.
+                m_unit_index[ b ] = new int[ unit + 1 ];
+                Arrays.fill( m_unit_index[ b ], -1 );
+            }
+            m_unit_index[ b ][ unit ] = u;
+        }
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return count of sensors ; ids are 0 to this less one. */
+    public int      getSensorCount()
+    {
+        return m_names.length;
+    }
+
+    /*** @return count of distinct units with a named input. */
+    public int      getUnitCount()
+    {
+        return m_unit_keys.length;
+    }
+
+    /***
+     *  Protocol names, lower case, indexed by protocol id.
+     * @return unmodifiable list.
+     */
+    public List<String>  getProtocols()
+    {
+        return m_protocols;
+    }
+
+    //--------------------------  BY SENSOR ID  --------------------------
+
+    /***
+     *  Look up a sensor by name ; meant for load time, not hot paths.
+     * @param name sensor's name, as in the XML.
+     * @return id, or -1 if no such sensor.
+     */
+    public int      idOf( String name )
+    {
+        Integer  id = m_ids.get( name );
+        return ( id != null ) ? id : -1;
+    }
+
+    /***
+     *  A sensor's name.
+     * @param id sensor id.
+     * @return name.
+     * @throws ArrayIndexOutOfBoundsException if no such id.
+     */
+    public String   getName( int id )
+    {
+        return m_names[ id ];
+    }
+
+    /***
+     *  A sensor's packed {@link SensorAddress}.
+     * @param id sensor id.
+     * @return packed address.
+     * @throws ArrayIndexOutOfBoundsException if no such id.
+     */
+    public long     getAddress( int id )
+    {
+        return m_addresses[ id ];
+    }
+
+    //--------------------------  BY INPUT  --------------------------
+
+    /***
+     *  Find a unit's index, for {@link #sensorCountAt(int, int) } and {@link #sensorAt(int, int, int) }.
+     *  Two array lookups, no search.
+     *
+     * @param bank bank's {@code address} in the layout XML (OK if out-of-range, or -1).
+     * @param unit unit address (OK if out-of-range).
+     * @return unit index, or -1 if no input of unit is named.
+     */
+    public int      unitIndexOf( int bank, int unit )
+    {
+        if( bank < 0 || bank >= m_unit_index.length || unit < 0 )
+            return -1;
+
+        int[]  units = m_unit_index[ bank ];
+        return ( units != null && unit < units.length ) ? units[ unit ] : -1;
+    }
+
+    /***
+     *  Find a unit's index from a packed address.
+     * @param address packed address of any input of the unit ; its bit is ignored.
+     * @return unit index, or -1 if no input of unit is named, or protocol differs.
+     */
+    public int      unitIndexOf( long address )
+    {
+        int  u = unitIndexOf( SensorAddress.bankOf( address ), SensorAddress.unitOf( address ) );
+        return ( u >= 0 && m_unit_keys[ u ] == SensorAddress.unitKey( address ) ) ? u : -1;
+    }
+
+    /***
+     *  Count of sensors naming one input.
+     * @param unitIndex from {@link #unitIndexOf(long) } ; -1 is OK and has none.
+     * @param bit input number (OK if out-of-range).
+     * @return count, usually 0 or 1.
+     */
+    public int      sensorCountAt( int unitIndex, int bit )
+    {
+        if( unitIndex < 0 || bit < 0 )
+            return 0;
+
+        int  base = m_unit_base[ unitIndex ];
+        if( bit >= m_unit_base[ unitIndex + 1 ] - base - 1 )
+            return 0;
+        return m_bit_start[ base + bit + 1 ] - m_bit_start[ base + bit ];
+    }
+
+    /***
+     *  One of the sensors naming an input.
+     * @param unitIndex from {@link #unitIndexOf(long) }.
+     * @param bit input number.
+     * @param k 0 to {@code sensorCountAt(unitIndex,bit)-1}.
+     * @return sensor id.
+     * @throws ArrayIndexOutOfBoundsException if {@code k} out-of-range.
+     */
+    public int      sensorAt( int unitIndex, int bit, int k )
+    {
+        if( k < 0 || k >= sensorCountAt( unitIndex, bit ) )
+            throw new ArrayIndexOutOfBoundsException( "sensor " + k + " of unit #" + unitIndex + " bit " + bit );
+
+        return m_rev_ids[ m_bit_start[ m_unit_base[ unitIndex ] + bit ] + k ];
+    }
+
+    /***
+     *  Visit every sensor naming an input, in id order.
+     * @param address packed address of input.
+     * @param visitor told each sensor id.
+     * @return count of sensors visited.
+     */
+    public int      visitSensorsAt( long address, IndexVisitor visitor )
+    {
+        int  u = unitIndexOf( address );
+        int  bit = SensorAddress.bitOf( address );
+        int  n = sensorCountAt( u, bit );
+        for( int k = 0 ; k < n ; ++k )
+            visitor.visit( sensorAt( u, bit, k ) );
+        return n;
+    }
+
+    @Override
+    public String   toString()
+    {
+        return "LayoutSensorIndex:[sensors=" + m_names.length + ",units=" + m_unit_keys.length + "]";
+    }
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final List<String>      m_protocols;
+
+    /*** Names, by id. */
+    private final String[]          m_names;
+
+    /*** Packed addresses, by id. */
+    private final long[]            m_addresses;
+
+    /*** Name to id, for load time. */
+    private final HashMap<String, Integer>  m_ids;
+
+    /*** Ids sorted by address. */
+    private final int[]             m_rev_ids;
+
+    /*** Distinct units' keys, sorted, by unit index ; see {@link SensorAddress#unitKey(long) }. */
+    private final long[]            m_unit_keys;
+
+    /*** Unit index by [bank][unit], -1 if unit has no sensor ; {@code null} row if bank has none. */
+    private final int[][]           m_unit_index;
+
+    /*** Per unit, where its bits start in {@link #m_bit_start} ; one extra at end. */
+    private final int[]             m_unit_base;
+
+    /*** Per unit and bit, index in {@link #m_rev_ids} of first sensor ; next entry ends it. */
+    private final int[]             m_bit_start;
+
+}
@@ -0,0 +1,174 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+
+/***
+ *  Every unit of every bank, each bank as of the end of one of its scan cycles.  Never changes
+ *  once made ; taking one from {@link LayoutSnapshotPublisher#getSnapshot() } is a single volatile
+ *  read, with no lock and no copying, so logic that looks at many inputs at once, e.g. signal
+ *  aspects, sees them all from the same moment.
+ *
+ * <p> Banks scan independently, so different banks may be at different epochs ; within a bank,
+ *  all units are from the same cycle.
+ *
+ * <p> An input can be named by one {@code long}, packing its bank, unit and bit with
+ *  {@link #address(int, int, int) }, e.g. as a map key or in an array of inputs to watch.
+ *
+ * @author brian
+ */
+public final class LayoutSnapshot
+{
+    /***
+     *  Make a snapshot.
+     * @param generation generation number, larger than any earlier one from same publisher.
+     * @param banks each bank's epoch, indexed by bank number.  Taken as-is.
+     */
+    LayoutSnapshot( long generation, ScanEpoch[] banks )
+    {
+        m_generation = generation;
+        m_banks = banks;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return generation, grows each time any bank publishes an epoch. */
+    public long     getGeneration()
+    {
+        return m_generation;
+    }
+
+    /*** @return count of banks, numbered from 0. */
+    public int      getBankCount()
+    {
+        return m_banks.length;
+    }
+
+    //------------------------  GETTORS  ----------------------
+
+    /***
+     *  One bank's units.
+     * @param bank bank number.
+     * @return bank's epoch.
+     * @throws ArrayIndexOutOfBoundsException if no such bank.
+     */
+    public ScanEpoch  getBank( int bank )
+    {
+        return m_banks[ bank ];
+    }
+
+    /***
+     *  Value of one input.
+     * @param bank bank number (OK if out-of-range).
+     * @param unit unit address (OK if out-of-range).
+     * @param bit input number (OK if out-of-range).
+     * @return {@code true} iff input has a value and it is {@code true}.
+     */
+    public boolean  get( int bank, int unit, int bit )
+    {
+        return bank >= 0 && bank < m_banks.length && m_banks[ bank ].get( unit, bit );
+    }
+
+    /***
+     *  Value of one input, named by packed address.
+     * @param address from {@link #address(int, int, int) }.
+     * @return {@code true} iff input has a value and it is {@code true}.
+     */
+    public boolean  get( long address )
+    {
+        return get( bankOf( address ), unitOf( address ), bitOf( address ) );
+    }
+
+    //------------------------  PACKED ADDRESSES  ----------------------
+
+    /***
+     *  Pack an input's bank, unit and bit into one {@code long}: bank in the top 16 bits,
+     *  then unit in the next 16, then bit in the low 32.  Addresses sort by bank, then unit, then bit.
+     *
+     * @param bank bank number, 0 to {@link #MAX_BANK}.
+     * @param unit unit address, 0 to {@link #MAX_UNIT}.
+     * @param bit input number, 0 or more.
+     * @return packed address.
+     * @throws IllegalArgumentException if a part is out of range.
+     */
+    public static long  address( int bank, int unit, int bit )
+    {
+        if( bank < 0 || bank > MAX_BANK || unit < 0 || unit > MAX_UNIT || bit < 0 )
+            throw new IllegalArgumentException( "address (" + bank + "," + unit + "," + bit + ") out of range" );
+
+        return ( (long) bank << 48 ) | ( (long) unit << 32 ) | bit;
+    }
+
+    /*** @return bank number of a packed address. */
+    public static int   bankOf( long address )
+    {
+        return (int) (address >>> 48);
+    }
+
+    /*** @return unit address of a packed address. */
+    public static int   unitOf( long address )
+    {
+        return (int) (address >>> 32) & MAX_UNIT;
+    }
+
+    /*** @return input number of a packed address. */
+    public static int   bitOf( long address )
+    {
+        return (int) address;
+    }
+
+    /***
+     *  Copy with one bank's epoch replaced.
+     */
+    LayoutSnapshot  withBank( int bank, ScanEpoch epoch )
+    {
+        ScanEpoch[]  banks = m_banks.clone();
+        banks[ bank ] = epoch;
+        return new LayoutSnapshot( m_generation + 1, banks );
+    }
+
+    /***
+     *  Copy with one more bank on the end.
+     */
+    LayoutSnapshot  withNewBank( ScanEpoch epoch )
+    {
+        ScanEpoch[]  banks = java.util.Arrays.copyOf( m_banks, m_banks.length + 1 );
+        banks[ m_banks.length ] = epoch;
+        return new LayoutSnapshot( m_generation + 1, banks );
+    }
+
+    @Override
+    public String   toString()
+    {
+        return "LayoutSnapshot:[generation=" + m_generation + ",banks=" + m_banks.length + "]";
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Largest bank number a packed address holds. */
+    public static final int     MAX_BANK = 0xffff;
+
+    /*** Largest unit address a packed address holds. */
+    public static final int     MAX_UNIT = 0xffff;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final long          m_generation;
+
+    /*** Each bank's latest published epoch, indexed by bank number. */
+    private final ScanEpoch[]   m_banks;
+
+}
@@ -0,0 +1,196 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/***
+ *  Gathers each bank's published {@link ScanEpoch} into one {@link LayoutSnapshot}.
+ *  A bank's model publishes here at the end of each scan cycle ; the new snapshot is
+ *  swapped in with compare-and-set, so banks never wait on each other, and readers just
+ *  read the current reference.
+ *
+ * <p> Bank numbers count from 0 in the order banks are added, which need not be the order, or
+ *  the numbers, of the layout XML's banks.  A bank added with its XML {@code address} can be
+ *  mapped both ways: {@link #getLayoutBank(int) } and {@link #bankOfLayout(int) }, or
+ *  {@link #toSnapshotAddress(long) } for a {@link SensorAddress}.
+ *
+ * <p> Object is MT-safe.
+ *
+ * @author brian
+ */
+public class LayoutSnapshotPublisher
+{
+    public LayoutSnapshotPublisher()
+    {
+        m_current = new AtomicReference<>( new LayoutSnapshot( 0L, new ScanEpoch[ 0 ] ) );
+    }
+
+    /***
+     *  Add a bank that isn't in the layout XML, e.g. for testing.
+     * @param model bank's model.
+     * @return bank number, counting from 0 in order added.
+     * @throws IllegalStateException if model already added to a publisher.
+     */
+    public int  addBank( SlotArrayLayoutIoModel model )
+    {
+        return addBank( model, -1 );
+    }
+
+    /***
+     *  Add a bank ; from now on its published epochs show in snapshots.
+     *  A model belongs to at most one publisher.
+     *
+     * @param model bank's model.
+     * @param layoutBank bank's {@code address} in the layout XML, or -1 if none.
+     * @return bank number, counting from 0 in order added.
+     * @throws IllegalStateException if model already added to a publisher.
+     * @throws IllegalArgumentException if {@code layoutBank} already added.
+     */
+    public int  addBank( SlotArrayLayoutIoModel model, int layoutBank )
+    {
+        if( model == null )
+            throw new NullPointerException( "model cannot be null" );
+
+        synchronized( this )
+        {
+            if( layoutBank >= 0 && bankOfLayout( layoutBank ) >= 0 )
+                throw new IllegalArgumentException( "layout bank " + layoutBank + " added twice" );
+
+            //  Only adding changes count of banks, and that's one at a time.
+            int  bank = m_current.get().getBankCount();
+            model.setSnapshotPublisher( this, bank );
+
+            int[]  lb = Arrays.copyOf( m_layout_banks, bank + 1 );
+            lb[ bank ] = Math.max( -1, layoutBank );
+            m_layout_banks = lb;
+
+            LayoutSnapshot  prev, next;
+            do
+            {
+                prev = m_current.get();
+                next = prev.withNewBank( model.getScanEpoch() );
+            }
+            while( ! m_current.compareAndSet( prev, next ) );
+
+            m_models.add( model );
+
+            //  Catch up on an epoch published while we were adding.
+            bankPublished( bank, model.getScanEpoch() );
+            return bank;
+        }
+    }
+
+    /***
+     *  A bank's model, to read its units' latest bits rather than as of its last epoch.
+     * @param bank bank number.
+     * @return bank's model.
+     * @throws IndexOutOfBoundsException if no such bank.
+     */
+    public SlotArrayLayoutIoModel  getBankModel( int bank )
+    {
+        return m_models.get( bank );
+    }
+
+    /***
+     *  A bank's {@code address} in the layout XML, e.g. to find its named sensors with
+     *  {@link LayoutSensorIndex#unitIndexOf(int, int) }.
+     * @param bank bank number (OK if out-of-range).
+     * @return layout bank address, or -1 if bank has none or no such bank.
+     */
+    public int  getLayoutBank( int bank )
+    {
+        int[]  lb = m_layout_banks;
+        return ( bank >= 0 && bank < lb.length ) ? lb[ bank ] : -1;
+    }
+
+    /***
+     *  Bank number of a layout XML bank.  A search of the few banks, so look up at load time.
+     * @param layoutBank bank's {@code address} in the layout XML.
+     * @return bank number, or -1 if not added here.
+     */
+    public int  bankOfLayout( int layoutBank )
+    {
+        if( layoutBank < 0 )
+            return -1;
+
+        int[]  lb = m_layout_banks;
+        for( int bank = 0 ; bank < lb.length ; ++bank )
+        {
+            if( lb[ bank ] == layoutBank )
+                return bank;
+        }
+        return -1;
+    }
+
+    /***
+     *  Turn a named sensor's address into the address of its input in our snapshots, e.g.
+     *  {@code snap.get( pub.toSnapshotAddress( index.getAddress( id ) ) )}.
+     * @param sensorAddress packed {@link SensorAddress}, its bank being a layout XML bank address.
+     * @return {@link LayoutSnapshot#address(int, int, int) }, or -1 if its bank isn't here.
+     */
+    public long  toSnapshotAddress( long sensorAddress )
+    {
+        int  bank = bankOfLayout( SensorAddress.bankOf( sensorAddress ) );
+        if( bank < 0 )
+            return -1L;
+        return LayoutSnapshot.address( bank, SensorAddress.unitOf( sensorAddress ), SensorAddress.bitOf( sensorAddress ) );
+    }
+
+    /***
+     *  Latest snapshot of every bank.  Costs one volatile read.
+     * @return snapshot, never {@code null}.
+     */
+    public LayoutSnapshot  getSnapshot()
+    {
+        return m_current.get();
+    }
+
+    /***
+     *  A bank published an epoch ; swap in a snapshot holding it.
+     *  A bank publishes its epochs in order, one at a time.
+     */
+    void  bankPublished( int bank, ScanEpoch epoch )
+    {
+        LayoutSnapshot  prev, next;
+        do
+        {
+            prev = m_current.get();
+            if( bank >= prev.getBankCount() )
+                return;     // still being added.
+
+            //  Never go back to an older epoch, should two publishes race.
+            if( prev.getBank( bank ).getEpoch() >= epoch.getEpoch() )
+                return;
+            next = prev.withBank( bank, epoch );
+        }
+        while( ! m_current.compareAndSet( prev, next ) );
+    }
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final AtomicReference< LayoutSnapshot >  m_current;
+
+    /*** Each bank's model, indexed by bank number. */
+    private final CopyOnWriteArrayList< SlotArrayLayoutIoModel >  m_models = new CopyOnWriteArrayList<>();
+
+    /*** Each bank's layout XML address, or -1, indexed by bank number ; replaced whole when adding. */
+    private volatile int[]          m_layout_banks = new int[ 0 ];
+
+}
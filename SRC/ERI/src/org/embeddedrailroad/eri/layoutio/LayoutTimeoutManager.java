@@ -35,6 +35,17 @@ import java.util.concurrent.*;
  * <li> see http://en.wikipedia.org/wiki/Futures_and_promises
  * </ul>
  *
+ * <p> There are two timer implementations, chosen by {@link #setTimerMode(int) }.
+ *  {@link #MODE_EXECUTOR}, the default, schedules every timeout on the thread pool.
+ *  {@link #MODE_WHEEL} uses a {@link HashedWheelTimer} with a single ticker thread, where
+ *  scheduling and cancelling are O(1).  In that mode callbacks no longer run on the pool's
+ *  9 threads but one after another on the ticker thread, so a slow callback holds up every
+ *  other timeout ; choose it only when callbacks are short.
+ *  For timeouts set up over and over, e.g. per poll, {@link #scheduleMillis(int, org.embeddedrailroad.eri.layoutio.LayoutTimeoutManager.TimeoutAction, java.lang.Object) }
+ *  and {@link #cancel(long) } always use the wheel and return a {@code long} ticket instead
+ *  of a {@link Future}.  Only that ticket API is allocation-free: {@code timeoutMillis()}
+ *  makes a {@link Future} and a callable per call in either mode.
+ *
  * @author brian
  */
 public class LayoutTimeoutManager
@@ -50,6 +61,8 @@ public class LayoutTimeoutManager
         //  Completing means returning from the callback in TimeoutAction#timeoutAction().
         //
         m_executor = new DaemonThreadPool( 9 );
+        m_wheel = new HashedWheelTimer( DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE, DEFAULT_WHEEL_CAPACITY );
+        m_mode = MODE_EXECUTOR;
     }
 
     /***
@@ -76,6 +89,67 @@ public class LayoutTimeoutManager
     public void shutdownNow()
     {
         m_executor.shutdownNow();
+        m_wheel.shutdown();
+    }
+
+    /***
+     *  Choose which timer {@code timeoutMillis()} uses from now on.
+     *  Timeouts already pending stay with the timer they were given to.
+     *  With {@link #MODE_WHEEL}, callbacks run on the wheel's one ticker thread instead of the pool.
+     *
+     * @param mode {@link #MODE_EXECUTOR} or {@link #MODE_WHEEL}.
+     * @throws IllegalArgumentException for unknown mode.
+     */
+    public void setTimerMode( int mode )
+    {
+        if( mode != MODE_EXECUTOR && mode != MODE_WHEEL )
+            throw new IllegalArgumentException( "unknown timer mode " + mode );
+
+        m_mode = mode;
+    }
+
+    /***
+     *  Which timer {@code timeoutMillis()} uses.
+     * @return {@link #MODE_EXECUTOR} or {@link #MODE_WHEEL}.
+     */
+    public int getTimerMode()
+    {
+        return m_mode;
+    }
+
+    /***
+     *  The timing wheel, for its statistics.
+     * @return wheel timer, never {@code null}.
+     */
+    public HashedWheelTimer getWheelTimer()
+    {
+        return m_wheel;
+    }
+
+    /***
+     *  Setup a timeout on the timing wheel, without allocating a {@link Future}.
+     *  Callback runs on the wheel's ticker thread, so keep it short.
+     *
+     * @param milliseconds how long to wait, in milliseconds.
+     * @param notifyObject Client object to callback when timeout expires
+     * @param anchor Parameter to callback
+     * @return ticket for {@link #cancel(long) }.
+     */
+    public long scheduleMillis( int milliseconds, TimeoutAction notifyObject, Object anchor )
+    {
+        return m_wheel.schedule( milliseconds, notifyObject, anchor );
+    }
+
+    /***
+     *  Cancel a timeout from {@link #scheduleMillis(int, org.embeddedrailroad.eri.layoutio.LayoutTimeoutManager.TimeoutAction, java.lang.Object) }.
+     *  Harmless if it already fired or was cancelled.
+     *
+     * @param ticket from {@code scheduleMillis()}.
+     * @return {@code true} if cancelled before firing.
+     */
+    public boolean cancel( long ticket )
+    {
+        return m_wheel.cancel( ticket );
     }
 
     /***
@@ -97,6 +171,8 @@ public class LayoutTimeoutManager
             }
         }
     </pre>
+     *
+     * <p> In {@link #MODE_WHEEL} the callback runs on the wheel's ticker thread.
      *
      * @param milliseconds how long to wait, in milliseconds.
      * @param notifyObject Client object to callback when timeout expires
@@ -105,6 +181,21 @@ public class LayoutTimeoutManager
      */
     public Future timeoutMillis( int milliseconds, final TimeoutAction notifyObject, final Object anchor )
     {
+        if( m_mode == MODE_WHEEL )
+        {
+            WheelFuture  wf = new WheelFuture( new Callable<Object>()
+                {
+                    @Override
+                    public Object call()
+                    {
+                        notifyObject.onTimeout( anchor );
+                        return null;
+                    }
+                } );
+            wf.m_ticket = m_wheel.schedule( milliseconds, wf );
+            return wf;
+        }
+
         ScheduledFuture  scheduledFuture;
 
         //  A 'Runnable' canont throw exceptions and cannot return a value.
@@ -138,6 +229,7 @@ public class LayoutTimeoutManager
     </pre>
      *  And then in your client code, you can retrieve the value-object with a call to {@code future.get()}.
      *  It blocks until the value has been produced.
+     *  In {@link #MODE_WHEEL} the callback runs on the wheel's ticker thread.
      *
      * @param milliseconds how long to wait, in milliseconds.
      * @param notifyObject Client object to callback when timeout expires
@@ -146,6 +238,20 @@ public class LayoutTimeoutManager
      */
     public Future timeoutMillis( int milliseconds, final TimeoutValueAction notifyObject, final Object anchor )
     {
+        if( m_mode == MODE_WHEEL )
+        {
+            WheelFuture  wf = new WheelFuture( new Callable<Object>()
+                {
+                    @Override
+                    public Object call() throws Exception
+                    {
+                        return notifyObject.onTimeout( anchor );
+                    }
+                } );
+            wf.m_ticket = m_wheel.schedule( milliseconds, wf );
+            return wf;
+        }
+
         ScheduledFuture  scheduledFuture;
 
         //  A 'Runnable' canont throw exceptions and cannot return a value.
@@ -172,6 +278,27 @@ public class LayoutTimeoutManager
     /*** Schedules the timeout callback invocations. */
     protected ScheduledExecutorService    m_executor;
 
+    /*** Timing wheel, for {@link #MODE_WHEEL} and the ticket API. */
+    protected final HashedWheelTimer      m_wheel;
+
+    /*** Which timer {@code timeoutMillis()} uses. */
+    protected volatile int                m_mode;
+
+    /*** Timer mode: every timeout on the {@link ScheduledThreadPoolExecutor}. */
+    public static final int     MODE_EXECUTOR = 0;
+
+    /*** Timer mode: every timeout on the {@link HashedWheelTimer}, callbacks on its ticker thread. */
+    public static final int     MODE_WHEEL = 1;
+
+    /*** Default resolution of the timing wheel, in milliseconds ; the ticker only wakes for busy ticks. */
+    public static final int     DEFAULT_TICK_MILLIS = 1;
+
+    /*** Default buckets in timing wheel ; at 1 millisecond ticks, one turn is about half a second. */
+    public static final int     DEFAULT_WHEEL_SIZE = 512;
+
+    /*** Default count of pending timeouts before the wheel's handle pool grows. */
+    public static final int     DEFAULT_WHEEL_CAPACITY = 256;
+
     //-------------------------------  CALLBACK INTERFACE  ------------------------------
 
     /***
@@ -209,6 +336,31 @@ public class LayoutTimeoutManager
 
     }   // end public interface TimeoutValueAction ..
 
+    //-----------------------------  Wheel Future  -----------------------------
+
+    /***
+     *  {@link Future} for a timeout on the timing wheel.  The wheel runs it when time
+     *  expires ; cancelling it also takes it off the wheel.
+     */
+    protected class WheelFuture extends FutureTask<Object>
+    {
+        public WheelFuture( Callable<Object> callable )
+        {
+            super( callable );
+        }
+
+        @Override
+        public boolean cancel( boolean mayInterruptIfRunning )
+        {
+            m_wheel.cancel( m_ticket );
+            return super.cancel( mayInterruptIfRunning );
+        }
+
+        /*** Wheel ticket, set right after scheduling. */
+        volatile long   m_ticket = -1;
+
+    }   // end protected class WheelFuture ..
+
     //--------------------------  Deamon Thread Pool Executor  --------------------------
 
     /***
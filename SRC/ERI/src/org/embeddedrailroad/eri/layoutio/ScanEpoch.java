@@ -0,0 +1,94 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+
+/***
+ *  Every unit of one bank, e.g. one CMRI serial line, as its poll thread left them at the end
+ *  of one scan cycle.  Never changes once made, so any thread may keep and read it without
+ *  locking ; two reads of the same epoch always agree, whatever the poll thread does meanwhile.
+ *
+ * <p> Holds a reference to each unit's {@link SensedDataSnapshot}, not a copy of its bits:
+ *  units that didn't change since the last epoch are shared with it.
+ *
+ * @author brian
+ */
+public final class ScanEpoch
+{
+    /***
+     *  Make an epoch.
+     * @param epoch epoch number, larger than any earlier one from same bank.
+     * @param units each unit's bits, indexed by unit address, {@code null} if unknown.
+     *              Taken as-is ; caller must not change it afterwards.
+     */
+    ScanEpoch( long epoch, SensedDataSnapshot[] units )
+    {
+        m_epoch = epoch;
+        m_units = units;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return epoch number, 0 before bank's first scan cycle is published. */
+    public long     getEpoch()
+    {
+        return m_epoch;
+    }
+
+    /*** @return count of unit addresses, numbered from 0. */
+    public int      getUnitCount()
+    {
+        return m_units.length;
+    }
+
+    //------------------------  GETTORS  ----------------------
+
+    /***
+     *  One unit's bits as of this epoch.
+     * @param unit unit address (OK if out-of-range).
+     * @return snapshot, or {@code null} if unit unknown.
+     */
+    public SensedDataSnapshot  getUnit( int unit )
+    {
+        return ( unit >= 0 && unit < m_units.length ) ? m_units[ unit ] : null;
+    }
+
+    /***
+     *  Value of one input as of this epoch.
+     * @param unit unit address (OK if out-of-range).
+     * @param bit input number (OK if out-of-range).
+     * @return {@code true} iff input has a value and it is {@code true}.
+     */
+    public boolean  get( int unit, int bit )
+    {
+        SensedDataSnapshot  snap = getUnit( unit );
+        return ( snap != null ) && snap.get( bit );
+    }
+
+    @Override
+    public String   toString()
+    {
+        return "ScanEpoch:[epoch=" + m_epoch + ",units=" + m_units.length + "]";
+    }
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final long                  m_epoch;
+
+    /*** Each unit's bits, indexed by unit address. */
+    private final SensedDataSnapshot[]  m_units;
+
+}
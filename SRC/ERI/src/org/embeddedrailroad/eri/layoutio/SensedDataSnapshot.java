@@ -0,0 +1,152 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import com.crunchynoodles.util.TableOfBoolean;
+
+
+/***
+ *  A unit's input bits at one moment, tagged with a version.  Never changes once made, so
+ *  any thread may keep and read it without locking.  A model makes a new one each time a
+ *  unit's bits change ; versions only grow, so a reader that remembers the last version it
+ *  saw can skip work with {@link LayoutIoModel#getSensedDataIfNewer(Comparable, long) }.
+ *
+ * <p> Bits are packed 64 to a {@code long}, as in {@link TableOfBoolean}, and like it
+ *  a slot may have no value.
+ *
+ * @author brian
+ */
+public final class SensedDataSnapshot
+{
+    private SensedDataSnapshot( long version, int size, long[] values, long[] hasValues )
+    {
+        m_version = version;
+        m_size = size;
+        m_values = values;
+        m_has_values = hasValues;
+    }
+
+    /***
+     *  Snapshot a table's contents.
+     * @param table bits to copy.
+     * @param version version to tag it with.
+     * @return new snapshot.
+     */
+    public static SensedDataSnapshot  of( TableOfBoolean table, long version )
+    {
+        int     n = table.getWordCount();
+        long[]  values = new long[ n ];
+        long[]  has = new long[ n ];
+        table.copyWordsTo( values, has );
+
+        return new SensedDataSnapshot( version, table.size(), values, has );
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return version, larger than any earlier snapshot's from same model. */
+    public long     getVersion()
+    {
+        return m_version;
+    }
+
+    /*** @return count of input slots. */
+    public int      size()
+    {
+        return m_size;
+    }
+
+    //------------------------  BOOLEAN GETTORS  ----------------------
+
+    /***
+     *  Value of one input.
+     * @param index input number (OK if negative or out-of-range).
+     * @return {@code true} iff input has a value and it is {@code true}.
+     */
+    public boolean  get( int index )
+    {
+        if( index < 0 || index >= m_size )
+            return false;
+
+        long  bit = 1L << index;
+        return ( m_values[ index >>> 6 ] & m_has_values[ index >>> 6 ] & bit ) != 0L;
+    }
+
+    /***
+     *  Does an input have a value?
+     * @param index input number (OK if negative or out-of-range).
+     * @return {@code true} if set to some value.
+     */
+    public boolean  containsKey( int index )
+    {
+        return index >= 0 && index < m_size && ( m_has_values[ index >>> 6 ] & (1L << index) ) != 0L;
+    }
+
+    /***
+     *  Find next input, at or after {@code fromIndex}, that is {@code true}.
+     * @param fromIndex where to start looking (OK if negative).
+     * @return input number, or -1 if no more.
+     */
+    public int      nextSetBit( int fromIndex )
+    {
+        if( fromIndex < 0 )
+            fromIndex = 0;
+        if( fromIndex >= m_size )
+            return -1;
+
+        int   w = fromIndex >>> 6;
+        long  word = m_values[ w ] & m_has_values[ w ] & (-1L << fromIndex);
+        while( word == 0L )
+        {
+            if( ++w >= m_values.length )
+                return -1;
+            word = m_values[ w ] & m_has_values[ w ];
+        }
+
+        int  j = (w << 6) + Long.numberOfTrailingZeros( word );
+        return ( j < m_size ) ? j : -1;
+    }
+
+    /***
+     *  Copy into a table of the caller's own.
+     * @return new table.
+     */
+    public TableOfBoolean  toTable()
+    {
+        TableOfBoolean  t = new TableOfBoolean( m_size );
+        t.setFromWords( m_values, m_has_values, m_size );
+        return t;
+    }
+
+    @Override
+    public String   toString()
+    {
+        return "SensedDataSnapshot:[version=" + m_version + ",size=" + m_size + "]";
+    }
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final long          m_version;
+
+    private final int           m_size;
+
+    /*** Values, 64 inputs per word. */
+    private final long[]        m_values;
+
+    /*** Has-value flags, 64 inputs per word. */
+    private final long[]        m_has_values;
+
+}
@@ -0,0 +1,142 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.crunchynoodles.util.TableOfBoolean;
+
+
+/***
+ *  Listener bookkeeping and table helpers shared by the {@link LayoutIoModel<Integer>}
+ *  implementations, {@link AbstractLayoutIoModelIntegerAddress} and {@link SlotArrayLayoutIoModel},
+ *  so the two tell their listeners the same way.
+ *
+ * <p> Listeners are kept copy-on-write, since updates far outnumber (un)registering ;
+ *  firing takes no lock and is safe from any thread.
+ *
+ * @author brian
+ */
+final class SensedDataSupport
+{
+    /***
+     *  Create for one model.
+     * @param owner model whose listeners these are, named when a listener fails.
+     */
+    SensedDataSupport( Object owner )
+    {
+        m_owner_name = owner.getClass().getSimpleName();
+    }
+
+    //-----------------------  CHANGE NOTIFICATIONS  -----------------------
+
+    void    addListener( IoSensedDataListener listener )
+    {
+        if( listener == null )
+            throw new NullPointerException( "listener cannot be null" );
+
+        m_listeners.addIfAbsent( listener );
+    }
+
+    void    removeListener( IoSensedDataListener listener )
+    {
+        m_listeners.remove( listener );
+    }
+
+    /*** @return {@code true} if anyone would be told, so events are worth making. */
+    boolean hasListeners()
+    {
+        return ! m_listeners.isEmpty();
+    }
+
+    /***
+     *  Tell every listener ; one that throws doesn't stop the others, or the caller.
+     */
+    void    fireDataChanged( LayoutIoDataChangedEvent<Integer> ev )
+    {
+        for( IoSensedDataListener  l : m_listeners )
+        {
+            try
+            {
+                l.ioDataChanged( ev );
+            }
+            catch( RuntimeException ex )
+            {
+                LOG.logp( Level.WARNING, m_owner_name, "fireDataChanged", "listener failed", ex );
+            }
+        }
+    }
+
+    /***
+     *  Tell every listener of a committed scan, same as {@link #fireDataChanged(LayoutIoDataChangedEvent) }.
+     */
+    void    fireScanChanged( LayoutIoScanChangedEvent<Integer> ev )
+    {
+        for( IoSensedDataListener  l : m_listeners )
+        {
+            try
+            {
+                l.ioScanChanged( ev );
+            }
+            catch( RuntimeException ex )
+            {
+                LOG.logp( Level.WARNING, m_owner_name, "fireScanChanged", "listener failed", ex );
+            }
+        }
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /***
+     *  Does table already hold exactly these bits, every one set?
+     */
+    static boolean  isSame( TableOfBoolean table, boolean[] bits )
+    {
+        if( table.size() != bits.length )
+            return false;
+
+        for( int j = bits.length ; --j >= 0 ; )
+        {
+            if( ! table.containsKey( j ) || table.get( j ) != bits[ j ] )
+                return false;
+        }
+        return true;
+    }
+
+    /***
+     *  Table's values as an array, unset slots as {@code false}, for a {@link LayoutIoDataChangedEvent}.
+     */
+    static boolean[] toArray( TableOfBoolean table )
+    {
+        boolean[]  bits = new boolean[ table.size() ];
+        for( int j = bits.length ; --j >= 0 ; )
+            bits[ j ] = table.get( j );
+        return bits;
+    }
+
+    //--------------------------  INSTANCE VARS  -------------------------
+
+    /*** Simple class name of owning model, for logging. */
+    private final String        m_owner_name;
+
+    private final CopyOnWriteArrayList< IoSensedDataListener >  m_listeners = new CopyOnWriteArrayList<>();
+
+    /***  Logging output spigot. */
+    private final transient static  Logger LOG = Logger.getLogger( SensedDataSupport.class.getName() );
+
+}
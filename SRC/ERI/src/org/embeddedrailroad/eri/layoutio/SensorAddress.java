@@ -0,0 +1,120 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+
+/***
+ *  An input's address packed into one {@code long}: protocol, bank, unit and bit.  Kept as a
+ *  bare {@code long}, not an object, so hot-path code and arrays of addresses never allocate.
+ *  This class only packs and unpacks.
+ *
+ * <p> From the top: 8 bits of protocol id, 16 of bank, 16 of unit, and 24 of bit.  Addresses
+ *  sort by protocol, then bank, then unit, then bit, so all inputs of a unit are together.
+ *  Protocol ids are handed out by {@link LayoutSensorIndex} ; bank is the bank's {@code address}
+ *  from the layout XML, not a {@link LayoutSnapshot} bank number ; see
+ *  {@link LayoutSnapshotPublisher#toSnapshotAddress(long) }.
+ *
+ * @author brian
+ */
+public final class SensorAddress
+{
+    private SensorAddress()
+    {
+    }
+
+    /***
+     *  Pack an address.
+     *
+     * @param protocol protocol id, 0 to {@link #MAX_PROTOCOL}.
+     * @param bank bank address, 0 to {@link #MAX_BANK}.
+     * @param unit unit address, 0 to {@link #MAX_UNIT}.
+     * @param bit input number, 0 to {@link #MAX_BIT}.
+     * @return packed address.
+     * @throws IllegalArgumentException if a part is out of range.
+     */
+    public static long  pack( int protocol, int bank, int unit, int bit )
+    {
+        if( protocol < 0 || protocol > MAX_PROTOCOL || bank < 0 || bank > MAX_BANK
+                || unit < 0 || unit > MAX_UNIT || bit < 0 || bit > MAX_BIT )
+            throw new IllegalArgumentException( "address (" + protocol + "," + bank + "," + unit + "," + bit + ") out of range" );
+
+        return ( (long) protocol << PROTOCOL_SHIFT ) | ( (long) bank << BANK_SHIFT )
+                | ( (long) unit << UNIT_SHIFT ) | bit;
+    }
+
+    /*** @return protocol id of a packed address. */
+    public static int   protocolOf( long address )
+    {
+        return (int) (address >>> PROTOCOL_SHIFT) & MAX_PROTOCOL;
+    }
+
+    /*** @return bank address of a packed address. */
+    public static int   bankOf( long address )
+    {
+        return (int) (address >>> BANK_SHIFT) & MAX_BANK;
+    }
+
+    /*** @return unit address of a packed address. */
+    public static int   unitOf( long address )
+    {
+        return (int) (address >>> UNIT_SHIFT) & MAX_UNIT;
+    }
+
+    /*** @return input number of a packed address. */
+    public static int   bitOf( long address )
+    {
+        return (int) address & MAX_BIT;
+    }
+
+    /***
+     *  Address of a unit's input 0, i.e. the same for every input of a unit.
+     * @param address packed address.
+     * @return address with bit cleared.
+     */
+    public static long  unitKey( long address )
+    {
+        return address & ~ (long) MAX_BIT;
+    }
+
+    /***
+     *  Readable form, e.g. {@code "0:1.5.17"} for protocol 0, bank 1, unit 5, bit 17.
+     * @param address packed address.
+     * @return text.
+     */
+    public static String  toString( long address )
+    {
+        return protocolOf( address ) + ":" + bankOf( address ) + "." + unitOf( address ) + "." + bitOf( address );
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    private static final int    UNIT_SHIFT = 24;
+    private static final int    BANK_SHIFT = 40;
+    private static final int    PROTOCOL_SHIFT = 56;
+
+    /*** Largest protocol id. */
+    public static final int     MAX_PROTOCOL = 0xff;
+
+    /*** Largest bank address. */
+    public static final int     MAX_BANK = 0xffff;
+
+    /*** Largest unit address. */
+    public static final int     MAX_UNIT = 0xffff;
+
+    /*** Largest input number. */
+    public static final int     MAX_BIT = 0xffffff;
+
+}
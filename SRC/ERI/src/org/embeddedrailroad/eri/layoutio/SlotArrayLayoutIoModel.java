@@ -0,0 +1,604 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.crunchynoodles.util.TableOfBoolean;
+
+
+/***
+ *  {@link LayoutIoModel<Integer>} for units numbered 0 to some small limit, e.g. a CMRI bank's
+ *  0..255, kept in a dense array of per-unit slots instead of hash maps behind one lock.
+ *  The {@code int}-keyed methods of {@link IntAddressLayoutIoModel} index the array directly ;
+ *  the {@link Integer}-keyed ones unbox and call them.
+ *
+ * <p> A writer, normally the bank's poll thread, takes the slot's monitor, updates its
+ *  working table, and publishes an immutable {@link SensedDataSnapshot} with a new version
+ *  through a volatile reference.  A reader just follows that reference: readers never block
+ *  a writer or each other, and writers to different units never meet.  A snapshot is only
+ *  made when a unit's bits change, which is seldom next to how often they're read.
+ *
+ * <p> Units' snapshots are also gathered into scan epochs: at the end of each scan cycle the
+ *  poll thread calls {@link #publishScanEpoch() }, and {@link #getScanEpoch() } then shows every
+ *  unit as that cycle left it, even while the next cycle writes.  See {@link LayoutSnapshotPublisher}
+ *  to see all banks together.
+ *
+ * <p> {@link #getSensedDataAll(Integer) } returns a copy, safe to keep and modify.
+ *
+ * <p><strong>Remember, {@link byte} type is SIGNED!!</strong>
+ *
+ * @author brian
+ */
+public class SlotArrayLayoutIoModel implements IntAddressLayoutIoModel
+{
+    /***
+     *  Create with room for units 0 to {@code unitCount-1}.
+     * @param unitCount count of unit addresses, at least 1.
+     */
+    public SlotArrayLayoutIoModel( int unitCount )
+    {
+        if( unitCount < 1 )
+            throw new IllegalArgumentException( "unitCount must be positive" );
+
+        m_slots = new Slot[ unitCount ];
+        for( int j = 0 ; j < unitCount ; ++j )
+            m_slots[ j ] = new Slot();
+        m_epoch = new ScanEpoch( 0L, new SensedDataSnapshot[ unitCount ] );
+    }
+
+    //---------------------  Object & Type Properties  --------------------
+
+    @Override
+    public Class   getUnitAddressType()
+    {
+        return Integer.class;
+    }
+
+    /*** @return count of unit addresses, numbered from 0. */
+    public int     getUnitCount()
+    {
+        return m_slots.length;
+    }
+
+    //-------------------  UNIT INITIALIZATION AND SETUP  ---------------------
+
+    @Override
+    public void    setUnitInitializationStrings( Integer unit, ArrayList<byte[]> mesgs )
+    {
+        _writeSlot( unit ).m_init_msgs = ( mesgs != null ) ? new ArrayList<>( mesgs ) : null;
+    }
+
+    @Override
+    public ArrayList<byte[]>  getUnitInitializationStrings( Integer unit )
+    {
+        return getUnitInitializationStrings( _unbox( unit ) );
+    }
+
+    @Override
+    public ArrayList<byte[]>  getUnitInitializationStrings( int unit )
+    {
+        Slot  s = _readSlot( unit );
+        return ( s != null ) ? s.m_init_msgs : null;
+    }
+
+    @Override
+    public void     setUnitQueryMessage( Integer unit, byte[] query )
+    {
+        _writeSlot( unit ).m_query_msg = query;
+    }
+
+    @Override
+    public byte[]   getUnitQueryMessage( Integer unit )
+    {
+        return getUnitQueryMessage( _unbox( unit ) );
+    }
+
+    @Override
+    public byte[]   getUnitQueryMessage( int unit )
+    {
+        Slot  s = _readSlot( unit );
+        return ( s != null ) ? s.m_query_msg : null;
+    }
+
+    //--------------------------  DATA SETTORS  --------------------------
+
+    @Override
+    public void setSensedBinaryData( Integer device, boolean[] newBits )
+    {
+        Slot  s = _writeSlot( device );
+        LayoutIoDataChangedEvent<Integer>  ev = null;
+
+        synchronized( s )
+        {
+            if( newBits == null )
+            {
+                _publish( s, null );
+                return;
+            }
+
+            //  Same bits as before is the usual case ; then there's nothing to do.
+            boolean[]  old_bits = null;
+            if( s.m_master != null )
+            {
+                if( SensedDataSupport.isSame( s.m_master, newBits ) )
+                    return;
+                if( m_support.hasListeners() )
+                    old_bits = SensedDataSupport.toArray( s.m_master );
+            }
+            else
+            {
+                s.m_master = new TableOfBoolean( Math.max( 1, newBits.length ) );
+            }
+
+            try
+            {
+                s.m_master.setFrom( newBits );
+            }
+            catch( IllegalArgumentException ex )
+            {
+                LOG.logp( Level.WARNING, this.getClass().getSimpleName(), "setSensedBinaryData", "cannot convert", ex );
+                return;
+            }
+            _publish( s, s.m_master );
+
+            if( m_support.hasListeners() )
+                ev = new LayoutIoDataChangedEvent<>( device, old_bits, newBits );
+        }
+
+        //  Tell listeners outside the slot's monitor, so they can read the model.
+        if( ev != null )
+            m_support.fireDataChanged( ev );
+    }
+
+    @Override
+    public void setSensedBinaryData( Integer device, TableOfBoolean individual_bits )
+    {
+        if( individual_bits == null )
+        {
+            if( device == null )
+                throw new NullPointerException("device cannot be null");
+            return;
+        }
+
+        Slot  s = _writeSlot( device );
+        LayoutIoDataChangedEvent<Integer>  ev = null;
+
+        //  'individual_bits' OR in with prior.
+        synchronized( s )
+        {
+            boolean[]  old_bits = null;
+            if( s.m_master == null )
+                s.m_master = new TableOfBoolean( individual_bits.size() );
+            else
+            {
+                //  Nothing new, so no new snapshot either.
+                if( ! s.m_master.wouldChangeFrom( individual_bits ) )
+                    return;
+                if( m_support.hasListeners() )
+                    old_bits = SensedDataSupport.toArray( s.m_master );
+            }
+
+            s.m_master.setFrom( individual_bits );
+            _publish( s, s.m_master );
+
+            if( m_support.hasListeners() )
+            {
+                boolean[]  new_bits = SensedDataSupport.toArray( s.m_master );
+                if( old_bits == null || ! Arrays.equals( old_bits, new_bits ) )
+                    ev = new LayoutIoDataChangedEvent<>( device, old_bits, new_bits );
+            }
+        }
+
+        if( ev != null )
+            m_support.fireDataChanged( ev );
+    }
+
+    @Override
+    public void setSensedPackedBytes( Integer device, byte[] buf, int off, int len )
+    {
+        setSensedPackedBytes( _unbox( device ), buf, off, len );
+    }
+
+    @Override
+    public void setSensedPackedBytes( int device, byte[] buf, int off, int len )
+    {
+        Slot  s = _writeSlot( device );
+        LayoutIoDataChangedEvent<Integer>  ev = null;
+
+        //  Packed image replaces prior ; compared as it's stored.
+        synchronized( s )
+        {
+            boolean  telling = m_support.hasListeners();
+            boolean[]  old_bits = null;
+
+            if( s.m_master == null )
+                s.m_master = new TableOfBoolean( len * 8 );
+            else
+            if( telling )
+                old_bits = SensedDataSupport.toArray( s.m_master );
+
+            if( ! s.m_master.setFromBytes( buf, off, len ) && s.m_snapshot != null )
+                return;
+
+            _publish( s, s.m_master );
+
+            if( telling )
+                ev = new LayoutIoDataChangedEvent<>( Integer.valueOf( device ), old_bits, SensedDataSupport.toArray( s.m_master ) );
+        }
+
+        if( ev != null )
+            m_support.fireDataChanged( ev );
+    }
+
+    @Override
+    public IntAddressScanBatch  beginScan()
+    {
+        return new IntAddressScanBatch( this );
+    }
+
+    /***
+     *  Changed units share one version, then the bank's next scan epoch is published, so a
+     *  batch per scan cycle needs no separate {@link #publishScanEpoch() }.  Each unit is
+     *  still written holding its slot's monitor, as other writers of a slot take it too ;
+     *  uncontended, that's cheap.  Units of an {@link IntAddressScanBatch} are never boxed.
+     *
+     * <p> Units are published one at a time, so {@link #getSensedDataSnapshot(Integer) } may show
+     *  some of a batch before the rest ; only the scan epoch shows all of it together.
+     */
+    @Override
+    public int  commitScan( LayoutIoScanBatch<Integer> batch )
+    {
+        if( batch.getModel() != this )
+            throw new IllegalArgumentException( "batch is for another model" );
+
+        final IntAddressScanBatch  int_batch = ( batch instanceof IntAddressScanBatch ) ? (IntAddressScanBatch) batch : null;
+        final boolean  telling = m_support.hasListeners();
+        LayoutIoScanChangedEvent<Integer>  ev = telling ? new LayoutIoScanChangedEvent<Integer>( this ) : null;
+        long     version = 0L;
+        byte[]   old = null;
+        int      changed = 0;
+
+        for( int j = 0 ; j < batch.size() ; ++j )
+        {
+            int      device = ( int_batch != null ) ? int_batch.getIntUnit( j ) : _unbox( batch.getUnit( j ) );
+            byte[]   image = batch.getImage( j );
+            int      len = batch.getImageLength( j );
+            Slot     s = _writeSlot( device );
+
+            synchronized( s )
+            {
+                int  old_len = 0;
+                if( s.m_master == null )
+                    s.m_master = new TableOfBoolean( len * 8 );
+                else
+                if( telling )
+                {
+                    old_len = (s.m_master.size() + 7) >>> 3;
+                    if( old == null || old.length < old_len )
+                        old = new byte[ old_len ];
+                    s.m_master.toBytes( old, 0, old_len );
+                }
+
+                if( ! s.m_master.setFromBytes( image, 0, len ) && s.m_snapshot != null )
+                    continue;
+
+                //  A unit written by another thread since the batch's version was taken needs a later one.
+                if( version == 0L || ( s.m_snapshot != null && s.m_snapshot.getVersion() >= version ) )
+                    version = m_version.incrementAndGet();
+                _publish( s, s.m_master, version );
+
+                ++changed;
+                if( telling )
+                    ev.addUnit( Integer.valueOf( device ), old, old_len, image, len );
+            }
+        }
+
+        publishScanEpoch();
+
+        if( ev != null && ev.getChangedCount() > 0 )
+            m_support.fireScanChanged( ev );
+        return changed;
+    }
+
+    @Override
+    public void setSensedBinaryBlob( Integer device, int subfunction, byte[] blob )
+    {
+        Slot  s = _writeSlot( device );
+
+        //  Blobs are rare: copy the slot's map on write, readers just follow the reference.
+        synchronized( s )
+        {
+            HashMap< Integer, byte[] >  blobs = ( s.m_blobs != null ) ? new HashMap<>( s.m_blobs ) : new HashMap< Integer, byte[] >();
+            if( blob != null )
+                blobs.put( subfunction, Arrays.copyOf( blob, blob.length ) );
+            else
+                blobs.remove( subfunction );
+            s.m_blobs = blobs;
+        }
+    }
+
+    //-----------------------  CHANGE NOTIFICATIONS  -----------------------
+
+    @Override
+    public void addIoSensedDataListener( IoSensedDataListener listener )
+    {
+        m_support.addListener( listener );
+    }
+
+    @Override
+    public void removeIoSensedDataListener( IoSensedDataListener listener )
+    {
+        m_support.removeListener( listener );
+    }
+
+    //--------------------------  DATA GETTORS  --------------------------
+
+    /***
+     *  Copy of a unit's input bits, consistent even while the poll thread writes.
+     *  An unknown unit gets an empty table, as {@link AbstractLayoutIoModelIntegerAddress} does.
+     */
+    @Override
+    public TableOfBoolean getSensedDataAll( Integer device )
+            throws NullPointerException, UnknownLayoutUnitException
+    {
+        SensedDataSnapshot  snap = getSensedDataSnapshot( device );
+        return ( snap != null ) ? snap.toTable() : new TableOfBoolean();
+    }
+
+    @Override
+    public SensedDataSnapshot getSensedDataSnapshot( Integer device )
+    {
+        return getSensedDataSnapshot( _unbox( device ) );
+    }
+
+    @Override
+    public SensedDataSnapshot getSensedDataSnapshot( int device )
+    {
+        Slot  s = _readSlot( device );
+        return ( s != null ) ? s.m_snapshot : null;
+    }
+
+    @Override
+    public SensedDataSnapshot getSensedDataIfNewer( Integer device, long lastSeenVersion )
+    {
+        return getSensedDataIfNewer( _unbox( device ), lastSeenVersion );
+    }
+
+    @Override
+    public SensedDataSnapshot getSensedDataIfNewer( int device, long lastSeenVersion )
+    {
+        SensedDataSnapshot  snap = getSensedDataSnapshot( device );
+        return ( snap != null && snap.getVersion() > lastSeenVersion ) ? snap : null;
+    }
+
+    @Override
+    public boolean getSensedDataOne( Integer device, int bit_number )
+            throws ArrayIndexOutOfBoundsException, UnknownLayoutUnitException, NullPointerException
+    {
+        return getSensedDataOne( _unbox( device ), bit_number );
+    }
+
+    /***
+     *  One input, read without copying the unit's table.
+     */
+    @Override
+    public boolean getSensedDataOne( int device, int bit_number )
+            throws ArrayIndexOutOfBoundsException, UnknownLayoutUnitException
+    {
+        SensedDataSnapshot  snap = getSensedDataSnapshot( device );
+        int  size = ( snap != null ) ? snap.size() : UNKNOWN_UNIT_SIZE;
+
+        if( bit_number < 0 || bit_number >= size )
+        {
+            throw new ArrayIndexOutOfBoundsException( "getSensedDataOne(" + device +"," + bit_number + ") out-of-range" );
+        }
+
+        return ( snap != null ) && snap.get( bit_number );
+    }
+
+    @Override
+    public byte[] getSensedBlob( Integer device, int subfunction )
+    {
+        Slot  s = _readSlot( device );
+        if( s == null )
+            return null;
+
+        Map< Integer, byte[] >  blobs = s.m_blobs;
+        return ( blobs != null ) ? blobs.get( subfunction ) : null;
+    }
+
+    //---------------------------  SCAN EPOCHS  ---------------------------
+
+    /***
+     *  End of a scan cycle: publish every unit as it is now as the bank's next epoch, and tell
+     *  the {@link LayoutSnapshotPublisher}, if any.  Nothing is published if no unit changed since
+     *  the last epoch.  Units' bits aren't copied, only references to their snapshots.
+     *
+     * @return epoch now current.
+     */
+    public synchronized ScanEpoch  publishScanEpoch()
+    {
+        if( ! m_epoch_dirty )
+            return m_epoch;
+
+        //  Clear before looking, so a unit written meanwhile makes the next epoch.
+        m_epoch_dirty = false;
+
+        SensedDataSnapshot[]  units = new SensedDataSnapshot[ m_slots.length ];
+        for( int j = 0 ; j < units.length ; ++j )
+            units[ j ] = m_slots[ j ].m_snapshot;
+
+        ScanEpoch  epoch = new ScanEpoch( m_epoch.getEpoch() + 1, units );
+        m_epoch = epoch;
+
+        if( m_publisher != null )
+            m_publisher.bankPublished( m_bank, epoch );
+        return epoch;
+    }
+
+    /***
+     *  Latest published epoch.  Costs one volatile read.
+     * @return epoch, never {@code null} ; epoch 0 has no units.
+     */
+    public ScanEpoch  getScanEpoch()
+    {
+        return m_epoch;
+    }
+
+    /***
+     *  Our bank number, given when added to a {@link LayoutSnapshotPublisher}.
+     * @return bank number, or -1 if not added.
+     */
+    public synchronized int  getBankNumber()
+    {
+        return ( m_publisher != null ) ? m_bank : -1;
+    }
+
+    /***
+     *  Called by {@link LayoutSnapshotPublisher#addBank(SlotArrayLayoutIoModel, int) }.
+     */
+    synchronized void  setSnapshotPublisher( LayoutSnapshotPublisher publisher, int bank )
+    {
+        if( m_publisher != null )
+            throw new IllegalStateException( "model already bank " + m_bank + " of a publisher" );
+
+        m_publisher = publisher;
+        m_bank = bank;
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /***
+     *  Slot for a write ; unit must be in range.
+     */
+    private Slot _writeSlot( Integer unit )
+    {
+        return _writeSlot( _unbox( unit ) );
+    }
+
+    private Slot _writeSlot( int u )
+    {
+        if( u < 0 || u >= m_slots.length )
+            throw new IllegalArgumentException( "unit " + u + " not 0 to " + (m_slots.length - 1) );
+
+        return m_slots[ u ];
+    }
+
+    /***
+     *  Slot for a read, or {@code null} if unit is out of range, i.e. unknown.
+     */
+    private Slot _readSlot( Integer unit )
+    {
+        return _readSlot( _unbox( unit ) );
+    }
+
+    private Slot _readSlot( int u )
+    {
+        return ( u >= 0 && u < m_slots.length ) ? m_slots[ u ] : null;
+    }
+
+    private static int _unbox( Integer unit )
+    {
+        if( unit == null )
+            throw new NullPointerException("device cannot be null");
+        return unit;
+    }
+
+    /***
+     *  Publish a slot's bits for readers as a new snapshot.  Caller holds slot's monitor.
+     * @param table new contents, or {@code null} to forget unit's bits.
+     */
+    private void _publish( Slot s, TableOfBoolean table )
+    {
+        if( table == null )
+        {
+            s.m_master = null;
+            s.m_snapshot = null;
+            m_epoch_dirty = true;
+        }
+        else
+            _publish( s, table, m_version.incrementAndGet() );
+    }
+
+    /***
+     *  Publish a slot's bits with a version already taken.  Caller holds slot's monitor.
+     */
+    private void _publish( Slot s, TableOfBoolean table, long version )
+    {
+        s.m_snapshot = SensedDataSnapshot.of( table, version );
+        m_epoch_dirty = true;
+    }
+
+    //--------------------------  SLOT  -------------------------
+
+    /***
+     *  One unit's state.  Writers hold the slot's monitor ; readers follow {@link #m_snapshot}.
+     */
+    private static final class Slot
+    {
+        /*** Latest bits, or {@code null} if none known. */
+        volatile SensedDataSnapshot m_snapshot;
+
+        /*** Writer's working table ; only touched holding the monitor. */
+        TableOfBoolean              m_master;
+
+        /*** Copy-on-write map of sub-function to blob. */
+        volatile Map< Integer, byte[] >   m_blobs;
+
+        volatile ArrayList<byte[]>  m_init_msgs;
+
+        volatile byte[]             m_query_msg;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Unknown units read as an empty table of this many inputs, as {@code new TableOfBoolean()} does. */
+    private static final int    UNKNOWN_UNIT_SIZE = new TableOfBoolean().size();
+
+    //--------------------------  INSTANCE VARS  -------------------------
+
+    /*** Units' state, indexed by unit address. */
+    private final transient     Slot[]      m_slots;
+
+    /*** Source of snapshot versions, shared by all units so versions never repeat. */
+    private final transient     AtomicLong  m_version = new AtomicLong();
+
+    /*** Latest published scan epoch. */
+    private transient volatile  ScanEpoch   m_epoch;
+
+    /*** Has any unit been published since {@link #m_epoch}? */
+    private transient volatile  boolean     m_epoch_dirty;
+
+    /*** Told of each new epoch, or {@code null}.  Guarded by {@code this}. */
+    private transient           LayoutSnapshotPublisher  m_publisher;
+
+    /*** Our bank number at {@link #m_publisher}. */
+    private transient           int         m_bank;
+
+    /*** Told of changed input bits. */
+    private final transient     SensedDataSupport   m_support = new SensedDataSupport( this );
+
+    /***  Logging output spigot. */
+    private final transient static  Logger LOG = Logger.getLogger( SlotArrayLayoutIoModel.class.getName() );
+
+}
@@ -0,0 +1,165 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.Arrays;
+
+
+/***
+ *  Poll busy units more often than quiet ones.
+ *  Each unit keeps a moving average of how often its inputs changed between polls, its
+ *  "change rate" from 0.0 to 1.0.  On every pass the unit earns that much credit, but at
+ *  least {@link #getMinWeight() }, and is polled once its credit reaches 1.0.
+ *  So an occupancy detector that changes on most polls is polled every pass, while a
+ *  panel-switch node that hardly ever changes is polled every few passes.
+ *  Skipping quiet units makes each pass shorter, so busy units are polled more often.
+ *
+ * <p> No unit ever goes longer than the maximum staleness between polls, whatever its
+ *  credit.  New and revived units start with a change rate of 1.0.
+ *
+ * @author brian
+ */
+public class CmriChangeWeightedSchedule
+        implements CmriPollSchedule
+{
+    /***
+     *  Create schedule with default weights.
+     * @param maxStalenessMillis longest time any unit goes without a poll, must be positive.
+     */
+    public CmriChangeWeightedSchedule( int maxStalenessMillis )
+    {
+        this( maxStalenessMillis, DEFAULT_MIN_WEIGHT, DEFAULT_SMOOTHING );
+    }
+
+    /***
+     *  Create schedule.
+     *
+     * @param maxStalenessMillis longest time any unit goes without a poll, must be positive.
+     * @param minWeight least credit earned per pass, above 0.0 and not above 1.0.
+     * @param smoothing weight of newest poll in the change rate average, above 0.0 and not above 1.0.
+     * @throws IllegalArgumentException when out of range.
+     */
+    public CmriChangeWeightedSchedule( int maxStalenessMillis, float minWeight, float smoothing )
+    {
+        if( maxStalenessMillis <= 0 )
+            throw new IllegalArgumentException( "maxStalenessMillis must be positive" );
+        if( minWeight <= 0.0f || minWeight > 1.0f )
+            throw new IllegalArgumentException( "minWeight must be (0.0 .. 1.0]" );
+        if( smoothing <= 0.0f || smoothing > 1.0f )
+            throw new IllegalArgumentException( "smoothing must be (0.0 .. 1.0]" );
+
+        m_max_stale_nanos = maxStalenessMillis * 1000L * 1000L;
+        m_min_weight = minWeight;
+        m_smoothing = smoothing;
+
+        m_rate = new float[ ADDRESS_COUNT ];
+        m_credit = new float[ ADDRESS_COUNT ];
+        m_last_poll = new long[ ADDRESS_COUNT ];
+        m_known = new boolean[ ADDRESS_COUNT ];
+
+        Arrays.fill( m_rate, 1.0f );
+    }
+
+    //----------------------  interface CmriPollSchedule  ----------------------
+
+    @Override
+    public boolean  shouldPoll( int addr, long nowNanos )
+    {
+        if( ! m_known[ addr ] )
+            return true;
+
+        if( nowNanos - m_last_poll[ addr ] >= m_max_stale_nanos )
+            return true;
+
+        m_credit[ addr ] += Math.max( m_min_weight, m_rate[ addr ] );
+        return m_credit[ addr ] >= 1.0f;
+    }
+
+    @Override
+    public void     polled( int addr, boolean changed, long nowNanos )
+    {
+        float  sample = changed ? 1.0f : 0.0f;
+
+        m_rate[ addr ] += m_smoothing * ( sample - m_rate[ addr ] );
+        m_credit[ addr ] = Math.max( 0.0f, m_credit[ addr ] - 1.0f );
+        m_last_poll[ addr ] = nowNanos;
+        m_known[ addr ] = true;
+    }
+
+    @Override
+    public void     reset( int addr )
+    {
+        m_rate[ addr ] = 1.0f;
+        m_credit[ addr ] = 0.0f;
+        m_known[ addr ] = false;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /***
+     *  A unit's moving average of inputs changed per poll.
+     * @param addr unit poll address.
+     * @return 0.0 (never changes) to 1.0 (changes every poll).
+     */
+    public float    getChangeRate( int addr )
+    {
+        return m_rate[ addr ];
+    }
+
+    /*** @return longest time a unit goes without a poll, in milliseconds. */
+    public int      getMaxStalenessMillis()
+    {
+        return (int) (m_max_stale_nanos / (1000L * 1000L));
+    }
+
+    /*** @return least credit a unit earns per pass. */
+    public float    getMinWeight()
+    {
+        return m_min_weight;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Count of unit addresses tracked. */
+    public static final int     ADDRESS_COUNT = 256;
+
+    /*** Default least credit per pass, so a quiet unit is polled at least every 16th pass. */
+    public static final float   DEFAULT_MIN_WEIGHT = 1.0f / 16;
+
+    /*** Default weight of newest poll in change rate average. */
+    public static final float   DEFAULT_SMOOTHING = 1.0f / 8;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final long          m_max_stale_nanos;
+
+    private final float         m_min_weight;
+
+    private final float         m_smoothing;
+
+    /*** Moving average of changed inputs per poll. */
+    private final float[]       m_rate;
+
+    /*** Credit earned toward next poll. */
+    private final float[]       m_credit;
+
+    /*** {@link System#nanoTime() } of last good poll. */
+    private final long[]        m_last_poll;
+
+    /*** Has unit been polled since last reset? */
+    private final boolean[]     m_known;
+
+}
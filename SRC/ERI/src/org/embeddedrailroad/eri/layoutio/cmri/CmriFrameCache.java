@@ -0,0 +1,161 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.List;
+
+
+/***
+ *  Fully encoded CMRI frames, ready to write, for every poll address.
+ *  Poll ("P") frames for all addresses are built up front.  Query and INIT frames that
+ *  come from the {@link org.embeddedrailroad.eri.layoutio.LayoutIoModel} are built the
+ *  first time they're needed and reused for as long as the model hands back the same
+ *  message arrays ; the model's contract is that those arrays are not modified.
+ *
+ * <p> Returned frames are shared ; please do not modify them.
+ *
+ * <p> <strong>Object is not MT-safe.</strong>  Intended to be owned by the poll thread.
+ *
+ * @author brian
+ */
+public class CmriFrameCache
+{
+    /***
+     *  Create cache and pre-encode the poll frames for all addresses.
+     */
+    public CmriFrameCache()
+    {
+        m_poll_frames = new byte[ ADDRESS_COUNT ][];
+        for( int addr = 0 ; addr < ADDRESS_COUNT ; ++addr )
+        {
+            m_poll_frames[ addr ] = CmriFrameEncoder.encodeFrame( addr, POLL_MESSAGE );
+        }
+
+        m_query_src = new byte[ ADDRESS_COUNT ][];
+        m_query_frames = new byte[ ADDRESS_COUNT ][];
+        m_init_src = new byte[ ADDRESS_COUNT ][][];
+        m_init_frames = new byte[ ADDRESS_COUNT ][][];
+    }
+
+    /***
+     *  Frame for the standard poll message.
+     * @param addr unit poll address, 0 to 255.
+     * @return encoded frame.
+     */
+    public byte[]   getPollFrame( int addr )
+    {
+        return m_poll_frames[ addr ];
+    }
+
+    /***
+     *  Frame for a unit's query message.
+     *
+     * @param addr unit poll address, 0 to 255.
+     * @param query message from model, or {@code null} to use the standard poll.
+     * @return encoded frame.
+     */
+    public byte[]   getQueryFrame( int addr, byte[] query )
+    {
+        if( query == null )
+            return m_poll_frames[ addr ];
+
+        if( m_query_src[ addr ] != query )
+        {
+            m_query_frames[ addr ] = CmriFrameEncoder.encodeFrame( addr, query );
+            m_query_src[ addr ] = query;
+        }
+        return m_query_frames[ addr ];
+    }
+
+    /***
+     *  Frames for a unit's initialization messages, in order to send.
+     *
+     * @param addr unit poll address, 0 to 255.
+     * @param inits messages from model, or {@code null}.
+     * @return encoded frames, or {@code null} if {@code inits} is {@code null}.
+     */
+    public byte[][] getInitFrames( int addr, List<byte[]> inits )
+    {
+        if( inits == null )
+            return null;
+
+        byte[][]  src = m_init_src[ addr ];
+        if( ! _sameMessages( src, inits ) )
+        {
+            byte[][]  frames = new byte[ inits.size() ][];
+            src = new byte[ inits.size() ][];
+            for( int j = 0 ; j < frames.length ; ++j )
+            {
+                src[ j ] = inits.get( j );
+                frames[ j ] = CmriFrameEncoder.encodeFrame( addr, src[ j ] );
+            }
+            m_init_src[ addr ] = src;
+            m_init_frames[ addr ] = frames;
+        }
+        return m_init_frames[ addr ];
+    }
+
+    /***
+     *  Forget cached query and INIT frames for a unit, e.g. after its configuration changed.
+     * @param addr unit poll address, 0 to 255.
+     */
+    public void     invalidate( int addr )
+    {
+        m_query_src[ addr ] = null;
+        m_query_frames[ addr ] = null;
+        m_init_src[ addr ] = null;
+        m_init_frames[ addr ] = null;
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /*** Same message arrays, by identity, in same order? */
+    private static boolean  _sameMessages( byte[][] src, List<byte[]> inits )
+    {
+        if( src == null || src.length != inits.size() )
+            return false;
+
+        for( int j = 0 ; j < src.length ; ++j )
+        {
+            if( src[ j ] != inits.get( j ) )
+                return false;
+        }
+        return true;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Count of poll addresses cached. */
+    public static final int     ADDRESS_COUNT = 256;
+
+    /*** The standard poll message, just the command byte. */
+    private static final byte[] POLL_MESSAGE = { CmriFrameDecoder.CMRI_TYPE_POLL };
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final byte[][]      m_poll_frames;
+
+    /*** Model's query message each cached query frame was built from. */
+    private final byte[][]      m_query_src;
+
+    private final byte[][]      m_query_frames;
+
+    /*** Model's INIT messages each set of cached INIT frames was built from. */
+    private final byte[][][]    m_init_src;
+
+    private final byte[][][]    m_init_frames;
+
+}
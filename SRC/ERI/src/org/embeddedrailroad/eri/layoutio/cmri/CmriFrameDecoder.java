@@ -0,0 +1,481 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.Arrays;
+
+
+/***
+ *  Streaming state-machine that un-frames CMRI packets as bytes arrive from the wire.
+ *  Feed it one byte, or a chunk of bytes, at a time ; it reports "frame complete" the
+ *  instant the un-escaped ETX is seen, so the poller doesn't have to wait out a timeout
+ *  to learn the response is over.
+ *
+ * <p> A CMRI frame on the wire looks like:
+ * <pre>    FF FF STX UA type data... ETX </pre>
+ *  where any STX, ETX or DLE inside {@code data...} is preceded by a DLE escape byte.
+ *  The UA is the unit address plus {@link #CMRI_ADDR_OFFSET}, which is never escaped.
+ *
+ * <p> When the payload length is known ahead, see {@link #setExpectedLength(int) }, the frame
+ *  is complete as soon as the last payload byte is in, but the decoder still wants the one
+ *  byte after it, see {@link #isAwaitingEtx() }.
+ *  An ETX before then is a short frame, anything but an ETX after it a long frame, and
+ *  no byte at all a missing ETX ; all are errors, see {@link #getError() }.
+ *  When the length is only the least to expect, frames end on ETX and only a short one is an error.
+ *
+ * <p> Payload storage is allocated once and reused for every frame.
+ *  Use {@link #getPayloadBuffer() } with {@link #getPayloadLength() } to read it without copying.
+ *
+ * <p> <strong>Object is not MT-safe.</strong>  Caller must serialize {@code feed()} and the gettors.
+ *
+ * @author brian
+ */
+public class CmriFrameDecoder
+{
+    /***
+     *  Create decoder with room for the largest payload a CMRI unit can return.
+     */
+    public CmriFrameDecoder()
+    {
+        this( MAX_PAYLOAD_SIZE );
+    }
+
+    /***
+     *  Create decoder with a specific payload capacity.
+     * @param maxPayload most payload bytes (after un-escaping) in one frame, must be positive.
+     */
+    public CmriFrameDecoder( int maxPayload )
+    {
+        if( maxPayload <= 0 )
+            throw new IllegalArgumentException( "maxPayload <= 0" );
+
+        m_payload = new byte[ maxPayload ];
+        m_expected = -1;
+        reset();
+    }
+
+    //--------------------------  STATE MACHINE  --------------------------
+
+    /***
+     *  Forget any partial frame and start hunting for the next STX.
+     */
+    public void     reset()
+    {
+        m_state = STATE_HUNT;
+        m_payload_len = 0;
+        m_unit_addr = -1;
+        m_mesg_type = -1;
+        m_error = ERROR_NONE;
+        m_await_etx = false;
+    }
+
+    /***
+     *  Set payload length of the frames to come, e.g. from a unit's
+     *  {@link CmriResponseDescriptor}.  Kept across {@link #reset() }.
+     *
+     * @param len payload bytes, not counting the message type, or -1 to end frames only on ETX.
+     * @throws IllegalArgumentException if more than the decoder holds.
+     */
+    public void     setExpectedLength( int len )
+    {
+        setExpectedLength( len, true );
+    }
+
+    /***
+     *  Set payload length of the frames to come, exact or only the least expected.
+     *  With a least length, frames still end only on ETX, but one whose ETX comes before
+     *  {@code len} payload bytes is short.  Kept across {@link #reset() }.
+     *
+     * @param len payload bytes, not counting the message type, or -1 to end frames only on ETX.
+     * @param exact {@code true} if frames are exactly {@code len} long, {@code false} if at least.
+     * @throws IllegalArgumentException if more than the decoder holds.
+     */
+    public void     setExpectedLength( int len, boolean exact )
+    {
+        if( len > m_payload.length )
+            throw new IllegalArgumentException( "expected length " + len + " more than capacity" );
+
+        m_expected = Math.max( -1, len );
+        m_exact = exact;
+    }
+
+    /*** @return payload length expected, or -1 if frames end only on ETX. */
+    public int      getExpectedLength()
+    {
+        return m_expected;
+    }
+
+    /*** @return {@code true} if frames end on their expected length, {@code false} if it's only the least. */
+    public boolean  isExpectedExact()
+    {
+        return m_exact;
+    }
+
+    /***
+     *  Push one received byte through the state-machine.
+     *  Once a frame is complete (or in error), further bytes are ignored until {@link #reset() }.
+     *
+     * @param ch byte from the wire.
+     * @return {@code true} if this byte completed a frame.
+     */
+    public boolean  feed( byte ch )
+    {
+        switch( m_state )
+        {
+            case STATE_HUNT :
+                //  Line-sync FF bytes and stray bytes are skipped.
+                if( ch == CMRI_CH_STX )
+                    m_state = STATE_ADDR;
+                break;
+
+            case STATE_ADDR :
+                if( ch == CMRI_CH_STX )
+                    break;          // "FF STX STX UA" seen on some adapters ; stay put.
+
+                m_unit_addr = (ch & 0xff) - CMRI_ADDR_OFFSET;
+                if( m_unit_addr < 0 )
+                {
+                    _fail( ERROR_MALFORMED );
+                    break;
+                }
+                m_state = STATE_TYPE;
+                break;
+
+            case STATE_TYPE :
+                if( ch == CMRI_CH_ETX || ch == CMRI_CH_STX || ch == CMRI_CH_ESCAPE )
+                {
+                    _fail( ERROR_MALFORMED );
+                    break;
+                }
+                m_mesg_type = ch & 0xff;
+                m_state = STATE_DATA;
+                if( m_expected == 0 && m_exact )
+                {
+                    //  Nothing more to come but the ETX.
+                    m_state = STATE_COMPLETE;
+                    m_await_etx = true;
+                    return true;
+                }
+                break;
+
+            case STATE_DATA :
+                if( ch == CMRI_CH_ESCAPE )
+                {
+                    m_state = STATE_ESCAPE;
+                }
+                else
+                if( ch == CMRI_CH_ETX )
+                {
+                    if( m_expected >= 0 && ( m_exact || m_payload_len < m_expected ) )
+                    {
+                        //  Ended before all the expected payload came in.
+                        _fail( ERROR_SHORT );
+                        break;
+                    }
+                    m_state = STATE_COMPLETE;
+                    return true;
+                }
+                else
+                if( ch == CMRI_CH_STX )
+                {
+                    //  Un-escaped STX mid-frame means we lost sync.
+                    _fail( ERROR_MALFORMED );
+                }
+                else
+                {
+                    return _store( ch );
+                }
+                break;
+
+            case STATE_ESCAPE :
+                m_state = STATE_DATA;
+                return _store( ch );
+
+            case STATE_COMPLETE :
+                //  Completed by length ; the one byte after must be the ETX.
+                if( m_await_etx )
+                {
+                    m_await_etx = false;
+                    if( ch != CMRI_CH_ETX )
+                        _fail( ERROR_LONG );
+                }
+                break;
+
+            default :
+                //  STATE_ERROR, wait for reset().
+                break;
+        }
+
+        return false;
+    }
+
+    /***
+     *  Push a chunk of received bytes through the state-machine, stopping right after
+     *  the byte that completes a frame.
+     *
+     * @param buf received bytes.
+     * @param off index of first byte in {@code buf}.
+     * @param len count of bytes to examine.
+     * @return count of bytes consumed, less than {@code len} when a frame completed early.
+     *  A frame completed by length also consumes the ETX after it, when it is in {@code buf} ;
+     *  if not, {@link #isAwaitingEtx() } stays true and the next chunk's first byte is checked.
+     */
+    public int      feed( byte[] buf, int off, int len )
+    {
+        int  j = 0;
+
+        while( j < len && ( m_state < STATE_COMPLETE || m_await_etx ) )
+        {
+            feed( buf[ off + j++ ] );
+        }
+
+        return( j );
+    }
+
+    /***
+     *  The byte after a frame completed by length never came.  Caller decides how long to wait,
+     *  typically one character time.  Does nothing unless {@link #isAwaitingEtx() }.
+     */
+    public void     markEtxMissing()
+    {
+        if( m_await_etx )
+            _fail( ERROR_NO_ETX );
+    }
+
+    /***
+     *  A receive error ( framing, overrun, parity ) happened on the wire.
+     *  A frame in progress is now garbage ; if still hunting for STX, nothing is lost.
+     */
+    public void     markError()
+    {
+        if( m_state != STATE_HUNT && ( m_state != STATE_COMPLETE || m_await_etx ) )
+            _fail( ERROR_LINE );
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /***
+     *  Has the STX been seen, i.e. has the unit started talking?
+     * @return {@code true} once past the hunting-for-STX state.
+     */
+    public boolean  isStarted()
+    {
+        return m_state != STATE_HUNT;
+    }
+
+    /***
+     *  Has the STX and unit-address been received?
+     * @return {@code true} once UA is known.
+     */
+    public boolean  hasAddress()
+    {
+        return m_state >= STATE_TYPE;
+    }
+
+    /*** @return {@code true} if an un-escaped ETX, or the expected length, ended a good frame. */
+    public boolean  isComplete()
+    {
+        return m_state == STATE_COMPLETE;
+    }
+
+    /*** @return {@code true} if the frame was malformed or overflowed. */
+    public boolean  isError()
+    {
+        return m_state == STATE_ERROR;
+    }
+
+    /***
+     *  Was the frame completed by length, with its trailing ETX not yet seen?
+     *  Such a frame is not to be trusted until the next byte is fed, which must be the ETX,
+     *  or {@link #markEtxMissing() } is called.
+     *
+     * @return {@code true} while the one byte after a length-completed frame is outstanding.
+     */
+    public boolean  isAwaitingEtx()
+    {
+        return m_await_etx;
+    }
+
+    /*** @return {@code true} if complete or in error ; either way, no more bytes will be accepted. */
+    public boolean  isDone()
+    {
+        return m_state >= STATE_COMPLETE;
+    }
+
+    /*** @return why frame is in error, one of the {@code ERROR_*} constants. */
+    public int      getError()
+    {
+        return m_error;
+    }
+
+    /*** @return current state, one of the {@code STATE_*} constants. */
+    public int      getState()
+    {
+        return m_state;
+    }
+
+    /*** @return unit address (UA less {@link #CMRI_ADDR_OFFSET}), or -1 if not yet received. */
+    public int      getUnitAddress()
+    {
+        return m_unit_addr;
+    }
+
+    /*** @return message type byte, e.g. 'R' for receive-data, or -1 if not yet received. */
+    public int      getMessageType()
+    {
+        return m_mesg_type;
+    }
+
+    /*** @return count of un-escaped payload bytes received so far. */
+    public int      getPayloadLength()
+    {
+        return m_payload_len;
+    }
+
+    /***
+     *  Returns the internal payload buffer, which is reused for the next frame.
+     *  Only the first {@link #getPayloadLength() } bytes are meaningful.
+     *  Please do not modify it.
+     *
+     * @return internal buffer, never {@code null}.
+     */
+    public byte[]   getPayloadBuffer()
+    {
+        return m_payload;
+    }
+
+    /***
+     *  Copy of the payload, caller owns it.
+     * @return new array of exactly {@link #getPayloadLength() } bytes.
+     */
+    public byte[]   copyPayload()
+    {
+        return Arrays.copyOf( m_payload, m_payload_len );
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /***
+     *  Keep a payload byte.
+     * @return {@code true} if it was the last byte expected, completing the frame.
+     */
+    private boolean _store( byte ch )
+    {
+        if( m_payload_len >= m_payload.length )
+        {
+            _fail( ERROR_LONG );
+            return false;
+        }
+        m_payload[ m_payload_len++ ] = ch;
+
+        if( m_payload_len == m_expected && m_exact )
+        {
+            m_state = STATE_COMPLETE;
+            m_await_etx = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void    _fail( int why )
+    {
+        m_state = STATE_ERROR;
+        m_error = why;
+        m_await_etx = false;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Hunting for STX ; FF sync bytes and noise are dropped. */
+    public static final int     STATE_HUNT      = 0;
+    /*** STX seen, next byte is unit address. */
+    public static final int     STATE_ADDR      = 1;
+    /*** UA seen, next byte is message type. */
+    public static final int     STATE_TYPE      = 2;
+    /*** Collecting payload bytes. */
+    public static final int     STATE_DATA      = 3;
+    /*** DLE seen, next byte is literal payload. */
+    public static final int     STATE_ESCAPE    = 4;
+    /*** ETX seen, or all expected payload in, frame is good. */
+    public static final int     STATE_COMPLETE  = 5;
+    /*** Frame is malformed ; ignored until reset. */
+    public static final int     STATE_ERROR     = 6;
+
+    /*** No error. */
+    public static final int     ERROR_NONE      = 0;
+    /*** Frame bytes out of order, e.g. STX mid-frame or bad unit address. */
+    public static final int     ERROR_MALFORMED = 1;
+    /*** ETX came before the expected payload length. */
+    public static final int     ERROR_SHORT     = 2;
+    /*** More payload than expected, or than the decoder holds. */
+    public static final int     ERROR_LONG      = 3;
+    /*** Receive error on the wire, see {@link #markError() }. */
+    public static final int     ERROR_LINE      = 4;
+    /*** Frame completed by length, but no ETX followed, see {@link #markEtxMissing() }. */
+    public static final int     ERROR_NO_ETX    = 5;
+
+    /***
+     *  Largest payload accepted.  A fully loaded SUSIC is 64 cards of 32 bits = 256 bytes,
+     *  so twice that leaves plenty of head room.
+     */
+    public static final int     MAX_PAYLOAD_SIZE = 512;
+
+    /*** Offset added to unit address before sending on the wire. */
+    public static final int     CMRI_ADDR_OFFSET = 0x41;
+
+    /*** CMRI protocol escape byte. */
+    public static final byte    CMRI_CH_ESCAPE   = (byte) 0x10;
+    /*** CMRI protocol "start of packet" byte. */
+    public static final byte    CMRI_CH_STX      = (byte) 0x02;
+    /*** CMRI protocol "end of packet" byte. */
+    public static final byte    CMRI_CH_ETX      = (byte) 0x03;
+    /*** CMRI protocol "line in use" byte. */
+    public static final byte    CMRI_CH_FRAME    = (byte) 0xff;
+
+    /*** CMRI message type: poll request sent to unit. */
+    public static final byte    CMRI_TYPE_POLL   = (byte) 'P';
+    /*** CMRI message type: input data received from unit. */
+    public static final byte    CMRI_TYPE_RECEIVE = (byte) 'R';
+    /*** CMRI message type: initialize unit. */
+    public static final byte    CMRI_TYPE_INIT   = (byte) 'I';
+    /*** CMRI message type: transmit output data to unit. */
+    public static final byte    CMRI_TYPE_TRANSMIT = (byte) 'T';
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private int             m_state;
+
+    private int             m_unit_addr;
+
+    private int             m_mesg_type;
+
+    private final byte[]    m_payload;
+
+    /*** Payload length expected, or -1 if only ETX ends a frame. */
+    private int             m_expected;
+
+    /*** Does a frame end on {@link #m_expected} payload bytes, or is that only the least? */
+    private boolean         m_exact = true;
+
+    /*** Why frame is in error, an {@code ERROR_*} constant. */
+    private int             m_error;
+
+    /*** Frame completed by length, ETX not yet seen. */
+    private boolean         m_await_etx;
+
+    private int             m_payload_len;
+
+}
@@ -0,0 +1,173 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.embeddedrailroad.eri.layoutio.cmri.CmriFrameDecoder.*;
+
+
+/***
+ *  Builds complete CMRI frames, header through ETX with escaping, so each frame can go
+ *  out on the wire with one {@link OutputStream#write(byte[], int, int) }.
+ *  This is the mirror of {@link CmriFrameDecoder}.
+ *
+ * <p> Writing byte-by-byte is slow with USB-serial adapters, where each tiny write can
+ *  become its own USB transfer.
+ *
+ * <p> An encoder owns one buffer that is reused for every {@link #encode(int, byte[]) },
+ *  so frames built that way are only good until the next call.  Use
+ *  {@link #encodeFrame(int, byte[]) } for a frame that is kept, e.g. in a
+ *  {@link CmriFrameCache}.
+ *
+ * <p> <strong>Object is not MT-safe.</strong>
+ *
+ * @author brian
+ */
+public class CmriFrameEncoder
+{
+    /***
+     *  Create encoder with room for the largest message a CMRI unit accepts.
+     */
+    public CmriFrameEncoder()
+    {
+        this( MAX_PAYLOAD_SIZE );
+    }
+
+    /***
+     *  Create encoder with a specific message capacity.
+     * @param maxMessage most message bytes (before escaping) in one frame, must be positive.
+     */
+    public CmriFrameEncoder( int maxMessage )
+    {
+        if( maxMessage <= 0 )
+            throw new IllegalArgumentException( "maxMessage <= 0" );
+
+        //  Worst case, every byte is escaped.
+        m_buffer = new byte[ FRAME_OVERHEAD + 2 * maxMessage ];
+    }
+
+    /***
+     *  Encode a frame into this encoder's buffer.
+     *
+     * @param addr unit poll address, the UA on the wire is this plus {@link CmriFrameDecoder#CMRI_ADDR_OFFSET}.
+     * @param mesg bytes of message, at least 1 byte which holds the command byte.
+     * @return length of frame, which starts at index zero of {@link #getBuffer() }.
+     * @throws IllegalArgumentException if {@code mesg} is null, empty or too long.
+     */
+    public int      encode( int addr, byte[] mesg )
+            throws IllegalArgumentException
+    {
+        if( mesg == null || mesg.length < 1 )
+            throw new IllegalArgumentException( "CMRI message must be at least 1 byte: the command." );
+        if( FRAME_OVERHEAD + 2 * mesg.length > m_buffer.length )
+            throw new IllegalArgumentException( "CMRI message too long, " + mesg.length + " bytes." );
+
+        m_length = _encodeInto( m_buffer, addr, mesg );
+        return( m_length );
+    }
+
+    /***
+     *  Send the last encoded frame with a single write.
+     * @param out where to send.
+     * @return count of bytes written.
+     * @throws IOException for general output issues.
+     */
+    public int      writeTo( OutputStream out )
+            throws IOException
+    {
+        out.write( m_buffer, 0, m_length );
+        return( m_length );
+    }
+
+    /***
+     *  Returns the internal frame buffer, which is reused by next {@link #encode(int, byte[]) }.
+     *  Only the first {@link #getLength() } bytes are meaningful.
+     * @return internal buffer, never {@code null}.
+     */
+    public byte[]   getBuffer()
+    {
+        return m_buffer;
+    }
+
+    /*** @return length of last encoded frame, or zero if none yet. */
+    public int      getLength()
+    {
+        return m_length;
+    }
+
+    //-------------------------  STATIC HELPERS  ---------------------------
+
+    /***
+     *  Encode a frame into a new array of exactly the right length, caller owns it.
+     *
+     * @param addr unit poll address.
+     * @param mesg bytes of message, at least 1 byte which holds the command byte.
+     * @return encoded frame.
+     * @throws IllegalArgumentException if {@code mesg} is null or empty.
+     */
+    public static byte[] encodeFrame( int addr, byte[] mesg )
+            throws IllegalArgumentException
+    {
+        if( mesg == null || mesg.length < 1 )
+            throw new IllegalArgumentException( "CMRI message must be at least 1 byte: the command." );
+
+        byte[]  frame = new byte[ FRAME_OVERHEAD + 2 * mesg.length ];
+        int     len = _encodeInto( frame, addr, mesg );
+
+        return Arrays.copyOf( frame, len );
+    }
+
+    /***
+     *  Frame and escape.  UA is never escaped ; any STX, ETX or DLE in {@code mesg} is.
+     *  Caller has ensured {@code dst} is big enough.
+     */
+    private static int  _encodeInto( byte[] dst, int addr, byte[] mesg )
+    {
+        int  j = 0;
+
+        dst[ j++ ] = CMRI_CH_FRAME;
+        dst[ j++ ] = CMRI_CH_FRAME;
+        dst[ j++ ] = CMRI_CH_STX;
+
+        //  UA is sent as an ASCII letter on wire.
+        dst[ j++ ] = (byte) (addr + CMRI_ADDR_OFFSET);
+
+        for( byte b : mesg )
+        {
+            if( b == CMRI_CH_STX || b == CMRI_CH_ETX || b == CMRI_CH_ESCAPE )
+                dst[ j++ ] = CMRI_CH_ESCAPE;
+            dst[ j++ ] = b;
+        }
+
+        dst[ j++ ] = CMRI_CH_ETX;
+        return( j );
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Bytes in a frame besides the message: FF FF STX UA ... ETX. */
+    public static final int     FRAME_OVERHEAD = 5;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final byte[]    m_buffer;
+
+    private int             m_length;
+
+}
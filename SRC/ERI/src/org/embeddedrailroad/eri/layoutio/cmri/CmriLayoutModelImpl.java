@@ -17,7 +17,7 @@ package org.embeddedrailroad.eri.layoutio.cmri;
 
 // import java.lang.Integer;
 import java.util.logging.Logger;
-import org.embeddedrailroad.eri.layoutio.AbstractLayoutIoModelIntegerAddress;
+import org.embeddedrailroad.eri.layoutio.SlotArrayLayoutIoModel;
 
 
 /***
@@ -26,19 +26,28 @@ import org.embeddedrailroad.eri.layoutio.AbstractLayoutIoModelIntegerAddress;
  *  CMRI units are addressed with a single number, from 0 to 31.  One the wire, 65 is added
  *  to the address, e.g. unit #0 address is encoded as 'A', unit #1 address is 'B', etc.
  *
+ * <p> Units live in a slot array indexed by poll address, so the bank's poll thread
+ *  writing and GUI or signal logic reading never wait on each other.
+ *
  * <p> See http://www.onjava.com/pub/a/onjava/2004/07/07/genericmvc.html
  *
  * @author brian
  */
-public class CmriLayoutModelImpl extends AbstractLayoutIoModelIntegerAddress
+public class CmriLayoutModelImpl extends SlotArrayLayoutIoModel
 {
     /***
      *  Public constructor since OK to make one.
      */
     public CmriLayoutModelImpl()
     {
+        super( UNIT_COUNT );
     }
 
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Poll addresses 0 to 255, one slot each. */
+    public static final int     UNIT_COUNT = 256;
+
     //--------------------------  INSTANCE VARS  -------------------------
 
 
@@ -20,13 +20,16 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.embeddedrailroad.eri.layoutio.LayoutIoProtocolProvider;
+import org.embeddedrailroad.eri.layoutio.LayoutSnapshotPublisher;
 import org.embeddedrailroad.eri.layoutio.LayoutIoTransport;
 
 /**
  *  Provides instances of protocol transports; this object is effectively a singleton.
  *  Use {@link #makeChannel(java.lang.String, java.lang.Integer) } to create insteances
  *  of the protocol.
- *  This singleton owns the "layout model" shared amongst all CMRI nodes.
+ *  Each channel, i.e. bank, gets its own "layout model", so banks poll in parallel without
+ *  meeting, and unit 5 of one bank is not unit 5 of another.  This singleton gathers them
+ *  all for reading through its {@link LayoutSnapshotPublisher}, bank numbers in order made.
  *
  * @author brian
  */
@@ -35,7 +38,7 @@ public class CmriLayoutProviderImpl implements LayoutIoProtocolProvider
 
     private CmriLayoutProviderImpl()
     {
-        m_io_model = new CmriLayoutModelImpl();
+        m_snapshots = new LayoutSnapshotPublisher();
         m_channels = new HashMap<Integer, CmriSerialLayoutTransport>();
     }
 
@@ -79,6 +82,17 @@ public class CmriLayoutProviderImpl implements LayoutIoProtocolProvider
         return "The CMRI protocol created by Dr. Bruce Chubb." ;
     }
 
+    /***
+     *  Source of consistent snapshots of every CMRI unit's inputs, every bank.
+     *  A channel's bank number is its model's {@link CmriLayoutModelImpl#getBankNumber() } ;
+     *  the publisher maps it to and from the channel number, i.e. the layout XML's bank address.
+     * @return publisher, one for whole protocol.
+     */
+    public LayoutSnapshotPublisher  getSnapshotPublisher()
+    {
+        return m_snapshots;
+    }
+
     //-----------------------------  TRANSPORTS  ------------------------------
 
     @Override
@@ -102,8 +116,12 @@ public class CmriLayoutProviderImpl implements LayoutIoProtocolProvider
 
         if( transport == null )
         {
-            //  If don't already got that channel running, make it first.
-            transport = new CmriSerialLayoutTransport( this, this.m_io_model );
+            //  If don't already got that channel running, make it first, with a model of its own.
+            CmriLayoutModelImpl  model = new CmriLayoutModelImpl();
+            int  bank = m_snapshots.addBank( model, ( channel != null ) ? channel : -1 );
+            transport = new CmriSerialLayoutTransport( this, model );
+
+            LOG.log( Level.FINE, "channel {0} is bank {1}", new Object[] { channel, bank } );
 
             m_channels.put( channel, transport );
         }
@@ -149,8 +167,8 @@ public class CmriLayoutProviderImpl implements LayoutIoProtocolProvider
 
     //----------------------------  INSTANCE VARS  ----------------------------
 
-    /***  Layout input-output model shared amongst all of CMRI protocol. */
-    protected CmriLayoutModelImpl   m_io_model;
+    /***  Gathers each channel's model's scan epochs into layout snapshots. */
+    protected final LayoutSnapshotPublisher   m_snapshots;
 
     /***  List of known channels of CMRI protocol. */
     protected HashMap<Integer, CmriSerialLayoutTransport>   m_channels;
@@ -0,0 +1,324 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+
+/***
+ *  Keeps the silence on a CMRI line between the end of one frame and the start of the next.
+ *  The required gap is a count of character times at the line's baud rate, 10 bits per
+ *  character, so a 9600 baud bank doesn't wait the same 30 milliseconds as a 115200 one.
+ *
+ * <p> In {@link #MODE_PRECISE} the poll thread parks against a {@link System#nanoTime() }
+ *  deadline, and busy-spins through the last few hundred microseconds so the OS timer's
+ *  slop doesn't stretch the gap.  In {@link #MODE_SLEEP} nothing is waited here, and the
+ *  poll loop keeps its classic {@code Thread.sleep()} between units.
+ *
+ * <p> Either way, the gap actually achieved before each transmit is measured: a histogram
+ *  in power-of-two microsecond buckets, min, max, mean, and a count of gaps shorter than
+ *  required.  These can be read from any thread.
+ *
+ * <p> Waiting and marking is only done by the poll thread.
+ *
+ * @author brian
+ */
+public class CmriLineTiming
+{
+    /***
+     *  Create timing for a line.
+     *
+     * @param baudRate line speed, must be positive.
+     * @param gapChars character times of silence required between frames, not negative.
+     * @param spinNanos how much of the end of each wait is busy-spun, not negative.
+     */
+    public CmriLineTiming( int baudRate, int gapChars, long spinNanos )
+    {
+        if( baudRate <= 0 )
+            throw new IllegalArgumentException( "baudRate must be positive" );
+
+        m_char_nanos = ( 10L * 1000L * 1000L * 1000L ) / baudRate;
+        m_histogram = new AtomicLongArray( HISTOGRAM_BUCKETS );
+        m_mode = MODE_SLEEP;
+
+        setGapChars( gapChars );
+        setSpinNanos( spinNanos );
+        resetStatistics();
+    }
+
+    //----------------------------  TIMING  -----------------------------
+
+    /***
+     *  The line went quiet at this time, e.g. our frame finished going out, or the unit's
+     *  ETX arrived, or we gave up waiting for the unit.
+     *
+     * @param nanos {@link System#nanoTime() } when line became idle.
+     */
+    public void     lineIdleAt( long nanos )
+    {
+        m_idle_since = nanos;
+        m_idle_known = true;
+    }
+
+    /***
+     *  In {@link #MODE_PRECISE}, wait until the line has been idle for the required gap.
+     *  Returns at once in {@link #MODE_SLEEP}, or when no frame has been seen yet.
+     *  If the thread is interrupted, returns early with its interrupt status still set.
+     */
+    public void     awaitGap()
+    {
+        if( m_mode != MODE_PRECISE || ! m_idle_known )
+            return;
+
+        final long  deadline = m_idle_since + m_gap_nanos;
+        final long  spin = m_spin_nanos;
+
+        long  remaining;
+        while( (remaining = deadline - System.nanoTime()) > spin )
+        {
+            LockSupport.parkNanos( this, remaining - spin );
+            if( Thread.currentThread().isInterrupted() )
+                return;
+        }
+
+        while( deadline - System.nanoTime() > 0 )
+        {
+            //  spin through the last bit.
+        }
+    }
+
+    /***
+     *  A frame is about to go out ; measure the gap achieved since the line went idle.
+     * @param nanos {@link System#nanoTime() } of transmit start.
+     */
+    public void     transmitStarting( long nanos )
+    {
+        if( ! m_idle_known )
+            return;
+
+        long  gap = Math.max( 0L, nanos - m_idle_since );
+
+        m_gap_count += 1;
+        m_gap_total += gap;
+        if( gap < m_gap_min )
+            m_gap_min = gap;
+        if( gap > m_gap_max )
+            m_gap_max = gap;
+        if( gap < m_gap_nanos )
+            m_gap_short += 1;
+
+        int  bucket = 64 - Long.numberOfLeadingZeros( gap / 1000L );
+        bucket = Math.min( bucket, HISTOGRAM_BUCKETS - 1 );
+        m_histogram.lazySet( bucket, m_histogram.get( bucket ) + 1 );
+
+        m_idle_known = false;
+    }
+
+    /***
+     *  Time for some characters to cross the wire.
+     * @param count characters.
+     * @return nanoseconds.
+     */
+    public long     charsToNanos( int count )
+    {
+        return count * m_char_nanos;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return {@link #MODE_SLEEP} or {@link #MODE_PRECISE}. */
+    public int      getMode()
+    {
+        return m_mode;
+    }
+
+    /***
+     *  Choose how inter-frame gaps are kept.
+     * @param mode {@link #MODE_SLEEP} or {@link #MODE_PRECISE}.
+     */
+    public void     setMode( int mode )
+    {
+        if( mode != MODE_SLEEP && mode != MODE_PRECISE )
+            throw new IllegalArgumentException( "unknown mode " + mode );
+
+        m_mode = mode;
+    }
+
+    /*** @return {@code true} if waiting here for the gap, rather than in poll loop's sleep. */
+    public boolean  isPrecise()
+    {
+        return m_mode == MODE_PRECISE;
+    }
+
+    /***
+     *  Set the required silence between frames.
+     * @param gapChars character times, not negative.
+     */
+    public final void   setGapChars( int gapChars )
+    {
+        if( gapChars < 0 )
+            throw new IllegalArgumentException( "gapChars cannot be negative" );
+
+        m_gap_chars = gapChars;
+        m_gap_nanos = gapChars * m_char_nanos;
+    }
+
+    /*** @return required silence between frames, in character times. */
+    public int      getGapChars()
+    {
+        return m_gap_chars;
+    }
+
+    /*** @return required silence between frames, in nanoseconds. */
+    public long     getGapNanos()
+    {
+        return m_gap_nanos;
+    }
+
+    /***
+     *  Set how much of the end of each wait is busy-spun rather than parked.
+     * @param spinNanos nanoseconds, not negative ; zero never spins.
+     */
+    public final void   setSpinNanos( long spinNanos )
+    {
+        if( spinNanos < 0 )
+            throw new IllegalArgumentException( "spinNanos cannot be negative" );
+
+        m_spin_nanos = spinNanos;
+    }
+
+    /*** @return nanoseconds of each wait that are busy-spun. */
+    public long     getSpinNanos()
+    {
+        return m_spin_nanos;
+    }
+
+    /*** @return time for one character on the wire, in nanoseconds. */
+    public long     getCharNanos()
+    {
+        return m_char_nanos;
+    }
+
+    //---------------------------  STATISTICS  ----------------------------
+
+    /*** @return count of gaps measured. */
+    public long     getGapCount()
+    {
+        return m_gap_count;
+    }
+
+    /*** @return shortest gap measured in nanoseconds, or zero if none. */
+    public long     getGapMinNanos()
+    {
+        return m_gap_count == 0 ? 0 : m_gap_min;
+    }
+
+    /*** @return longest gap measured in nanoseconds. */
+    public long     getGapMaxNanos()
+    {
+        return m_gap_max;
+    }
+
+    /*** @return mean gap in nanoseconds, or zero if none. */
+    public long     getGapMeanNanos()
+    {
+        long  n = m_gap_count;
+        return n == 0 ? 0 : m_gap_total / n;
+    }
+
+    /*** @return count of gaps shorter than {@link #getGapNanos() }. */
+    public long     getGapShortCount()
+    {
+        return m_gap_short;
+    }
+
+    /***
+     *  Copy of gap histogram.  Bucket 0 counts gaps under 1 microsecond ; bucket {@code k}
+     *  counts gaps from 2^(k-1) up to 2^k microseconds ; the last bucket also counts
+     *  everything longer.
+     *
+     * @return new array of {@link #HISTOGRAM_BUCKETS} counts.
+     */
+    public long[]   getGapHistogram()
+    {
+        long[]  h = new long[ HISTOGRAM_BUCKETS ];
+        for( int j = 0 ; j < h.length ; ++j )
+            h[ j ] = m_histogram.get( j );
+        return h;
+    }
+
+    /***
+     *  Clear all gap statistics.
+     */
+    public final void   resetStatistics()
+    {
+        m_gap_count = 0;
+        m_gap_total = 0;
+        m_gap_min = Long.MAX_VALUE;
+        m_gap_max = 0;
+        m_gap_short = 0;
+        for( int j = 0 ; j < HISTOGRAM_BUCKETS ; ++j )
+            m_histogram.set( j, 0 );
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Gaps are kept by the poll loop's {@code Thread.sleep()}, as always. */
+    public static final int     MODE_SLEEP   = 0;
+
+    /*** Gaps are kept here, from baud rate, with park and spin against a deadline. */
+    public static final int     MODE_PRECISE = 1;
+
+    /*** Default required silence, in character times. */
+    public static final int     DEFAULT_GAP_CHARS = 3;
+
+    /*** Default busy-spin at end of each wait, 200 microseconds. */
+    public static final long    DEFAULT_SPIN_NANOS = 200L * 1000L;
+
+    /*** Buckets in gap histogram ; last one is 2^22 microseconds (about 4 seconds) and over. */
+    public static final int     HISTOGRAM_BUCKETS = 24;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final long          m_char_nanos;
+
+    private volatile int        m_mode;
+
+    private volatile int        m_gap_chars;
+
+    private volatile long       m_gap_nanos;
+
+    private volatile long       m_spin_nanos;
+
+    /*** When line went idle ; only meaningful when {@link #m_idle_known}. */
+    private long                m_idle_since;
+
+    private boolean             m_idle_known;
+
+    private volatile long       m_gap_count;
+
+    private volatile long       m_gap_total;
+
+    private volatile long       m_gap_min;
+
+    private volatile long       m_gap_max;
+
+    private volatile long       m_gap_short;
+
+    private final AtomicLongArray   m_histogram;
+
+}
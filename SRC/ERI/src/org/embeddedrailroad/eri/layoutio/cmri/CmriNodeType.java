@@ -0,0 +1,112 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.List;
+
+
+/***
+ *  CMRI node types, as named by the node definition parameter (NDP) of an INIT message,
+ *  and how long each needs after its INIT before it answers a poll.
+ *
+ * <p> An INIT message is {@code 'I' NDP DH DL NS ...} ; for USIC and SUSIC nodes,
+ *  {@code NS} is the count of card sets the node must set up, so they take longer.
+ *
+ * @author brian
+ */
+public final class CmriNodeType
+{
+    private CmriNodeType()
+    {
+    }
+
+    /***
+     *  Node type of an INIT message.
+     * @param init message, type byte first.
+     * @return NDP byte, e.g. {@link #NDP_SMINI}, or 0 if not an INIT message.
+     */
+    public static byte  getNodeType( byte[] init )
+    {
+        if( init == null || init.length < 2 || init[0] != CmriFrameDecoder.CMRI_TYPE_INIT )
+            return 0;
+        return init[1];
+    }
+
+    /***
+     *  Shortest wait after an INIT message before the node answers a poll.
+     *
+     * @param init message, type byte first.
+     * @return microseconds ; unknown types get {@link #SETTLE_UNKNOWN_MICROS}.
+     */
+    public static int   settleMicros( byte[] init )
+    {
+        switch( getNodeType( init ) )
+        {
+            case NDP_SMINI:
+                return SETTLE_SMINI_MICROS;
+
+            case NDP_USIC:
+            case NDP_SUSIC:
+                int  sets = ( init.length > 4 ) ? (init[4] & 0xff) : 0;
+                return SETTLE_USIC_MICROS + sets * SETTLE_CARD_SET_MICROS;
+
+            case NDP_CPNODE:
+                return SETTLE_CPNODE_MICROS;
+
+            default:
+                return SETTLE_UNKNOWN_MICROS;
+        }
+    }
+
+    /***
+     *  Settle wait for a unit's INIT messages, the longest of any of them.
+     * @param inits messages, or {@code null}.
+     * @return microseconds, 0 if no messages.
+     */
+    public static int   settleMicros( List<byte[]> inits )
+    {
+        int  most = 0;
+        if( inits != null )
+        {
+            for( byte[] init : inits )
+                most = Math.max( most, settleMicros( init ) );
+        }
+        return most;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** NDP: classic USIC, 24-bit cards. */
+    public static final byte    NDP_USIC   = (byte) 'N';
+    /*** NDP: SMINI, fixed 48 outputs and 24 inputs. */
+    public static final byte    NDP_SMINI  = (byte) 'M';
+    /*** NDP: SUSIC, 24- or 32-bit cards. */
+    public static final byte    NDP_SUSIC  = (byte) 'X';
+    /*** NDP: cpNode. */
+    public static final byte    NDP_CPNODE = (byte) 'C';
+
+    /*** Settle after INIT for a SMINI, in microseconds. */
+    public static final int     SETTLE_SMINI_MICROS   = 2 * 1000;
+    /*** Settle after INIT for a USIC or SUSIC, before its card sets, in microseconds. */
+    public static final int     SETTLE_USIC_MICROS    = 5 * 1000;
+    /*** Added settle per USIC or SUSIC card set, in microseconds. */
+    public static final int     SETTLE_CARD_SET_MICROS = 500;
+    /*** Settle after INIT for a cpNode, in microseconds. */
+    public static final int     SETTLE_CPNODE_MICROS  = 20 * 1000;
+    /*** Settle after INIT for an unknown node type, in microseconds. */
+    public static final int     SETTLE_UNKNOWN_MICROS = 50 * 1000;
+
+}
@@ -15,22 +15,23 @@
 
 package org.embeddedrailroad.eri.layoutio.cmri;
 
-import com.crunchynoodles.util.SynchronizedByteBuffer;
+import com.crunchynoodles.util.SpscByteRingBuffer;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.concurrent.Future;
 
-import com.google.common.collect.Queues;
 import gnu.io.SerialPort;
 import gnu.io.SerialPortEvent;
 import gnu.io.SerialPortEventListener;
 import gnu.io.UnsupportedCommOperationException;
-import org.embeddedrailroad.eri.layoutio.LayoutTimeoutManager;
+
+import org.embeddedrailroad.eri.layoutio.InputDebounceFilter;
+import org.embeddedrailroad.eri.layoutio.IntAddressScanBatch;
 
 
 /***
@@ -65,10 +66,28 @@ public class CmriPollMachine
 
         this.m_consecutive_missed_polls = new int[ CMRI_HIGHEST_POLL_ADDR + 1 ];
 
-        // ``"Synchronized" [collection] classes can be useful when you need to prevent all access to
-        //   a collection via a single lock, at the expense of poorer scalability.''
-        this.m_active_queue = Queues.synchronizedQueue( new java.util.LinkedList<Integer>() );
-        this.m_revive_queue = Queues.synchronizedQueue( new java.util.LinkedList<Integer>() );
+        this.m_schedule = new CmriRoundRobinSchedule();
+        this.m_scan_stats = new CmriScanStatistics();
+        this.m_line_timing = new CmriLineTiming( baudRate, CmriLineTiming.DEFAULT_GAP_CHARS,
+                                                 CmriLineTiming.DEFAULT_SPIN_NANOS );
+
+        this.m_response_wait = DEFAULT_RX_TURNAROUND_TIMEOUT;
+        this.m_rtt = new CmriResponseTimeEstimator( DEFAULT_RX_TURNAROUND_TIMEOUT * 1000,
+                                                    DEFAULT_RX_TURNAROUND_MIN * 1000,
+                                                    DEFAULT_RX_TURNAROUND_MAX * 1000 );
+
+        //  Primitive queues over the 0..255 address space, nothing boxed or allocated per poll.
+        this.m_active_queue = new CmriUnitQueue();
+        this.m_revive_queue = new CmriUnitQueue();
+
+        this.m_revive_backoff = new CmriReviveBackoff( _recoveryBaseMillis( m_recovery_rate ),
+                                                       CmriReviveBackoff.DEFAULT_MAX_MILLIS );
+        this.m_revive_budget_chars = DEFAULT_REVIVE_BUDGET_CHARS;
+
+        this.m_response_desc = new CmriResponseDescriptor[ CMRI_HIGHEST_POLL_ADDR + 1 ];
+        Arrays.fill( this.m_response_desc, CmriResponseDescriptor.UNKNOWN );
+        this.m_input_filter = new InputDebounceFilter[ CMRI_HIGHEST_POLL_ADDR + 1 ];
+        this.m_revive_burst_threshold = DEFAULT_REVIVE_BURST_THRESHOLD;
     }
 
     //----------------------------  BEAN THINGS  ------------------------------
@@ -78,10 +97,14 @@ public class CmriPollMachine
      *  a query message has been sent out.
      *  If the first char isn't received in said microseconds, the unit is declared "non-responding."
      *
-     * @param millisecs max wait time after transmitting query.
+     * <p> Each unit's actual wait adapts to its measured turnaround ; this value is
+     *  used for units that haven't answered yet, e.g. just revived.
+     *
+     * @param millisecs max wait time after transmitting query, must be positive.
      */
     public void setRxTurnaroundTimeout( int millisecs )
     {
+        m_rtt.setFallback( millisecs * 1000 );
         m_response_wait = millisecs;
     }
 
@@ -113,13 +136,63 @@ public class CmriPollMachine
         return wait_xmit + wait_rec;
     }
 
+    /***
+     *  Set the limits on each unit's adaptive turnaround timeout.
+     *  A unit's timeout follows its measured turnaround, but never goes outside these.
+     *
+     * @param minMillisecs shortest wait, must be positive.
+     * @param maxMillisecs longest wait, not less than {@code minMillisecs}.
+     * @throws IllegalArgumentException when out of order or not positive.
+     */
+    public void setRxTurnaroundTimeoutLimits( int minMillisecs, int maxMillisecs )
+    {
+        m_rtt.setLimits( minMillisecs * 1000, maxMillisecs * 1000 );
+    }
+
+    /***
+     *  Current adaptive turnaround timeout for one unit, the time allowed between our query
+     *  leaving the wire and the unit's first response byte.
+     *
+     * @param addr unit poll address, 0 to 255.
+     * @return microseconds to wait.
+     */
+    public int getRxTurnaroundTimeoutMicros( int addr )
+    {
+        return m_rtt.getTimeoutMicros( addr );
+    }
+
+    /***
+     *  Time for some bytes to cross the wire at this bank's baud rate, 10 bits per byte.
+     * @param count bytes.
+     * @return nanoseconds.
+     */
+    long wireNanos( int count )
+    {
+        return m_line_timing.charsToNanos( count );
+    }
+
+    /***
+     *  Line timing of this bank: how the silence between frames is kept, and statistics
+     *  on the gaps actually achieved.
+     *  Use {@code getLineTiming().setMode( CmriLineTiming.MODE_PRECISE )} to keep gaps
+     *  from baud rate instead of {@link #PROP_INTER_UNIT_SILENCE} sleeps.
+     *
+     * @return line timing, never {@code null}.
+     */
+    public CmriLineTiming getLineTiming()
+    {
+        return m_line_timing;
+    }
+
     /***
      *  Set recovery rate to re-try units that are not responding.
-     *  After every poll cycle, the recovery rate is added to an accumulator.
-     *  Once 1.0 is reached ( or exceeded ), communication with a non-communicating unit is attempted.
+     *  Each unit that doesn't answer a revival attempt waits before its next one, doubling
+     *  the wait each time ; the rate sets the first wait, {@link #RECOVERY_BASE_MILLIS}
+     *  divided by rate.  E.g. 0.5 waits 100 milliseconds, then 200, 400, ...
      *
      * @param rr value more than 0.0 but not above 1.0.
      * @throws IllegalArgumentException if {@link rr} less-than or equal to 0, or above 1.0
+     * @see #getReviveBackoff()
      */
     public void setRecoveryRate( double rr )
     {
@@ -127,6 +200,9 @@ public class CmriPollMachine
             throw new IllegalArgumentException( "recovery rate must be (0.0 .. 1.0]" );
 
         this.m_recovery_rate = (float) rr;
+
+        int  max = m_revive_backoff.getMaxMillis();
+        m_revive_backoff.setLimits( Math.min( _recoveryBaseMillis( rr ), max ), max );
     }
 
     /***
@@ -140,6 +216,171 @@ public class CmriPollMachine
         return this.m_recovery_rate;
     }
 
+    /***
+     *  Per-unit revival back-off, e.g. to change the longest wait between attempts.
+     * @return back-off, never {@code null}.
+     */
+    public CmriReviveBackoff getReviveBackoff()
+    {
+        return m_revive_backoff;
+    }
+
+    /***
+     *  Limit line time spent reviving units each cycle, so a bank with dead units still
+     *  scans its live ones promptly.  Attempts stop once this much time has been spent ;
+     *  at least one due unit is always tried.
+     *
+     * @param chars budget in character times at the port's baud rate, at least 1.
+     * @throws IllegalArgumentException if less than 1.
+     */
+    public void setReviveBudget( int chars )
+    {
+        if( chars < 1 )
+            throw new IllegalArgumentException( "revive budget must be at least 1 character" );
+
+        m_revive_budget_chars = chars;
+    }
+
+    /***
+     *  Line time spent reviving units each cycle.
+     * @return budget in character times.
+     */
+    public int getReviveBudget()
+    {
+        return m_revive_budget_chars;
+    }
+
+    /***
+     *  Set how many revivals in a row mean the bank came back, e.g. its power supply was
+     *  switched back on.  Then all backed-off units are tried at once, without the budget,
+     *  until a round of attempts gets no answers.
+     *
+     * @param count revivals in a row, at least 1.
+     * @throws IllegalArgumentException if less than 1.
+     */
+    public void setReviveBurstThreshold( int count )
+    {
+        if( count < 1 )
+            throw new IllegalArgumentException( "burst threshold must be at least 1" );
+
+        m_revive_burst_threshold = count;
+    }
+
+    /***
+     *  Revivals in a row that start a burst.
+     * @return count.
+     */
+    public int getReviveBurstThreshold()
+    {
+        return m_revive_burst_threshold;
+    }
+
+    /***
+     *  Scan the bank at a fixed period instead of free running.
+     *  Each cycle polls the active list, then spends what's left of the period on reviving
+     *  units, so revivals don't delay the scan.  Cycle duration, start jitter and overruns
+     *  are kept in {@link #getScanStatistics() }.
+     *
+     * <p> Works best with {@link CmriLineTiming#MODE_PRECISE} line timing, since the
+     *  classic sleep between units eats much of a short period.
+     *
+     * @param millisecs cycle period, or 0 to free run as always.
+     * @throws IllegalArgumentException if negative.
+     */
+    public void setScanPeriod( int millisecs )
+    {
+        if( millisecs < 0 )
+            throw new IllegalArgumentException( "scan period cannot be negative" );
+
+        m_scan_period_nanos = millisecs * NANOS_PER_MILLI;
+    }
+
+    /***
+     *  Fixed scan period, if any.
+     * @return cycle period in milliseconds, or 0 if free running.
+     */
+    public int getScanPeriod()
+    {
+        return (int) (m_scan_period_nanos / NANOS_PER_MILLI);
+    }
+
+    /***
+     *  Statistics of fixed-period scan cycles.
+     * @return statistics, never {@code null}.
+     */
+    public CmriScanStatistics getScanStatistics()
+    {
+        return m_scan_stats;
+    }
+
+    /***
+     *  Choose policy for which active units are polled on each pass.
+     *  Default is {@link CmriRoundRobinSchedule}, every unit every pass.
+     *  The new policy starts without any history of the units.
+     *
+     * @param schedule policy, cannot be {@code null}.
+     */
+    public void setPollSchedule( CmriPollSchedule schedule )
+    {
+        if( schedule == null )
+            throw new NullPointerException( "schedule cannot be null" );
+
+        this.m_schedule = schedule;
+    }
+
+    /***
+     *  Return policy for which active units are polled on each pass.
+     * @return policy, never {@code null}.
+     */
+    public CmriPollSchedule getPollSchedule()
+    {
+        return this.m_schedule;
+    }
+
+    /***
+     *  Tell what a unit's answer to a poll looks like, so its frames finish as soon as the
+     *  last input byte arrives and wrong-sized frames are caught at once.
+     *
+     * @param unitAddr unit poll address.
+     * @param desc descriptor, or {@code null} to end its frames only on ETX.
+     */
+    public void setResponseDescriptor( int unitAddr, CmriResponseDescriptor desc )
+    {
+        m_response_desc[ unitAddr ] = ( desc != null ) ? desc : CmriResponseDescriptor.UNKNOWN;
+    }
+
+    /***
+     *  What a unit's answer to a poll looks like.
+     * @param unitAddr unit poll address.
+     * @return descriptor, never {@code null}.
+     */
+    public CmriResponseDescriptor getResponseDescriptor( int unitAddr )
+    {
+        return m_response_desc[ unitAddr ];
+    }
+
+    /***
+     *  Debounce a unit's inputs before they reach the model.  Give the filter before
+     *  polling starts ; once given, only the poll thread touches it.
+     *
+     * @param unitAddr unit poll address.
+     * @param filter filter, sized for unit's inputs, or {@code null} to pass inputs straight through.
+     */
+    public void setInputFilter( int unitAddr, InputDebounceFilter filter )
+    {
+        m_input_filter[ unitAddr ] = filter;
+    }
+
+    /***
+     *  Debounce filter of a unit's inputs.
+     * @param unitAddr unit poll address.
+     * @return filter, or {@code null} if none.
+     */
+    public InputDebounceFilter getInputFilter( int unitAddr )
+    {
+        return m_input_filter[ unitAddr ];
+    }
+
     /***
      *  Put some unit on the revival work list.
      *  If currently polling, then unit is demoted to re-initialization.
@@ -150,14 +391,9 @@ public class CmriPollMachine
      */
     public synchronized void addUnitToPollingList( int unitAddr )
     {
-        if( m_active_queue.contains( unitAddr ) )
-        {
-            m_active_queue.remove( unitAddr );
-        }
-        if( ! m_revive_queue.contains( unitAddr ) )
-        {
-            m_revive_queue.add( unitAddr );
-        }
+        m_active_queue.remove( unitAddr );
+        m_revive_queue.add( unitAddr );
+        m_revive_backoff.reset( unitAddr );
     }
 
     /***
@@ -177,20 +413,20 @@ public class CmriPollMachine
      *  Normally, list is just units that are actively communicating.
      *
      * @param includeNonResponding include those not responding
-     * @return Set of unit addresses.
+     * @return Immutable set of unit addresses, a {@link CmriUnitSet}.
      */
     public synchronized Set<Integer>  getKnownUnits( boolean includeNonResponding )
     {
-        HashSet<Integer>  known = new HashSet<Integer>();
+        long[]  bits = new long[ CmriUnitSet.WORDS ];
 
-        known.addAll( m_active_queue );
+        m_active_queue.orBitsInto( bits );
 
         if( includeNonResponding )
         {
-            known.addAll( m_revive_queue );
+            m_revive_queue.orBitsInto( bits );
         }
 
-        return( known );
+        return new CmriUnitSet( bits );
     }
 
     /***
@@ -210,6 +446,16 @@ public class CmriPollMachine
         }
     }
 
+    /***
+     *  First revival back-off for a recovery rate.
+     * @param rr recovery rate, more than 0.0.
+     * @return milliseconds, at least 1.
+     */
+    private static int _recoveryBaseMillis( double rr )
+    {
+        return (int) Math.max( 1L, Math.min( Integer.MAX_VALUE, Math.round( RECOVERY_BASE_MILLIS / rr ) ) );
+    }
+
     //------------------------  WORKER THREAD SUPPORT  ------------------------
 
     /***
@@ -332,12 +578,16 @@ public class CmriPollMachine
      * <p> {@link Runnable} : See http://docs.oracle.com/javase/tutorial/essential/concurrency/runthread.html
      */
     class CmriSerialPollingWorker
-            implements SerialPortEventListener , Runnable , LayoutTimeoutManager.TimeoutAction
+            implements SerialPortEventListener , Runnable
     {
         public CmriSerialPollingWorker()
         {
-            m_in_mesg = new SynchronizedByteBuffer( 4000 * 2 );
-            m_timeout_mgr = LayoutTimeoutManager.getInstance();
+            m_decoder = new CmriFrameDecoder();
+            m_rx_ring = new SpscByteRingBuffer( RX_RING_SIZE );
+            m_rx_chunk = new byte[ RX_CHUNK_SIZE ];
+            m_rx_event_buf = new byte[ RX_CHUNK_SIZE ];
+            m_encoder = new CmriFrameEncoder();
+            m_frames = new CmriFrameCache();
         }
 
         //--------------------  SerialPortEventListener  ----------------------
@@ -358,15 +608,12 @@ public class CmriPollMachine
                 case SerialPortEvent.DATA_AVAILABLE :
                     try
                     {
-                        while( m_instr.available() > 0 )
-                        {
-                            m_in_mesg.add( (byte) m_instr.read() );
-                        }
+                        receiveAvailable();
                     }
                     catch( IOException ex )
                     {
                         LOG.log( Level.INFO, "CmriSerialPollingWorker#serialEvent() found EOF." );
-                        m_in_mesg.add( CH_ERROR_BYTE );
+                        m_rx_errors += 1;
                     }
 
                     break;
@@ -380,8 +627,8 @@ public class CmriPollMachine
                 case SerialPortEvent.FE :
                 case SerialPortEvent.OE :
                 case SerialPortEvent.PE :
-                    // reception trouble....
-                    m_in_mesg.add( CH_ERROR_BYTE );
+                    // reception trouble....  Any frame in progress is now garbage.
+                    m_rx_errors += 1;
 
                     m_cntr_bad_bytes_in += 1;
                     break;
@@ -393,6 +640,41 @@ public class CmriPollMachine
 
         }
 
+        /***
+         *  Move every byte the port has waiting into the receive ring.
+         *  Reads a whole chunk per call into a reusable buffer, and publishes each chunk
+         *  to the ring at once, so there is no per-byte call, lock or allocation.
+         *
+         * <p> This thread is the ring's only producer ; the poll thread is its only consumer
+         *  and runs the frame decoder.
+         *
+         * @return count of bytes moved into the ring.
+         * @throws IOException when stream has been closed.
+         */
+        int receiveAvailable()
+                throws IOException
+        {
+            int  total = 0;
+            int  avail;
+
+            while( (avail = m_instr.available()) > 0 )
+            {
+                int  n = m_instr.read( m_rx_event_buf, 0, Math.min( avail, m_rx_event_buf.length ) );
+                if( n < 0 )
+                    throw new IOException( "end of stream" );
+
+                int  stored = m_rx_ring.offer( m_rx_event_buf, 0, n );
+                if( stored < n )
+                {
+                    //  Ring overflow: nobody is reading, so poll thread will resync on next STX.
+                    m_cntr_bad_bytes_in += n - stored;
+                }
+                total += stored;
+            }
+
+            return total;
+        }
+
         //----------------------  interface Runnable  -------------------------
 
         /***
@@ -408,8 +690,6 @@ public class CmriPollMachine
             LOG.log( Level.INFO, "Thread #{0} starting on " + m_port.toString() + " ...",
                                     Long.toString( Thread.currentThread().getId() ) );
 
-            m_in_mesg.setMatchFirstByte( CMRI_CH_STX );
-
             //
             // "Open the input Reader and output stream. The choice of a
             // Reader and Stream are arbitrary and need to be adapted to
@@ -460,71 +740,44 @@ public class CmriPollMachine
 
             }
 
-            //  With accumulation, once level reaches 1.0, then try one revival.
-            float   recovering = 0.0f;
-
             //  We're open for business!
             m_port.setDTR( true );
             m_port.setRTS( true );
 
+            //  Did last pass send anything?  If not, rest a bit before next pass.
+            boolean  sent_any = false;
+
             try
             {
                 while( ! m_do_thread_exit  )
                 {
-                    Thread.sleep( PROP_INTER_UNIT_SILENCE );
-                    if( ! m_OK_to_poll_units )
+                    long  period = m_scan_period_nanos;
+                    if( period > 0 )
+                    {
+                        _fixedPeriodCycle( period );
                         continue;
+                    }
 
-                    //  1.  Check for reviving units.
+                    //  Free running: next pass starts when this one is done.
+                    m_next_cycle_nanos = 0;
 
-                    if( recovering <= 1.0f && m_revive_queue.size() > 0 )
-                    {
-                        recovering += m_recovery_rate;
-                        if( recovering >= 1.0f )
-                        {
-                            int  addr = m_revive_queue.remove();
-
-                            if( recoverUnit( addr ) )
-                            {
-                                //  Yup, got it going.  Move to active queue.
-                                m_active_queue.add( addr );
-                                Thread.sleep( PROP_INTER_UNIT_SILENCE );
-                            }
-                            else
-                            {
-                                //  Sadness, no response.  Put on end of non-responding queue
-                                //  for another query in a little bit.
-                                m_revive_queue.add( addr );
-                            }
-
-                            //  We tried one.  Reset accumulator, which gives duration between attempts.
-                            recovering -= 1.0f;
-                        }
-                    }
+                    //  With precise line timing, gaps are kept as each frame goes out, so only
+                    //  rest here when there's nothing to do.
+                    if( ! m_line_timing.isPrecise() || ! sent_any )
+                        Thread.sleep( PROP_INTER_UNIT_SILENCE );
 
-                    //  2.  Poll entire active list.
+                    sent_any = false;
+                    if( ! m_OK_to_poll_units )
+                        continue;
 
-                    int  len = m_active_queue.size();
-                    while( --len >= 0 && ! m_do_thread_exit )
-                    {
-                        int  addr = m_active_queue.remove();
+                    //  1.  Revive units whose back-off is over, within the budget.
 
-                        if( queryResponseUnit( addr ) )
-                        {
-                            //  Still communicating, keep it around.
-                            m_active_queue.add( addr );
+                    if( m_revive_queue.size() > 0 )
+                        sent_any |= _reviveDue( false, 0L );
 
-                            // Slight pause between units of the poll cycle.
-                            Thread.sleep( PROP_INTER_UNIT_SILENCE );
-                        }
-                        else
-                        {
-                            //  Sadness, it went silent on us.
-                            m_revive_queue.add( addr );
-                            Thread.yield();
-                        }
+                    //  2.  Poll active list, or those the schedule picks for this pass.
 
-                    }   // while active units to deal with..
+                    sent_any |= _pollActivePass();
 
                 }   // while running...
             }
@@ -539,18 +792,262 @@ public class CmriPollMachine
             }
         }
 
+        /***
+         *  Poll the active list once over, those units the schedule picks.
+         *  Units that answer stay on the active list ; units that don't go to the revive list.
+         *
+         * @return {@code true} if any unit was polled.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private boolean _pollActivePass()
+                throws InterruptedException
+        {
+            boolean  sent_any = false;
+
+            CmriPollSchedule  schedule = m_schedule;
+            int  len = m_active_queue.size();
+            while( --len >= 0 && ! m_do_thread_exit )
+            {
+                int  addr = m_active_queue.poll();
+                if( addr < 0 )
+                    break;
+
+                if( ! schedule.shouldPoll( addr, System.nanoTime() ) )
+                {
+                    //  Not this pass, keep it around.
+                    m_active_queue.add( addr );
+                    continue;
+                }
+
+                sent_any = true;
+                if( queryResponseUnit( addr ) )
+                {
+                    //  Still communicating, keep it around.
+                    m_active_queue.add( addr );
+
+                    // Slight pause between units of the poll cycle.
+                    _unitPause();
+                }
+                else
+                {
+                    //  Sadness, it went silent on us.  Try reviving it straight away.
+                    m_revive_backoff.reset( addr );
+                    m_revive_queue.add( addr );
+                    Thread.yield();
+                }
+
+            }   // while active units to deal with..
+
+            //  End of scan cycle: readers of the layout now see every unit as of this pass.
+            m_scan_batch.commit();
+
+            return sent_any;
+        }
+
+        /***
+         *  Try once to revive a unit ; on success it moves to the active list, otherwise
+         *  it goes to the end of the revive list and backs off further.
+         *
+         * @param addr unit's poll address, already taken off the revive list.
+         * @return {@code true} if unit was revived.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private boolean _reviveUnit( int addr )
+                throws InterruptedException
+        {
+            if( recoverUnit( addr ) )
+            {
+                //  Yup, got it going and answering.  Move to active queue.
+                m_revive_backoff.reset( addr );
+                m_active_queue.add( addr );
+                _unitPause();
+                return true;
+            }
+            else
+            {
+                //  Sadness, no response.  Put on end of non-responding queue
+                //  and wait longer before asking again.
+                m_revive_backoff.failed( addr, System.nanoTime() );
+                m_revive_queue.add( addr );
+                return false;
+            }
+        }
+
+        /***
+         *  One cycle of fixed-period scanning: wait for the cycle's start time, poll the
+         *  active list, then spend whatever is left of the period on revivals.
+         *  An overrun skips the missed start times, so cycles stay on the original phase.
+         *
+         * @param period cycle period, in nanoseconds.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private void _fixedPeriodCycle( long period )
+                throws InterruptedException
+        {
+            if( m_next_cycle_nanos == 0 )
+                m_next_cycle_nanos = System.nanoTime();
+
+            _parkUntil( m_next_cycle_nanos );
+
+            final long  scheduled = m_next_cycle_nanos;
+            final long  deadline = scheduled + period;
+            final long  start = System.nanoTime();
+
+            if( ! m_OK_to_poll_units )
+            {
+                m_next_cycle_nanos = deadline;
+                return;
+            }
+
+            m_scan_stats.cycleStarted( scheduled, start );
+
+            _pollActivePass();
+
+            final long  end = System.nanoTime();
+            final boolean  overrun = end - deadline > 0;
+            m_scan_stats.cycleFinished( end - start, overrun );
+
+            if( overrun )
+            {
+                //  No slack for revivals.  Next start is first slot after now.
+                LOG.log( Level.FINE, "Scan cycle overran by {0} us.", (end - deadline) / 1000L );
+                m_next_cycle_nanos = scheduled + ((end - scheduled) / period + 1) * period;
+                return;
+            }
+
+            _reviveDue( true, deadline );
+            m_next_cycle_nanos = deadline;
+        }
+
+        /***
+         *  Try reviving units whose back-off is over, each at most once, until the revive
+         *  budget is spent.  In fixed-period scanning, also stop when it looks like another
+         *  attempt won't fit before the next cycle ; cost of an attempt is learned from the
+         *  ones before it.
+         *
+         * <p> Several revivals in a row start a burst: every backed-off unit is made due and
+         *  the budget is lifted, until a round of attempts revives nothing.
+         *
+         * @param inSlack {@code true} if {@code deadline} applies.
+         * @param deadline {@link System#nanoTime() } when next cycle must start.
+         * @return {@code true} if any unit was tried.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private boolean _reviveDue( boolean inSlack, long deadline )
+                throws InterruptedException
+        {
+            if( m_revive_cost_nanos == 0 )
+            {
+                //  First guess: INIT and poll frames out, a settle and a turnaround back.
+                m_revive_cost_nanos = wireNanos( 3 * CmriFrameEncoder.FRAME_OVERHEAD + 20 )
+                                      + CmriNodeType.SETTLE_SMINI_MICROS * 1000L
+                                      + m_rtt.getFallbackMicros() * 1000L;
+            }
+
+            final long  budget = m_revive_burst ? Long.MAX_VALUE
+                                                : m_line_timing.charsToNanos( m_revive_budget_chars );
+            long  spent = 0;
+            int  tried = 0;
+            int  revived = 0;
+
+            int  tries = m_revive_queue.size();
+            while( --tries >= 0 && spent < budget && ! m_do_thread_exit )
+            {
+                long  t0 = System.nanoTime();
+                if( inSlack && t0 + m_revive_cost_nanos - deadline > 0 )
+                    break;
+
+                int  addr = m_revive_queue.poll();
+                if( addr < 0 )
+                    break;
+
+                if( ! m_revive_backoff.isDue( addr, t0 ) )
+                {
+                    //  Still backing off, keep its place.
+                    m_revive_queue.add( addr );
+                    continue;
+                }
+
+                tried += 1;
+                if( _reviveUnit( addr ) )
+                {
+                    revived += 1;
+                    m_revive_streak += 1;
+                }
+                else
+                {
+                    m_revive_streak = 0;
+                }
+
+                if( inSlack )
+                    m_scan_stats.slackRevival();
+
+                //  Learn cost ; a slower attempt counts in full at once, a quicker one slowly.
+                long  took = System.nanoTime() - t0;
+                spent += took;
+                if( took > m_revive_cost_nanos )
+                    m_revive_cost_nanos = took;
+                else
+                    m_revive_cost_nanos += (took - m_revive_cost_nanos) >> 3;
+            }
+
+            if( m_revive_streak >= m_revive_burst_threshold && ! m_revive_burst && m_revive_queue.size() > 0 )
+            {
+                //  Looks like the bank came back, e.g. power restored ; don't wait out back-offs.
+                LOG.log( Level.INFO, "{0} units revived in a row, trying all others now.", m_revive_streak );
+                m_revive_burst = true;
+                m_revive_backoff.expediteAll( System.nanoTime() );
+            }
+            else
+            if( m_revive_burst && ( (tried > 0 && revived == 0) || m_revive_queue.size() == 0 ) )
+            {
+                m_revive_burst = false;
+                m_revive_streak = 0;
+            }
+
+            //  Revived units' inputs show now, not a cycle later.
+            if( ! m_scan_batch.isEmpty() )
+                m_scan_batch.commit();
+
+            return tried > 0;
+        }
+
+        /***
+         *  Park poll thread until a {@link System#nanoTime() } deadline.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private void _parkUntil( long deadline )
+                throws InterruptedException
+        {
+            long  remaining;
+            while( (remaining = deadline - System.nanoTime()) > 0 && ! m_do_thread_exit )
+            {
+                LockSupport.parkNanos( this, remaining );
+                if( Thread.interrupted() )
+                    throw new InterruptedException();
+            }
+        }
+
         /***
          *  Attempt to recover a unit, which for CMRI means programming in its configuration
-         *  and trying to get a response of some sort.
-         *  Sometimes there is no way to validate the existence of a unit, e.g. it has no inputs to query.
-         *  In that case, we assume the unit is functioning.
+         *  and checking that it answers a poll:
+         *  <ol>
+         *   <li> drain any stray input ;
+         *   <li> send the unit's INIT frames ;
+         *   <li> wait out the INIT on the wire and the node's settle time, from its node type ;
+         *   <li> poll it once, with a fresh turnaround estimate.
+         *  </ol>
+         *  Time taken is bounded by the INIT frames, the settle wait and one poll's timeout.
          *
          * @param addr unit's poll address, typically 0 to 127 , but not range checked.
-         * @return true if unit communicated back, else false when no positive response.
+         * @return true if unit answered the verification poll, else false.
+         * @throws InterruptedException when time to exit thread.
          */
         protected boolean recoverUnit( int addr )
+                throws InterruptedException
         {
-            ArrayList<byte[]>  inits = m_model.getUnitInitializationStrings( addr );
+            List<byte[]>  init_msgs = m_model.getUnitInitializationStrings( addr );
+            byte[][]  inits = m_frames.getInitFrames( addr, init_msgs );
 
             if( inits == null )
             {
@@ -560,26 +1057,48 @@ public class CmriPollMachine
 
             try
             {
+                //  1.  Whatever was in flight is not for us.
                 drainReceivePort();
 
-                for( byte[] m : inits )
+                //  2.  There is no response for CMRI INIT message, so use sendCmriFrame()
+                //      method directly.
+                int  last_len = 0;
+                for( byte[] frame : inits )
                 {
-                    //  There is no response for CMRI INIT message, so use sendCmriMessage()
-                    //  method directly.
-                    sendCmriMessage( addr, m );
+                    last_len = sendCmriFrame( frame );
                 }
+
+                //  3.  Let the last INIT leave the wire, then give the node time to set up.
+                long  settle = CmriNodeType.settleMicros( init_msgs ) * 1000L;
+                _parkUntil( m_tx_start_nanos + wireNanos( last_len ) + settle );
             }
             catch( IOException ex )
             {
                 throw new RuntimeException( "COM-port fail during recoverUnit().", ex );
             }
 
+            //  4.  Old turnaround and history are stale ; verify with a fresh start.
+            m_rtt.reset( addr );
+            m_schedule.reset( addr );
+            m_last_inputs[ addr ] = null;
+            if( m_input_filter[ addr ] != null )
+                m_input_filter[ addr ].reset();
+
+            if( _queryOnce( addr ) )
+            {
+                LOG.log( Level.FINE, "Unit #{0} revived.", addr );
+                m_consecutive_missed_polls[ addr ] = 0;
+                return true;
+            }
+
             return false;
         }
 
         /****
          *  Query a unit for changed inputs; if unit has no inputs then CMRI has no "idling response" so
          *  just assume the unit is functioning.
+         *  The poll is over the instant the unit's ETX arrives ; a timeout only happens when
+         *  the unit is silent or stops talking mid-frame.
          *
          * @param addr unit's poll address, typically 0 to 127 , but not range checked.
          * @return true if unit communicated back or none expected, else false when no positive response.
@@ -587,71 +1106,250 @@ public class CmriPollMachine
         protected boolean queryResponseUnit( int addr )
                 throws InterruptedException
         {
-            Future  timeout_future = null;
+            if( _queryOnce( addr ) )
+            {
+                m_consecutive_missed_polls[ addr ] = 0;
+                return true;
+            }
 
+            _missedPoll( addr );
+            return false;
+        }
+
+        /***
+         *  Poll a unit once and take in its inputs, without counting missed polls.
+         *
+         * @param addr unit's poll address.
+         * @return true if unit answered with a good frame.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private boolean _queryOnce( int addr )
+                throws InterruptedException
+        {
             try
             {
-                m_in_mesg.setEnabled( true );
-                int  chars_sent = sendCmriMessage( addr, null );
+                byte[]  frame = m_frames.getQueryFrame( addr, m_model.getUnitQueryMessage( addr ) );
 
-                //  Await first two bytes back from unit, which must match STX and unit's poll address
-                //  Compute timeou assuming whole TX packet has been buffered by OS, so must wait
-                //  for it to be fully sent, then a pause while th eunit interprets it, then
+                //  An exact answer length lets the frame finish on its last input byte ;
+                //  a least length still catches short frames.
+                CmriResponseDescriptor  desc = m_response_desc[ addr ];
+                m_decoder.setExpectedLength( desc.getInputBytes(), desc.isLengthExact() );
+
+                int  chars_sent = sendCmriFrame( frame );
+                long  tx_start = m_tx_start_nanos;
+
+                //  Await STX and unit's poll address.
+                //  Compute timeout assuming whole TX packet has been buffered by OS, so must wait
+                //  for it to be fully sent, then the unit's own turnaround, then
                 //  time for 4 bytes to be sent back: FF, FF, STX, "addr"
-                if( m_in_mesg.awaitCountAtLeast( 2, getTxToFirstRxTimeout(chars_sent + 2) ) )
+                long  tx_end = tx_start + wireNanos( chars_sent );
+                long  first_deadline = tx_end + wireNanos( 4 ) + m_rtt.getTimeoutMicros( addr ) * 1000L;
+                long  gap_nanos = getTxToFirstRxTimeout( 2 ) * NANOS_PER_MILLI;
+
+                boolean  done = awaitFrame( first_deadline, gap_nanos );
+                m_line_timing.lineIdleAt( System.nanoTime() );
+
+                if( ! done )
                 {
-                    // Timeout waiting for first byte of response.
-                    LOG.log( Level.FINE, "Timeout waiting for STX + poll-address response." );
-                    _missedPoll( addr );
+                    LOG.log( Level.FINE, "Timeout waiting for response from unit #{0}.", addr );
+                    if( ! m_decoder.isStarted() )
+                        m_rtt.timedOut( addr );
                     return false;
                 }
 
-                m_rx_timeout = false;
-                timeout_future = this.m_timeout_mgr.timeoutMillis( getTxToFirstRxTimeout(chars_sent), this, null );
+                if( m_decoder.isComplete() &&
+                    m_decoder.getUnitAddress() == addr &&
+                    m_decoder.getMessageType() == CmriFrameDecoder.CMRI_TYPE_RECEIVE )
+                {
+                    //  Turnaround is up to when STX arrived, less the FF FF STX wire time.
+                    m_rtt.addSample( addr, (int) ((m_first_rx_nanos - tx_end - wireNanos( 3 )) / 1000L) );
+
+                    m_cntr_good_bytes_in += m_decoder.getPayloadLength();
+                    boolean  changed = _acceptInputs( addr, m_decoder.getPayloadBuffer(), m_decoder.getPayloadLength() );
+                    m_schedule.polled( addr, changed, System.nanoTime() );
+                    return true;
+                }
+
+                LOG.log( Level.FINE, "Bad or mis-addressed frame from unit #{0}.", addr );
+                m_cntr_bad_bytes_in += m_decoder.getPayloadLength();
+                if( m_decoder.getError() == CmriFrameDecoder.ERROR_SHORT )
+                    m_cntr_short_frames += 1;
+                else
+                if( m_decoder.getError() == CmriFrameDecoder.ERROR_LONG )
+                    m_cntr_long_frames += 1;
+            }
+            catch( IOException ex )
+            {
+                LOG.log( Level.FINE, "COM-port fail during queryResponseUnit().", ex );
+            }
+
+            return false;
+        }
 
-                // TODO: we got STX + UA back from unit.  Must probe the message to determine
-                //      its length.  Might have to actually parse as we go for fastest response.
+        /***
+         *  Wait for the decoder to finish a frame, either good or bad.
+         *  Received bytes are drained from the ring in chunks and fed to the decoder here,
+         *  on the poll thread ; in between, the thread is parked until more bytes arrive.
+         *  The first deadline covers the unit's turnaround ; once bytes start flowing,
+         *  the deadline slides forward by {@code gapNanos} each time more payload arrives,
+         *  so a long frame is not cut short and a stalled one is not waited on forever.
+         *  A frame completed by length is only done once the byte after it has arrived, and
+         *  is rejected if that byte is not an ETX or is not in by one character time later ;
+         *  so on return the unit has stopped talking and the line really is idle.
+         *
+         * @param firstDeadline {@link System#nanoTime() } by which the STX and UA must be seen.
+         * @param gapNanos longest silence allowed between payload bytes.
+         * @return {@code true} if decoder is done, {@code false} on timeout.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private boolean awaitFrame( long firstDeadline, long gapNanos )
+                throws InterruptedException
+        {
+            long  deadline = firstDeadline;
+            boolean  etx_wait = false;
+            int   seen = -1;
 
-                try
+            while( true )
+            {
+                int  n = m_rx_ring.drainTo( m_rx_chunk, 0, m_rx_chunk.length );
+                if( n > 0 )
                 {
-                    synchronized( timeout_future )
+                    if( ! m_decoder.isStarted() )
+                        m_first_rx_nanos = System.nanoTime();
+
+                    //  Anything after the ETX is line noise, and is dropped.
+                    m_decoder.feed( m_rx_chunk, 0, n );
+                }
+
+                if( m_rx_errors != m_rx_errors_seen )
+                {
+                    m_rx_errors_seen = m_rx_errors;
+                    m_decoder.markError();
+                }
+
+                if( m_decoder.isAwaitingEtx() )
+                {
+                    //  Last payload byte is in ; its ETX is the very next character.
+                    if( ! etx_wait )
                     {
-                        timeout_future.wait();
+                        etx_wait = true;
+                        deadline = System.nanoTime() + wireNanos( 1 );
                     }
                 }
-                catch( InterruptedException ex )
+                else
+                if( m_decoder.isDone() )
+                    return true;
+                else
+                if( m_decoder.hasAddress() && m_decoder.getPayloadLength() != seen )
                 {
-                    // Oh dear, timeout before whole packet received.
+                    //  Progress, so slide the deadline.
+                    seen = m_decoder.getPayloadLength();
+                    deadline = Math.max( deadline, System.nanoTime() + gapNanos );
                 }
 
-                m_consecutive_missed_polls[ addr ] = 0;
-                return true;
+                if( deadline - System.nanoTime() <= 0 || ! m_rx_ring.awaitAvailable( deadline ) )
+                {
+                    if( ! m_decoder.isAwaitingEtx() )
+                        return false;
+
+                    m_decoder.markEtxMissing();
+                    return true;
+                }
             }
-            catch( IOException ex )
+        }
+
+        /***
+         *  Ready the decoder for a new response, discarding anything received so far.
+         */
+        private void _enableReceive()
+        {
+            m_rx_ring.clear();
+            m_decoder.reset();
+            m_rx_errors_seen = m_rx_errors;
+        }
+
+        /***
+         *  Hand a unit's input bytes to the model, still packed, LSB of first byte is input 0.
+         *  With an input filter, the model gets the filtered inputs and only when they change.
+         *
+         * @param addr unit's poll address.
+         * @param buf payload bytes from decoder.
+         * @param len count of payload bytes.
+         * @return {@code true} if inputs differ from unit's previous response.
+         */
+        private boolean _acceptInputs( int addr, byte[] buf, int len )
+        {
+            //  Same bytes as last time is the usual case: the model already has them.
+            boolean  changed = _rememberInputs( addr, buf, len );
+
+            InputDebounceFilter  filter = m_input_filter[ addr ];
+            if( filter != null && len > filter.getByteCount() )
             {
+                //  More inputs than the filter was made for: the model gets them raw, but say so.
+                m_cntr_unfiltered_inputs += 1;
+                if( ! m_unfiltered_warned[ addr ] )
+                {
+                    m_unfiltered_warned[ addr ] = true;
+                    LOG.log( Level.WARNING, "Unit #{0} answered {1} input bytes, more than its filter''s {2} ; inputs passed on unfiltered.",
+                                            new Object[] { addr, len, filter.getByteCount() } );
+                }
+                filter = null;
             }
-            finally
+
+            if( filter != null )
             {
-                m_in_mesg.setEnabled( false );
+                //  A settled filter fed the same sample can't change.
+                if( ! changed && filter.isSettled() )
+                    return false;
+                if( ! filter.sample( buf, len ) )
+                    return changed;
 
-                if( timeout_future != null && ! timeout_future.isDone() )
-                    timeout_future.cancel( true );
+                filter.getFilteredBytes( m_filtered_inputs, len );
+                buf = m_filtered_inputs;
             }
+            else
+            if( ! changed )
+                return false;
 
-            _missedPoll( addr );
-            return false;
+            //  Model sees it when the pass's batch is committed.
+            if( len > 0 )
+                m_scan_batch.put( addr, buf, 0, len );
+            return changed;
         }
 
-        @Override
-        public void onTimeout( Object anchor )
+        /***
+         *  XOR a unit's input bytes with its previous response, and keep them for next time.
+         * @return {@code true} if any bit changed, or no previous response.
+         */
+        private boolean _rememberInputs( int addr, byte[] buf, int len )
         {
-            m_rx_timeout = true;
+            byte[]  prev = m_last_inputs[ addr ];
+
+            if( prev == null || prev.length != len )
+            {
+                m_last_inputs[ addr ] = Arrays.copyOf( buf, len );
+                return true;
+            }
+
+            int  diff = 0;
+            for( int j = 0 ; j < len ; ++j )
+            {
+                diff |= prev[ j ] ^ buf[ j ];
+            }
+            if( diff == 0 )
+                return false;
+
+            System.arraycopy( buf, 0, prev, 0, len );
+            return true;
         }
 
         //----------------------  MESSAGES METHODS  ------------------------
 
         /***
-         *  Send out a CMRI message to some unit; framing, checksum generation and escaping are done here.
+         *  Send out a CMRI message to some unit; framing and escaping are done here,
+         *  into the encoder's buffer, then the frame goes out in one write.
+         *  Prefer {@link #sendCmriFrame(byte[]) } with a frame from {@link #m_frames}
+         *  for messages that are sent over and over.
          *
          * @param addr unit poll address
          * @param mesg bytes of message, at least 1 byte which holds the command byte.
@@ -663,37 +1361,48 @@ public class CmriPollMachine
         private int sendCmriMessage( int addr, byte[] mesg )
                 throws IOException, IllegalArgumentException
         {
+            m_encoder.encode( addr, mesg );
 
-            if( mesg == null || mesg.length < 1 )
-                throw new IllegalArgumentException( "CMRI message must be at least 1 byte: the command.");
-
-            m_outstr.write( CMRI_HEADER_BYTES );
-
-            //  UA is sent as an ASCII letter on wire.
-            m_outstr.write( (byte) (addr + CMRI_ADDR_OFFSET) );
+            return _transmit( m_encoder.getBuffer(), m_encoder.getLength() );
+        }
 
-            int     cntr_escapes = 0;
+        /***
+         *  Send out an already encoded CMRI frame with a single write.
+         *  Any pending input is drained first, so receiver is ready for the response.
+         *
+         * @param frame complete frame, from {@link CmriFrameCache} or {@link CmriFrameEncoder}.
+         * @return Number of bytes sent out.
+         * @throws IOException for general output issues.
+         */
+        private int sendCmriFrame( byte[] frame )
+                throws IOException
+        {
+            return _transmit( frame, frame.length );
+        }
 
-            //  Ecape any bytes as they are sent.  UA is not escaped.
-            for( byte b : mesg )
-            {
-                if( b == CMRI_CH_STX || b == CMRI_CH_ETX || b == CMRI_CH_ESCAPE )
-                {
-                    cntr_escapes++;
-                    m_outstr.write(CMRI_CH_ESCAPE );
-                }
-                m_outstr.write( b );
-            }
+        /***
+         *  Keep the inter-frame gap, drain pending input, then write a whole frame at once.
+         *  Notes transmit start in {@link #m_tx_start_nanos}.
+         */
+        private int _transmit( byte[] frame, int len )
+                throws IOException
+        {
+            m_line_timing.awaitGap();
 
-            //  Drain any input just before sending ETX.  This ensures we're ready to RX!
+            //  Drain any input just before sending.  This ensures we're ready to RX!
             drainReceivePort();
 
-            m_outstr.write( CMRI_TRAILER_BYTES );
+            long  start = System.nanoTime();
+            m_line_timing.transmitStarting( start );
+            m_tx_start_nanos = start;
+
+            m_outstr.write( frame, 0, len );
+            m_cntr_good_bytes_out += len;
 
-            int  count = CMRI_HEADER_BYTES.length + 1 + mesg.length + cntr_escapes + CMRI_TRAILER_BYTES.length;
-            m_cntr_good_bytes_out += count;
+            //  Line is busy until frame is out ; a response pushes idle time later.
+            m_line_timing.lineIdleAt( start + wireNanos( len ) );
 
-            return( count );
+            return( len );
         }
 
         private void receiveMessage( int bytesSent )
@@ -725,11 +1434,23 @@ public class CmriPollMachine
 
                 m_instr.read();
             }
-            m_in_mesg.clear();
+            _enableReceive();
         }
 
         //--------------------------  HELPER METHODS  -------------------------
 
+        /***
+         *  Pause between units of a pass.  With precise line timing the gap is kept as the
+         *  next frame goes out, so nothing is done here.
+         * @throws InterruptedException when time to exit thread.
+         */
+        private void _unitPause()
+                throws InterruptedException
+        {
+            if( ! m_line_timing.isPrecise() )
+                Thread.sleep( PROP_INTER_UNIT_SILENCE );
+        }
+
         /***
          *  Sleep a short time, in milliseconds, with quick return if interrupted which causes
          *  the worker thread to exit.
@@ -798,16 +1519,16 @@ public class CmriPollMachine
         protected OutputStream          m_outstr;
 
         /*** Offset added to unit address before sending on the wire. */
-        public final byte   CMRI_ADDR_OFFSET = (byte) 0x41;
+        public final byte   CMRI_ADDR_OFFSET = (byte) CmriFrameDecoder.CMRI_ADDR_OFFSET;
 
         /*** CMRI protocol escape byte. */
-        public final byte   CMRI_CH_ESCAPE   = (byte) 0x10;
+        public final byte   CMRI_CH_ESCAPE   = CmriFrameDecoder.CMRI_CH_ESCAPE;
         /*** CMRI protocol "start of packet" byte. */
-        public final byte   CMRI_CH_STX      = (byte) 0x02;
+        public final byte   CMRI_CH_STX      = CmriFrameDecoder.CMRI_CH_STX;
         /*** CMRI protocol "end of packet" byte. */
-        public final byte   CMRI_CH_ETX      = (byte) 0x03;
+        public final byte   CMRI_CH_ETX      = CmriFrameDecoder.CMRI_CH_ETX;
         /*** CMRI protocol "line in use" byte. */
-        public final byte   CMRI_CH_FRAME    = (byte) 0xff;
+        public final byte   CMRI_CH_FRAME    = CmriFrameDecoder.CMRI_CH_FRAME;
 
         /*** Indicates an RX error occurred and is now cleared. */
         public final byte   CH_ERROR_BYTE    = (byte) CMRI_CH_FRAME;
@@ -817,15 +1538,64 @@ public class CmriPollMachine
         /***  Suffix (trailer) for CMRI packets. */
         public final byte[] CMRI_TRAILER_BYTES = new byte[] { CMRI_CH_ETX /*, CMRI_CH_FRAME */ };
 
+        /***  Poll message used when model has no query message for a unit. */
+        public final byte[] CMRI_POLL_MESSAGE = new byte[] { CmriFrameDecoder.CMRI_TYPE_POLL };
+
+        /***  Where current in-message is un-framed ; only touched by the poll thread. */
+        private final CmriFrameDecoder  m_decoder;
+
         /***
-         *  Where current in-message is collected.  If disabled, then no message
-         *  is expected.
+         *  Received bytes, from the serial event thread (producer) to the poll thread (consumer).
          */
-        private final SynchronizedByteBuffer   m_in_mesg;
+        final SpscByteRingBuffer            m_rx_ring;
+
+        /***  Poll thread's scratch for draining {@link #m_rx_ring}. */
+        private final byte[]            m_rx_chunk;
+
+        /***  Serial event thread's scratch for reading the port, see {@link #receiveAvailable() }. */
+        private final byte[]            m_rx_event_buf;
+
+        /***  Encoder for one-off messages ; its buffer is reused for each. */
+        private final CmriFrameEncoder  m_encoder;
+
+        /***  Pre-encoded poll, query and INIT frames, by unit address. */
+        private final CmriFrameCache    m_frames;
+
+        /***  Count of receive errors, bumped by serial event thread. */
+        private volatile int            m_rx_errors;
+
+        /***  Value of {@link #m_rx_errors} when current frame started. */
+        private int                     m_rx_errors_seen;
+
+        /***  {@link System#nanoTime() } when bytes of the current response were first drained. */
+        private long                    m_first_rx_nanos;
+
+        /***  {@link System#nanoTime() } when last frame started going out. */
+        private long                    m_tx_start_nanos;
+
+        /***  {@link System#nanoTime() } when next fixed-period cycle starts, or 0 if not scheduled. */
+        private long                    m_next_cycle_nanos;
+
+        /***  Learned time for one revival attempt, in nanoseconds, or 0 if not yet guessed. */
+        private long                    m_revive_cost_nanos;
+
+        /***  Revivals in a row, with no failed attempt between. */
+        private int                     m_revive_streak;
+
+        /***  Bank looks to have come back ; revive everyone without the budget. */
+        private boolean                 m_revive_burst;
+
+        /***  Units already warned of answering more inputs than their filter holds. */
+        private final boolean[]         m_unfiltered_warned = new boolean[ CMRI_HIGHEST_POLL_ADDR + 1 ];
 
-        private final LayoutTimeoutManager    m_timeout_mgr;
+        /***  Each unit's input bytes from its last good response, for change detection. */
+        private final byte[][]          m_last_inputs = new byte[ CMRI_HIGHEST_POLL_ADDR + 1 ][];
 
-        private boolean                 m_rx_timeout;
+        /*** Filtered inputs on their way to the model. */
+        private final byte[]            m_filtered_inputs = new byte[ CmriFrameDecoder.MAX_PAYLOAD_SIZE ];
+
+        /*** Changed inputs of this scan cycle, for the model all at once at its end. */
+        final IntAddressScanBatch       m_scan_batch = m_model.beginScan();
 
     }
 
@@ -834,6 +1604,8 @@ public class CmriPollMachine
      *   Milliseconds of quiet time between unit poll-response.
      *   If we wait for a non-responding unit, that wait time is considered part of
      *   the inter-unit poll-response quiet time.
+     *   With {@link CmriLineTiming#MODE_PRECISE} line timing, only used as a rest when
+     *   there is nothing to poll.
      */
     public int          PROP_INTER_UNIT_SILENCE = 30;
 
@@ -855,34 +1627,103 @@ public class CmriPollMachine
     /**  Maximum logical polling address. */
     public final int    CMRI_HIGHEST_POLL_ADDR  = 255;
 
+    /**  Default wait for a unit's first response byte, in milliseconds, until its turnaround is known. */
+    public static final int     DEFAULT_RX_TURNAROUND_TIMEOUT = 100;
+
+    /**  Default shortest adaptive turnaround timeout, in milliseconds. */
+    public static final int     DEFAULT_RX_TURNAROUND_MIN = 5;
+
+    /**  Default longest adaptive turnaround timeout, in milliseconds. */
+    public static final int     DEFAULT_RX_TURNAROUND_MAX = 500;
+
+    /**  Recovery rate 1.0 backs off a non-responding unit this long, in milliseconds, at first. */
+    public static final int     RECOVERY_BASE_MILLIS = 50;
+
+    /**  Default line time for revivals each cycle, in character times. */
+    public static final int     DEFAULT_REVIVE_BUDGET_CHARS = 100;
+
+    /**  Default revivals in a row that mean the bank came back. */
+    public static final int     DEFAULT_REVIVE_BURST_THRESHOLD = 3;
+
+    /**  Bytes the receive ring holds, enough for several maximum-sized frames. */
+    static final int    RX_RING_SIZE = 4096;
+
+    /**  Bytes drained from the receive ring at a time. */
+    static final int    RX_CHUNK_SIZE = 256;
+
+    /**  Conversion from milliseconds to nanoseconds. */
+    static final long   NANOS_PER_MILLI = 1000L * 1000L;
+
     //---------------------------  INSTANCE VARS  -----------------------------
 
     /*** Statistics: count of bytes in messages that were not accepted. */
     public volatile long            m_cntr_bad_bytes_in;
 
-    /*** Statistics: count of bytes in messages that were accepted. */
+    /*** Statistics: count of payload bytes in response frames that were accepted. */
     public volatile long            m_cntr_good_bytes_in;
 
     /*** Statistics: count of bytes in messages sent out. */
     public volatile long            m_cntr_good_bytes_out;
 
+    /*** Statistics: count of frames that ended before their expected length. */
+    public volatile long            m_cntr_short_frames;
+
+    /*** Statistics: count of frames that ran past their expected length. */
+    public volatile long            m_cntr_long_frames;
+
+    /*** Statistics: count of responses too long for their unit's input filter, so given to the model unfiltered. */
+    public volatile long            m_cntr_unfiltered_inputs;
+
     /*** Model we feed sensor changes into. */
     protected final CmriLayoutModelImpl   m_model;
 
     /***  Is polling desired?  Read by worker {@link #m_worker}. */
     private boolean             m_polling;
 
-    /***  Fractional addition until reaching 1.0, then a revival will occur. */
+    /***  Recovery rate, sets first back-off of a non-responding unit. */
     protected volatile float    m_recovery_rate;
 
+    /*** When each non-responding unit is next worth a revival attempt. */
+    protected final CmriReviveBackoff           m_revive_backoff;
+
+    /*** Line time for revivals each cycle, in character times. */
+    protected volatile int                      m_revive_budget_chars;
+
+    /*** Revivals in a row that start a burst of revivals. */
+    protected volatile int                      m_revive_burst_threshold;
+
     /*** Time to wait for a first char of response before giving up, in milliseconds. */
     protected int               m_response_wait;
 
+    /*** Per-unit turnaround tracking, gives each unit its own response timeout. */
+    protected final CmriResponseTimeEstimator   m_rtt;
+
+    /*** Policy for which active units get polled each pass. */
+    protected volatile CmriPollSchedule         m_schedule;
+
+    /*** Inter-frame gap keeping and statistics. */
+    protected final CmriLineTiming              m_line_timing;
+
+    /*** Fixed scan period in nanoseconds, or 0 when free running. */
+    protected volatile long                     m_scan_period_nanos;
+
+    /*** Statistics of fixed-period scan cycles. */
+    protected final CmriScanStatistics          m_scan_stats;
+
+    /***
+     *  Each unit's answer length, by poll address.  Descriptors are immutable, so the poll
+     *  thread reads the array without locking.
+     */
+    protected final CmriResponseDescriptor[]    m_response_desc;
+
+    /*** Each unit's input debounce filter, or {@code null} ; used only by the poll thread. */
+    protected final InputDebounceFilter[]       m_input_filter;
+
     /*** Synchronized queue of units actively responding. */
-    protected Queue<Integer>    m_active_queue;
+    protected final CmriUnitQueue   m_active_queue;
 
     /*** Synchronized queue of known units that are NOT responding. */
-    protected Queue<Integer>    m_revive_queue;
+    protected final CmriUnitQueue   m_revive_queue;
 
     /***
      *  Counter of missed polls for some unit poll address, reset to zero when
@@ -0,0 +1,53 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+/***
+ *  Policy deciding which active units {@link CmriPollMachine} polls on each pass over its
+ *  active list.  Units that are skipped stay on the active list for the next pass.
+ *
+ * <p> All methods are called from the poll thread only, so implementations need not be MT-safe.
+ *  Unit addresses are 0 to 255.
+ *
+ * @author brian
+ */
+public interface CmriPollSchedule
+{
+    /***
+     *  Should this unit be polled on the current pass?
+     *
+     * @param addr unit poll address.
+     * @param nowNanos {@link System#nanoTime() } at the time of asking.
+     * @return {@code true} to poll now, {@code false} to skip it this pass.
+     */
+    public boolean  shouldPoll( int addr, long nowNanos );
+
+    /***
+     *  Report a unit answered its poll.
+     *
+     * @param addr unit poll address.
+     * @param changed {@code true} if its inputs differ from the previous response.
+     * @param nowNanos {@link System#nanoTime() } of the response.
+     */
+    public void     polled( int addr, boolean changed, long nowNanos );
+
+    /***
+     *  Forget history of a unit, e.g. when it is revived.
+     * @param addr unit poll address.
+     */
+    public void     reset( int addr );
+
+}
@@ -0,0 +1,222 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.embeddedrailroad.eri.xml.AbstractInputOutputGroup;
+import org.embeddedrailroad.eri.xml.UnitBean;
+
+
+/***
+ *  What a unit's answer to a poll looks like: its node type and how many input bytes
+ *  it returns.  With a known length the receiver finishes a frame as soon as the last
+ *  input byte arrives, and a frame that ends early or runs long is an error at once
+ *  instead of a timeout.
+ *
+ * <p> Built from the layout XML's {@code unit} element: a SMINI always returns exactly 3 bytes
+ *  (24 inputs).  USIC, SUSIC and cpNode return every input card they have, which the XML
+ *  needn't list all of ; their length is the least to expect: up to the highest
+ *  {@code inputGroup last} bit, rounded up to a whole 24-bit USIC card, 32-bit SUSIC card,
+ *  or byte for a cpNode.  Such frames still end on ETX, see {@link #isLengthExact() }.
+ *  Input groups are numbered from bit 0 of the first byte.
+ *  Anything else has unknown length, and only the ETX ends its frame.
+ *
+ * <p> Objects are immutable.
+ *
+ * @author brian
+ */
+public final class CmriResponseDescriptor
+{
+    /***
+     *  Describe a unit directly.
+     * @param nodeType NDP byte, e.g. {@link CmriNodeType#NDP_SMINI}, or 0 if unknown.
+     * @param inputBytes count of input bytes in unit's answer, or -1 if unknown.
+     */
+    public CmriResponseDescriptor( byte nodeType, int inputBytes )
+    {
+        this( nodeType, inputBytes, true );
+    }
+
+    /***
+     *  Describe a unit directly, whose answer may be longer than known.
+     * @param nodeType NDP byte, e.g. {@link CmriNodeType#NDP_SMINI}, or 0 if unknown.
+     * @param inputBytes count of input bytes in unit's answer, or -1 if unknown.
+     * @param exact {@code true} if answer is always {@code inputBytes} long, {@code false} if at least.
+     */
+    public CmriResponseDescriptor( byte nodeType, int inputBytes, boolean exact )
+    {
+        if( inputBytes > CmriFrameDecoder.MAX_PAYLOAD_SIZE )
+            throw new IllegalArgumentException( "inputBytes " + inputBytes + " too many" );
+
+        m_node_type = nodeType;
+        m_input_bytes = Math.max( -1, inputBytes );
+        m_exact = exact;
+    }
+
+    /***
+     *  Describe a unit from its layout XML element.
+     *
+     * @param unit unit bean, with {@code type} attribute and {@code inputGroup} children.
+     * @return descriptor, never {@code null} ; length is unknown when it can't be worked out.
+     */
+    public static CmriResponseDescriptor  fromUnitBean( UnitBean unit )
+    {
+        byte  ndp = nodeTypeOf( unit.getType() );
+
+        if( ndp == CmriNodeType.NDP_SMINI )
+            return new CmriResponseDescriptor( ndp, SMINI_INPUT_BYTES );
+
+        if( ndp == 0 )
+            return new CmriResponseDescriptor( ndp, -1 );
+
+        //  Highest input bit of any input group.
+        int  highest = -1;
+        Iterator<AbstractInputOutputGroup>  it = unit.getInputOutputGroups();
+        while( it.hasNext() )
+        {
+            AbstractInputOutputGroup  grp = it.next();
+            if( ! grp.isInput() )
+                continue;
+
+            try
+            {
+                int  first = Integer.parseInt( grp.getFirst().trim() );
+                int  last = Integer.parseInt( grp.getLast().trim() );
+                if( first < 0 || last < first )
+                    throw new NumberFormatException( "range " + first + ".." + last );
+                highest = Math.max( highest, last );
+            }
+            catch( NumberFormatException | NullPointerException ex )
+            {
+                LOG.log( Level.WARNING, "Unit {0} has an inputGroup that isn''t a bit range, response length unknown.",
+                                        unit.getAddress() );
+                return new CmriResponseDescriptor( ndp, -1 );
+            }
+        }
+
+        if( highest < 0 )
+            return new CmriResponseDescriptor( ndp, -1 );
+
+        //  Whole cards, and maybe more cards than the XML mentions.
+        int  card = cardBytesOf( ndp );
+        int  bytes = (highest / 8 + card) / card * card;
+        return new CmriResponseDescriptor( ndp, Math.min( bytes, CmriFrameDecoder.MAX_PAYLOAD_SIZE ), false );
+    }
+
+    /***
+     *  Input bytes on one of a node type's input cards.
+     * @param ndp NDP byte.
+     * @return 3 for a USIC's 24-bit cards, 4 for a SUSIC's 32-bit cards, else 1.
+     */
+    public static int   cardBytesOf( byte ndp )
+    {
+        if( ndp == CmriNodeType.NDP_USIC )
+            return USIC_CARD_BYTES;
+        if( ndp == CmriNodeType.NDP_SUSIC )
+            return SUSIC_CARD_BYTES;
+        return 1;
+    }
+
+    /***
+     *  Node type from a unit's {@code type} attribute, ignoring case.
+     *  cpNode variants, e.g. {@code "cpNode-IOX32"}, are all cpNodes.
+     *
+     * @param type attribute value, may be {@code null}.
+     * @return NDP byte, or 0 if not a known CMRI node.
+     */
+    public static byte  nodeTypeOf( String type )
+    {
+        if( type == null )
+            return 0;
+
+        String  t = type.trim().toUpperCase();
+        if( t.equals( "SMINI" ) )
+            return CmriNodeType.NDP_SMINI;
+        if( t.equals( "SUSIC" ) )
+            return CmriNodeType.NDP_SUSIC;
+        if( t.equals( "USIC" ) )
+            return CmriNodeType.NDP_USIC;
+        if( t.startsWith( "CPNODE" ) )
+            return CmriNodeType.NDP_CPNODE;
+
+        return 0;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return NDP byte, or 0 if unknown. */
+    public byte     getNodeType()
+    {
+        return m_node_type;
+    }
+
+    /*** @return count of input bytes in unit's answer, or -1 if unknown. */
+    public int      getInputBytes()
+    {
+        return m_input_bytes;
+    }
+
+    /***
+     *  Is the answer always {@link #getInputBytes() } long, or might a unit with more cards
+     *  than described send more?  Only an exact length ends a frame before its ETX.
+     * @return {@code true} if exact, {@code false} if the least to expect.
+     */
+    public boolean  isLengthExact()
+    {
+        return m_exact;
+    }
+
+    /*** @return {@code true} if answer's length is known. */
+    public boolean  isLengthKnown()
+    {
+        return m_input_bytes >= 0;
+    }
+
+    @Override
+    public String   toString()
+    {
+        return "CmriResponseDescriptor:[ndp=" + ( m_node_type == 0 ? "?" : String.valueOf( (char) m_node_type ) ) +
+               ",inputBytes=" + ( m_exact ? "" : ">=" ) + m_input_bytes + "]";
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** A SMINI always answers with its 24 inputs. */
+    public static final int     SMINI_INPUT_BYTES = 3;
+
+    /*** A USIC input card has 24 inputs. */
+    public static final int     USIC_CARD_BYTES = 3;
+
+    /*** A SUSIC input card has 32 inputs. */
+    public static final int     SUSIC_CARD_BYTES = 4;
+
+    /*** Unknown node, unknown length ; only the ETX ends its frame. */
+    public static final CmriResponseDescriptor  UNKNOWN = new CmriResponseDescriptor( (byte) 0, -1 );
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final byte          m_node_type;
+
+    private final int           m_input_bytes;
+
+    private final boolean       m_exact;
+
+    transient private static final Logger LOG = Logger.getLogger( CmriResponseDescriptor.class.getName() );
+
+}
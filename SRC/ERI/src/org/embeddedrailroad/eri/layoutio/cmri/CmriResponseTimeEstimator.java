@@ -0,0 +1,236 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.Arrays;
+
+
+/***
+ *  Tracks each unit's turnaround time, from end of our query on the wire to the unit's first
+ *  response byte, and derives a per-unit response timeout from it.
+ *  Same idea as TCP's retransmit timeout (RFC 6298): a smoothed mean and a smoothed mean
+ *  deviation, with timeout = mean + 4 * deviation, clamped to a floor and ceiling.
+ *
+ * <p> A unit without samples, e.g. just revived, gets the fallback timeout until its
+ *  first good response.  Each timeout doubles the unit's timeout, up to the ceiling,
+ *  until the next good response.
+ *
+ * <p> All times are in microseconds.  Samples and timeouts are per unit address 0 to 255.
+ *
+ * <p> <strong>Per-unit state is not MT-safe.</strong>  It is owned by the poll thread ;
+ *  the floor, ceiling and fallback can be set from any thread.
+ *
+ * @author brian
+ */
+public class CmriResponseTimeEstimator
+{
+    /***
+     *  Create estimator with no samples for any unit.
+     *
+     * @param fallbackMicros timeout for units without samples.
+     * @param floorMicros smallest timeout ever given.
+     * @param ceilingMicros largest timeout ever given.
+     */
+    public CmriResponseTimeEstimator( int fallbackMicros, int floorMicros, int ceilingMicros )
+    {
+        m_srtt   = new int[ ADDRESS_COUNT ];
+        m_rttvar = new int[ ADDRESS_COUNT ];
+        m_backoff = new byte[ ADDRESS_COUNT ];
+
+        setLimits( floorMicros, ceilingMicros );
+        setFallback( fallbackMicros );
+        resetAll();
+    }
+
+    //---------------------------  SAMPLES  ---------------------------
+
+    /***
+     *  Record a unit's measured turnaround from a good response.
+     *
+     * @param addr unit poll address.
+     * @param micros turnaround time, negative values are taken as zero.
+     */
+    public void     addSample( int addr, int micros )
+    {
+        int  r = Math.max( 0, micros );
+
+        if( m_srtt[ addr ] < 0 )
+        {
+            m_srtt[ addr ] = r;
+            m_rttvar[ addr ] = r / 2;
+        }
+        else
+        {
+            //  rttvar = 3/4 rttvar + 1/4 |srtt - r| ; srtt = 7/8 srtt + 1/8 r
+            int  err = Math.abs( m_srtt[ addr ] - r );
+            m_rttvar[ addr ] += (err - m_rttvar[ addr ]) >> 2;
+            m_srtt[ addr ]   += (r - m_srtt[ addr ]) >> 3;
+        }
+
+        m_backoff[ addr ] = 0;
+    }
+
+    /***
+     *  A unit missed its deadline ; give it longer next time.
+     * @param addr unit poll address.
+     */
+    public void     timedOut( int addr )
+    {
+        if( m_backoff[ addr ] < MAX_BACKOFF )
+            m_backoff[ addr ] += 1;
+    }
+
+    /***
+     *  Forget what is known about a unit, e.g. when it is revived.
+     * @param addr unit poll address.
+     */
+    public void     reset( int addr )
+    {
+        m_srtt[ addr ] = -1;
+        m_rttvar[ addr ] = 0;
+        m_backoff[ addr ] = 0;
+    }
+
+    /***
+     *  Forget all units.
+     */
+    public void     resetAll()
+    {
+        Arrays.fill( m_srtt, -1 );
+        Arrays.fill( m_rttvar, 0 );
+        Arrays.fill( m_backoff, (byte) 0 );
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /***
+     *  Time to wait for a unit's first response byte, once our query has left the wire.
+     *
+     * @param addr unit poll address.
+     * @return microseconds, between floor and ceiling.
+     */
+    public int      getTimeoutMicros( int addr )
+    {
+        long  rto;
+
+        if( m_srtt[ addr ] < 0 )
+            rto = m_fallback;
+        else
+            rto = m_srtt[ addr ] + Math.max( MIN_VARIANCE_MICROS, 4L * m_rttvar[ addr ] );
+
+        rto <<= m_backoff[ addr ];
+
+        return (int) Math.max( m_floor, Math.min( m_ceiling, rto ) );
+    }
+
+    /***
+     *  Has this unit had a good response since it was last reset?
+     * @param addr unit poll address.
+     * @return {@code true} if timeout is from samples, {@code false} if from fallback.
+     */
+    public boolean  hasSamples( int addr )
+    {
+        return m_srtt[ addr ] >= 0;
+    }
+
+    /***
+     *  Smoothed turnaround of a unit.
+     * @param addr unit poll address.
+     * @return microseconds, or -1 if no samples.
+     */
+    public int      getSmoothedMicros( int addr )
+    {
+        return m_srtt[ addr ];
+    }
+
+    /***
+     *  Set limits on every timeout handed out.
+     *
+     * @param floorMicros smallest timeout, must be positive.
+     * @param ceilingMicros largest timeout, not below {@code floorMicros}.
+     * @throws IllegalArgumentException when out of order or not positive.
+     */
+    public final void   setLimits( int floorMicros, int ceilingMicros )
+    {
+        if( floorMicros <= 0 || ceilingMicros < floorMicros )
+            throw new IllegalArgumentException( "need 0 < floor <= ceiling" );
+
+        m_floor = floorMicros;
+        m_ceiling = ceilingMicros;
+    }
+
+    /***
+     *  Set timeout for units without samples.  It is still clamped by floor and ceiling.
+     * @param fallbackMicros timeout, must be positive.
+     */
+    public final void   setFallback( int fallbackMicros )
+    {
+        if( fallbackMicros <= 0 )
+            throw new IllegalArgumentException( "fallback must be positive" );
+
+        m_fallback = fallbackMicros;
+    }
+
+    /*** @return smallest timeout, in microseconds. */
+    public int      getFloorMicros()
+    {
+        return m_floor;
+    }
+
+    /*** @return largest timeout, in microseconds. */
+    public int      getCeilingMicros()
+    {
+        return m_ceiling;
+    }
+
+    /*** @return timeout for units without samples, in microseconds. */
+    public int      getFallbackMicros()
+    {
+        return m_fallback;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Count of unit addresses tracked. */
+    public static final int     ADDRESS_COUNT = 256;
+
+    /***
+     *  Least slack added to the smoothed turnaround, so a very steady unit isn't
+     *  timed out by a little OS scheduling jitter.
+     */
+    public static final int     MIN_VARIANCE_MICROS = 2000;
+
+    /*** Most doublings for consecutive timeouts ; ceiling usually stops it sooner. */
+    private static final int    MAX_BACKOFF = 6;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    /*** Smoothed turnaround, or -1 if no samples. */
+    private final int[]         m_srtt;
+
+    /*** Smoothed mean deviation of turnaround. */
+    private final int[]         m_rttvar;
+
+    /*** Doublings from consecutive timeouts. */
+    private final byte[]        m_backoff;
+
+    private volatile int        m_floor;
+
+    private volatile int        m_ceiling;
+
+    private volatile int        m_fallback;
+
+}
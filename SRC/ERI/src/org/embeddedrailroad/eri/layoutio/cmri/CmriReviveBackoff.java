@@ -0,0 +1,219 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.Arrays;
+
+
+/***
+ *  Decides when each non-responding unit is next worth trying to revive.
+ *  A unit that just went silent is tried at once ; every failed attempt doubles its wait,
+ *  from a base up to a ceiling, so a unit that is powered off or gone for good costs
+ *  less and less line time.  Each wait is jittered, half fixed and half random, so units
+ *  that went silent together don't all come due in the same cycle.
+ *
+ * <p> {@link #expediteAll(long) } makes every backed-off unit due at once, for when the
+ *  bank looks to have come back, e.g. after a power loss.
+ *
+ * <p> Times are {@link System#nanoTime() } values.  Units are poll addresses 0 to 255.
+ *  Object is MT-safe.
+ *
+ * @author brian
+ */
+public class CmriReviveBackoff
+{
+    /***
+     *  Create with every unit due at once.
+     *
+     * @param baseMillis wait after first failed attempt, in milliseconds, at least 1.
+     * @param maxMillis longest wait between attempts, in milliseconds, at least {@code baseMillis}.
+     * @throws IllegalArgumentException if limits are out of order.
+     */
+    public CmriReviveBackoff( int baseMillis, int maxMillis )
+    {
+        m_attempts = new int[ ADDRESS_COUNT ];
+        m_due = new long[ ADDRESS_COUNT ];
+        m_seed = System.nanoTime() | 1L;
+
+        setLimits( baseMillis, maxMillis );
+    }
+
+    /***
+     *  Is it time to try reviving a unit?
+     * @param addr unit poll address.
+     * @param nowNanos current {@link System#nanoTime() }.
+     * @return {@code true} if unit has never failed or its wait is over.
+     */
+    public synchronized boolean isDue( int addr, long nowNanos )
+    {
+        return m_attempts[ addr ] == 0 || nowNanos - m_due[ addr ] >= 0;
+    }
+
+    /***
+     *  An attempt to revive a unit got no answer ; back it off further.
+     * @param addr unit poll address.
+     * @param nowNanos when attempt finished, {@link System#nanoTime() }.
+     * @return wait until unit is due again, in nanoseconds.
+     */
+    public synchronized long failed( int addr, long nowNanos )
+    {
+        int  n = m_attempts[ addr ];
+        if( n < Integer.MAX_VALUE )
+            m_attempts[ addr ] = n + 1;
+
+        //  base * 2^n, capped ; then keep half and randomize the other half.
+        long  wait = m_base_nanos << Math.min( n, MAX_DOUBLINGS );
+        if( wait > m_max_nanos )
+            wait = m_max_nanos;
+
+        long  half = wait >>> 1;
+        wait = half + (long) (_nextRandom() * (wait - half + 1));
+
+        m_due[ addr ] = nowNanos + wait;
+        return wait;
+    }
+
+    /***
+     *  Unit answered, or is new to the revive list ; forget its back-off.
+     * @param addr unit poll address.
+     */
+    public synchronized void reset( int addr )
+    {
+        m_attempts[ addr ] = 0;
+        m_due[ addr ] = 0L;
+    }
+
+    /***
+     *  Make every backed-off unit due now, keeping a short back-off for one more miss.
+     * @param nowNanos current {@link System#nanoTime() }.
+     */
+    public synchronized void expediteAll( long nowNanos )
+    {
+        for( int addr = 0 ; addr < ADDRESS_COUNT ; ++addr )
+        {
+            if( m_attempts[ addr ] > 0 )
+            {
+                m_attempts[ addr ] = 1;
+                m_due[ addr ] = nowNanos;
+            }
+        }
+    }
+
+    /***
+     *  Forget all units' back-off.
+     */
+    public synchronized void resetAll()
+    {
+        Arrays.fill( m_attempts, 0 );
+        Arrays.fill( m_due, 0L );
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /***
+     *  Count of failed attempts since unit last answered.
+     * @param addr unit poll address.
+     * @return count, 0 if unit is not backed off.
+     */
+    public synchronized int getAttempts( int addr )
+    {
+        return m_attempts[ addr ];
+    }
+
+    /***
+     *  When a backed-off unit is next due.
+     * @param addr unit poll address.
+     * @return {@link System#nanoTime() } value, meaningless unless {@link #getAttempts(int) } is above 0.
+     */
+    public synchronized long getDueNanos( int addr )
+    {
+        return m_due[ addr ];
+    }
+
+    /***
+     *  Set wait after first failure and longest wait.  Units already backed off keep their due times.
+     *
+     * @param baseMillis wait after first failed attempt, in milliseconds, at least 1.
+     * @param maxMillis longest wait between attempts, in milliseconds, at least {@code baseMillis}.
+     * @throws IllegalArgumentException if limits are out of order.
+     */
+    public final synchronized void setLimits( int baseMillis, int maxMillis )
+    {
+        if( baseMillis < 1 || maxMillis < baseMillis )
+            throw new IllegalArgumentException( "need 1 <= base <= max back-off" );
+
+        m_base_nanos = baseMillis * NANOS_PER_MILLI;
+        m_max_nanos = maxMillis * NANOS_PER_MILLI;
+    }
+
+    /*** @return wait after first failure, in milliseconds. */
+    public synchronized int getBaseMillis()
+    {
+        return (int) (m_base_nanos / NANOS_PER_MILLI);
+    }
+
+    /*** @return longest wait between attempts, in milliseconds. */
+    public synchronized int getMaxMillis()
+    {
+        return (int) (m_max_nanos / NANOS_PER_MILLI);
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    /***
+     *  Xorshift generator, so jitter needs no {@link java.util.Random} and no allocation.
+     * @return value in [0.0 .. 1.0).
+     */
+    private double _nextRandom()
+    {
+        long  x = m_seed;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        m_seed = x;
+        return (x >>> 11) * 0x1.0p-53;
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    public static final int     ADDRESS_COUNT = 256;
+
+    /*** Default wait after first failed attempt, in milliseconds. */
+    public static final int     DEFAULT_BASE_MILLIS = 100;
+
+    /*** Default longest wait between attempts, in milliseconds. */
+    public static final int     DEFAULT_MAX_MILLIS = 10 * 1000;
+
+    /*** Doublings beyond this can only hit the ceiling, and would overflow a {@code long}. */
+    private static final int    MAX_DOUBLINGS = 30;
+
+    private static final long   NANOS_PER_MILLI = 1000L * 1000L;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    /*** Failed attempts since last answer, per unit. */
+    private final int[]         m_attempts;
+
+    /*** {@link System#nanoTime() } when unit is due again, per unit. */
+    private final long[]        m_due;
+
+    private long                m_base_nanos;
+
+    private long                m_max_nanos;
+
+    private long                m_seed;
+
+}
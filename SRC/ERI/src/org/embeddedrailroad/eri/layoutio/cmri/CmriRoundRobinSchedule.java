@@ -0,0 +1,42 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific language governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+/***
+ *  Poll every active unit on every pass, in turn.  This is the classic CMRI behavior.
+ *
+ * @author brian
+ */
+public class CmriRoundRobinSchedule
+        implements CmriPollSchedule
+{
+    @Override
+    public boolean  shouldPoll( int addr, long nowNanos )
+    {
+        return true;
+    }
+
+    @Override
+    public void     polled( int addr, boolean changed, long nowNanos )
+    {
+    }
+
+    @Override
+    public void     reset( int addr )
+    {
+    }
+
+}
@@ -0,0 +1,181 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+
+/***
+ *  Statistics of fixed-period scan cycles: how long each cycle's polling took, how late
+ *  each cycle started versus its scheduled time (jitter), and how many cycles overran
+ *  their period.
+ *
+ * <p> Written only by the poll thread, can be read from any thread.
+ *
+ * @author brian
+ */
+public class CmriScanStatistics
+{
+    public CmriScanStatistics()
+    {
+        reset();
+    }
+
+    //---------------------------  RECORDING  ----------------------------
+
+    /***
+     *  A cycle is starting.
+     * @param scheduledNanos {@link System#nanoTime() } it should have started.
+     * @param actualNanos {@link System#nanoTime() } it did start.
+     */
+    public void     cycleStarted( long scheduledNanos, long actualNanos )
+    {
+        long  jitter = Math.abs( actualNanos - scheduledNanos );
+
+        m_jitter_total += jitter;
+        if( jitter > m_jitter_max )
+            m_jitter_max = jitter;
+    }
+
+    /***
+     *  A cycle's polling is done.
+     * @param durationNanos time spent polling.
+     * @param overrun {@code true} if it ran past its period.
+     */
+    public void     cycleFinished( long durationNanos, boolean overrun )
+    {
+        m_cycles += 1;
+        m_last_duration = durationNanos;
+        m_duration_total += durationNanos;
+        if( durationNanos < m_duration_min )
+            m_duration_min = durationNanos;
+        if( durationNanos > m_duration_max )
+            m_duration_max = durationNanos;
+        if( overrun )
+            m_overruns += 1;
+    }
+
+    /***
+     *  A revival was tried in a cycle's slack time.
+     */
+    public void     slackRevival()
+    {
+        m_slack_revivals += 1;
+    }
+
+    /***
+     *  Clear all statistics.
+     */
+    public final void   reset()
+    {
+        m_cycles = 0;
+        m_overruns = 0;
+        m_slack_revivals = 0;
+        m_last_duration = 0;
+        m_duration_total = 0;
+        m_duration_min = Long.MAX_VALUE;
+        m_duration_max = 0;
+        m_jitter_total = 0;
+        m_jitter_max = 0;
+    }
+
+    //-----------------------------  Bean Things  -----------------------------
+
+    /*** @return count of cycles finished. */
+    public long     getCycleCount()
+    {
+        return m_cycles;
+    }
+
+    /*** @return count of cycles whose polling ran past the period. */
+    public long     getOverrunCount()
+    {
+        return m_overruns;
+    }
+
+    /*** @return count of revivals tried in slack time. */
+    public long     getSlackRevivalCount()
+    {
+        return m_slack_revivals;
+    }
+
+    /*** @return polling time of most recent cycle, in nanoseconds. */
+    public long     getLastDurationNanos()
+    {
+        return m_last_duration;
+    }
+
+    /*** @return shortest cycle polling time in nanoseconds, or zero if none. */
+    public long     getMinDurationNanos()
+    {
+        return m_cycles == 0 ? 0 : m_duration_min;
+    }
+
+    /*** @return longest cycle polling time in nanoseconds. */
+    public long     getMaxDurationNanos()
+    {
+        return m_duration_max;
+    }
+
+    /*** @return mean cycle polling time in nanoseconds, or zero if none. */
+    public long     getMeanDurationNanos()
+    {
+        long  n = m_cycles;
+        return n == 0 ? 0 : m_duration_total / n;
+    }
+
+    /*** @return most a cycle started away from its scheduled time, in nanoseconds. */
+    public long     getMaxJitterNanos()
+    {
+        return m_jitter_max;
+    }
+
+    /*** @return mean of how far cycles started from their scheduled times, in nanoseconds. */
+    public long     getMeanJitterNanos()
+    {
+        long  n = m_cycles;
+        return n == 0 ? 0 : m_jitter_total / n;
+    }
+
+    @Override
+    public String   toString()
+    {
+        return String.format( "cycles=%d overruns=%d duration(us) min=%d mean=%d max=%d jitter(us) mean=%d max=%d slackRevivals=%d",
+                              getCycleCount(), getOverrunCount(),
+                              getMinDurationNanos() / 1000, getMeanDurationNanos() / 1000, getMaxDurationNanos() / 1000,
+                              getMeanJitterNanos() / 1000, getMaxJitterNanos() / 1000,
+                              getSlackRevivalCount() );
+    }
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private volatile long       m_cycles;
+
+    private volatile long       m_overruns;
+
+    private volatile long       m_slack_revivals;
+
+    private volatile long       m_last_duration;
+
+    private volatile long       m_duration_total;
+
+    private volatile long       m_duration_min;
+
+    private volatile long       m_duration_max;
+
+    private volatile long       m_jitter_total;
+
+    private volatile long       m_jitter_max;
+
+}
@@ -24,9 +24,13 @@ import java.util.logging.Level;
 import com.crunchynoodles.util.StringUtils;
 import com.crunchynoodles.util.XmlPropertyBean;
 import org.embeddedrailroad.eri.layoutio.AbstractLayoutIoTransport;
+import org.embeddedrailroad.eri.layoutio.InputDebounceFilter;
 import org.embeddedrailroad.eri.layoutio.LayoutIoController;
 import org.embeddedrailroad.eri.layoutio.LayoutIoModel;
 import org.embeddedrailroad.eri.layoutio.LayoutIoProtocolProvider;
+import org.embeddedrailroad.eri.xml.AbstractInputOutputGroup;
+import org.embeddedrailroad.eri.xml.InputGroupBean;
+import org.embeddedrailroad.eri.xml.UnitBean;
 
 
 /***
@@ -51,7 +55,7 @@ public class CmriSerialLayoutTransport extends AbstractLayoutIoTransport
      *  Create a transport that can attach to a physical port , that becomes the channel.
      *
      * @param owner Our protocol provider.
-     * @param model shared model among all CMRI transports.
+     * @param model this bank's own model.
      */
     /* package */ CmriSerialLayoutTransport( LayoutIoProtocolProvider owner, CmriLayoutModelImpl model )
     {
@@ -62,6 +66,12 @@ public class CmriSerialLayoutTransport extends AbstractLayoutIoTransport
     @Override
     public String getProtocolName() { return m_owner.getProtocolName(); }
 
+    /***
+     *  Model this channel's poll thread writes into ; no other channel shares it.
+     * @return bank's model.
+     */
+    public CmriLayoutModelImpl  getLayoutModel() { return m_model; }
+
     //------------------------  POLLING MANAGEMENT  ---------------------------
 
     @Override
@@ -201,9 +211,112 @@ public class CmriSerialLayoutTransport extends AbstractLayoutIoTransport
             this.m_poller.setRecoveryRate( rate );
         }
 
+        //  Revival: line time per cycle, and longest back-off of a unit that doesn't answer.
+        int  budget = _getIntProperty( PROP_REVIVE_BUDGET, CmriPollMachine.DEFAULT_REVIVE_BUDGET_CHARS );
+        int  backoff = _getIntProperty( PROP_REVIVE_BACKOFF_MAX, CmriReviveBackoff.DEFAULT_MAX_MILLIS );
+
+        try
+        {
+            this.m_poller.setReviveBudget( budget );
+            CmriReviveBackoff  rb = this.m_poller.getReviveBackoff();
+            rb.setLimits( Math.min( rb.getBaseMillis(), backoff ), backoff );
+        }
+        catch( IllegalArgumentException ex )
+        {
+            LOG.log( Level.WARNING, "Bad revive properties, using defaults.", ex );
+        }
+
+        //  Response timeouts: fallback for units not yet heard from, and limits on the
+        //  adaptive per-unit timeout.
+        int  timeout = _getIntProperty( PROP_TIMEOUT, CmriPollMachine.DEFAULT_RX_TURNAROUND_TIMEOUT );
+        int  tmin = _getIntProperty( PROP_TIMEOUT_MIN, CmriPollMachine.DEFAULT_RX_TURNAROUND_MIN );
+        int  tmax = _getIntProperty( PROP_TIMEOUT_MAX, Math.max( timeout, CmriPollMachine.DEFAULT_RX_TURNAROUND_MAX ) );
+
+        try
+        {
+            this.m_poller.setRxTurnaroundTimeoutLimits( tmin, tmax );
+            this.m_poller.setRxTurnaroundTimeout( timeout );
+        }
+        catch( IllegalArgumentException ex )
+        {
+            LOG.log( Level.WARNING, "Bad timeout properties, using defaults.", ex );
+        }
+
+        //  Line timing: classic sleeps between units, or gaps from baud rate.
+        XmlPropertyBean  timingBean = this.getProperty( PROP_LINE_TIMING );
+        if( timingBean != null )
+        {
+            String  timing = String.valueOf( timingBean.getValue() ).trim();
+            CmriLineTiming  lt = this.m_poller.getLineTiming();
+            if( LINE_TIMING_PRECISE.equalsIgnoreCase( timing ) )
+            {
+                lt.setMode( CmriLineTiming.MODE_PRECISE );
+            }
+            else
+            if( ! LINE_TIMING_SLEEP.equalsIgnoreCase( timing ) )
+            {
+                LOG.log( Level.WARNING, "Unknown line timing \"{0}\", using sleep.", timing );
+            }
+
+            int  gap = _getIntProperty( PROP_GAP_CHARS, CmriLineTiming.DEFAULT_GAP_CHARS );
+            if( gap >= 0 )
+                lt.setGapChars( gap );
+        }
+
+        //  Fixed-period scanning, when a period is given.
+        int  period = _getIntProperty( PROP_SCAN_PERIOD, 0 );
+        if( period > 0 )
+            this.m_poller.setScanPeriod( period );
+
+        //  Poll schedule: every unit every pass, or busy units more often.
+        XmlPropertyBean  scheduleBean = this.getProperty( PROP_SCHEDULE );
+        if( scheduleBean != null )
+        {
+            String  sched = String.valueOf( scheduleBean.getValue() ).trim();
+            if( SCHEDULE_WEIGHTED.equalsIgnoreCase( sched ) )
+            {
+                int  stale = _getIntProperty( PROP_MAX_STALENESS, DEFAULT_MAX_STALENESS );
+                try
+                {
+                    this.m_poller.setPollSchedule( new CmriChangeWeightedSchedule( stale ) );
+                }
+                catch( IllegalArgumentException ex )
+                {
+                    LOG.log( Level.WARNING, "Bad maxStaleness property, using default.", ex );
+                    this.m_poller.setPollSchedule( new CmriChangeWeightedSchedule( DEFAULT_MAX_STALENESS ) );
+                }
+            }
+            else
+            if( ! SCHEDULE_ROUND_ROBIN.equalsIgnoreCase( sched ) )
+            {
+                LOG.log( Level.WARNING, "Unknown poll schedule \"{0}\", using round-robin.", sched );
+            }
+        }
+
+        //  Units from layout XML, now that there's a poller for them.
+        for( UnitBean unit : m_units )
+        {
+            _applyUnit( unit );
+        }
+
         return true;
     }
 
+    /***
+     *  Remember a unit on this channel ; once attached, it is polled.
+     *  Its type and input groups tell the poller how long its answers are.
+     *
+     * @param unit unit bean, address must be a number 0 to 255.
+     */
+    @Override
+    public synchronized void addUnit( UnitBean unit )
+    {
+        m_units.add( unit );
+
+        if( m_poller != null )
+            _applyUnit( unit );
+    }
+
     @Override
     public synchronized void detach()
     {
@@ -228,31 +341,187 @@ public class CmriSerialLayoutTransport extends AbstractLayoutIoTransport
 
     //------------------------  NON-PUBLIC METHODS  ---------------------------
 
+    /***
+     *  Hand a unit to the poller: its response descriptor, then onto the polling list.
+     * @param unit unit bean.
+     */
+    private void _applyUnit( UnitBean unit )
+    {
+        int  addr;
+        try
+        {
+            addr = Integer.parseInt( String.valueOf( unit.getAddress() ).trim() );
+        }
+        catch( NumberFormatException ex )
+        {
+            LOG.log( Level.WARNING, "Unit address \"{0}\" not a number, unit ignored.", unit.getAddress() );
+            return;
+        }
+
+        if( addr < m_poller.CMRI_LOWEST_POLL_ADDR || addr > m_poller.CMRI_HIGHEST_POLL_ADDR )
+        {
+            LOG.log( Level.WARNING, "Unit address {0} out of range, unit ignored.", addr );
+            return;
+        }
+
+        CmriResponseDescriptor  desc = CmriResponseDescriptor.fromUnitBean( unit );
+        LOG.log( Level.INFO, "Unit #{0} is {1}", new Object[] { addr, desc } );
+
+        m_poller.setResponseDescriptor( addr, desc );
+        m_poller.setInputFilter( addr, _makeInputFilter( unit, desc ) );
+        m_poller.addUnitToPollingList( addr );
+    }
+
+    /***
+     *  Build a unit's debounce filter from its input groups' {@code onDelay} and
+     *  {@code offDelay} attributes.  Time delays, e.g. {@code "40ms"}, become samples using
+     *  the {@link #PROP_SCAN_PERIOD} ; without one a unit is sampled once per poll, which can be
+     *  anywhere from milliseconds to seconds apart, so only sample counts are accepted and
+     *  an input group with a time delay is left unfiltered, with a warning.
+     *
+     * @param unit unit bean.
+     * @param desc unit's response descriptor.
+     * @return filter, or {@code null} if no input group asks for one.
+     */
+    private InputDebounceFilter _makeInputFilter( UnitBean unit, CmriResponseDescriptor desc )
+    {
+        int  sample_millis = Math.max( 0, m_poller.getScanPeriod() );
+
+        InputDebounceFilter  filter = null;
+        Iterator<AbstractInputOutputGroup>  it = unit.getInputOutputGroups();
+        while( it.hasNext() )
+        {
+            AbstractInputOutputGroup  grp = it.next();
+            if( ! (grp instanceof InputGroupBean) )
+                continue;
+
+            InputGroupBean  in = (InputGroupBean) grp;
+            if( ! in.hasDelays() )
+                continue;
+
+            try
+            {
+                int  first = Integer.parseInt( in.getFirst().trim() );
+                int  last = Integer.parseInt( in.getLast().trim() );
+                int  on = InputDebounceFilter.parseDelay( in.getOnDelay(), sample_millis );
+                int  off = InputDebounceFilter.parseDelay( in.getOffDelay(), sample_millis );
+
+                if( filter == null )
+                {
+                    //  A unit may answer with more than its least length ; filter room for all it can send.
+                    int  bytes = desc.isLengthExact() && desc.isLengthKnown() ? desc.getInputBytes() : CmriFrameDecoder.MAX_PAYLOAD_SIZE;
+                    filter = new InputDebounceFilter( Math.max( 1, bytes ) * 8 );
+                }
+                filter.setDelays( first, last, on, off );
+            }
+            catch( IllegalArgumentException | NullPointerException ex )
+            {
+                LOG.log( Level.WARNING, "Unit {0} input group {1} has bad delays, not filtered: {2}",
+                                        new Object[] { unit.getAddress(), in, ex.getMessage() } );
+            }
+        }
+
+        return filter;
+    }
+
     @Override
     protected String[] _getKnownPropertyKeys()
     {
         return m_key_list;
     }
 
+    /***
+     *  Fetch an integer property, with a default when missing or not a number.
+     * @param key property name.
+     * @param defaultValue value when property is missing or unusable.
+     * @return property's value or {@code defaultValue}.
+     */
+    private int _getIntProperty( String key, int defaultValue )
+    {
+        XmlPropertyBean  bean = this.getProperty( key );
+        if( bean == null )
+            return defaultValue;
+
+        Object  value = bean.getValue();
+        if( value instanceof Number )
+            return ((Number) value).intValue();
+
+        try
+        {
+            return Integer.parseInt( String.valueOf( value ).trim() );
+        }
+        catch( NumberFormatException ex )
+        {
+            LOG.log( Level.WARNING, "Property \"{0}\" not an integer, using default.", key );
+            return defaultValue;
+        }
+    }
+
     //---------------------------  INSTANCE VARS  -----------------------------
 
-    /*** How fast new units are brought on-line, per poll cycle.  E.g. 0.5 means every two cycles. */
+    /*** How fast non-responding units are retried.  First back-off is {@link CmriPollMachine#RECOVERY_BASE_MILLIS} over this, so 100 milliseconds. */
     public final static float   DEFAULT_DISCOVERY_RATE = 0.5f;
 
-    /***  Property Name: time to wait, in milliseconds. */
+    /***  Property Name: time to wait, in milliseconds, for a unit not yet heard from. */
     public final static String  PROP_TIMEOUT = "timeout";
 
+    /***  Property Name: shortest adaptive response timeout, in milliseconds. */
+    public final static String  PROP_TIMEOUT_MIN = "timeoutMin";
+
+    /***  Property Name: longest adaptive response timeout, in milliseconds. */
+    public final static String  PROP_TIMEOUT_MAX = "timeoutMax";
+
     /***  Property Name: string name of IO port, OS dependent. */
     public final static String  PROP_PORT    = "port";
 
     /***  Property Name: string of baud rate, bits, parity, stop-bits, e.g. "9600,8,n,1". */
     public final static String  PROP_SETTINGS = "settings";
 
-    /***  Property Name: float, per poll cycles. */
+    /***  Property Name: float, recovery rate, sets first back-off of a non-responding unit. */
     public final static String  PROP_DISCOVERY_RATE = "discoverRate";
 
+    /***  Property Name: string, poll schedule, {@link #SCHEDULE_ROUND_ROBIN} or {@link #SCHEDULE_WEIGHTED}. */
+    public final static String  PROP_SCHEDULE = "schedule";
+
+    /***  Property Name: longest time a unit goes without a poll, in milliseconds, for weighted schedule. */
+    public final static String  PROP_MAX_STALENESS = "maxStaleness";
+
+    /***  Schedule: poll every unit every pass. */
+    public final static String  SCHEDULE_ROUND_ROBIN = "roundRobin";
+
+    /***  Schedule: poll units more often the more often their inputs change. */
+    public final static String  SCHEDULE_WEIGHTED = "weighted";
+
+    /***  Property Name: string, line timing, {@link #LINE_TIMING_SLEEP} or {@link #LINE_TIMING_PRECISE}. */
+    public final static String  PROP_LINE_TIMING = "lineTiming";
+
+    /***  Property Name: silence between frames, in character times, for precise line timing. */
+    public final static String  PROP_GAP_CHARS = "gapChars";
+
+    /***  Property Name: fixed scan period in milliseconds, or 0 to free run. */
+    public final static String  PROP_SCAN_PERIOD = "scanPeriod";
+
+    /***  Property Name: line time for revivals each cycle, in character times. */
+    public final static String  PROP_REVIVE_BUDGET = "reviveBudget";
+
+    /***  Property Name: longest back-off between revivals of a unit, in milliseconds. */
+    public final static String  PROP_REVIVE_BACKOFF_MAX = "reviveBackoffMax";
+
+    /***  Line timing: fixed sleep between units. */
+    public final static String  LINE_TIMING_SLEEP = "sleep";
+
+    /***  Line timing: gaps from baud rate, kept to the microsecond. */
+    public final static String  LINE_TIMING_PRECISE = "precise";
+
+    /***  Default longest time a unit goes without a poll, in milliseconds. */
+    public final static int     DEFAULT_MAX_STALENESS = 1000;
+
     /***  Array of all settable properties. */
-    protected final String[]  m_key_list = new String[] { PROP_TIMEOUT, PROP_PORT, PROP_SETTINGS, PROP_DISCOVERY_RATE };
+    protected final String[]  m_key_list = new String[] { PROP_TIMEOUT, PROP_TIMEOUT_MIN, PROP_TIMEOUT_MAX,
+                                                                 PROP_PORT, PROP_SETTINGS, PROP_DISCOVERY_RATE,
+                                                                 PROP_SCHEDULE, PROP_MAX_STALENESS,
+                                                                 PROP_LINE_TIMING, PROP_GAP_CHARS, PROP_SCAN_PERIOD,
+                                                                 PROP_REVIVE_BUDGET, PROP_REVIVE_BACKOFF_MAX };
 
     //---------------------------  INSTANCE VARS  -----------------------------
 
@@ -262,7 +531,10 @@ public class CmriSerialLayoutTransport extends AbstractLayoutIoTransport
     /*** Thing that will poll units on one network. */
     transient protected CmriPollMachine  m_poller;
 
-    /*** The shared CMRI IO model, owned by {@link CmriLayoutProviderImpl}. */
+    /***  Units on this channel, from layout XML. */
+    protected final List<UnitBean>  m_units = new ArrayList<>();
+
+    /*** This bank's CMRI IO model, made for us by {@link CmriLayoutProviderImpl}. */
     protected final CmriLayoutModelImpl   m_model;
 
 
@@ -0,0 +1,166 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+
+/***
+ *  First-in first-out queue of unit addresses 0 to 255, each in the queue at most once.
+ *  Order is an {@code int} ring ; membership is a 256-bit set in four {@code long}s, so
+ *  {@link #contains(int) } is a bit test and nothing is boxed or allocated after construction.
+ *
+ * <p> Object is MT-safe ; every method holds the object's monitor briefly.
+ *
+ * @author brian
+ */
+public class CmriUnitQueue
+{
+    public CmriUnitQueue()
+    {
+        m_ring = new int[ CAPACITY ];
+        m_bits = new long[ CAPACITY / 64 ];
+    }
+
+    /***
+     *  Append unit to end of queue, unless already queued.
+     * @param addr unit address, 0 to 255.
+     * @return {@code true} if added, {@code false} if already in queue.
+     * @throws IndexOutOfBoundsException if address out of range.
+     */
+    public synchronized boolean add( int addr )
+    {
+        _check( addr );
+        if( _has( addr ) )
+            return false;
+
+        m_ring[ (m_head + m_size) & MASK ] = addr;
+        m_size += 1;
+        m_bits[ addr >>> 6 ] |= 1L << addr;
+        return true;
+    }
+
+    /***
+     *  Take unit from front of queue.
+     * @return unit address, or -1 if queue is empty.
+     */
+    public synchronized int poll()
+    {
+        if( m_size == 0 )
+            return -1;
+
+        int  addr = m_ring[ m_head ];
+        m_head = (m_head + 1) & MASK;
+        m_size -= 1;
+        m_bits[ addr >>> 6 ] &= ~(1L << addr);
+        return addr;
+    }
+
+    /***
+     *  Take a unit out of the queue wherever it is.  Order of the rest is kept.
+     * @param addr unit address, 0 to 255.
+     * @return {@code true} if it was queued.
+     */
+    public synchronized boolean remove( int addr )
+    {
+        if( addr < 0 || addr >= CAPACITY || ! _has( addr ) )
+            return false;
+
+        //  Find it, then slide the rest down by one.
+        int  j = 0;
+        while( m_ring[ (m_head + j) & MASK ] != addr )
+            ++j;
+        for( ; j < m_size - 1 ; ++j )
+            m_ring[ (m_head + j) & MASK ] = m_ring[ (m_head + j + 1) & MASK ];
+
+        m_size -= 1;
+        m_bits[ addr >>> 6 ] &= ~(1L << addr);
+        return true;
+    }
+
+    /***
+     *  Is unit in queue?
+     * @param addr unit address.
+     * @return {@code true} if queued, {@code false} if not or out of range.
+     */
+    public synchronized boolean contains( int addr )
+    {
+        return addr >= 0 && addr < CAPACITY && _has( addr );
+    }
+
+    /*** @return count of units queued. */
+    public synchronized int size()
+    {
+        return m_size;
+    }
+
+    /*** @return {@code true} if no units queued. */
+    public synchronized boolean isEmpty()
+    {
+        return m_size == 0;
+    }
+
+    /***
+     *  Remove all units.
+     */
+    public synchronized void clear()
+    {
+        m_head = 0;
+        m_size = 0;
+        for( int j = 0 ; j < m_bits.length ; ++j )
+            m_bits[ j ] = 0L;
+    }
+
+    /***
+     *  OR this queue's membership bits into caller's array, e.g. to build a {@link CmriUnitSet}.
+     * @param dst array of at least 4 {@code long}s ; bit {@code n} is unit address {@code n}.
+     */
+    public synchronized void orBitsInto( long[] dst )
+    {
+        for( int j = 0 ; j < m_bits.length ; ++j )
+            dst[ j ] |= m_bits[ j ];
+    }
+
+    //--------------------------  HELPER METHODS  -------------------------
+
+    private boolean _has( int addr )
+    {
+        return ( m_bits[ addr >>> 6 ] & (1L << addr) ) != 0;
+    }
+
+    private static void _check( int addr )
+    {
+        if( addr < 0 || addr >= CAPACITY )
+            throw new IndexOutOfBoundsException( "unit address " + addr );
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** Unit addresses are 0 up to this, exclusive. */
+    public static final int     CAPACITY = 256;
+
+    private static final int    MASK = CAPACITY - 1;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final int[]         m_ring;
+
+    /*** Membership, bit {@code n} set when unit {@code n} is queued. */
+    private final long[]        m_bits;
+
+    private int                 m_head;
+
+    private int                 m_size;
+
+}
@@ -0,0 +1,138 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/***
+ *  Immutable set of unit addresses 0 to 255, held as 256 bits.
+ *  Membership and size are bit operations ; iteration is in ascending address order.
+ *  Any attempt to modify it throws {@link UnsupportedOperationException}.
+ *
+ * @author brian
+ */
+public final class CmriUnitSet
+        extends AbstractSet<Integer>
+{
+    /***
+     *  Create set from bits, which are copied.
+     * @param bits four {@code long}s ; bit {@code n} set means unit address {@code n} is in set.
+     */
+    public CmriUnitSet( long[] bits )
+    {
+        m_bits = new long[ WORDS ];
+        System.arraycopy( bits, 0, m_bits, 0, WORDS );
+
+        int  n = 0;
+        for( long w : m_bits )
+            n += Long.bitCount( w );
+        m_size = n;
+    }
+
+    /***
+     *  Is unit address in set?  Primitive version of {@link #contains(java.lang.Object) }.
+     * @param addr unit address.
+     * @return {@code true} if present.
+     */
+    public boolean  contains( int addr )
+    {
+        return addr >= 0 && addr < WORDS * 64 && ( m_bits[ addr >>> 6 ] & (1L << addr) ) != 0;
+    }
+
+    @Override
+    public boolean  contains( Object o )
+    {
+        return ( o instanceof Integer ) && contains( ((Integer) o).intValue() );
+    }
+
+    @Override
+    public int      size()
+    {
+        return m_size;
+    }
+
+    /***
+     *  Next unit address in set at or after {@code from}.
+     * @param from first address to look at.
+     * @return unit address, or -1 if none.
+     */
+    public int      nextUnit( int from )
+    {
+        if( from < 0 )
+            from = 0;
+
+        int  w = from >>> 6;
+        if( w >= WORDS )
+            return -1;
+
+        long  word = m_bits[ w ] & (-1L << from);
+        while( true )
+        {
+            if( word != 0 )
+                return w * 64 + Long.numberOfTrailingZeros( word );
+            if( ++w >= WORDS )
+                return -1;
+            word = m_bits[ w ];
+        }
+    }
+
+    @Override
+    public Iterator<Integer> iterator()
+    {
+        return new Iterator<Integer>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return m_next >= 0;
+            }
+
+            @Override
+            public Integer next()
+            {
+                if( m_next < 0 )
+                    throw new NoSuchElementException();
+
+                int  addr = m_next;
+                m_next = nextUnit( addr + 1 );
+                return addr;
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException( "CmriUnitSet is immutable" );
+            }
+
+            private int     m_next = nextUnit( 0 );
+        };
+    }
+
+    //-------------------------  CONSTANTS  ---------------------------
+
+    /*** {@code long}s of bits, for 256 unit addresses. */
+    public static final int     WORDS = 4;
+
+    //-------------------------  INSTANCE VARS  ---------------------------
+
+    private final long[]        m_bits;
+
+    private final int           m_size;
+
+}
@@ -20,6 +20,9 @@ import java.util.List;
 
 
 /**
+ *  XML element <b>inputGroup</b>.  Besides first and last, optional {@code onDelay} and
+ *  {@code offDelay} debounce the group's inputs: a count of samples, e.g. "3", or a
+ *  hold-off time, e.g. "40ms".  Empty means no filtering.
  *
  * @author brian
  */
@@ -35,7 +38,7 @@ public class InputGroupBean
 
     @Override
     public List<String> getAttributeList() {
-        return Arrays.asList( ATTR_FIRST, ATTR_LAST );
+        return Arrays.asList( ATTR_FIRST, ATTR_LAST, ATTR_ON_DELAY, ATTR_OFF_DELAY );
     }
 
     public InputGroupBean()
@@ -43,4 +46,44 @@ public class InputGroupBean
         m_is_input = true;
     }
 
+    // ----------------------------------------------------------------------------
+
+    public static final String ATTR_ON_DELAY = "onDelay";
+    protected String         m_on_delay;
+
+    public String getOnDelay()
+    {
+        return m_on_delay;
+    }
+
+    public void   setOnDelay( String onDelay )
+    {
+        m_on_delay = onDelay;
+    }
+
+    // ----------------------------------------------------------------------------
+
+    public static final String ATTR_OFF_DELAY = "offDelay";
+    protected String         m_off_delay;
+
+    public String getOffDelay()
+    {
+        return m_off_delay;
+    }
+
+    public void   setOffDelay( String offDelay )
+    {
+        m_off_delay = offDelay;
+    }
+
+    /***
+     *  Does group ask for its inputs to be debounced?
+     * @return {@code true} if either delay is given.
+     */
+    public boolean  hasDelays()
+    {
+        return ( m_on_delay != null && ! m_on_delay.trim().isEmpty() ) ||
+               ( m_off_delay != null && ! m_off_delay.trim().isEmpty() );
+    }
+
 }
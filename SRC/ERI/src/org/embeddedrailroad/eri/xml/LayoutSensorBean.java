@@ -0,0 +1,166 @@
+/***  Java-ERI    Java-based Embedded Railroad Interfacing.
+ ***  Copyright (C) 2014 in USA by Brian Witt , bwitt@value.net
+ ***
+ ***  Licensed under the Apache License, Version 2.0 ( the "License" ) ;
+ ***  you may not use this file except in compliance with the License.
+ ***  You may obtain a copy of the License at:
+ ***        http://www.apache.org/licenses/LICENSE-2.0
+ ***
+ ***  Unless required by applicable law or agreed to in writing, software
+ ***  distributed under the License is distributed on an "AS IS" BASIS,
+ ***  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ ***  See the License for the specific languatge governing permissions and
+ ***  limitations under the License.
+ ***/
+
+package org.embeddedrailroad.eri.xml;
+
+import com.crunchynoodles.util.XmlEntityBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+
+/***
+ *  A <b>layoutSensor</b> gives a name to one input: which bank, which unit on that bank,
+ *  and which input bit of that unit.  Bank is the {@code address} of a {@link BankBean} ;
+ *  unit and bit are interpreted by that bank's protocol, like {@link AbstractInputOutputGroup}'s
+ *  first and last. <p>
+ *
+ *  {@code <!ELEMENT layoutSensor EMPTY>} <br/>
+ *  {@code <!ATTLIST layoutSensor name CDATA #REQUIRED bank CDATA #REQUIRED unit CDATA #REQUIRED bit CDATA #REQUIRED>}
+ *
+ * @author brian
+ */
+public class LayoutSensorBean
+    implements XmlEntityBean
+{
+    public static final String PROP_ELEMENT_NAME = "layoutSensor";
+
+    @Override
+    public String getElementName() {
+        return PROP_ELEMENT_NAME;
+    }
+
+    @Override
+    public List<String> getAttributeList() {
+        return Arrays.asList( ATTR_NAME, ATTR_BANK, ATTR_UNIT, ATTR_BIT );
+    }
+
+    public LayoutSensorBean()
+    {
+    }
+
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public int  hashCode()
+    {
+        int  hc = super.hashCode();
+
+        if( m_name != null )    hc ^= m_name.hashCode();
+        if( m_bank != null )    hc ^= m_bank.hashCode();
+        if( m_unit != null )    hc ^= m_unit.hashCode();
+        if( m_bit != null )     hc ^= m_bit.hashCode();
+
+        return( hc );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if( obj == null ) {
+            return false;
+        }
+        if( getClass() != obj.getClass() ) {
+            return false;
+        }
+        final LayoutSensorBean other = (LayoutSensorBean) obj;
+        if( ! Objects.equals( this.m_name, other.m_name ) )
+            return false;
+        if( ! Objects.equals( this.m_bank, other.m_bank ) )
+            return false;
+        if( ! Objects.equals( this.m_unit, other.m_unit ) )
+            return false;
+        if( ! Objects.equals( this.m_bit, other.m_bit ) )
+            return false;
+
+        return true;
+    }
+
+    @Override
+    public String  toString()
+    {
+        StringBuilder  sb = new StringBuilder( 60 );
+
+        sb.append( "LayoutSensorBean:[" );
+        sb.append( "name=\"" ).append( m_name );
+        sb.append( "\",bank=\"" ).append( m_bank );
+        sb.append( "\",unit=\"" ).append( m_unit );
+        sb.append( "\",bit=\"" ).append( m_bit );
+        sb.append( "\"]" );
+
+        return( sb.toString() );
+    }
+
+    // ----------------------------------------------------------------------------
+
+    public static final String ATTR_NAME = "name";      // attribute
+    protected String         m_name;
+
+    public String getName()
+    {
+        return m_name;
+    }
+
+    public void   setName( String name )
+    {
+        m_name = name;
+    }
+
+    // ----------------------------------------------------------------------------
+
+    public static final String ATTR_BANK = "bank";      // attribute
+    protected String         m_bank;
+
+    public String getBank()
+    {
+        return m_bank;
+    }
+
+    public void   setBank( String bankAddress )
+    {
+        m_bank = bankAddress;
+    }
+
+    // ----------------------------------------------------------------------------
+
+    public static final String ATTR_UNIT = "unit";      // attribute
+    protected String         m_unit;
+
+    public String getUnit()
+    {
+        return m_unit;
+    }
+
+    public void   setUnit( String unitAddress )
+    {
+        m_unit = unitAddress;
+    }
+
+    // ----------------------------------------------------------------------------
+
+    public static final String ATTR_BIT = "bit";        // attribute
+    protected String         m_bit;
+
+    public String getBit()
+    {
+        return m_bit;
+    }
+
+    public void   setBit( String bitCode )
+    {
+        m_bit = bitCode;
+    }
+
+}
@@ -16,9 +16,14 @@
 package org.embeddedrailroad.eri.xml;
 
 import com.crunchynoodles.util.XmlEntityBean;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
+ *  A <b>layoutSensorList</b> holds every named input of the layout, see {@link LayoutSensorBean}.
+ *  Names must be unique. <p>
+ *
+ *  {@code <!ELEMENT layoutSensorList (layoutSensor*) >}
  *
  * @author brian
  */
@@ -39,9 +44,73 @@ public class LayoutSensorListBean
 
     public LayoutSensorListBean()
     {
+        m_sensor_list = new ArrayList<LayoutSensorBean>();
+    }
+
+    // ----------------------------------------------------------------------------
+
+    @Override
+    public int  hashCode()
+    {
+        int  hc = super.hashCode();
+
+        if( m_sensor_list != null )   hc ^= m_sensor_list.hashCode();
+
+        return( hc );
+    }
+
+    @Override
+    public String  toString()
+    {
+        StringBuilder  sb = new StringBuilder( 100 );
+
+        sb.append( "LayoutSensorListBean:[" );
+
+        sb.append( "m_sensor_list={" );
+        if( m_sensor_list != null )
+            sb.append( m_sensor_list.toString() );
+        else
+            sb.append( NULL_OBJECT_REF_STRING );
+
+        sb.append( "}]" );
+
+        return( sb.toString() );
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if( obj == null ) {
+            return false;
+        }
+        if( getClass() != obj.getClass() ) {
+            return false;
+        }
+        final LayoutSensorListBean other = (LayoutSensorListBean) obj;
+        if( ! this.m_sensor_list.equals( other.m_sensor_list ) ) {
+            return false;
+        }
+        return true;
     }
 
     // ----------------------------------------------------------------------------
 
+    public static final String PROP_LAYOUT_SENSOR = "layoutSensor";     // element
+
+    public void setSensorList( List<LayoutSensorBean> sensor_list )
+    {
+        m_sensor_list = new ArrayList<LayoutSensorBean>( sensor_list );
+    }
+
+    /***
+     *  Create a copy of our sensor list ; however sensor elements are shared so be careful.
+     * @return New {@link List} but with shared {@link LayoutSensorBean} objects.
+     */
+    public List<LayoutSensorBean> getSensorList()
+    {
+        return new ArrayList<LayoutSensorBean>( m_sensor_list );
+    }
+
+    private List<LayoutSensorBean>  m_sensor_list;
 
 }
@@ -477,13 +477,72 @@ public class XmlLayoutConfigurationSpecification
             throw new SAXParseException( "Element \"" + group.getElementName() + "\" missing its \"" + AbstractInputOutputGroup.ATTR_LAST + "\" attribute", null );
         }
 
+        //  Optional debounce delays of input groups.
+        if( group instanceof InputGroupBean )
+        {
+            InputGroupBean  in = (InputGroupBean) group;
+            if( ioElm.hasAttribute( InputGroupBean.ATTR_ON_DELAY ) )
+                in.setOnDelay( ioElm.getAttribute( InputGroupBean.ATTR_ON_DELAY ) );
+            if( ioElm.hasAttribute( InputGroupBean.ATTR_OFF_DELAY ) )
+                in.setOffDelay( ioElm.getAttribute( InputGroupBean.ATTR_OFF_DELAY ) );
+        }
+
     }
 
     // ========================================================================
 
-    static LayoutSensorListBean importLayoutSensorList( Element LayoutSensorElm )
+    static LayoutSensorListBean importLayoutSensorList( Element layoutSensorListElm )
+            throws SAXParseException
     {
-        return null;
+        LayoutSensorListBean    sl = new LayoutSensorListBean();
+        List<LayoutSensorBean>  sensor_list = new ArrayList<>();
+
+        /***  <!ELEMENT layoutSensorList (layoutSensor*)>   ***/
+
+        NodeList  children = layoutSensorListElm.getChildNodes();
+        for( int ndx = 0 ; ndx < children.getLength() ; ++ndx )
+        {
+            Element one = (Element) children.item( ndx );
+            if( one.getNodeName().equals( LayoutSensorListBean.PROP_LAYOUT_SENSOR ) )
+            {
+                sensor_list.add( importLayoutSensor( one ) );
+            }
+            else
+            {
+                throw new SAXParseException( "Invalid sub-element of \"" + LayoutSensorListBean.PROP_ELEMENT_NAME + "\" : " + one.getNodeName(), null );
+            }
+        }
+
+        sl.setSensorList( sensor_list );
+
+        return( sl );
+    }
+
+    static LayoutSensorBean importLayoutSensor( Element sensorElm )
+            throws SAXParseException
+    {
+        LayoutSensorBean  sensor = new LayoutSensorBean();
+
+        //  <!ELEMENT layoutSensor EMPTY>
+        //  <!ATTLIST layoutSensor
+        //          name    CDATA   #REQUIRED
+        //          bank    CDATA   #REQUIRED
+        //          unit    CDATA   #REQUIRED
+        //          bit     CDATA   #REQUIRED>
+
+        //  All attributes are required.
+        for( String attr : sensor.getAttributeList() )
+        {
+            if( ! sensorElm.hasAttribute( attr ) )
+                throw new SAXParseException( "Element \"" + LayoutSensorBean.PROP_ELEMENT_NAME + "\" missing its \"" + attr + "\" attribute", null );
+        }
+
+        sensor.setName( sensorElm.getAttribute( LayoutSensorBean.ATTR_NAME ) );
+        sensor.setBank( sensorElm.getAttribute( LayoutSensorBean.ATTR_BANK ) );
+        sensor.setUnit( sensorElm.getAttribute( LayoutSensorBean.ATTR_UNIT ) );
+        sensor.setBit( sensorElm.getAttribute( LayoutSensorBean.ATTR_BIT ) );
+
+        return( sensor );
     }
 
     // ========================================================================
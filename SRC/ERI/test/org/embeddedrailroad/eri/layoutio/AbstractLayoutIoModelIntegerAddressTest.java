@@ -189,4 +189,217 @@ public class AbstractLayoutIoModelIntegerAddressTest {
         fail( "The test case is a prototype." );
     }
 
+    /**
+     * Test of addIoSensedDataListener, only changes are told.
+     */
+    @Test
+    public void testDataChangedListener()
+    {
+        System.out.println( "-- IoSensedDataListener --" );
+        AbstractLayoutIoModelIntegerAddress instance = new AbstractLayoutIoModelIntegerAddress();
+        final ArrayList<LayoutIoDataChangedEvent<?>>  events = new ArrayList<>();
+        IoSensedDataListener  l = new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+                events.add( event );
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+            }
+        };
+        instance.addIoSensedDataListener( l );
+
+        boolean[]  bits = new boolean[ 16 ];
+        bits[ 3 ] = true;
+        instance.setSensedBinaryData( 7, bits );
+        assertEquals( "first data", 1, events.size() );
+        assertEquals( 7, events.get( 0 ).getSource() );
+        assertEquals( 1, events.get( 0 ).getChangedCount() );
+
+        //  Same bits again, nothing to tell.
+        instance.setSensedBinaryData( 7, bits.clone() );
+        assertEquals( 1, events.size() );
+
+        bits[ 3 ] = false;
+        bits[ 9 ] = true;
+        instance.setSensedBinaryData( 7, bits );
+        assertEquals( 2, events.size() );
+        LayoutIoDataChangedEvent<?>  ev = events.get( 1 );
+        assertEquals( 2, ev.getChangedCount() );
+        assertTrue( ev.isChanged( 3 ) );
+        assertTrue( ev.isChanged( 9 ) );
+        assertFalse( ev.isChanged( 4 ) );
+        assertArrayEquals( new byte[] { 0x08, 0x02 }, ev.getChangedMask() );
+        assertTrue( instance.getSensedDataOne( 7, 9 ) );
+
+        instance.removeIoSensedDataListener( l );
+        bits[ 0 ] = true;
+        instance.setSensedBinaryData( 7, bits );
+        assertEquals( 2, events.size() );
+        assertTrue( instance.getSensedDataOne( 7, 0 ) );
+    }
+
+    /**
+     * Test of setSensedPackedBytes method, of class AbstractLayoutIoModelIntegerAddress.
+     */
+    @Test
+    public void testSetSensedPackedBytes()
+    {
+        System.out.println( "-- setSensedPackedBytes --" );
+        AbstractLayoutIoModelIntegerAddress instance = new AbstractLayoutIoModelIntegerAddress();
+        final ArrayList<LayoutIoDataChangedEvent<?>>  events = new ArrayList<>();
+        instance.addIoSensedDataListener( new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+                events.add( event );
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+            }
+        } );
+
+        byte[]  frame = new byte[] { 0x7f, 0x01, (byte) 0x80, 0x00, 0x7f };
+        instance.setSensedPackedBytes( 4, frame, 1, 3 );
+        assertEquals( 1, events.size() );
+        assertEquals( 24, instance.getSensedDataAll( 4 ).size() );
+        assertTrue( instance.getSensedDataOne( 4, 0 ) );
+        assertTrue( instance.getSensedDataOne( 4, 15 ) );
+        assertFalse( instance.getSensedDataOne( 4, 1 ) );
+
+        //  Same image, nothing told.
+        instance.setSensedPackedBytes( 4, new byte[] { 0x01, (byte) 0x80, 0x00 }, 0, 3 );
+        assertEquals( 1, events.size() );
+
+        instance.setSensedPackedBytes( 4, new byte[] { 0x01, (byte) 0x80, 0x04 }, 0, 3 );
+        assertEquals( 2, events.size() );
+        assertEquals( 1, events.get( 1 ).getChangedCount() );
+        assertTrue( events.get( 1 ).isChanged( 18 ) );
+    }
+
+    /**
+     * A listener that throws doesn't stop the others.
+     */
+    @Test
+    public void testListenerThrows()
+    {
+        System.out.println( "-- listener throws --" );
+        AbstractLayoutIoModelIntegerAddress instance = new AbstractLayoutIoModelIntegerAddress();
+        final int[]  told = new int[1];
+        instance.addIoSensedDataListener( new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+                throw new IllegalStateException( "expected by test" );
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+            }
+        } );
+        instance.addIoSensedDataListener( new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+                ++told[0];
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+            }
+        } );
+
+        instance.setSensedBinaryData( 1, new boolean[] { true } );
+        assertEquals( 1, told[0] );
+    }
+
+    /**
+     * Test of beginScan and commitScan methods, one event for the whole batch.
+     */
+    @Test
+    public void testScanBatch()
+    {
+        System.out.println( "-- scan batch --" );
+        AbstractLayoutIoModelIntegerAddress instance = new AbstractLayoutIoModelIntegerAddress();
+        final ArrayList<LayoutIoScanChangedEvent<?>>  scans = new ArrayList<>();
+        final int[]  units_told = new int[1];
+        instance.addIoSensedDataListener( new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+                ++units_told[0];
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+                scans.add( event );
+            }
+        } );
+
+        instance.setSensedPackedBytes( 2, new byte[] { 0x01 }, 0, 1 );
+        long  before = instance.getSensedDataSnapshot( 2 ).getVersion();
+        assertEquals( 1, units_told[0] );
+
+        LayoutIoScanBatch<Integer>  batch = instance.beginScan();
+        byte[]  buf = new byte[] { 0x01, 0x00 };
+        batch.put( 2, buf, 0, 1 );          // same as before
+        buf[ 0 ] = 0x06;
+        batch.put( 3, buf, 0, 2 );          // caller's buffer reused
+        buf[ 0 ] = 0x00;
+        buf[ 1 ] = (byte) 0x80;
+        batch.put( 4, buf, 0, 2 );
+        assertEquals( 3, batch.size() );
+
+        //  Nothing shows until commit.
+        assertNull( instance.getSensedDataSnapshot( 3 ) );
+        assertEquals( 2, batch.commit() );
+        assertTrue( batch.isEmpty() );
+
+        assertEquals( "no per-unit events", 1, units_told[0] );
+        assertEquals( 1, scans.size() );
+        LayoutIoScanChangedEvent<?>  ev = scans.get( 0 );
+        assertSame( instance, ev.getSource() );
+        assertEquals( java.util.Arrays.asList( 3, 4 ), ev.getChangedUnits() );
+        assertEquals( 3, ev.getChangedCount() );
+        assertEquals( 3, ev.getUnit( 0 ) );
+        assertEquals( 1, ev.getBit( 0 ) );
+        assertEquals( 2, ev.getBit( 1 ) );
+        assertEquals( 4, ev.getUnit( 2 ) );
+        assertEquals( 15, ev.getBit( 2 ) );
+        assertTrue( ev.getValue( 2 ) );
+
+        //  One version for the whole scan, later than before.
+        long  v3 = instance.getSensedDataSnapshot( 3 ).getVersion();
+        assertEquals( v3, instance.getSensedDataSnapshot( 4 ).getVersion() );
+        assertTrue( v3 > before );
+        assertEquals( before, instance.getSensedDataSnapshot( 2 ).getVersion() );
+        assertTrue( instance.getSensedDataOne( 4, 15 ) );
+
+        //  Bits turning off are told, and a quiet scan tells nothing.
+        batch.put( 3, new byte[] { 0x02, 0x00 }, 0, 2 );
+        assertEquals( 1, batch.commit() );
+        assertEquals( 2, scans.size() );
+        assertEquals( 1, scans.get( 1 ).getChangedCount() );
+        assertEquals( 2, scans.get( 1 ).getBit( 0 ) );
+        assertFalse( scans.get( 1 ).getValue( 0 ) );
+
+        batch.put( 3, new byte[] { 0x02, 0x00 }, 0, 2 );
+        assertEquals( 0, batch.commit() );
+        assertEquals( 2, scans.size() );
+
+        try {
+            new AbstractLayoutIoModelIntegerAddress().commitScan( instance.beginScan() );
+            fail( "batch of another model" );
+        }
+        catch( IllegalArgumentException ex ) { }
+    }
+
 }
@@ -0,0 +1,157 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class HashedWheelTimerTest {
+
+    public HashedWheelTimerTest() {
+    }
+
+    /**
+     * Test of schedule method, fires no earlier than asked.
+     */
+    @Test
+    public void testSchedule()
+            throws InterruptedException
+    {
+        System.out.println( "-- schedule --" );
+        HashedWheelTimer instance = new HashedWheelTimer( 1, 64, 4 );
+        final CountDownLatch  latch = new CountDownLatch( 1 );
+        final long[]  fired = new long[ 1 ];
+
+        long  start = System.nanoTime();
+        instance.schedule( 50, new LayoutTimeoutManager.TimeoutAction() {
+            @Override
+            public void onTimeout( Object anchor )
+            {
+                fired[0] = System.nanoTime();
+                ((CountDownLatch) anchor).countDown();
+            }
+        }, latch );
+
+        assertEquals( 1, instance.getPendingCount() );
+        assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+        assertTrue( "fired early", fired[0] - start >= 50L * 1000 * 1000 );
+        assertEquals( 0, instance.getPendingCount() );
+
+        instance.shutdown();
+    }
+
+    /**
+     * Test of cancel method, including stale tickets after slot reuse.
+     */
+    @Test
+    public void testCancel()
+            throws InterruptedException
+    {
+        System.out.println( "-- cancel --" );
+        HashedWheelTimer instance = new HashedWheelTimer( 1, 64, 4 );
+        final AtomicInteger  count = new AtomicInteger();
+        Runnable  bump = new Runnable() {
+            @Override
+            public void run()
+            {
+                count.incrementAndGet();
+            }
+        };
+
+        long  t1 = instance.schedule( 30, bump );
+        assertTrue( instance.cancel( t1 ) );
+        assertFalse( "cancelled twice", instance.cancel( t1 ) );
+
+        //  Reuses t1's slot, but old ticket must not cancel it.
+        long  t2 = instance.schedule( 30, bump );
+        assertFalse( instance.cancel( t1 ) );
+
+        Thread.sleep( 150 );
+        assertEquals( 1, count.get() );
+        assertFalse( "cancelled after firing", instance.cancel( t2 ) );
+
+        instance.shutdown();
+    }
+
+    /**
+     * Test of many timeouts, longer than one turn of the wheel, and pool growth.
+     */
+    @Test
+    public void testManyAndWrap()
+            throws InterruptedException
+    {
+        System.out.println( "-- many/wrap --" );
+        HashedWheelTimer instance = new HashedWheelTimer( 1, 16, 4 );
+        final CountDownLatch  latch = new CountDownLatch( 100 );
+        Runnable  down = new Runnable() {
+            @Override
+            public void run()
+            {
+                latch.countDown();
+            }
+        };
+
+        for( int j = 0 ; j < 100 ; ++j )
+            instance.schedule( 10 + j, down );      // spans several turns of 16 ticks.
+
+        assertTrue( instance.getCapacity() >= 100 );
+        assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+        assertEquals( 0, instance.getPendingCount() );
+
+        instance.shutdown();
+        try {
+            instance.schedule( 1, down );
+            fail( "schedule after shutdown" );
+        }
+        catch( IllegalStateException ex ) { }
+    }
+
+    /**
+     * Test of ticker parking: idle and far-off timeouts don't wake it each tick, and a
+     * sooner timeout scheduled meanwhile still fires on time.
+     */
+    @Test
+    public void testParking()
+            throws InterruptedException
+    {
+        System.out.println( "-- parking --" );
+        HashedWheelTimer instance = new HashedWheelTimer( 1, 512, 4 );
+        final CountDownLatch  latch = new CountDownLatch( 2 );
+        final long[]  fired = new long[ 2 ];
+        LayoutTimeoutManager.TimeoutAction  note = new LayoutTimeoutManager.TimeoutAction() {
+            @Override
+            public void onTimeout( Object anchor )
+            {
+                fired[ (Integer) anchor ] = System.nanoTime();
+                latch.countDown();
+            }
+        };
+
+        long  start = System.nanoTime();
+        instance.schedule( 300, note, 0 );
+        Thread.sleep( 20 );
+        instance.schedule( 30, note, 1 );
+
+        assertTrue( latch.await( 5, TimeUnit.SECONDS ) );
+        assertTrue( "sooner one first", fired[1] < fired[0] );
+        assertTrue( "fired early", fired[0] - start >= 300L * 1000 * 1000 );
+        assertTrue( "sooner one late", fired[1] - start < 250L * 1000 * 1000 );
+
+        //  300 ticks went by, but it only woke for the busy ones.
+        long  woke = instance.getWakeupCount();
+        assertTrue( "woke " + woke + " times", woke < 20 );
+
+        Thread.sleep( 100 );
+        assertEquals( "woke while idle", woke, instance.getWakeupCount() );
+
+        instance.shutdown();
+    }
+
+}
@@ -0,0 +1,113 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class InputDebounceFilterTest {
+
+    public InputDebounceFilterTest() {
+    }
+
+    /**
+     * Test of sample method, separate on and off delays.
+     */
+    @Test
+    public void testOnOffDelays()
+    {
+        System.out.println( "-- on/off delays --" );
+        InputDebounceFilter instance = new InputDebounceFilter( 24 );
+        instance.setDelays( 0, 7, 2, 4 );
+
+        byte[]  zero = new byte[] { 0, 0, 0 };
+        byte[]  one  = new byte[] { 0x01, 0, 0 };
+
+        assertTrue( "first sample taken as-is", instance.sample( zero, 3 ) );
+        assertTrue( instance.isSettled() );
+
+        //  One-sample glitch never shows.
+        assertFalse( instance.sample( one, 3 ) );
+        assertFalse( instance.isSettled() );
+        assertFalse( instance.sample( zero, 3 ) );
+        assertTrue( instance.isSettled() );
+        assertFalse( instance.getFiltered( 0 ) );
+
+        //  On after 2 samples.
+        assertFalse( instance.sample( one, 3 ) );
+        assertTrue( instance.sample( one, 3 ) );
+        assertTrue( instance.getFiltered( 0 ) );
+
+        //  Off needs 4 in a row ; a dropout in between starts over.
+        assertFalse( instance.sample( zero, 3 ) );
+        assertFalse( instance.sample( zero, 3 ) );
+        assertFalse( instance.sample( one, 3 ) );
+        for( int j = 0 ; j < 3 ; ++j )
+            assertFalse( instance.sample( zero, 3 ) );
+        assertTrue( instance.sample( zero, 3 ) );
+        assertFalse( instance.getFiltered( 0 ) );
+
+        //  Inputs outside the group pass straight through.
+        assertTrue( instance.sample( new byte[] { 0, 0, (byte) 0x80 }, 3 ) );
+        assertTrue( instance.getFiltered( 23 ) );
+        byte[]  out = new byte[ 3 ];
+        instance.getFilteredBytes( out, 3 );
+        assertArrayEquals( new byte[] { 0, 0, (byte) 0x80 }, out );
+    }
+
+    /**
+     * Test of many inputs across several words, all counting together.
+     */
+    @Test
+    public void testManyInputs()
+    {
+        System.out.println( "-- many inputs --" );
+        InputDebounceFilter instance = new InputDebounceFilter( 2000 );
+        instance.setDelays( 0, 1999, 15, 1 );
+        assertEquals( 15, instance.getOnSamples( 1234 ) );
+        assertEquals( 1, instance.getOffSamples( 1234 ) );
+
+        byte[]  raw = new byte[ instance.getByteCount() ];
+        instance.sample( raw, raw.length );
+
+        java.util.Arrays.fill( raw, (byte) 0xff );
+        for( int j = 1 ; j < 15 ; ++j )
+            assertFalse( instance.sample( raw, raw.length ) );
+        assertTrue( instance.sample( raw, raw.length ) );
+        assertTrue( instance.isSettled() );
+        for( int bit = 0 ; bit < 2000 ; ++bit )
+            assertTrue( instance.getFiltered( bit ) );
+    }
+
+    /**
+     * Test of parseDelay and samplesFor methods.
+     */
+    @Test
+    public void testParseDelay()
+    {
+        System.out.println( "-- parseDelay --" );
+        assertEquals( 1, InputDebounceFilter.parseDelay( "", 10 ) );
+        assertEquals( 3, InputDebounceFilter.parseDelay( " 3 ", 10 ) );
+        assertEquals( 4, InputDebounceFilter.parseDelay( "40ms", 10 ) );
+        assertEquals( 5, InputDebounceFilter.parseDelay( "41ms", 10 ) );
+        assertEquals( InputDebounceFilter.MAX_SAMPLES, InputDebounceFilter.parseDelay( "5000ms", 10 ) );
+        assertEquals( 3, InputDebounceFilter.parseDelay( "3", 0 ) );
+
+        try {
+            InputDebounceFilter.parseDelay( "40ms", 0 );
+            fail( "time delay without a sample period" );
+        }
+        catch( NumberFormatException ex ) { }
+
+        try {
+            InputDebounceFilter.parseDelay( "99", 10 );
+            fail( "too many samples" );
+        }
+        catch( NumberFormatException ex ) { }
+    }
+
+}
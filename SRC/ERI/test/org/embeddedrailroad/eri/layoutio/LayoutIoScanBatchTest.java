@@ -0,0 +1,116 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class LayoutIoScanBatchTest {
+
+    public LayoutIoScanBatchTest() {
+    }
+
+    /**
+     * Test of put method, of class LayoutIoScanBatch: a unit put twice is one entry with its last image.
+     */
+    @Test
+    public void testPutTwice()
+    {
+        System.out.println( "-- put twice --" );
+        SlotArrayLayoutIoModel  model = new SlotArrayLayoutIoModel( 8 );
+        final LayoutIoScanChangedEvent<?>[]  told = new LayoutIoScanChangedEvent<?>[1];
+        model.addIoSensedDataListener( new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+                told[0] = event;
+            }
+        } );
+
+        LayoutIoScanBatch<Integer>  batch = new LayoutIoScanBatch<>( model );
+        batch.put( 3, new byte[] { 0x01 }, 0, 1 );
+        batch.put( 5, new byte[] { 0x01 }, 0, 1 );
+        batch.put( 3, new byte[] { 0x06, 0x00 }, 0, 2 );
+
+        assertEquals( 2, batch.size() );
+        assertEquals( Integer.valueOf( 3 ), batch.getUnit( 0 ) );
+        assertEquals( Integer.valueOf( 5 ), batch.getUnit( 1 ) );
+        assertEquals( 2, batch.getImageLength( 0 ) );
+        assertEquals( 0x06, batch.getImage( 0 )[0] );
+
+        assertEquals( 2, batch.commit() );
+        assertTrue( batch.isEmpty() );
+
+        //  Last image won, and the event names unit 3 only once.
+        assertFalse( model.getSensedDataOne( 3, 0 ) );
+        assertTrue( model.getSensedDataOne( 3, 1 ) );
+        assertTrue( model.getSensedDataOne( 3, 2 ) );
+        assertEquals( 16, model.getSensedDataAll( 3 ).size() );
+        assertEquals( Arrays.asList( 3, 5 ), told[0].getChangedUnits() );
+        assertEquals( 3, told[0].getChangedCount() );
+
+        //  Emptied batch starts over.
+        batch.put( 5, new byte[] { 0x00 }, 0, 1 );
+        assertEquals( 1, batch.size() );
+        assertEquals( Integer.valueOf( 5 ), batch.getUnit( 0 ) );
+    }
+
+    /**
+     * Test of put method, of class IntAddressScanBatch: int and Integer addresses share entries.
+     */
+    @Test
+    public void testIntAddress()
+    {
+        System.out.println( "-- int address --" );
+        SlotArrayLayoutIoModel  model = new SlotArrayLayoutIoModel( 40 );
+        IntAddressScanBatch  batch = model.beginScan();
+        assertSame( model, batch.getModel() );
+
+        batch.put( 33, new byte[] { 0x01 }, 0, 1 );
+        batch.put( Integer.valueOf( 2 ), new byte[] { 0x01 }, 0, 1 );
+        batch.put( Integer.valueOf( 33 ), new byte[] { 0x02 }, 0, 1 );
+        batch.put( 2, new byte[] { 0x04 }, 0, 1 );
+
+        assertEquals( 2, batch.size() );
+        assertEquals( 33, batch.getIntUnit( 0 ) );
+        assertEquals( Integer.valueOf( 2 ), batch.getUnit( 1 ) );
+
+        assertEquals( 2, batch.commit() );
+        assertTrue( model.getSensedDataOne( 33, 1 ) );
+        assertTrue( model.getSensedDataOne( 2, 2 ) );
+        assertFalse( model.getSensedDataOne( 2, 0 ) );
+
+        //  After commit, a unit put before is a new entry again.
+        batch.put( 2, new byte[] { 0x04 }, 0, 1 );
+        assertEquals( 1, batch.size() );
+        assertEquals( 2, batch.getIntUnit( 0 ) );
+        assertEquals( 0, batch.commit() );
+
+        try {
+            batch.put( -1, new byte[] { 0x01 }, 0, 1 );
+            fail( "negative unit" );
+        }
+        catch( IllegalArgumentException ex ) { }
+        try {
+            batch.put( (Integer) null, new byte[] { 0x01 }, 0, 1 );
+            fail( "null unit" );
+        }
+        catch( NullPointerException ex ) { }
+        try {
+            batch.getIntUnit( 0 );
+            fail( "empty batch" );
+        }
+        catch( IndexOutOfBoundsException ex ) { }
+    }
+
+}
@@ -0,0 +1,236 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import com.crunchynoodles.util.ChangedIndices;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.embeddedrailroad.eri.xml.BankBean;
+import org.embeddedrailroad.eri.xml.LayoutSensorBean;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class LayoutSensorIndexTest {
+
+    public LayoutSensorIndexTest() {
+    }
+
+    private static BankBean  bank( String protocol, String address )
+    {
+        BankBean  b = new BankBean();
+        b.setProtocol( protocol );
+        b.setAddress( address );
+        return b;
+    }
+
+    private static LayoutSensorBean  sensor( String name, String bank, String unit, String bit )
+    {
+        LayoutSensorBean  s = new LayoutSensorBean();
+        s.setName( name );
+        s.setBank( bank );
+        s.setUnit( unit );
+        s.setBit( bit );
+        return s;
+    }
+
+    /**
+     * Test of pack and unpack methods, of class SensorAddress.
+     */
+    @Test
+    public void testSensorAddress()
+    {
+        System.out.println( "-- SensorAddress --" );
+        long  a = SensorAddress.pack( 3, 2, 5, 1000 );
+        assertEquals( 3, SensorAddress.protocolOf( a ) );
+        assertEquals( 2, SensorAddress.bankOf( a ) );
+        assertEquals( 5, SensorAddress.unitOf( a ) );
+        assertEquals( 1000, SensorAddress.bitOf( a ) );
+        assertEquals( SensorAddress.pack( 3, 2, 5, 0 ), SensorAddress.unitKey( a ) );
+        assertEquals( "3:2.5.1000", SensorAddress.toString( a ) );
+
+        long  max = SensorAddress.pack( SensorAddress.MAX_PROTOCOL, SensorAddress.MAX_BANK, SensorAddress.MAX_UNIT, SensorAddress.MAX_BIT );
+        assertEquals( SensorAddress.MAX_PROTOCOL, SensorAddress.protocolOf( max ) );
+        assertEquals( SensorAddress.MAX_BANK, SensorAddress.bankOf( max ) );
+        assertEquals( SensorAddress.MAX_UNIT, SensorAddress.unitOf( max ) );
+        assertEquals( SensorAddress.MAX_BIT, SensorAddress.bitOf( max ) );
+
+        try {
+            SensorAddress.pack( 0, 0, 0, SensorAddress.MAX_BIT + 1 );
+            fail( "bit too big" );
+        }
+        catch( IllegalArgumentException ex ) { }
+    }
+
+    /**
+     * Test of compile method, forward and reverse lookups.
+     */
+    @Test
+    public void testCompile()
+    {
+        System.out.println( "-- compile --" );
+        List<BankBean>  banks = Arrays.asList( bank( "cmri", "1" ), bank( "CMRI", "2" ), bank( "loconet", "7" ) );
+        List<LayoutSensorBean>  sensors = Arrays.asList(
+                sensor( "BD-Littleton-E", "1", "5", "17" ),
+                sensor( "BD-Littleton-W", "1", "5", "3" ),
+                sensor( "Turnout-12-N",   "2", "5", "3" ),
+                sensor( "Shared",         "1", "5", "17" ),
+                sensor( "Far",            "7", "0x10", "0" ) );
+
+        LayoutSensorIndex  instance = LayoutSensorIndex.compile( banks, sensors );
+        assertEquals( 5, instance.getSensorCount() );
+        assertEquals( Arrays.asList( "cmri", "loconet" ), instance.getProtocols() );
+        assertEquals( 3, instance.getUnitCount() );
+
+        //  Forward.
+        assertEquals( 0, instance.idOf( "BD-Littleton-E" ) );
+        assertEquals( 4, instance.idOf( "Far" ) );
+        assertEquals( -1, instance.idOf( "nope" ) );
+        assertEquals( "Turnout-12-N", instance.getName( 2 ) );
+        assertEquals( SensorAddress.pack( 0, 1, 5, 17 ), instance.getAddress( 0 ) );
+        assertEquals( SensorAddress.pack( 0, 2, 5, 3 ), instance.getAddress( 2 ) );
+        assertEquals( SensorAddress.pack( 1, 7, 16, 0 ), instance.getAddress( 4 ) );
+
+        //  Reverse: same unit number on another bank is another unit.
+        int  u = instance.unitIndexOf( SensorAddress.pack( 0, 1, 5, 0 ) );
+        assertTrue( u >= 0 );
+        assertEquals( u, instance.unitIndexOf( SensorAddress.pack( 0, 1, 5, 99 ) ) );
+        assertEquals( 1, instance.sensorCountAt( u, 3 ) );
+        assertEquals( 1, instance.sensorAt( u, 3, 0 ) );
+        assertEquals( 2, instance.sensorCountAt( u, 17 ) );
+        assertEquals( 0, instance.sensorAt( u, 17, 0 ) );
+        assertEquals( 3, instance.sensorAt( u, 17, 1 ) );
+        assertEquals( 0, instance.sensorCountAt( u, 4 ) );
+        assertEquals( 0, instance.sensorCountAt( u, 18 ) );
+        assertEquals( 0, instance.sensorCountAt( u, 5000 ) );
+        assertEquals( -1, instance.unitIndexOf( SensorAddress.pack( 0, 1, 6, 0 ) ) );
+        assertEquals( 0, instance.sensorCountAt( -1, 0 ) );
+        assertEquals( u, instance.unitIndexOf( 1, 5 ) );
+        assertEquals( -1, instance.unitIndexOf( 1, 4 ) );
+        assertEquals( -1, instance.unitIndexOf( 3, 5 ) );
+        assertEquals( -1, instance.unitIndexOf( 99, 5 ) );
+        assertEquals( -1, instance.unitIndexOf( -1, 5 ) );
+        assertEquals( "other protocol", -1, instance.unitIndexOf( SensorAddress.pack( 1, 1, 5, 0 ) ) );
+
+        ChangedIndices  seen = new ChangedIndices();
+        assertEquals( 1, instance.visitSensorsAt( SensorAddress.pack( 0, 2, 5, 3 ), seen ) );
+        assertEquals( 2, seen.get( 0 ) );
+        assertEquals( 1, instance.visitSensorsAt( SensorAddress.pack( 1, 7, 16, 0 ), seen ) );
+        assertEquals( 4, seen.get( 1 ) );
+        assertEquals( 0, instance.visitSensorsAt( SensorAddress.pack( 1, 7, 16, 1 ), seen ) );
+    }
+
+    /**
+     * Test of compile method, bad sensors.
+     */
+    @Test
+    public void testCompileErrors()
+    {
+        System.out.println( "-- compile errors --" );
+        List<BankBean>  banks = Arrays.asList( bank( "cmri", "1" ) );
+
+        assertEquals( 0, LayoutSensorIndex.compile( banks, new ArrayList<LayoutSensorBean>() ).getSensorCount() );
+
+        try {
+            LayoutSensorIndex.compile( banks, Arrays.asList( sensor( "a", "1", "0", "0" ), sensor( "a", "1", "0", "1" ) ) );
+            fail( "same name twice" );
+        }
+        catch( IllegalArgumentException ex ) { }
+
+        try {
+            LayoutSensorIndex.compile( banks, Arrays.asList( sensor( "a", "2", "0", "0" ) ) );
+            fail( "no such bank" );
+        }
+        catch( IllegalArgumentException ex ) {
+            assertTrue( ex.getMessage(), ex.getMessage().contains( "\"a\"" ) );
+        }
+
+        try {
+            LayoutSensorIndex.compile( banks, Arrays.asList( sensor( "a", "1", "zero", "0" ) ) );
+            fail( "bad unit" );
+        }
+        catch( IllegalArgumentException ex ) { }
+
+        try {
+            LayoutSensorIndex.compile( Arrays.asList( bank( "cmri", "1" ), bank( "x", "1" ) ), new ArrayList<LayoutSensorBean>() );
+            fail( "bank twice" );
+        }
+        catch( IllegalArgumentException ex ) { }
+    }
+
+    /**
+     * Test of finding sensors from a scan event and a snapshot, banks added out of XML order.
+     */
+    @Test
+    public void testFromSnapshot()
+    {
+        System.out.println( "-- from snapshot --" );
+        LayoutSensorIndex  index = LayoutSensorIndex.compile(
+                Arrays.asList( bank( "cmri", "1" ), bank( "cmri", "2" ) ),
+                Arrays.asList( sensor( "East", "1", "5", "3" ),
+                               sensor( "West", "2", "5", "3" ) ) );
+
+        LayoutSnapshotPublisher  pub = new LayoutSnapshotPublisher();
+        SlotArrayLayoutIoModel  bank2 = new SlotArrayLayoutIoModel( 8 );
+        SlotArrayLayoutIoModel  bank1 = new SlotArrayLayoutIoModel( 8 );
+        assertEquals( 0, pub.addBank( bank2, 2 ) );
+        assertEquals( 1, pub.addBank( bank1, 1 ) );
+        assertEquals( 2, pub.getLayoutBank( 0 ) );
+        assertEquals( 1, pub.getLayoutBank( 1 ) );
+        assertEquals( -1, pub.getLayoutBank( 2 ) );
+        assertEquals( 1, pub.bankOfLayout( 1 ) );
+        assertEquals( -1, pub.bankOfLayout( 7 ) );
+
+        try {
+            pub.addBank( new SlotArrayLayoutIoModel( 8 ), 1 );
+            fail( "layout bank twice" );
+        }
+        catch( IllegalArgumentException ex ) { }
+
+        final ArrayList<LayoutIoScanChangedEvent<?>>  events = new ArrayList<>();
+        bank1.addIoSensedDataListener( new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+                events.add( event );
+            }
+        } );
+
+        IntAddressScanBatch  batch = bank1.beginScan();
+        batch.put( 5, new byte[] { 0x08 }, 0, 1 );
+        batch.commit();
+        assertEquals( 1, events.size() );
+
+        //  Scan event: model's bank number to layout bank, then unit and bit to sensor.
+        LayoutIoScanChangedEvent<?>  ev = events.get( 0 );
+        SlotArrayLayoutIoModel  model = (SlotArrayLayoutIoModel) ev.getSource();
+        assertEquals( 1, ev.getChangedCount() );
+        int  u = index.unitIndexOf( pub.getLayoutBank( model.getBankNumber() ), (Integer) ev.getUnit( 0 ) );
+        assertEquals( 1, index.sensorCountAt( u, ev.getBit( 0 ) ) );
+        assertEquals( index.idOf( "East" ), index.sensorAt( u, ev.getBit( 0 ), 0 ) );
+
+        //  Snapshot: each sensor's input, by its address.
+        LayoutSnapshot  snap = pub.getSnapshot();
+        long  east = pub.toSnapshotAddress( index.getAddress( index.idOf( "East" ) ) );
+        long  west = pub.toSnapshotAddress( index.getAddress( index.idOf( "West" ) ) );
+        assertEquals( LayoutSnapshot.address( 1, 5, 3 ), east );
+        assertEquals( LayoutSnapshot.address( 0, 5, 3 ), west );
+        assertTrue( snap.get( east ) );
+        assertFalse( snap.get( west ) );
+        assertEquals( -1L, pub.toSnapshotAddress( SensorAddress.pack( 0, 7, 5, 3 ) ) );
+
+        //  And back: a snapshot bit to its sensor.
+        u = index.unitIndexOf( pub.getLayoutBank( LayoutSnapshot.bankOf( east ) ), LayoutSnapshot.unitOf( east ) );
+        assertEquals( index.idOf( "East" ), index.sensorAt( u, LayoutSnapshot.bitOf( east ), 0 ) );
+    }
+
+}
@@ -0,0 +1,193 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class LayoutSnapshotPublisherTest {
+
+    public LayoutSnapshotPublisherTest() {
+    }
+
+    /**
+     * Test of publishScanEpoch and getScanEpoch methods, of class SlotArrayLayoutIoModel.
+     */
+    @Test
+    public void testScanEpoch()
+    {
+        System.out.println( "-- scan epoch --" );
+        SlotArrayLayoutIoModel instance = new SlotArrayLayoutIoModel( 8 );
+        ScanEpoch  e0 = instance.getScanEpoch();
+        assertEquals( 0L, e0.getEpoch() );
+        assertEquals( 8, e0.getUnitCount() );
+        assertNull( e0.getUnit( 3 ) );
+
+        //  Writes don't show until end of cycle.
+        instance.setSensedPackedBytes( 3, new byte[] { 0x01 }, 0, 1 );
+        assertSame( e0, instance.getScanEpoch() );
+        ScanEpoch  e1 = instance.publishScanEpoch();
+        assertEquals( 1L, e1.getEpoch() );
+        assertTrue( e1.get( 3, 0 ) );
+        assertSame( instance.getSensedDataSnapshot( 3 ), e1.getUnit( 3 ) );
+
+        //  Nothing changed, no new epoch.
+        instance.setSensedPackedBytes( 3, new byte[] { 0x01 }, 0, 1 );
+        assertSame( e1, instance.publishScanEpoch() );
+
+        //  Next cycle's writes leave published epoch alone.
+        instance.setSensedPackedBytes( 3, new byte[] { 0x00 }, 0, 1 );
+        instance.setSensedPackedBytes( 4, new byte[] { 0x02 }, 0, 1 );
+        assertTrue( e1.get( 3, 0 ) );
+        assertFalse( e1.get( 4, 1 ) );
+
+        ScanEpoch  e2 = instance.publishScanEpoch();
+        assertEquals( 2L, e2.getEpoch() );
+        assertFalse( e2.get( 3, 0 ) );
+        assertTrue( e2.get( 4, 1 ) );
+        assertFalse( "out of range", e2.get( 99, 0 ) );
+    }
+
+    /**
+     * Test of getSnapshot method, across banks.
+     */
+    @Test
+    public void testSnapshot()
+    {
+        System.out.println( "-- snapshot --" );
+        SlotArrayLayoutIoModel bank0 = new SlotArrayLayoutIoModel( 4 );
+        SlotArrayLayoutIoModel bank1 = new SlotArrayLayoutIoModel( 4 );
+        LayoutSnapshotPublisher instance = new LayoutSnapshotPublisher();
+        assertEquals( 0, instance.getSnapshot().getBankCount() );
+
+        bank0.setSensedPackedBytes( 1, new byte[] { 0x01 }, 0, 1 );
+        bank0.publishScanEpoch();
+        assertEquals( 0, instance.addBank( bank0 ) );
+        assertEquals( 1, instance.addBank( bank1 ) );
+
+        LayoutSnapshot  s1 = instance.getSnapshot();
+        assertEquals( 2, s1.getBankCount() );
+        assertTrue( "published before added", s1.get( 0, 1, 0 ) );
+        assertEquals( 0L, s1.getBank( 1 ).getEpoch() );
+
+        bank1.setSensedPackedBytes( 2, new byte[] { 0x04 }, 0, 1 );
+        bank1.publishScanEpoch();
+        LayoutSnapshot  s2 = instance.getSnapshot();
+        assertTrue( s2.getGeneration() > s1.getGeneration() );
+        assertTrue( s2.get( 1, 2, 2 ) );
+        assertTrue( s2.get( 0, 1, 0 ) );
+        assertSame( s1.getBank( 0 ), s2.getBank( 0 ) );
+
+        //  Older snapshot never changes.
+        assertFalse( s1.get( 1, 2, 2 ) );
+        assertFalse( s2.get( 2, 0, 0 ) );
+
+        try {
+            instance.addBank( bank1 );
+            fail( "already added" );
+        }
+        catch( IllegalStateException ex ) { }
+    }
+
+    /**
+     * Test of packed (bank, unit, bit) addresses, same unit in two banks.
+     */
+    @Test
+    public void testPackedAddress()
+    {
+        System.out.println( "-- packed address --" );
+        long  a = LayoutSnapshot.address( 2, 5, 40 );
+        assertEquals( 2, LayoutSnapshot.bankOf( a ) );
+        assertEquals( 5, LayoutSnapshot.unitOf( a ) );
+        assertEquals( 40, LayoutSnapshot.bitOf( a ) );
+        long  max = LayoutSnapshot.address( LayoutSnapshot.MAX_BANK, LayoutSnapshot.MAX_UNIT, Integer.MAX_VALUE );
+        assertEquals( LayoutSnapshot.MAX_BANK, LayoutSnapshot.bankOf( max ) );
+        assertEquals( LayoutSnapshot.MAX_UNIT, LayoutSnapshot.unitOf( max ) );
+        assertEquals( Integer.MAX_VALUE, LayoutSnapshot.bitOf( max ) );
+        assertTrue( "sorts by bank first", LayoutSnapshot.address( 1, 9, 9 ) < LayoutSnapshot.address( 2, 0, 0 ) );
+
+        SlotArrayLayoutIoModel bank0 = new SlotArrayLayoutIoModel( 8 );
+        SlotArrayLayoutIoModel bank1 = new SlotArrayLayoutIoModel( 8 );
+        LayoutSnapshotPublisher instance = new LayoutSnapshotPublisher();
+        assertEquals( -1, bank0.getBankNumber() );
+        instance.addBank( bank0 );
+        instance.addBank( bank1 );
+        assertEquals( 1, bank1.getBankNumber() );
+        assertSame( bank1, instance.getBankModel( 1 ) );
+
+        //  Unit 5 of each bank is its own.
+        bank0.setSensedPackedBytes( 5, new byte[] { 0x01 }, 0, 1 );
+        bank1.setSensedPackedBytes( 5, new byte[] { 0x02 }, 0, 1 );
+        bank0.publishScanEpoch();
+        bank1.publishScanEpoch();
+        LayoutSnapshot  snap = instance.getSnapshot();
+        assertTrue( snap.get( LayoutSnapshot.address( 0, 5, 0 ) ) );
+        assertFalse( snap.get( LayoutSnapshot.address( 0, 5, 1 ) ) );
+        assertFalse( snap.get( LayoutSnapshot.address( 1, 5, 0 ) ) );
+        assertTrue( snap.get( LayoutSnapshot.address( 1, 5, 1 ) ) );
+        assertFalse( "no such bank", snap.get( LayoutSnapshot.address( 7, 5, 1 ) ) );
+
+        try {
+            LayoutSnapshot.address( 0, 0x10000, 0 );
+            fail( "unit too big" );
+        }
+        catch( IllegalArgumentException ex ) { }
+    }
+
+    /**
+     * Test of commitScan method, of class SlotArrayLayoutIoModel: a batch publishes an epoch.
+     */
+    @Test
+    public void testScanBatch()
+    {
+        System.out.println( "-- scan batch --" );
+        SlotArrayLayoutIoModel instance = new SlotArrayLayoutIoModel( 8 );
+        final int[]  told = new int[2];
+        instance.addIoSensedDataListener( new IoSensedDataListener() {
+            @Override
+            public void ioDataChanged( LayoutIoDataChangedEvent<?> event ) {
+                ++told[0];
+            }
+            @Override
+            public void ioBlobChanged( Object device_addr, byte[] old_blob, byte[] new_blob ) {
+            }
+            @Override
+            public void ioScanChanged( LayoutIoScanChangedEvent<?> event ) {
+                ++told[1];
+                assertEquals( 2, event.getChangedCount() );
+            }
+        } );
+
+        LayoutIoScanBatch<Integer>  batch = instance.beginScan();
+        batch.put( 1, new byte[] { 0x01 }, 0, 1 );
+        batch.put( 2, new byte[] { 0x01 }, 0, 1 );
+        assertEquals( 0L, instance.getScanEpoch().getEpoch() );
+        assertEquals( 2, batch.commit() );
+
+        ScanEpoch  e1 = instance.getScanEpoch();
+        assertEquals( 1L, e1.getEpoch() );
+        assertTrue( e1.get( 1, 0 ) && e1.get( 2, 0 ) );
+        assertEquals( e1.getUnit( 1 ).getVersion(), e1.getUnit( 2 ).getVersion() );
+        assertEquals( 0, told[0] );
+        assertEquals( 1, told[1] );
+
+        //  Nothing changed: no epoch, nobody told.
+        batch.put( 1, new byte[] { 0x01 }, 0, 1 );
+        assertEquals( 0, batch.commit() );
+        assertSame( e1, instance.getScanEpoch() );
+        assertEquals( 1, told[1] );
+
+        try {
+            batch.put( 9, new byte[] { 0x01 }, 0, 1 );
+            batch.commit();
+            fail( "unit out of range" );
+        }
+        catch( IllegalArgumentException ex ) { }
+        assertTrue( "emptied even so", batch.isEmpty() );
+    }
+
+}
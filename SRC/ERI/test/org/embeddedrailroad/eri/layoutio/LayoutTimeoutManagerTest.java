@@ -157,6 +157,47 @@ public class LayoutTimeoutManagerTest {
     }
 
 
+    /**
+     * Test of timeoutMillis methods with the timing wheel, and the ticket API.
+     */
+    @Test
+    public void testWheelMode()
+            throws Exception
+    {
+        System.out.println( "wheel mode" );
+        LayoutTimeoutManager instance = LayoutTimeoutManager.getInstance();
+
+        instance.setTimerMode( LayoutTimeoutManager.MODE_WHEEL );
+        try
+        {
+            Future  result = instance.timeoutMillis( 20, new LayoutTimeoutManager.TimeoutValueAction() {
+                @Override
+                public Object onTimeout( Object anchor )
+                {
+                    return (Integer) anchor + 1;
+                }
+            }, 41 );
+            assertEquals( 42, result.get( 5, java.util.concurrent.TimeUnit.SECONDS ) );
+
+            Integer[]  done = { 0 };
+            Future  cancelled = instance.timeoutMillis( 50, new MyClient(), done );
+            assertTrue( cancelled.cancel( false ) );
+
+            long  ticket = instance.scheduleMillis( 50, new MyClient(), done );
+            assertTrue( instance.cancel( ticket ) );
+
+            Thread.sleep( 150 );
+            synchronized( done )
+            {
+                assertEquals( 0, done[0].intValue() );
+            }
+        }
+        finally
+        {
+            instance.setTimerMode( LayoutTimeoutManager.MODE_EXECUTOR );
+        }
+    }
+
     public class MyClient implements LayoutTimeoutManager.TimeoutAction
     {
         public MyClient()
@@ -0,0 +1,189 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio;
+
+import com.crunchynoodles.util.TableOfBoolean;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class SlotArrayLayoutIoModelTest {
+
+    public SlotArrayLayoutIoModelTest() {
+    }
+
+    /**
+     * Test of setting and getting sensed data, of class SlotArrayLayoutIoModel.
+     */
+    @Test
+    public void testSetGet()
+    {
+        System.out.println( "-- set/get --" );
+        SlotArrayLayoutIoModel instance = new SlotArrayLayoutIoModel( 256 );
+
+        //  Unknown unit reads as an empty table.
+        assertNull( instance.getSensedDataAll( 5 ).getEntry( 0 ) );
+        assertFalse( instance.getSensedDataOne( 5, 0 ) );
+        assertFalse( instance.getSensedDataOne( 999, 0 ) );
+
+        instance.setSensedPackedBytes( 5, new byte[] { 0x01, 0x00, (byte) 0x80 }, 0, 3 );
+        assertTrue( instance.getSensedDataOne( 5, 0 ) );
+        assertTrue( instance.getSensedDataOne( 5, 23 ) );
+        assertFalse( instance.getSensedDataOne( 5, 22 ) );
+        try {
+            instance.getSensedDataOne( 5, 24 );
+            fail( "past end" );
+        }
+        catch( ArrayIndexOutOfBoundsException ex ) { }
+
+        //  Copy is the caller's own.
+        TableOfBoolean  all = instance.getSensedDataAll( 5 );
+        assertEquals( 24, all.size() );
+        all.put( 0, false );
+        assertTrue( instance.getSensedDataOne( 5, 0 ) );
+
+        TableOfBoolean  some = new TableOfBoolean( 100 );
+        some.put( 90, true );
+        instance.setSensedBinaryData( 5, some );
+        assertTrue( instance.getSensedDataOne( 5, 90 ) );
+        assertTrue( "merged", instance.getSensedDataOne( 5, 23 ) );
+
+        instance.setSensedBinaryData( 5, new boolean[] { false, true } );
+        assertEquals( 2, instance.getSensedDataAll( 5 ).size() );
+        assertTrue( instance.getSensedDataOne( 5, 1 ) );
+
+        instance.setSensedBinaryData( 5, (boolean[]) null );
+        assertNull( instance.getSensedDataAll( 5 ).getEntry( 1 ) );
+
+        instance.setSensedBinaryBlob( 5, 3, new byte[] { 9 } );
+        assertArrayEquals( new byte[] { 9 }, instance.getSensedBlob( 5, 3 ) );
+        assertNull( instance.getSensedBlob( 5, 4 ) );
+
+        try {
+            instance.setSensedBinaryData( 256, new boolean[1] );
+            fail( "unit out of range" );
+        }
+        catch( IllegalArgumentException ex ) { }
+    }
+
+    /**
+     * Test of getSensedDataSnapshot and getSensedDataIfNewer methods.
+     */
+    @Test
+    public void testSnapshots()
+    {
+        System.out.println( "-- snapshots --" );
+        SlotArrayLayoutIoModel instance = new SlotArrayLayoutIoModel( 8 );
+        assertNull( instance.getSensedDataSnapshot( 2 ) );
+        assertNull( instance.getSensedDataIfNewer( 2, -1 ) );
+
+        instance.setSensedPackedBytes( 2, new byte[] { 0x04 }, 0, 1 );
+        SensedDataSnapshot  s1 = instance.getSensedDataIfNewer( 2, -1 );
+        assertNotNull( s1 );
+        assertTrue( s1.get( 2 ) );
+        assertEquals( 2, s1.nextSetBit( 0 ) );
+
+        //  Same bits, or merging nothing new, makes no new version.
+        instance.setSensedPackedBytes( 2, new byte[] { 0x04 }, 0, 1 );
+        TableOfBoolean  same = new TableOfBoolean( 3 );
+        same.put( 2, true );
+        instance.setSensedBinaryData( 2, same );
+        assertNull( instance.getSensedDataIfNewer( 2, s1.getVersion() ) );
+        assertSame( s1, instance.getSensedDataSnapshot( 2 ) );
+
+        instance.setSensedPackedBytes( 2, new byte[] { 0x08 }, 0, 1 );
+        SensedDataSnapshot  s2 = instance.getSensedDataIfNewer( 2, s1.getVersion() );
+        assertNotNull( s2 );
+        assertTrue( s2.getVersion() > s1.getVersion() );
+
+        //  Old snapshot never changes.
+        assertTrue( s1.get( 2 ) );
+        assertFalse( s2.get( 2 ) );
+        assertTrue( s2.get( 3 ) );
+    }
+
+    /**
+     * Test of int-keyed methods, same as Integer-keyed ones.
+     */
+    @Test
+    public void testIntAddress()
+    {
+        System.out.println( "-- int address --" );
+        IntAddressLayoutIoModel instance = new SlotArrayLayoutIoModel( 16 );
+        Integer  boxed = Integer.valueOf( 9 );
+
+        instance.setSensedPackedBytes( 9, new byte[] { 0x02 }, 0, 1 );
+        assertTrue( instance.getSensedDataOne( 9, 1 ) );
+        assertTrue( instance.getSensedDataOne( boxed, 1 ) );
+        assertSame( instance.getSensedDataSnapshot( boxed ), instance.getSensedDataSnapshot( 9 ) );
+        assertNull( instance.getSensedDataIfNewer( 9, instance.getSensedDataSnapshot( 9 ).getVersion() ) );
+
+        instance.setUnitQueryMessage( boxed, new byte[] { 1 } );
+        assertArrayEquals( new byte[] { 1 }, instance.getUnitQueryMessage( 9 ) );
+        assertNull( instance.getUnitInitializationStrings( 9 ) );
+        assertNull( "unknown unit", instance.getSensedDataSnapshot( -1 ) );
+
+        try {
+            instance.setSensedPackedBytes( 16, new byte[] { 0x02 }, 0, 1 );
+            fail( "unit out of range" );
+        }
+        catch( IllegalArgumentException ex ) { }
+
+        try {
+            instance.getSensedDataOne( (Integer) null, 0 );
+            fail( "null unit" );
+        }
+        catch( NullPointerException ex ) { }
+    }
+
+    /**
+     * Readers never see a half-written image while the writer runs.
+     */
+    @Test
+    public void testConsistentReads()
+            throws InterruptedException
+    {
+        System.out.println( "-- consistent reads --" );
+        final SlotArrayLayoutIoModel instance = new SlotArrayLayoutIoModel( 4 );
+        final AtomicBoolean  done = new AtomicBoolean();
+        final AtomicInteger  torn = new AtomicInteger();
+        instance.setSensedPackedBytes( 1, new byte[ 32 ], 0, 32 );
+
+        //  Writer flips the whole image between all 0s and all 1s.
+        Thread  writer = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                byte[]  zero = new byte[ 32 ];
+                byte[]  ones = new byte[ 32 ];
+                java.util.Arrays.fill( ones, (byte) 0xff );
+                for( int j = 0 ; j < 200000 ; ++j )
+                    instance.setSensedPackedBytes( 1, ( (j & 1) != 0 ) ? ones : zero, 0, 32 );
+                done.set( true );
+            }
+        } );
+        writer.start();
+
+        while( ! done.get() )
+        {
+            TableOfBoolean  t = instance.getSensedDataAll( 1 );
+            boolean  first = t.get( 0 );
+            for( int b = 1 ; b < 256 ; ++b )
+            {
+                if( t.get( b ) != first )
+                {
+                    torn.incrementAndGet();
+                    break;
+                }
+            }
+        }
+        writer.join();
+
+        assertEquals( 0, torn.get() );
+    }
+
+}
@@ -0,0 +1,95 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriChangeWeightedScheduleTest {
+
+    public CmriChangeWeightedScheduleTest() {
+    }
+
+    /** Pass length in nanos used by the simulation, 20 milliseconds. */
+    private static final long   PASS = 20L * 1000 * 1000;
+
+    /**
+     * Test that a busy unit is polled far more often than a quiet one.
+     */
+    @Test
+    public void testBusyVersusQuiet()
+    {
+        System.out.println( "-- busy vs quiet --" );
+        CmriChangeWeightedSchedule instance = new CmriChangeWeightedSchedule( 60 * 1000 );
+
+        int  busy = 0, quiet = 0;
+        long  now = 0;
+        for( int pass = 0 ; pass < 1000 ; ++pass, now += PASS )
+        {
+            if( instance.shouldPoll( 1, now ) )
+            {
+                instance.polled( 1, true, now );
+                ++busy;
+            }
+            if( instance.shouldPoll( 2, now ) )
+            {
+                instance.polled( 2, false, now );
+                ++quiet;
+            }
+        }
+
+        assertEquals( 1000, busy );
+        assertTrue( "quiet polled " + quiet, quiet < 200 );
+        assertTrue( "quiet polled " + quiet, quiet >= 1000 / 16 );
+        assertTrue( instance.getChangeRate( 2 ) < 0.1f );
+    }
+
+    /**
+     * Test of guaranteed maximum staleness.
+     */
+    @Test
+    public void testMaxStaleness()
+    {
+        System.out.println( "-- max staleness --" );
+        CmriChangeWeightedSchedule instance = new CmriChangeWeightedSchedule( 100, 0.001f, 0.5f );
+
+        long  now = 0;
+        long  last = 0;
+        long  worst = 0;
+        for( int pass = 0 ; pass < 500 ; ++pass, now += PASS )
+        {
+            if( instance.shouldPoll( 7, now ) )
+            {
+                instance.polled( 7, false, now );
+                worst = Math.max( worst, now - last );
+                last = now;
+            }
+        }
+
+        assertTrue( "worst gap " + worst, worst <= 100L * 1000 * 1000 );
+        assertTrue( "worst gap " + worst, worst >= 80L * 1000 * 1000 );
+    }
+
+    /**
+     * Test of reset, revived units start hot.
+     */
+    @Test
+    public void testReset()
+    {
+        System.out.println( "-- reset --" );
+        CmriChangeWeightedSchedule instance = new CmriChangeWeightedSchedule( 60 * 1000 );
+
+        for( int j = 0 ; j < 100 ; ++j )
+            instance.polled( 3, false, j * PASS );
+        assertFalse( instance.shouldPoll( 3, 100 * PASS ) );
+
+        instance.reset( 3 );
+        assertTrue( instance.shouldPoll( 3, 101 * PASS ) );
+        assertEquals( 1.0f, instance.getChangeRate( 3 ), 0.0f );
+    }
+
+}
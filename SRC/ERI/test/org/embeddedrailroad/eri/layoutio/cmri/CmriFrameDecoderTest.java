@@ -0,0 +1,231 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriFrameDecoderTest {
+
+    public CmriFrameDecoderTest() {
+    }
+
+    /**
+     * Test of feed method, one byte at a time, of class CmriFrameDecoder.
+     */
+    @Test
+    public void testFeedByte()
+    {
+        System.out.println( "feed(byte)" );
+        CmriFrameDecoder instance = new CmriFrameDecoder();
+
+        //  FF FF STX 'C'(unit #2) 'R' 0x55 0xAA ETX
+        byte[]  wire = { (byte) 0xff, (byte) 0xff, 0x02, 0x43, 0x52, 0x55, (byte) 0xaa, 0x03 };
+
+        for( int j = 0 ; j < wire.length - 1 ; ++j )
+        {
+            assertFalse( "complete too early at #" + j, instance.feed( wire[j] ) );
+        }
+        assertTrue( instance.hasAddress() );
+        assertTrue( instance.feed( wire[ wire.length - 1 ] ) );
+
+        assertTrue( instance.isComplete() );
+        assertEquals( 2, instance.getUnitAddress() );
+        assertEquals( 'R', instance.getMessageType() );
+        assertArrayEquals( new byte[] { 0x55, (byte) 0xaa }, instance.copyPayload() );
+    }
+
+    /**
+     * Test of feed method with escaped STX, ETX and DLE in payload.
+     */
+    @Test
+    public void testFeedEscapes()
+    {
+        System.out.println( "feed(escapes)" );
+        CmriFrameDecoder instance = new CmriFrameDecoder();
+
+        byte[]  wire = { (byte) 0xff, 0x02, 0x41, 0x52,
+                         0x10, 0x03, 0x10, 0x02, 0x10, 0x10, 0x07, 0x03,
+                         (byte) 0xff, 0x02 };
+
+        int  used = instance.feed( wire, 0, wire.length );
+
+        //  Chunk feed stops right after ETX.
+        assertEquals( 12, used );
+        assertTrue( instance.isComplete() );
+        assertEquals( 0, instance.getUnitAddress() );
+        assertArrayEquals( new byte[] { 0x03, 0x02, 0x10, 0x07 }, instance.copyPayload() );
+
+        //  Done until reset.
+        assertFalse( instance.feed( (byte) 0x03 ) );
+        instance.reset();
+        assertFalse( instance.isStarted() );
+    }
+
+    /**
+     * Test of un-escaped STX inside payload, which is loss of sync.
+     */
+    @Test
+    public void testLostSync()
+    {
+        System.out.println( "feed(lost sync)" );
+        CmriFrameDecoder instance = new CmriFrameDecoder();
+
+        byte[]  wire = { 0x02, 0x41, 0x52, 0x11, 0x02, 0x41, 0x52, 0x03 };
+        instance.feed( wire, 0, wire.length );
+
+        assertTrue( instance.isError() );
+        assertFalse( instance.isComplete() );
+    }
+
+    /**
+     * Test of payload overflow.
+     */
+    @Test
+    public void testOverflow()
+    {
+        System.out.println( "feed(overflow)" );
+        CmriFrameDecoder instance = new CmriFrameDecoder( 2 );
+
+        byte[]  wire = { 0x02, 0x41, 0x52, 0x11, 0x22, 0x33, 0x03 };
+        instance.feed( wire, 0, wire.length );
+
+        assertTrue( instance.isError() );
+    }
+
+    /**
+     * Test of markError method, of class CmriFrameDecoder.
+     */
+    @Test
+    public void testMarkError()
+    {
+        System.out.println( "markError" );
+        CmriFrameDecoder instance = new CmriFrameDecoder();
+
+        //  While hunting, a line error loses nothing.
+        instance.markError();
+        assertFalse( instance.isError() );
+
+        instance.feed( (byte) 0x02 );
+        instance.markError();
+        assertTrue( instance.isError() );
+        assertTrue( instance.isDone() );
+    }
+
+    /**
+     * Test of setExpectedLength, frame completes on last payload byte.
+     */
+    @Test
+    public void testExpectedLength()
+    {
+        System.out.println( "feed(expected length)" );
+        CmriFrameDecoder instance = new CmriFrameDecoder();
+        instance.setExpectedLength( 3 );
+
+        //  Escaped ETX as last payload byte, then the real ETX.
+        byte[]  wire = { (byte) 0xff, (byte) 0xff, 0x02, 0x41, 0x52, 0x11, 0x22, 0x10, 0x03, 0x03 };
+
+        for( int j = 0 ; j < wire.length - 2 ; ++j )
+            assertFalse( "complete too early at #" + j, instance.feed( wire[j] ) );
+        assertTrue( "not complete on last payload byte", instance.feed( wire[ wire.length - 2 ] ) );
+        assertArrayEquals( new byte[] { 0x11, 0x22, 0x03 }, instance.copyPayload() );
+
+        //  Trailing ETX is fine.
+        instance.feed( wire[ wire.length - 1 ] );
+        assertTrue( instance.isComplete() );
+        assertEquals( CmriFrameDecoder.ERROR_NONE, instance.getError() );
+
+        //  Chunk feed consumes the ETX too ; length is kept across reset.
+        instance.reset();
+        assertEquals( 3, instance.getExpectedLength() );
+        assertEquals( wire.length, instance.feed( wire, 0, wire.length ) );
+        assertTrue( instance.isComplete() );
+    }
+
+    /**
+     * Test of setExpectedLength, the ETX arriving in a later chunk than the last payload byte.
+     */
+    @Test
+    public void testEtxSeparateChunk()
+    {
+        System.out.println( "feed(ETX in separate chunk)" );
+        CmriFrameDecoder instance = new CmriFrameDecoder();
+        instance.setExpectedLength( 3 );
+
+        byte[]  body = { (byte) 0xff, (byte) 0xff, 0x02, 0x41, 0x52, 0x11, 0x22, 0x33 };
+        assertEquals( body.length, instance.feed( body, 0, body.length ) );
+        assertTrue( instance.isComplete() );
+        assertTrue( "ETX not yet checked", instance.isAwaitingEtx() );
+
+        byte[]  etx = { 0x03, (byte) 0xff };
+        assertEquals( 1, instance.feed( etx, 0, etx.length ) );
+        assertTrue( instance.isComplete() );
+        assertFalse( instance.isAwaitingEtx() );
+        assertEquals( CmriFrameDecoder.ERROR_NONE, instance.getError() );
+
+        //  An over-long reply is caught even when its extra byte comes in the next chunk.
+        instance.reset();
+        instance.feed( body, 0, body.length );
+        byte[]  extra = { 0x44, 0x03 };
+        assertEquals( 1, instance.feed( extra, 0, extra.length ) );
+        assertTrue( instance.isError() );
+        assertEquals( CmriFrameDecoder.ERROR_LONG, instance.getError() );
+
+        //  Nothing after the last payload byte.
+        instance.reset();
+        instance.feed( body, 0, body.length );
+        instance.markEtxMissing();
+        assertTrue( instance.isError() );
+        assertEquals( CmriFrameDecoder.ERROR_NO_ETX, instance.getError() );
+
+        //  A line error where the ETX should be spoils the frame, too.
+        instance.reset();
+        instance.feed( body, 0, body.length );
+        instance.markError();
+        assertEquals( CmriFrameDecoder.ERROR_LINE, instance.getError() );
+
+        //  ETX-ended frames never wait.
+        instance.setExpectedLength( -1 );
+        instance.reset();
+        byte[]  frame = { 0x02, 0x41, 0x52, 0x11, 0x03 };
+        instance.feed( frame, 0, frame.length );
+        assertTrue( instance.isComplete() );
+        assertFalse( instance.isAwaitingEtx() );
+        instance.markEtxMissing();
+        assertTrue( instance.isComplete() );
+    }
+
+    /**
+     * Test of short and long frames with an expected length.
+     */
+    @Test
+    public void testShortLong()
+    {
+        System.out.println( "feed(short/long)" );
+        CmriFrameDecoder instance = new CmriFrameDecoder();
+        instance.setExpectedLength( 3 );
+
+        byte[]  short_frame = { (byte) 0xff, 0x02, 0x41, 0x52, 0x11, 0x22, 0x03 };
+        instance.feed( short_frame, 0, short_frame.length );
+        assertTrue( instance.isError() );
+        assertEquals( CmriFrameDecoder.ERROR_SHORT, instance.getError() );
+
+        instance.reset();
+        byte[]  long_frame = { (byte) 0xff, 0x02, 0x41, 0x52, 0x11, 0x22, 0x33, 0x44, 0x03 };
+        instance.feed( long_frame, 0, long_frame.length );
+        assertTrue( instance.isError() );
+        assertEquals( CmriFrameDecoder.ERROR_LONG, instance.getError() );
+
+        //  Unknown length goes back to ETX only.
+        instance.setExpectedLength( -1 );
+        instance.reset();
+        instance.feed( long_frame, 0, long_frame.length );
+        assertTrue( instance.isComplete() );
+        assertEquals( 4, instance.getPayloadLength() );
+    }
+
+}
@@ -0,0 +1,119 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriFrameEncoderTest {
+
+    public CmriFrameEncoderTest() {
+    }
+
+    /**
+     * Test of encode and writeTo methods, of class CmriFrameEncoder.
+     */
+    @Test
+    public void testEncode()
+            throws IOException
+    {
+        System.out.println( "-- encode --" );
+        CmriFrameEncoder instance = new CmriFrameEncoder();
+
+        //  Unit #2 gets 'T' with data needing escapes.
+        int  len = instance.encode( 2, new byte[] { 0x54, 0x02, 0x10, 0x55, 0x03 } );
+        byte[]  expect = { (byte) 0xff, (byte) 0xff, 0x02, 0x43, 0x54,
+                           0x10, 0x02, 0x10, 0x10, 0x55, 0x10, 0x03, 0x03 };
+        assertEquals( expect.length, len );
+
+        ByteArrayOutputStream  out = new ByteArrayOutputStream();
+        assertEquals( len, instance.writeTo( out ) );
+        assertArrayEquals( expect, out.toByteArray() );
+    }
+
+    /**
+     * Test that an encoded frame decodes back to the same message.
+     */
+    @Test
+    public void testRoundTrip()
+    {
+        System.out.println( "-- encode/decode round trip --" );
+        byte[]  mesg = new byte[ 40 ];
+        mesg[0] = 'T';
+        for( int j = 1 ; j < mesg.length ; ++j )
+            mesg[j] = (byte) j;
+
+        byte[]  frame = CmriFrameEncoder.encodeFrame( 9, mesg );
+
+        CmriFrameDecoder  dec = new CmriFrameDecoder();
+        assertEquals( frame.length, dec.feed( frame, 0, frame.length ) );
+        assertTrue( dec.isComplete() );
+        assertEquals( 9, dec.getUnitAddress() );
+        assertEquals( 'T', dec.getMessageType() );
+
+        byte[]  data = dec.copyPayload();
+        assertEquals( mesg.length - 1, data.length );
+        for( int j = 0 ; j < data.length ; ++j )
+            assertEquals( mesg[ j + 1 ], data[j] );
+    }
+
+    /**
+     * Test of too-long and empty messages.
+     */
+    @Test
+    public void testBadMessage()
+    {
+        System.out.println( "-- encode(bad) --" );
+        CmriFrameEncoder instance = new CmriFrameEncoder( 4 );
+
+        try {
+            instance.encode( 0, new byte[ 5 ] );
+            fail( "too long accepted" );
+        }
+        catch( IllegalArgumentException ex ) { }
+
+        try {
+            CmriFrameEncoder.encodeFrame( 0, new byte[ 0 ] );
+            fail( "empty accepted" );
+        }
+        catch( IllegalArgumentException ex ) { }
+    }
+
+    /**
+     * Test of poll, query and INIT frames from CmriFrameCache.
+     */
+    @Test
+    public void testFrameCache()
+    {
+        System.out.println( "-- CmriFrameCache --" );
+        CmriFrameCache  cache = new CmriFrameCache();
+
+        assertArrayEquals( new byte[] { (byte) 0xff, (byte) 0xff, 0x02, 0x41, 0x50, 0x03 },
+                           cache.getPollFrame( 0 ) );
+        assertSame( cache.getPollFrame( 5 ), cache.getQueryFrame( 5, null ) );
+
+        //  Same query array gives same cached frame ; a new one rebuilds.
+        byte[]  q = { 'P' };
+        byte[]  f1 = cache.getQueryFrame( 5, q );
+        assertSame( f1, cache.getQueryFrame( 5, q ) );
+        assertNotSame( f1, cache.getQueryFrame( 5, new byte[] { 'P' } ) );
+
+        ArrayList<byte[]>  inits = new ArrayList<>();
+        inits.add( new byte[] { 'I', 'M', 0, 0, 0, 0 } );
+        byte[][]  i1 = cache.getInitFrames( 7, inits );
+        assertEquals( 1, i1.length );
+        assertSame( i1, cache.getInitFrames( 7, inits ) );
+
+        cache.invalidate( 7 );
+        assertNotSame( i1, cache.getInitFrames( 7, inits ) );
+        assertNull( cache.getInitFrames( 7, null ) );
+    }
+
+}
@@ -0,0 +1,52 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.embeddedrailroad.eri.layoutio.LayoutSnapshot;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriLayoutProviderImplTest {
+
+    public CmriLayoutProviderImplTest() {
+    }
+
+    /**
+     * Test of makeChannel method, each channel gets its own bank.
+     */
+    @Test
+    public void testMakeChannelBanks()
+    {
+        System.out.println( "-- makeChannel banks --" );
+        CmriLayoutProviderImpl instance = CmriLayoutProviderImpl.getInstance();
+
+        CmriSerialLayoutTransport  t1 = (CmriSerialLayoutTransport) instance.makeChannel( "COM91", 9001 );
+        CmriSerialLayoutTransport  t2 = (CmriSerialLayoutTransport) instance.makeChannel( "COM92", 9002 );
+        assertSame( "same channel again", t1, instance.makeChannel( "COM91", 9001 ) );
+
+        CmriLayoutModelImpl  m1 = t1.getLayoutModel();
+        CmriLayoutModelImpl  m2 = t2.getLayoutModel();
+        assertNotSame( m1, m2 );
+        assertEquals( m1.getBankNumber() + 1, m2.getBankNumber() );
+        assertSame( m2, instance.getSnapshotPublisher().getBankModel( m2.getBankNumber() ) );
+        assertEquals( "channel is layout bank", 9002, instance.getSnapshotPublisher().getLayoutBank( m2.getBankNumber() ) );
+        assertEquals( m1.getBankNumber(), instance.getSnapshotPublisher().bankOfLayout( 9001 ) );
+
+        //  Unit 5 on one bank doesn't collide with unit 5 on the other.
+        m1.setSensedPackedBytes( 5, new byte[] { 0x01 }, 0, 1 );
+        m2.setSensedPackedBytes( 5, new byte[] { 0x00 }, 0, 1 );
+        assertTrue( m1.getSensedDataOne( 5, 0 ) );
+        assertFalse( m2.getSensedDataOne( 5, 0 ) );
+
+        m1.publishScanEpoch();
+        m2.publishScanEpoch();
+        LayoutSnapshot  snap = instance.getSnapshotPublisher().getSnapshot();
+        assertTrue( snap.get( LayoutSnapshot.address( m1.getBankNumber(), 5, 0 ) ) );
+        assertFalse( snap.get( LayoutSnapshot.address( m2.getBankNumber(), 5, 0 ) ) );
+    }
+
+}
@@ -0,0 +1,92 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriLineTimingTest {
+
+    public CmriLineTimingTest() {
+    }
+
+    /**
+     * Test of gap computed from baud rate.
+     */
+    @Test
+    public void testGapFromBaud()
+    {
+        System.out.println( "-- gap from baud --" );
+        CmriLineTiming instance = new CmriLineTiming( 9600, 3, 0 );
+
+        //  10 bits at 9600 baud is 1.0417 milliseconds.
+        assertEquals( 1041666L, instance.getCharNanos() );
+        assertEquals( 3 * 1041666L, instance.getGapNanos() );
+        assertEquals( 3 * 1041666L, instance.charsToNanos( 3 ) );
+
+        instance.setGapChars( 0 );
+        assertEquals( 0L, instance.getGapNanos() );
+    }
+
+    /**
+     * Test of awaitGap in precise mode, it must not return early.
+     */
+    @Test
+    public void testAwaitGapPrecise()
+    {
+        System.out.println( "-- awaitGap(precise) --" );
+        CmriLineTiming instance = new CmriLineTiming( 9600, 5, 200L * 1000 );
+        instance.setMode( CmriLineTiming.MODE_PRECISE );
+
+        for( int j = 0 ; j < 5 ; ++j )
+        {
+            instance.lineIdleAt( System.nanoTime() );
+            instance.awaitGap();
+            instance.transmitStarting( System.nanoTime() );
+        }
+
+        assertEquals( 5, instance.getGapCount() );
+        assertEquals( 0, instance.getGapShortCount() );
+        assertTrue( instance.getGapMinNanos() >= instance.getGapNanos() );
+        assertTrue( instance.getGapMaxNanos() >= instance.getGapMinNanos() );
+    }
+
+    /**
+     * Test of statistics in sleep mode, where nothing is waited here.
+     */
+    @Test
+    public void testStatisticsSleepMode()
+    {
+        System.out.println( "-- statistics --" );
+        CmriLineTiming instance = new CmriLineTiming( 9600, 3, 0 );
+
+        //  No idle mark yet, so nothing measured.
+        instance.transmitStarting( 1000 );
+        assertEquals( 0, instance.getGapCount() );
+
+        instance.lineIdleAt( 0 );
+        instance.awaitGap();        // returns at once in sleep mode.
+        instance.transmitStarting( 1500L * 1000 );          // 1.5 ms, too short.
+
+        instance.lineIdleAt( 10L * 1000 * 1000 );
+        instance.transmitStarting( 40L * 1000 * 1000 );     // 30 ms.
+
+        assertEquals( 2, instance.getGapCount() );
+        assertEquals( 1, instance.getGapShortCount() );
+        assertEquals( 1500L * 1000, instance.getGapMinNanos() );
+        assertEquals( 30L * 1000 * 1000, instance.getGapMaxNanos() );
+
+        long[]  h = instance.getGapHistogram();
+        assertEquals( 1, h[ 11 ] );     // 1500 us is in [1024, 2048)
+        assertEquals( 1, h[ 15 ] );     // 30000 us is in [16384, 32768)
+
+        instance.resetStatistics();
+        assertEquals( 0, instance.getGapCount() );
+        assertEquals( 0, instance.getGapHistogram()[ 11 ] );
+    }
+
+}
@@ -0,0 +1,380 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import com.crunchynoodles.util.SynchronizedByteBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import org.embeddedrailroad.eri.layoutio.InputDebounceFilter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *  Checks the bulk receive path of the polling worker, and prints a small
+ *  micro-benchmark of bytes/sec and allocations per frame, comparing the old
+ *  byte-at-a-time path into {@link SynchronizedByteBuffer} against
+ *  {@code receiveAvailable()}.
+ *
+ * @author brian
+ */
+public class CmriReceivePathTest {
+
+    public CmriReceivePathTest() {
+    }
+
+    /**
+     * Test of receiveAvailable method, of class CmriPollMachine.CmriSerialPollingWorker.
+     */
+    @Test
+    public void testReceiveAvailable()
+            throws IOException
+    {
+        System.out.println( "-- receiveAvailable --" );
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, new CmriLayoutModelImpl() );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+
+        FrameStream  in = new FrameStream( FRAME, 5 );
+        worker.m_instr = in;
+
+        //  Deliver exactly 3 frames worth, in UART-sized bursts.
+        in.limit( 3 * FRAME.length );
+        int  got = worker.receiveAvailable();
+
+        assertEquals( 3 * FRAME.length, got );
+        assertEquals( 3 * FRAME.length, worker.m_rx_ring.size() );
+
+        //  Bytes only count as good once the poll thread accepts a frame made of them.
+        assertEquals( 0, machine.m_cntr_good_bytes_in );
+        assertEquals( 0, machine.m_cntr_bad_bytes_in );
+    }
+
+    /**
+     * Test of queryResponseUnit method, a length-completed reply whose last byte comes in a
+     * later chunk is only accepted when that byte is the ETX.
+     */
+    @Test
+    public void testEtxLateChunk()
+            throws InterruptedException
+    {
+        System.out.println( "-- ETX in late chunk --" );
+        //  Slow line, so one character time (33 ms) easily covers the late chunk's delay.
+        CmriLayoutModelImpl  model = new CmriLayoutModelImpl();
+        CmriPollMachine  machine = new CmriPollMachine( null, 300, model );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+        worker.m_instr = new ByteArrayInputStream( new byte[0] );
+        machine.setResponseDescriptor( 5, new CmriResponseDescriptor( CmriNodeType.NDP_SMINI, 3 ) );
+
+        byte[]  good = CmriFrameEncoder.encodeFrame( 5, new byte[] { 'R', 0x11, 0x22, 0x33 } );
+        byte[]  body = Arrays.copyOf( good, good.length - 1 );
+
+        //  ETX alone, a moment later.
+        worker.m_outstr = new SplitNode( worker, body, new byte[] { CmriFrameDecoder.CMRI_CH_ETX } );
+        assertTrue( worker.queryResponseUnit( 5 ) );
+        assertEquals( 3, machine.m_cntr_good_bytes_in );
+
+        //  An extra input byte, then ETX: too long.
+        worker.m_outstr = new SplitNode( worker, body, new byte[] { 0x44, CmriFrameDecoder.CMRI_CH_ETX } );
+        assertFalse( worker.queryResponseUnit( 5 ) );
+        assertEquals( 1, machine.m_cntr_long_frames );
+        assertEquals( 3, machine.m_cntr_good_bytes_in );
+
+        //  No ETX at all: rejected after a character time, not the whole poll timeout.
+        worker.m_outstr = new SplitNode( worker, body, null );
+        assertFalse( worker.queryResponseUnit( 5 ) );
+        assertEquals( 3, machine.m_cntr_good_bytes_in );
+        assertEquals( 6, machine.m_cntr_bad_bytes_in );
+    }
+
+    /**
+     * Test of queryResponseUnit method, a USIC answering with more cards than its XML lists.
+     */
+    @Test
+    public void testMoreCardsThanListed()
+            throws InterruptedException
+    {
+        System.out.println( "-- more cards than listed --" );
+        CmriLayoutModelImpl  model = new CmriLayoutModelImpl();
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, model );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+        worker.m_instr = new ByteArrayInputStream( new byte[0] );
+        machine.setResponseDescriptor( 5, new CmriResponseDescriptor( CmriNodeType.NDP_USIC, 3, false ) );
+
+        byte[]  reply = CmriFrameEncoder.encodeFrame( 5, new byte[] { 'R', 0x11, 0x22, 0x33, 0x44, 0x55, 0x66 } );
+        worker.m_outstr = new SplitNode( worker, reply, null );
+        assertTrue( worker.queryResponseUnit( 5 ) );
+        assertEquals( 6, machine.m_cntr_good_bytes_in );
+        assertEquals( 0, machine.m_cntr_long_frames );
+    }
+
+    /**
+     * Test of a response longer than its unit's input filter: passed on raw, and counted.
+     */
+    @Test
+    public void testLongerThanFilter()
+            throws InterruptedException
+    {
+        System.out.println( "-- longer than filter --" );
+        CmriLayoutModelImpl  model = new CmriLayoutModelImpl();
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, model );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+        worker.m_instr = new ByteArrayInputStream( new byte[0] );
+        machine.setInputFilter( 5, new InputDebounceFilter( 8 ) );
+
+        byte[]  reply = CmriFrameEncoder.encodeFrame( 5, new byte[] { 'R', 0x11, 0x22, 0x33 } );
+        worker.m_outstr = new SplitNode( worker, reply, null );
+        assertTrue( worker.queryResponseUnit( 5 ) );
+        assertEquals( 1, machine.m_cntr_unfiltered_inputs );
+
+        worker.m_scan_batch.commit();
+        assertTrue( "raw bit, no hold-off", model.getSensedDataOne( 5, 0 ) );
+        assertTrue( model.getSensedDataOne( 5, 17 ) );
+    }
+
+    /**
+     * Test of the scan batch path: an answered poll lands in the worker's int-keyed batch,
+     * and reaches the model when the batch is committed.
+     */
+    @Test
+    public void testScanBatchIntPath()
+            throws InterruptedException
+    {
+        System.out.println( "-- scan batch int path --" );
+        CmriLayoutModelImpl  model = new CmriLayoutModelImpl();
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, model );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+        worker.m_instr = new ByteArrayInputStream( new byte[0] );
+        machine.setResponseDescriptor( 5, new CmriResponseDescriptor( CmriNodeType.NDP_SMINI, 3 ) );
+
+        byte[]  reply = CmriFrameEncoder.encodeFrame( 5, new byte[] { 'R', 0x11, 0x22, 0x33 } );
+        worker.m_outstr = new SplitNode( worker, reply, null );
+
+        assertTrue( worker.queryResponseUnit( 5 ) );
+        assertEquals( 1, worker.m_scan_batch.size() );
+        assertEquals( 5, worker.m_scan_batch.getIntUnit( 0 ) );
+        assertNull( "not in model before commit", model.getSensedDataSnapshot( 5 ) );
+
+        //  Same unit again in one cycle, with new inputs: still one entry, last image wins.
+        reply = CmriFrameEncoder.encodeFrame( 5, new byte[] { 'R', 0x44, 0x22, 0x33 } );
+        worker.m_outstr = new SplitNode( worker, reply, null );
+        assertTrue( worker.queryResponseUnit( 5 ) );
+        assertEquals( 1, worker.m_scan_batch.size() );
+
+        assertEquals( 1, worker.m_scan_batch.commit() );
+        assertTrue( worker.m_scan_batch.isEmpty() );
+        assertFalse( model.getSensedDataOne( 5, 0 ) );
+        assertTrue( model.getSensedDataOne( 5, 2 ) );
+        assertTrue( model.getSensedDataOne( 5, 6 ) );
+        assertEquals( 1L, model.getScanEpoch().getEpoch() );
+    }
+
+    /**
+     * Micro-benchmark, old versus new receive path.  Results are printed, not asserted,
+     * since timings vary by machine.
+     */
+    @Test
+    public void testBenchmark()
+            throws IOException
+    {
+        System.out.println( "-- receive path benchmark --" );
+        final int  FRAMES = 200 * 1000;
+        final int  BURST = 16;          // typical UART FIFO trigger level.
+
+        CmriPollMachine  machine = new CmriPollMachine( null, 115200, new CmriLayoutModelImpl() );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+        FrameStream  in = new FrameStream( FRAME, BURST );
+        worker.m_instr = in;
+
+        SynchronizedByteBuffer  legacy = new SynchronizedByteBuffer( 2 * FRAME.length );
+
+        //  Warm-up both so JIT has compiled them.
+        _runLegacy( in, legacy, FRAMES / 10 );
+        _runBulk( in, worker, FRAMES / 10 );
+
+        long  alloc0 = _allocatedBytes();
+        long  t0 = System.nanoTime();
+        long  bytes = _runLegacy( in, legacy, FRAMES );
+        long  t1 = System.nanoTime();
+        long  alloc1 = _allocatedBytes();
+        _report( "before (per-byte read + SynchronizedByteBuffer)", bytes, t1 - t0, alloc1 - alloc0, FRAMES );
+
+        alloc0 = _allocatedBytes();
+        t0 = System.nanoTime();
+        bytes = _runBulk( in, worker, FRAMES );
+        t1 = System.nanoTime();
+        alloc1 = _allocatedBytes();
+        _report( "after  (bulk read + SpscByteRingBuffer)", bytes, t1 - t0, alloc1 - alloc0, FRAMES );
+
+        assertEquals( (long) FRAMES * FRAME.length, bytes );
+    }
+
+    //----------------------------  HELPERS  ------------------------------
+
+    /*** Old path: per byte available()/read() and a synchronized add(), then poller takes frame. */
+    private static long _runLegacy( FrameStream in, SynchronizedByteBuffer buf, int frames )
+            throws IOException
+    {
+        long  total = 0;
+        for( int f = 0 ; f < frames ; ++f )
+        {
+            buf.setEnabled( true );
+            in.limit( FRAME.length );
+            while( in.available() > 0 )
+            {
+                buf.add( (byte) in.read() );
+            }
+            total += buf.disableAndGet().length;
+        }
+        return total;
+    }
+
+    /*** New path: serial event reads in chunks, poller drains ring into its scratch. */
+    private static long _runBulk( FrameStream in, CmriPollMachine.CmriSerialPollingWorker worker, int frames )
+            throws IOException
+    {
+        byte[]  scratch = new byte[ CmriPollMachine.RX_CHUNK_SIZE ];
+        long  total = 0;
+        for( int f = 0 ; f < frames ; ++f )
+        {
+            in.limit( FRAME.length );
+            worker.receiveAvailable();
+            int  n;
+            while( (n = worker.m_rx_ring.drainTo( scratch, 0, scratch.length )) > 0 )
+                total += n;
+        }
+        return total;
+    }
+
+    private static void _report( String name, long bytes, long nanos, long alloc, int frames )
+    {
+        double  bps = bytes * 1.0e9 / nanos;
+        if( alloc >= 0 )
+            System.out.printf( "  %s: %.1f MB/s, %.1f bytes allocated/frame%n",
+                               name, bps / 1.0e6, (double) alloc / frames );
+        else
+            System.out.printf( "  %s: %.1f MB/s, allocations n/a%n", name, bps / 1.0e6 );
+    }
+
+    /*** @return bytes allocated so far by this thread, or -1 if JVM can't tell. */
+    private static long _allocatedBytes()
+    {
+        java.lang.management.ThreadMXBean  mx = ManagementFactory.getThreadMXBean();
+        if( mx instanceof com.sun.management.ThreadMXBean )
+        {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes( Thread.currentThread().getId() );
+        }
+        return -1;
+    }
+
+    /***
+     *  Stand-in for the serial port's input stream.  Repeats one frame forever, but only
+     *  reports up to {@code burst} bytes available at a time, like a UART FIFO, and never
+     *  more than the current {@link #limit(int) }.
+     */
+    private static class FrameStream extends InputStream
+    {
+        FrameStream( byte[] frame, int burst )
+        {
+            m_frame = frame;
+            m_burst = burst;
+        }
+
+        void    limit( int n )
+        {
+            m_left = n;
+        }
+
+        @Override
+        public int available()
+        {
+            return Math.min( m_left, m_burst );
+        }
+
+        @Override
+        public int read()
+        {
+            if( m_left <= 0 )
+                return -1;
+            m_left -= 1;
+            int  ch = m_frame[ m_pos ] & 0xff;
+            m_pos = (m_pos + 1) % m_frame.length;
+            return ch;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+        {
+            if( m_left <= 0 )
+                return -1;
+            int  n = Math.min( len, m_left );
+            for( int j = 0 ; j < n ; ++j )
+            {
+                b[ off + j ] = m_frame[ m_pos ];
+                m_pos = (m_pos + 1) % m_frame.length;
+            }
+            m_left -= n;
+            return n;
+        }
+
+        private final byte[]    m_frame;
+        private final int       m_burst;
+        private int             m_pos;
+        private int             m_left;
+    }
+
+    /***
+     *  Pretends to be a unit on the wire: answers a poll with {@code head} straight into the
+     *  worker's receive ring, then {@code tail} a few milliseconds later from another thread.
+     */
+    private static class SplitNode extends OutputStream
+    {
+        SplitNode( CmriPollMachine.CmriSerialPollingWorker worker, byte[] head, byte[] tail )
+        {
+            m_worker = worker;
+            m_head = head;
+            m_tail = tail;
+        }
+
+        @Override
+        public void write( int b )
+        {
+            write( new byte[] { (byte) b }, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+            m_worker.m_rx_ring.offer( m_head, 0, m_head.length );
+            if( m_tail == null )
+                return;
+
+            Thread  late = new Thread( new Runnable() {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        Thread.sleep( 5 );
+                    }
+                    catch( InterruptedException ex )
+                    {
+                        return;
+                    }
+                    m_worker.m_rx_ring.offer( m_tail, 0, m_tail.length );
+                }
+            } );
+            late.start();
+        }
+
+        final CmriPollMachine.CmriSerialPollingWorker  m_worker;
+        final byte[]    m_head;
+        final byte[]    m_tail;
+    }
+
+    /*** SMINI reply: FF FF STX 'A' 'R' + 3 input bytes + ETX. */
+    private static final byte[]  FRAME = { (byte) 0xff, (byte) 0xff, 0x02, 0x41, 0x52, 0x01, 0x20, 0x40, 0x03 };
+
+}
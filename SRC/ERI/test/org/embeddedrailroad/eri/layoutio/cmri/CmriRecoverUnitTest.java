@@ -0,0 +1,156 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriRecoverUnitTest {
+
+    public CmriRecoverUnitTest() {
+    }
+
+    /*** SMINI INIT: 'I' 'M' DH DL NS=0. */
+    private static final byte[]  SMINI_INIT = { 'I', 'M', 0, 0, 0 };
+
+    /*** USIC INIT with 4 card sets. */
+    private static final byte[]  USIC_INIT = { 'I', 'N', 0, 0, 4, 0, 0, 0, 0 };
+
+    /**
+     * Test of settleMicros method, of class CmriNodeType.
+     */
+    @Test
+    public void testSettleMicros()
+    {
+        System.out.println( "-- settleMicros --" );
+        assertEquals( CmriNodeType.NDP_SMINI, CmriNodeType.getNodeType( SMINI_INIT ) );
+        assertEquals( 0, CmriNodeType.getNodeType( new byte[] { 'P' } ) );
+
+        assertEquals( CmriNodeType.SETTLE_SMINI_MICROS, CmriNodeType.settleMicros( SMINI_INIT ) );
+        assertEquals( CmriNodeType.SETTLE_USIC_MICROS + 4 * CmriNodeType.SETTLE_CARD_SET_MICROS,
+                      CmriNodeType.settleMicros( USIC_INIT ) );
+        assertEquals( CmriNodeType.SETTLE_UNKNOWN_MICROS, CmriNodeType.settleMicros( new byte[] { 'I', 'Z' } ) );
+
+        assertEquals( 0, CmriNodeType.settleMicros( (java.util.List<byte[]>) null ) );
+        assertEquals( CmriNodeType.settleMicros( USIC_INIT ),
+                      CmriNodeType.settleMicros( Arrays.asList( SMINI_INIT, USIC_INIT ) ) );
+    }
+
+    /**
+     * Test of recoverUnit method, a unit that answers once INIT'd is revived.
+     */
+    @Test
+    public void testRecoverAnswers()
+            throws InterruptedException
+    {
+        System.out.println( "-- recoverUnit answers --" );
+        CmriLayoutModelImpl  model = new CmriLayoutModelImpl();
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, model );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+
+        FakeNode  node = new FakeNode( worker, 5, true );
+        worker.m_instr = new ByteArrayInputStream( new byte[0] );
+        worker.m_outstr = node;
+        model.setUnitInitializationStrings( 5, new ArrayList<>( Arrays.asList( SMINI_INIT ) ) );
+
+        assertTrue( worker.recoverUnit( 5 ) );
+        assertEquals( 1, node.m_inits );
+        assertEquals( 1, node.m_polls );
+        assertTrue( "poll came too soon after INIT", node.m_poll_after_init_nanos >=
+                        CmriNodeType.SETTLE_SMINI_MICROS * 1000L );
+        assertTrue( machine.m_rtt.hasSamples( 5 ) );
+
+        //  Accepted reply's three input bytes are the only good bytes.
+        assertEquals( 3, machine.m_cntr_good_bytes_in );
+        assertEquals( 0, machine.m_cntr_bad_bytes_in );
+    }
+
+    /**
+     * Test of recoverUnit method, a silent unit fails in bounded time.
+     */
+    @Test
+    public void testRecoverSilent()
+            throws InterruptedException
+    {
+        System.out.println( "-- recoverUnit silent --" );
+        CmriLayoutModelImpl  model = new CmriLayoutModelImpl();
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, model );
+        CmriPollMachine.CmriSerialPollingWorker  worker = machine.new CmriSerialPollingWorker();
+
+        FakeNode  node = new FakeNode( worker, 5, false );
+        worker.m_instr = new ByteArrayInputStream( new byte[0] );
+        worker.m_outstr = node;
+        model.setUnitInitializationStrings( 5, new ArrayList<>( Arrays.asList( SMINI_INIT ) ) );
+
+        long  t0 = System.nanoTime();
+        assertFalse( worker.recoverUnit( 5 ) );
+        long  took = System.nanoTime() - t0;
+
+        assertEquals( 1, node.m_polls );
+        assertTrue( "took too long " + took, took < 1000L * 1000 * 1000 );
+
+        //  No init-message, nothing sent.
+        assertFalse( worker.recoverUnit( 6 ) );
+        assertEquals( 1, node.m_inits );
+    }
+
+    /***
+     *  Pretends to be a SMINI on the wire: notes frames written, and answers a poll
+     *  straight into the worker's receive ring once it has been INIT'd.
+     */
+    private static class FakeNode extends OutputStream
+    {
+        FakeNode( CmriPollMachine.CmriSerialPollingWorker worker, int addr, boolean answers )
+        {
+            m_worker = worker;
+            m_addr = addr;
+            m_answers = answers;
+        }
+
+        @Override
+        public void write( int b )
+        {
+            write( new byte[] { (byte) b }, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+            //  FF FF STX UA type ...
+            int  type = b[ off + 4 ];
+            if( type == 'I' )
+            {
+                m_inits += 1;
+                m_init_nanos = System.nanoTime();
+            }
+            else
+            if( type == 'P' )
+            {
+                m_polls += 1;
+                m_poll_after_init_nanos = System.nanoTime() - m_init_nanos;
+                if( m_answers && m_inits > 0 )
+                {
+                    byte[]  reply = CmriFrameEncoder.encodeFrame( m_addr, new byte[] { 'R', 1, 2, 3 } );
+                    m_worker.m_rx_ring.offer( reply, 0, reply.length );
+                }
+            }
+        }
+
+        final CmriPollMachine.CmriSerialPollingWorker  m_worker;
+        final int       m_addr;
+        final boolean   m_answers;
+        int             m_inits;
+        int             m_polls;
+        long            m_init_nanos;
+        long            m_poll_after_init_nanos;
+    }
+
+}
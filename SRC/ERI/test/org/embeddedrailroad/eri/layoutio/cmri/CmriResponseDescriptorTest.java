@@ -0,0 +1,122 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.embeddedrailroad.eri.xml.InputGroupBean;
+import org.embeddedrailroad.eri.xml.OutputGroupBean;
+import org.embeddedrailroad.eri.xml.UnitBean;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriResponseDescriptorTest {
+
+    public CmriResponseDescriptorTest() {
+    }
+
+    private static UnitBean  unit( String type, int... firstLast )
+    {
+        UnitBean  u = new UnitBean();
+        u.setAddress( "1" );
+        u.setType( type );
+        for( int j = 0 ; j + 1 < firstLast.length ; j += 2 )
+        {
+            InputGroupBean  g = new InputGroupBean();
+            g.setFirst( Integer.toString( firstLast[j] ) );
+            g.setLast( Integer.toString( firstLast[j+1] ) );
+            u.addInputOutputGroup( g );
+        }
+        return u;
+    }
+
+    /**
+     * Test of fromUnitBean method, of class CmriResponseDescriptor.
+     */
+    @Test
+    public void testFromUnitBean()
+    {
+        System.out.println( "-- fromUnitBean --" );
+
+        //  SMINI is always 24 inputs.
+        CmriResponseDescriptor  d = CmriResponseDescriptor.fromUnitBean( unit( "smini" ) );
+        assertEquals( CmriNodeType.NDP_SMINI, d.getNodeType() );
+        assertEquals( 3, d.getInputBytes() );
+        assertTrue( d.isLengthExact() );
+
+        //  cpNode from Deployment/front_range_layout.xml: 0..31 and 96..127.
+        UnitBean  cp = unit( "cpNode", 0, 31, 96, 127 );
+        OutputGroupBean  out = new OutputGroupBean();
+        out.setFirst( "0" );
+        out.setLast( "200" );
+        cp.addInputOutputGroup( out );
+        d = CmriResponseDescriptor.fromUnitBean( cp );
+        assertEquals( CmriNodeType.NDP_CPNODE, d.getNodeType() );
+        assertEquals( 16, d.getInputBytes() );
+        assertFalse( d.isLengthExact() );
+
+        d = CmriResponseDescriptor.fromUnitBean( unit( "SUSIC", 0, 95 ) );
+        assertEquals( CmriNodeType.NDP_SUSIC, d.getNodeType() );
+        assertEquals( 12, d.getInputBytes() );
+
+        assertEquals( 1, CmriResponseDescriptor.fromUnitBean( unit( "cpNode-IOX16", 0, 0 ) ).getInputBytes() );
+
+        //  Whole cards: a USIC's are 24 bits, a SUSIC's 32.
+        assertEquals( 3, CmriResponseDescriptor.fromUnitBean( unit( "USIC", 0, 9 ) ).getInputBytes() );
+        assertEquals( 6, CmriResponseDescriptor.fromUnitBean( unit( "USIC", 0, 24 ) ).getInputBytes() );
+        assertEquals( 8, CmriResponseDescriptor.fromUnitBean( unit( "SUSIC", 0, 32 ) ).getInputBytes() );
+    }
+
+    /**
+     * Test of a unit whose XML lists fewer input bits than it returns.
+     */
+    @Test
+    public void testMoreThanListed()
+    {
+        System.out.println( "-- more than listed --" );
+        //  XML lists one card's worth, but the USIC has two input cards.
+        CmriResponseDescriptor  d = CmriResponseDescriptor.fromUnitBean( unit( "USIC", 0, 7 ) );
+        assertEquals( 3, d.getInputBytes() );
+        assertFalse( d.isLengthExact() );
+
+        CmriFrameDecoder  decoder = new CmriFrameDecoder();
+        decoder.setExpectedLength( d.getInputBytes(), d.isLengthExact() );
+        byte[]  wire = CmriFrameEncoder.encodeFrame( 1, new byte[] { 'R', 0x11, 0x22, 0x33, 0x44, 0x55, 0x66 } );
+        decoder.feed( wire, 0, wire.length );
+        assertTrue( decoder.isComplete() );
+        assertFalse( decoder.isAwaitingEtx() );
+        assertEquals( 6, decoder.getPayloadLength() );
+
+        //  But fewer than the least is still short.
+        decoder.reset();
+        wire = CmriFrameEncoder.encodeFrame( 1, new byte[] { 'R', 0x11, 0x22 } );
+        decoder.feed( wire, 0, wire.length );
+        assertTrue( decoder.isError() );
+        assertEquals( CmriFrameDecoder.ERROR_SHORT, decoder.getError() );
+    }
+
+    /**
+     * Test of unknown lengths.
+     */
+    @Test
+    public void testUnknown()
+    {
+        System.out.println( "-- unknown --" );
+        assertFalse( CmriResponseDescriptor.fromUnitBean( unit( "Digitrax SC-12", 0, 7 ) ).isLengthKnown() );
+        assertFalse( CmriResponseDescriptor.fromUnitBean( unit( "USIC" ) ).isLengthKnown() );
+
+        UnitBean  u = unit( "USIC" );
+        InputGroupBean  g = new InputGroupBean();
+        g.setFirst( "PA.3" );
+        g.setLast( "PA.31" );
+        u.addInputOutputGroup( g );
+        CmriResponseDescriptor  d = CmriResponseDescriptor.fromUnitBean( u );
+        assertFalse( d.isLengthKnown() );
+        assertEquals( CmriNodeType.NDP_USIC, d.getNodeType() );
+
+        assertFalse( CmriResponseDescriptor.UNKNOWN.isLengthKnown() );
+    }
+
+}
@@ -0,0 +1,94 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriResponseTimeEstimatorTest {
+
+    public CmriResponseTimeEstimatorTest() {
+    }
+
+    /**
+     * Test of fallback for units without samples.
+     */
+    @Test
+    public void testFallback()
+    {
+        System.out.println( "-- fallback --" );
+        CmriResponseTimeEstimator instance = new CmriResponseTimeEstimator( 100000, 5000, 500000 );
+
+        assertFalse( instance.hasSamples( 3 ) );
+        assertEquals( 100000, instance.getTimeoutMicros( 3 ) );
+
+        //  Fallback is clamped too.
+        instance.setFallback( 900000 );
+        assertEquals( 500000, instance.getTimeoutMicros( 3 ) );
+    }
+
+    /**
+     * Test that a fast and a slow unit on the same bank get their own timeouts.
+     */
+    @Test
+    public void testPerUnit()
+    {
+        System.out.println( "-- per-unit timeouts --" );
+        CmriResponseTimeEstimator instance = new CmriResponseTimeEstimator( 100000, 5000, 500000 );
+
+        for( int j = 0 ; j < 50 ; ++j )
+        {
+            instance.addSample( 1, 1000 + (j % 3) * 100 );     // quick SMINI, ~1 ms
+            instance.addSample( 2, 60000 + (j % 5) * 2000 );   // slow cpNode, ~64 ms
+        }
+
+        int  fast = instance.getTimeoutMicros( 1 );
+        int  slow = instance.getTimeoutMicros( 2 );
+
+        assertTrue( "fast unit timeout " + fast, fast >= 5000 && fast < 10000 );
+        assertTrue( "slow unit timeout " + slow, slow > 64000 && slow < 100000 );
+    }
+
+    /**
+     * Test of timedOut and reset methods.
+     */
+    @Test
+    public void testBackoffAndReset()
+    {
+        System.out.println( "-- backoff/reset --" );
+        CmriResponseTimeEstimator instance = new CmriResponseTimeEstimator( 100000, 5000, 500000 );
+
+        instance.addSample( 4, 20000 );
+        int  base = instance.getTimeoutMicros( 4 );
+
+        instance.timedOut( 4 );
+        assertEquals( 2 * base, instance.getTimeoutMicros( 4 ) );
+
+        for( int j = 0 ; j < 20 ; ++j )
+            instance.timedOut( 4 );
+        assertEquals( 500000, instance.getTimeoutMicros( 4 ) );
+
+        //  Good response clears back-off.
+        instance.addSample( 4, 20000 );
+        assertTrue( instance.getTimeoutMicros( 4 ) < 2 * base );
+
+        instance.reset( 4 );
+        assertFalse( instance.hasSamples( 4 ) );
+        assertEquals( 100000, instance.getTimeoutMicros( 4 ) );
+    }
+
+    /**
+     * Test of setLimits argument checks.
+     */
+    @Test( expected = IllegalArgumentException.class )
+    public void testBadLimits()
+    {
+        System.out.println( "-- setLimits(bad) --" );
+        new CmriResponseTimeEstimator( 100000, 5000, 500000 ).setLimits( 10, 5 );
+    }
+
+}
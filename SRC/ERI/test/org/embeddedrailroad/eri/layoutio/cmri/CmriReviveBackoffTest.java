@@ -0,0 +1,128 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriReviveBackoffTest {
+
+    public CmriReviveBackoffTest() {
+    }
+
+    private static final long  MS = 1000L * 1000L;
+
+    /**
+     * Test of failed method, waits double and stay within jitter bounds.
+     */
+    @Test
+    public void testFailedDoubles()
+    {
+        System.out.println( "-- failed doubles --" );
+        CmriReviveBackoff instance = new CmriReviveBackoff( 100, 1000 );
+        long  now = 5000 * MS;
+
+        assertTrue( "new unit is due", instance.isDue( 7, now ) );
+
+        long  expect = 100 * MS;
+        for( int j = 0 ; j < 8 ; ++j )
+        {
+            long  wait = instance.failed( 7, now );
+            long  full = Math.min( expect, 1000 * MS );
+            assertTrue( "wait too short " + wait, wait >= full / 2 );
+            assertTrue( "wait too long " + wait, wait <= full );
+            assertEquals( j + 1, instance.getAttempts( 7 ) );
+
+            assertFalse( instance.isDue( 7, now + wait - 1 ) );
+            assertTrue( instance.isDue( 7, now + wait ) );
+            expect *= 2;
+        }
+
+        //  Other units untouched.
+        assertTrue( instance.isDue( 8, now ) );
+    }
+
+    /**
+     * Test of jitter, units failing together don't come due together.
+     */
+    @Test
+    public void testJitterSpreads()
+    {
+        System.out.println( "-- jitter spreads --" );
+        CmriReviveBackoff instance = new CmriReviveBackoff( 1000, 1000 );
+        long  lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+
+        for( int addr = 0 ; addr < 64 ; ++addr )
+        {
+            long  wait = instance.failed( addr, 0L );
+            lo = Math.min( lo, wait );
+            hi = Math.max( hi, wait );
+        }
+
+        assertTrue( "no spread", hi - lo > 100 * MS );
+    }
+
+    /**
+     * Test of reset and expediteAll methods.
+     */
+    @Test
+    public void testResetExpedite()
+    {
+        System.out.println( "-- reset/expedite --" );
+        CmriReviveBackoff instance = new CmriReviveBackoff( 100, 10000 );
+        long  now = 0L;
+
+        for( int j = 0 ; j < 6 ; ++j )
+        {
+            instance.failed( 1, now );
+            instance.failed( 2, now );
+        }
+        assertFalse( instance.isDue( 1, now + 100 * MS ) );
+
+        instance.reset( 1 );
+        assertTrue( instance.isDue( 1, now ) );
+        assertEquals( 0, instance.getAttempts( 1 ) );
+
+        instance.expediteAll( now + 5 * MS );
+        assertTrue( instance.isDue( 2, now + 5 * MS ) );
+        assertEquals( 1, instance.getAttempts( 2 ) );
+
+        //  Another miss after a burst backs off from near the start, not from where it was.
+        long  wait = instance.failed( 2, now );
+        assertTrue( wait <= 200 * MS );
+    }
+
+    /**
+     * Test of setLimits and recovery rate mapping.
+     */
+    @Test
+    public void testLimits()
+    {
+        System.out.println( "-- limits --" );
+        try {
+            new CmriReviveBackoff( 0, 10 );
+            fail( "zero base" );
+        }
+        catch( IllegalArgumentException ex ) { }
+
+        try {
+            new CmriReviveBackoff( 100, 10 );
+            fail( "max below base" );
+        }
+        catch( IllegalArgumentException ex ) { }
+
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, new CmriLayoutModelImpl() );
+        assertEquals( 100, machine.getReviveBackoff().getBaseMillis() );
+
+        machine.setRecoveryRate( 1.0 );
+        assertEquals( CmriPollMachine.RECOVERY_BASE_MILLIS, machine.getReviveBackoff().getBaseMillis() );
+
+        machine.setRecoveryRate( 0.000001 );
+        assertEquals( machine.getReviveBackoff().getMaxMillis(), machine.getReviveBackoff().getBaseMillis() );
+    }
+
+}
@@ -0,0 +1,71 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriScanStatisticsTest {
+
+    public CmriScanStatisticsTest() {
+    }
+
+    /**
+     * Test of cycle duration, jitter and overrun counting.
+     */
+    @Test
+    public void testCycles()
+    {
+        System.out.println( "-- scan cycles --" );
+        CmriScanStatistics instance = new CmriScanStatistics();
+
+        assertEquals( 0, instance.getMinDurationNanos() );
+        assertEquals( 0, instance.getMeanJitterNanos() );
+
+        instance.cycleStarted( 1000, 1100 );
+        instance.cycleFinished( 40000, false );
+        instance.cycleStarted( 2000, 2300 );
+        instance.cycleFinished( 120000, true );
+        instance.slackRevival();
+
+        assertEquals( 2, instance.getCycleCount() );
+        assertEquals( 1, instance.getOverrunCount() );
+        assertEquals( 1, instance.getSlackRevivalCount() );
+        assertEquals( 40000, instance.getMinDurationNanos() );
+        assertEquals( 120000, instance.getMaxDurationNanos() );
+        assertEquals( 80000, instance.getMeanDurationNanos() );
+        assertEquals( 120000, instance.getLastDurationNanos() );
+        assertEquals( 300, instance.getMaxJitterNanos() );
+        assertEquals( 200, instance.getMeanJitterNanos() );
+
+        instance.reset();
+        assertEquals( 0, instance.getCycleCount() );
+        assertEquals( 0, instance.getMaxDurationNanos() );
+    }
+
+    /**
+     * Test of setScanPeriod, of class CmriPollMachine.
+     */
+    @Test
+    public void testScanPeriod()
+    {
+        System.out.println( "-- setScanPeriod --" );
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, new CmriLayoutModelImpl() );
+
+        assertEquals( 0, machine.getScanPeriod() );
+        machine.setScanPeriod( 100 );
+        assertEquals( 100, machine.getScanPeriod() );
+        assertNotNull( machine.getScanStatistics() );
+
+        try {
+            machine.setScanPeriod( -1 );
+            fail( "negative period accepted" );
+        }
+        catch( IllegalArgumentException ex ) { }
+    }
+
+}
@@ -0,0 +1,138 @@
+/***  This file is dedicated to the public domain, 2016 Brian Witt in USA.  ***/
+
+package org.embeddedrailroad.eri.layoutio.cmri;
+
+import java.util.Iterator;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author brian
+ */
+public class CmriUnitQueueTest {
+
+    public CmriUnitQueueTest() {
+    }
+
+    /**
+     * Test of add and poll methods, of class CmriUnitQueue.
+     */
+    @Test
+    public void testAddPoll()
+    {
+        System.out.println( "-- add/poll --" );
+        CmriUnitQueue instance = new CmriUnitQueue();
+
+        assertEquals( -1, instance.poll() );
+        assertTrue( instance.add( 5 ) );
+        assertTrue( instance.add( 255 ) );
+        assertTrue( instance.add( 0 ) );
+        assertFalse( "duplicate added", instance.add( 5 ) );
+        assertEquals( 3, instance.size() );
+        assertTrue( instance.contains( 255 ) );
+        assertFalse( instance.contains( 256 ) );
+
+        assertEquals( 5, instance.poll() );
+        assertFalse( instance.contains( 5 ) );
+        assertEquals( 255, instance.poll() );
+        assertEquals( 0, instance.poll() );
+        assertTrue( instance.isEmpty() );
+
+        //  Round and round the ring, like the poll loop does.
+        for( int j = 0 ; j < 256 ; ++j )
+            instance.add( j );
+        for( int j = 0 ; j < 1000 ; ++j )
+        {
+            int  a = instance.poll();
+            assertEquals( j % 256, a );
+            instance.add( a );
+        }
+    }
+
+    /**
+     * Test of remove method, order of the rest is kept.
+     */
+    @Test
+    public void testRemove()
+    {
+        System.out.println( "-- remove --" );
+        CmriUnitQueue instance = new CmriUnitQueue();
+        for( int j = 10 ; j < 15 ; ++j )
+            instance.add( j );
+
+        assertTrue( instance.remove( 12 ) );
+        assertFalse( instance.remove( 12 ) );
+        assertFalse( instance.remove( 999 ) );
+
+        assertEquals( 10, instance.poll() );
+        assertEquals( 11, instance.poll() );
+        assertEquals( 13, instance.poll() );
+        assertEquals( 14, instance.poll() );
+        assertEquals( -1, instance.poll() );
+    }
+
+    /**
+     * Test of CmriUnitSet built from queues.
+     */
+    @Test
+    public void testUnitSet()
+    {
+        System.out.println( "-- CmriUnitSet --" );
+        CmriUnitQueue a = new CmriUnitQueue();
+        CmriUnitQueue b = new CmriUnitQueue();
+        a.add( 200 );
+        a.add( 3 );
+        b.add( 64 );
+        b.add( 3 );
+
+        long[]  bits = new long[ CmriUnitSet.WORDS ];
+        a.orBitsInto( bits );
+        b.orBitsInto( bits );
+        Set<Integer>  set = new CmriUnitSet( bits );
+
+        assertEquals( 3, set.size() );
+        assertTrue( set.contains( 64 ) );
+        assertFalse( set.contains( 65 ) );
+        assertFalse( set.contains( "3" ) );
+
+        Iterator<Integer>  it = set.iterator();
+        assertEquals( 3, (int) it.next() );
+        assertEquals( 64, (int) it.next() );
+        assertEquals( 200, (int) it.next() );
+        assertFalse( it.hasNext() );
+
+        try {
+            set.add( 7 );
+            fail( "set is mutable" );
+        }
+        catch( UnsupportedOperationException ex ) { }
+
+        //  Snapshot, later changes to queue don't show.
+        a.add( 9 );
+        assertFalse( set.contains( 9 ) );
+    }
+
+    /**
+     * Test of getKnownUnits, of class CmriPollMachine.
+     */
+    @Test
+    public void testGetKnownUnits()
+    {
+        System.out.println( "-- getKnownUnits --" );
+        CmriPollMachine  machine = new CmriPollMachine( null, 9600, new CmriLayoutModelImpl() );
+
+        machine.addUnitToPollingList( 4 );
+        machine.addUnitToPollingList( 4 );
+        machine.addUnitToPollingList( 9 );
+
+        assertTrue( machine.getKnownUnits( false ).isEmpty() );
+        assertEquals( 2, machine.getKnownUnits( true ).size() );
+
+        machine.removeUnitFromPollingList( 4 );
+        assertEquals( 1, machine.getKnownUnits( true ).size() );
+        assertTrue( machine.getKnownUnits( true ).contains( 9 ) );
+    }
+
+}